@@ -16,7 +16,9 @@
 
 package org.killbill.billing.account.api.svcs;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import javax.inject.Inject;
@@ -27,6 +29,7 @@ import org.killbill.billing.account.api.Account;
 import org.killbill.billing.account.api.AccountApiException;
 import org.killbill.billing.account.api.AccountEmail;
 import org.killbill.billing.account.api.AccountInternalApi;
+import org.killbill.billing.account.api.DefaultAccount;
 import org.killbill.billing.account.api.DefaultAccountEmail;
 import org.killbill.billing.account.api.DefaultImmutableAccountData;
 import org.killbill.billing.account.api.DefaultMutableAccountData;
@@ -152,6 +155,18 @@ public class DefaultAccountInternalApi extends DefaultAccountApiBase implements
         return (ImmutableAccountData) accountCacheController.get(recordId, arg);
     }
 
+    @Override
+    public Map<Long, ImmutableAccountData> getImmutableAccountDataAfterRecordId(final Long fromRecordId, final Long limit, final InternalTenantContext context) {
+        final Map<Long, ImmutableAccountData> result = new LinkedHashMap<Long, ImmutableAccountData>();
+        for (final AccountModelDao accountModelDao : accountDao.getAccountsAfterRecordId(fromRecordId, limit, context)) {
+            final ImmutableAccountData immutableAccountData = new DefaultImmutableAccountData(new DefaultAccount(accountModelDao));
+            // Warm the cache, since callers will likely look these accounts up again individually
+            accountCacheController.putIfAbsent(accountModelDao.getRecordId(), immutableAccountData);
+            result.put(accountModelDao.getRecordId(), immutableAccountData);
+        }
+        return result;
+    }
+
     private AccountModelDao getAccountModelDaoByRecordId(final Long recordId, final InternalTenantContext context) throws AccountApiException {
         final AccountModelDao accountModelDao = accountDao.getByRecordId(recordId, context);
         if (accountModelDao == null) {
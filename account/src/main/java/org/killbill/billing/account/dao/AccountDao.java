@@ -32,6 +32,14 @@ public interface AccountDao extends EntityDao<AccountModelDao, Account, AccountA
 
     Pagination<AccountModelDao> searchAccounts(String searchKey, Long offset, Long limit, InternalTenantContext context);
 
+    /**
+     * Keyset pagination over all the accounts of a tenant, ordered by record id
+     *
+     * @param fromRecordId exclusive lower bound on the account record id (0 for the first page)
+     * @param limit        maximum number of accounts to return
+     */
+    List<AccountModelDao> getAccountsAfterRecordId(Long fromRecordId, Long limit, InternalTenantContext context);
+
     /**
      * @throws AccountApiException when externalKey is null
      */
@@ -16,6 +16,7 @@
 
 package org.killbill.billing.account.dao;
 
+import java.util.List;
 import java.util.UUID;
 
 import org.killbill.billing.account.api.Account;
@@ -41,6 +42,11 @@ public interface AccountSqlDao extends EntitySqlDao<AccountModelDao, Account> {
     public UUID getIdFromKey(@Bind("externalKey") final String key,
                              @BindBean final InternalTenantContext context);
 
+    @SqlQuery
+    public List<AccountModelDao> getAccountsAfterRecordId(@Bind("fromRecordId") final Long fromRecordId,
+                                                          @Bind("rowCount") final Long rowCount,
+                                                          @BindBean final InternalTenantContext context);
+
     @SqlQuery
     public Integer getBCD(@Bind("id") String accountId,
                        @BindBean final InternalTenantContext context);
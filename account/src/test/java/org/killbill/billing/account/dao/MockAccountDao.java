@@ -19,6 +19,8 @@ package org.killbill.billing.account.dao;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
 import java.util.UUID;
 
 import org.testng.Assert;
@@ -121,6 +123,18 @@ public class MockAccountDao extends MockEntityDaoBase<AccountModelDao, Account,
         return DefaultPagination.<AccountModelDao>build(offset, limit, maxNbRecords, results);
     }
 
+    @Override
+    public List<AccountModelDao> getAccountsAfterRecordId(final Long fromRecordId, final Long limit, final InternalTenantContext context) {
+        final SortedMap<Long, AccountModelDao> accountsByRecordId = new TreeMap<Long, AccountModelDao>();
+        for (final Map<Long, AccountModelDao> accountRow : entities.values()) {
+            final Long recordId = accountRow.keySet().iterator().next();
+            if (recordId > fromRecordId) {
+                accountsByRecordId.put(recordId, accountRow.get(recordId));
+            }
+        }
+        return ImmutableList.<AccountModelDao>copyOf(Iterables.<AccountModelDao>limit(accountsByRecordId.values(), limit.intValue()));
+    }
+
     @Override
     public UUID getIdFromKey(final String externalKey, final InternalTenantContext context) {
         final AccountModelDao account = getAccountByKey(externalKey, context);
@@ -17,6 +17,7 @@
 package org.killbill.billing.account.api;
 
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import org.killbill.billing.callcontext.InternalCallContext;
@@ -46,4 +47,14 @@ public interface AccountInternalApi {
 
     ImmutableAccountData getImmutableAccountDataByRecordId(Long recordId, InternalTenantContext context) throws AccountApiException;
 
+    /**
+     * Page over the accounts of the tenant, ordered by account record id.
+     *
+     * @param fromRecordId exclusive lower bound on the account record id (0 for the first page)
+     * @param limit        maximum number of accounts to return
+     * @param context      the tenant context
+     * @return the accounts of the page, keyed (and ordered) by account record id
+     */
+    Map<Long, ImmutableAccountData> getImmutableAccountDataAfterRecordId(Long fromRecordId, Long limit, InternalTenantContext context);
+
 }
@@ -35,8 +35,30 @@ public interface InvoiceInternalApi {
 
     public Collection<Invoice> getUnpaidInvoicesByAccountId(UUID accountId, LocalDate upToDate, InternalTenantContext context);
 
+    /**
+     * Retrieve the unpaid invoices of a batch of accounts, using a constant number of queries.
+     *
+     * @param accountRecordIds the account record ids
+     * @param context          the tenant context
+     * @return the unpaid invoices (regardless of their target date), grouped by account id. Accounts without any unpaid invoice are absent from the map
+     */
+    public Map<UUID, Collection<Invoice>> getUnpaidInvoicesByAccountRecordIds(Collection<Long> accountRecordIds, InternalTenantContext context);
+
+    /**
+     * Retrieve the (non migrated) invoices of the account, with their items and payments, ordered by target date.
+     * <p/>
+     * Unlike InvoiceUserApi#getInvoicesByAccount, the invoices are loaded in batches while iterating, so that they are never all held in memory.
+     *
+     * @param context the tenant context, for the account
+     * @return the invoices of the account
+     */
+    public Iterable<Invoice> streamInvoicesByAccount(InternalTenantContext context);
+
     public BigDecimal getAccountBalance(UUID accountId, InternalTenantContext context);
 
+    // Recompute the incrementally maintained balance and CBA of the account from its invoices
+    public void rebuildAccountBalance(InternalCallContext context);
+
     public void notifyOfPayment(UUID invoiceId, BigDecimal amountOutstanding, Currency currency, Currency processedCurrency, UUID paymentId, DateTime paymentDate, boolean success, InternalCallContext context) throws InvoiceApiException;
 
     public void notifyOfPayment(InvoicePayment invoicePayment, InternalCallContext context) throws InvoiceApiException;
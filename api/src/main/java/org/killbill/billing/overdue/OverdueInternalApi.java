@@ -28,6 +28,14 @@ public interface OverdueInternalApi {
 
     public OverdueState refreshOverdueStateFor(ImmutableAccountData overdueable, CallContext context) throws OverdueException, OverdueApiException;
 
+    /**
+     * Re-evaluate the overdue state of all the accounts of the tenant
+     *
+     * @param context the call context
+     * @return the number of accounts evaluated
+     */
+    public int refreshOverdueStatesForAllAccounts(CallContext context) throws OverdueException;
+
     public void setOverrideBillingStateForAccount(ImmutableAccountData overdueable, BillingState state, CallContext context) throws OverdueException;
 
     public OverdueState getOverdueStateFor(ImmutableAccountData overdueable, TenantContext context) throws OverdueException;
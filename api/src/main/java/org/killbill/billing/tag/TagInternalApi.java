@@ -16,7 +16,9 @@
 
 package org.killbill.billing.tag;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import org.killbill.billing.ObjectType;
@@ -40,6 +42,25 @@ public interface TagInternalApi {
      */
     public List<Tag> getTags(UUID objectId, ObjectType objectType, InternalTenantContext context);
 
+    /**
+     * Return tags for a set of objects of the same type, with a constant number of queries
+     *
+     * @param objectIds  the object ids
+     * @param objectType the object type
+     * @param context    call callcontext
+     * @return mapping object id -> tags (objects without tags are not part of the map)
+     */
+    public Map<UUID, List<Tag>> getTagsForObjects(Collection<UUID> objectIds, ObjectType objectType, InternalTenantContext context);
+
+    /**
+     * Return tags for all objects of a given type of the account
+     *
+     * @param objectType      the object type
+     * @param includedDeleted whether to include deleted tags
+     * @param context         call callcontext
+     * @return mapping object id -> tags (objects without tags are not part of the map)
+     */
+    public Map<UUID, List<Tag>> getTagsByObjectIdForAccountType(ObjectType objectType, boolean includedDeleted, InternalTenantContext context);
 
     public List<Tag> getTagsForAccountType(ObjectType objectType, boolean includedDeleted, InternalTenantContext internalTenantContext);
 
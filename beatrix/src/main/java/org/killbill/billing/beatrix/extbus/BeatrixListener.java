@@ -62,6 +62,7 @@ import org.killbill.billing.util.callcontext.UserType;
 import org.killbill.bus.api.BusEvent;
 import org.killbill.bus.api.PersistentBus;
 import org.killbill.bus.api.PersistentBus.EventBusException;
+import org.skife.jdbi.v2.IDBI;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -76,15 +77,19 @@ public class BeatrixListener {
 
     private static final Logger log = LoggerFactory.getLogger(BeatrixListener.class);
 
-    private final PersistentBus externalBus;
+    // Maximum number of external events posted within a single transaction
+    private static final int MAX_EXTERNAL_EVENTS_BATCH_SIZE = 100;
+
+    private final ExternalBusBatchPoster externalBusBatchPoster;
     private final InternalCallContextFactory internalCallContextFactory;
 
     protected final ObjectMapper objectMapper;
 
     @Inject
-    public BeatrixListener(@Named(BusModule.EXTERNAL_BUS_NAMED) final PersistentBus externalBus,
+    public BeatrixListener(final IDBI dbi,
+                           @Named(BusModule.EXTERNAL_BUS_NAMED) final PersistentBus externalBus,
                            final InternalCallContextFactory internalCallContextFactory) {
-        this.externalBus = externalBus;
+        this.externalBusBatchPoster = new ExternalBusBatchPoster(dbi, externalBus, MAX_EXTERNAL_EVENTS_BATCH_SIZE);
         this.internalCallContextFactory = internalCallContextFactory;
         this.objectMapper = new ObjectMapper();
         objectMapper.registerModule(new JodaModule());
@@ -94,11 +99,12 @@ public class BeatrixListener {
     @AllowConcurrentEvents
     @Subscribe
     public void handleAllInternalKillbillEvents(final BusInternalEvent event) {
-        final InternalCallContext internalContext = internalCallContextFactory.createInternalCallContext(event.getSearchKey2(), event.getSearchKey1(), "BeatrixListener", CallOrigin.INTERNAL, UserType.SYSTEM, event.getUserToken());
+        final InternalCallContext internalContext = createInternalCallContext(event);
         try {
             final BusEvent externalEvent = computeExtBusEventEntryFromBusInternalEvent(event, internalContext);
             if (externalEvent != null) {
-                externalBus.post(externalEvent);
+                // Events dispatched concurrently by the internal bus are posted together
+                externalBusBatchPoster.post(externalEvent);
             }
         } catch (final EventBusException e) {
             log.warn("Failed to dispatch external bus events", e);
@@ -107,6 +113,10 @@ public class BeatrixListener {
         }
     }
 
+    private InternalCallContext createInternalCallContext(final BusInternalEvent event) {
+        return internalCallContextFactory.createInternalCallContext(event.getSearchKey2(), event.getSearchKey1(), "BeatrixListener", CallOrigin.INTERNAL, UserType.SYSTEM, event.getUserToken());
+    }
+
     private BusEvent computeExtBusEventEntryFromBusInternalEvent(final BusInternalEvent event, final InternalCallContext context) throws JsonProcessingException {
         ObjectType objectType = null;
         UUID objectId = null;
@@ -295,18 +305,21 @@ public class BeatrixListener {
             default:
         }
 
+        // Don't bother resolving the account for events which aren't forwarded
+        if (eventBusType == null) {
+            return null;
+        }
+
         final TenantContext tenantContext = internalCallContextFactory.createTenantContext(context);
         // See #275
         accountId = (accountId == null) ?
-                    getAccountId(event.getBusEventType(), objectId, objectType, tenantContext) :
+                    getAccountId(event.getBusEventType(), objectId, objectType, context, tenantContext) :
                     accountId;
 
-        return eventBusType != null ?
-               new DefaultBusExternalEvent(objectId, objectType, eventBusType, accountId, tenantContext.getTenantId(), metaData, context.getAccountRecordId(), context.getTenantRecordId(), context.getUserToken()) :
-               null;
+        return new DefaultBusExternalEvent(objectId, objectType, eventBusType, accountId, tenantContext.getTenantId(), metaData, context.getAccountRecordId(), context.getTenantRecordId(), context.getUserToken());
     }
 
-    private UUID getAccountId(final BusInternalEventType eventType, @Nullable final UUID objectId, final ObjectType objectType, final TenantContext context) {
+    private UUID getAccountId(final BusInternalEventType eventType, @Nullable final UUID objectId, final ObjectType objectType, final InternalCallContext internalContext, final TenantContext context) {
         // accountRecord_id is not set for ACCOUNT_CREATE event as we are in the transaction and value is known yet
         if (eventType == BusInternalEventType.ACCOUNT_CREATE) {
             return objectId;
@@ -314,6 +327,9 @@ public class BeatrixListener {
             return null;
         } else if (objectId == null) {
             return null;
+        } else if (internalContext.getAccountRecordId() != null) {
+            // The event already carries the account record id (searchKey1), no need to go through the object
+            return internalCallContextFactory.getAccountIdFromAccountRecordId(internalContext.getAccountRecordId());
         } else {
             return internalCallContextFactory.getAccountId(objectId, objectType, context);
         }
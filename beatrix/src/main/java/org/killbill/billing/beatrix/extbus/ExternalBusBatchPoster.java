@@ -0,0 +1,151 @@
+/*
+ * Copyright 2014-2016 Groupon, Inc
+ * Copyright 2014-2016 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.beatrix.extbus;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import org.killbill.bus.api.BusEvent;
+import org.killbill.bus.api.PersistentBus;
+import org.killbill.bus.api.PersistentBus.EventBusException;
+import org.skife.jdbi.v2.Handle;
+import org.skife.jdbi.v2.IDBI;
+import org.skife.jdbi.v2.TransactionCallback;
+import org.skife.jdbi.v2.TransactionStatus;
+
+import com.google.common.annotations.VisibleForTesting;
+
+/**
+ * Post external bus events in batches, each batch within a single transaction (group commit).
+ * <p/>
+ * Concurrent callers enqueue their event and wait: one of them posts all pending events (up to maxBatchSize per transaction),
+ * while the others wait for the outcome of the batch containing their event. A caller only returns once its event has been
+ * committed (or has failed), so that the internal event isn't acknowledged before the external one is persisted.
+ */
+class ExternalBusBatchPoster {
+
+    private final IDBI dbi;
+    private final PersistentBus externalBus;
+    private final int maxBatchSize;
+
+    private final Object lock = new Object();
+    // Guarded by lock
+    private final LinkedList<PendingEvent> pendingEvents = new LinkedList<PendingEvent>();
+    private boolean isPosting = false;
+
+    ExternalBusBatchPoster(final IDBI dbi, final PersistentBus externalBus, final int maxBatchSize) {
+        this.dbi = dbi;
+        this.externalBus = externalBus;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public void post(final BusEvent event) throws EventBusException {
+        final PendingEvent pendingEvent = new PendingEvent(event);
+        synchronized (lock) {
+            pendingEvents.add(pendingEvent);
+        }
+
+        boolean interrupted = false;
+        try {
+            while (true) {
+                final List<PendingEvent> batch;
+                synchronized (lock) {
+                    // Don't give up on interrupts: the event may be posted by another thread in the meantime
+                    while (isPosting && !pendingEvent.isDone) {
+                        try {
+                            lock.wait();
+                        } catch (final InterruptedException e) {
+                            interrupted = true;
+                        }
+                    }
+                    if (pendingEvent.isDone) {
+                        break;
+                    }
+
+                    isPosting = true;
+                    batch = new LinkedList<PendingEvent>();
+                    while (!pendingEvents.isEmpty() && batch.size() < maxBatchSize) {
+                        batch.add(pendingEvents.removeFirst());
+                    }
+                }
+
+                // Reported to the callers if the batch fails unexpectedly
+                EventBusException failure = new EventBusException("Failed to post a batch of " + batch.size() + " external bus events");
+                try {
+                    failure = postBatch(batch);
+                } finally {
+                    synchronized (lock) {
+                        for (final PendingEvent batchEvent : batch) {
+                            batchEvent.failure = failure;
+                            batchEvent.isDone = true;
+                        }
+                        isPosting = false;
+                        lock.notifyAll();
+                    }
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        if (pendingEvent.failure != null) {
+            throw pendingEvent.failure;
+        }
+    }
+
+    // Returns null if the batch has been committed
+    private EventBusException postBatch(final List<PendingEvent> batch) {
+        try {
+            dbi.inTransaction(new TransactionCallback<Void>() {
+                @Override
+                public Void inTransaction(final Handle handle, final TransactionStatus status) throws Exception {
+                    for (final PendingEvent pendingEvent : batch) {
+                        externalBus.postFromTransaction(pendingEvent.event, handle.getConnection());
+                    }
+                    return null;
+                }
+            });
+            return null;
+        } catch (final RuntimeException e) {
+            // The whole batch has been rolled back
+            return new EventBusException("Failed to post a batch of " + batch.size() + " external bus events", e);
+        }
+    }
+
+    @VisibleForTesting
+    int getNbPendingEvents() {
+        synchronized (lock) {
+            return pendingEvents.size();
+        }
+    }
+
+    private static final class PendingEvent {
+
+        private final BusEvent event;
+
+        // Guarded by lock
+        private boolean isDone = false;
+        private EventBusException failure = null;
+
+        private PendingEvent(final BusEvent event) {
+            this.event = event;
+        }
+    }
+}
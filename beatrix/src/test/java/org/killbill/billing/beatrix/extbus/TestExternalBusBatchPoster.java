@@ -0,0 +1,133 @@
+/*
+ * Copyright 2014-2016 Groupon, Inc
+ * Copyright 2014-2016 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.beatrix.extbus;
+
+import java.sql.Connection;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.killbill.billing.beatrix.BeatrixTestSuite;
+import org.killbill.bus.api.BusEvent;
+import org.killbill.bus.api.PersistentBus;
+import org.killbill.bus.api.PersistentBus.EventBusException;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.skife.jdbi.v2.Handle;
+import org.skife.jdbi.v2.IDBI;
+import org.skife.jdbi.v2.TransactionCallback;
+import org.skife.jdbi.v2.exceptions.CallbackFailedException;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class TestExternalBusBatchPoster extends BeatrixTestSuite {
+
+    private IDBI dbi;
+    private PersistentBus externalBus;
+    private ExternalBusBatchPoster externalBusBatchPoster;
+
+    @BeforeMethod(groups = "fast")
+    public void setUp() throws Exception {
+        final Handle handle = Mockito.mock(Handle.class);
+        Mockito.when(handle.getConnection()).thenReturn(Mockito.mock(Connection.class));
+
+        dbi = Mockito.mock(IDBI.class);
+        Mockito.when(dbi.inTransaction(Mockito.<TransactionCallback<Object>>any())).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(final InvocationOnMock invocation) throws Throwable {
+                try {
+                    return ((TransactionCallback<?>) invocation.getArguments()[0]).inTransaction(handle, null);
+                } catch (final Exception e) {
+                    throw new CallbackFailedException(e);
+                }
+            }
+        });
+
+        externalBus = Mockito.mock(PersistentBus.class);
+        externalBusBatchPoster = new ExternalBusBatchPoster(dbi, externalBus, 10);
+    }
+
+    @Test(groups = "fast")
+    public void testConcurrentEventsArePostedTogether() throws Exception {
+        // The first transaction blocks until the other events are pending
+        final CountDownLatch firstPostLatch = new CountDownLatch(1);
+        final BusEvent firstEvent = Mockito.mock(BusEvent.class);
+        Mockito.doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(final InvocationOnMock invocation) throws Throwable {
+                Assert.assertTrue(firstPostLatch.await(10, TimeUnit.SECONDS));
+                return null;
+            }
+        }).when(externalBus).postFromTransaction(Mockito.eq(firstEvent), Mockito.<Connection>any());
+
+        final ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            final List<Future<Void>> futures = new LinkedList<Future<Void>>();
+            futures.add(post(executor, firstEvent));
+            Mockito.verify(externalBus, Mockito.timeout(10000)).postFromTransaction(Mockito.eq(firstEvent), Mockito.<Connection>any());
+
+            futures.add(post(executor, Mockito.mock(BusEvent.class)));
+            futures.add(post(executor, Mockito.mock(BusEvent.class)));
+            final long timeout = System.currentTimeMillis() + 10000;
+            while (externalBusBatchPoster.getNbPendingEvents() < 2 && System.currentTimeMillis() < timeout) {
+                Thread.sleep(10);
+            }
+            Assert.assertEquals(externalBusBatchPoster.getNbPendingEvents(), 2);
+            firstPostLatch.countDown();
+
+            for (final Future<Void> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // One transaction for the first event, one for the two others
+        Mockito.verify(dbi, Mockito.times(2)).inTransaction(Mockito.<TransactionCallback<Object>>any());
+        Mockito.verify(externalBus, Mockito.times(3)).postFromTransaction(Mockito.<BusEvent>any(), Mockito.<Connection>any());
+    }
+
+    @Test(groups = "fast")
+    public void testFailuresArePropagated() throws Exception {
+        Mockito.doThrow(new EventBusException("Expected")).when(externalBus).postFromTransaction(Mockito.<BusEvent>any(), Mockito.<Connection>any());
+
+        try {
+            externalBusBatchPoster.post(Mockito.mock(BusEvent.class));
+            Assert.fail("The failure should have been propagated");
+        } catch (final EventBusException e) {
+            Assert.assertEquals(externalBusBatchPoster.getNbPendingEvents(), 0);
+        }
+    }
+
+    private Future<Void> post(final ExecutorService executor, final BusEvent event) {
+        return executor.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws EventBusException {
+                externalBusBatchPoster.post(event);
+                return null;
+            }
+        });
+    }
+}
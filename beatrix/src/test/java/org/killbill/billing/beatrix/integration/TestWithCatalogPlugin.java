@@ -35,7 +35,9 @@ import org.killbill.billing.catalog.StandaloneCatalog;
 import org.killbill.billing.catalog.StandaloneCatalogWithPriceOverride;
 import org.killbill.billing.catalog.VersionedCatalog;
 import org.killbill.billing.catalog.api.BillingPeriod;
+import org.killbill.billing.catalog.api.Catalog;
 import org.killbill.billing.catalog.api.CatalogApiException;
+import org.killbill.billing.catalog.api.CatalogService;
 import org.killbill.billing.catalog.api.Plan;
 import org.killbill.billing.catalog.api.PriceList;
 import org.killbill.billing.catalog.api.Product;
@@ -54,6 +56,7 @@ import org.killbill.billing.payment.api.PluginProperty;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
 import org.killbill.billing.util.callcontext.TenantContext;
 import org.killbill.xmlloader.XMLLoader;
+import org.testng.Assert;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
@@ -73,6 +76,9 @@ public class TestWithCatalogPlugin extends TestIntegrationBase {
     @Inject
     private InternalCallContextFactory internalCallContextFactory;
 
+    @Inject
+    private CatalogService catalogService;
+
     private TestCatalogPluginApi testCatalogPluginApi;
 
     @BeforeClass(groups = "slow")
@@ -116,6 +122,15 @@ public class TestWithCatalogPlugin extends TestIntegrationBase {
         subscriptionChecker.checkSubscriptionCreated(bpSubscription.getId(), internalCallContext);
     }
 
+    @Test(groups = "slow")
+    public void testCatalogFromPluginIsCached() throws Exception {
+        final Catalog catalog = catalogService.getFullCatalog(internalCallContext);
+        Assert.assertEquals(catalog.getCatalogName(), "Firearms");
+
+        // The plugin returns the same catalog version, so the converted catalog should be served from the cache
+        Assert.assertSame(catalogService.getFullCatalog(internalCallContext), catalog);
+    }
+
     public static class TestCatalogPluginApi implements CatalogPluginApi {
 
         private final VersionedCatalog versionedCatalog;
@@ -27,16 +27,19 @@ import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.catalog.VersionedCatalog;
 import org.killbill.billing.catalog.api.CatalogApiException;
 import org.killbill.billing.catalog.io.VersionedCatalogLoader;
+import org.killbill.billing.catalog.plugin.PluginCatalogFingerprint;
 import org.killbill.billing.catalog.plugin.VersionedCatalogMapper;
 import org.killbill.billing.catalog.plugin.api.CatalogPluginApi;
 import org.killbill.billing.catalog.plugin.api.VersionedPluginCatalog;
 import org.killbill.billing.osgi.api.OSGIServiceRegistration;
 import org.killbill.billing.payment.api.PluginProperty;
+import org.killbill.billing.tenant.api.TenantInternalApi;
 import org.killbill.billing.util.cache.Cachable.CacheType;
 import org.killbill.billing.util.cache.CacheController;
 import org.killbill.billing.util.cache.CacheControllerDispatcher;
 import org.killbill.billing.util.cache.CacheLoaderArgument;
 import org.killbill.billing.util.cache.TenantCatalogCacheLoader.LoaderCallback;
+import org.killbill.billing.util.cache.TenantPluginCatalogCacheLoader;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
 import org.killbill.billing.util.callcontext.TenantContext;
 import org.slf4j.Logger;
@@ -50,11 +53,14 @@ public class EhCacheCatalogCache implements CatalogCache {
     private final Logger logger = LoggerFactory.getLogger(EhCacheCatalogCache.class);
 
     private final CacheController cacheController;
+    private final CacheController pluginCatalogCacheController;
+    private final TenantPluginCatalogCacheLoader.LoaderCallback pluginCatalogLoaderCallback;
     private final VersionedCatalogLoader loader;
     private final CacheLoaderArgument cacheLoaderArgument;
     private final OSGIServiceRegistration<CatalogPluginApi> pluginRegistry;
     private final VersionedCatalogMapper versionedCatalogMapper;
     private final InternalCallContextFactory internalCallContextFactory;
+    private final TenantInternalApi tenantInternalApi;
 
     private VersionedCatalog defaultCatalog;
 
@@ -63,13 +69,17 @@ public class EhCacheCatalogCache implements CatalogCache {
                                final VersionedCatalogMapper versionedCatalogMapper,
                                final CacheControllerDispatcher cacheControllerDispatcher,
                                final VersionedCatalogLoader loader,
-                               final InternalCallContextFactory internalCallContextFactory) {
+                               final InternalCallContextFactory internalCallContextFactory,
+                               final TenantInternalApi tenantInternalApi) {
         this.pluginRegistry = pluginRegistry;
         this.versionedCatalogMapper = versionedCatalogMapper;
         this.cacheController = cacheControllerDispatcher.getCacheController(CacheType.TENANT_CATALOG);
+        this.pluginCatalogCacheController = cacheControllerDispatcher.getCacheController(CacheType.TENANT_PLUGIN_CATALOG);
         this.loader = loader;
         this.internalCallContextFactory = internalCallContextFactory;
+        this.tenantInternalApi = tenantInternalApi;
         this.cacheLoaderArgument = initializeCacheLoaderArgument(this);
+        this.pluginCatalogLoaderCallback = initializePluginCatalogLoaderCallback();
         setDefaultCatalog();
     }
 
@@ -82,8 +92,6 @@ public class EhCacheCatalogCache implements CatalogCache {
 
     @Override
     public VersionedCatalog getCatalog(final InternalTenantContext tenantContext) throws CatalogApiException {
-
-        // STEPH TODO what are the possibilities for caching here ?
         final VersionedCatalog pluginVersionedCatalog = getCatalogFromPlugins(tenantContext);
         if (pluginVersionedCatalog != null) {
             return pluginVersionedCatalog;
@@ -112,6 +120,37 @@ public class EhCacheCatalogCache implements CatalogCache {
     public void clearCatalog(final InternalTenantContext tenantContext) {
         if (tenantContext.getTenantRecordId() != InternalCallContextFactory.INTERNAL_TENANT_RECORD_ID) {
             cacheController.remove(tenantContext.getTenantRecordId());
+            pluginCatalogCacheController.remove(tenantContext.getTenantRecordId());
+        }
+    }
+
+    //
+    // Invoked from the tenant broadcast thread when a new catalog version was uploaded: the new catalog is loaded in the background
+    // and swapped in once ready, so that request threads keep being served the previous version instead of stalling on the XML parsing.
+    //
+    @Override
+    public void refreshCatalog(final InternalTenantContext tenantContext) {
+        final Long tenantRecordId = tenantContext.getTenantRecordId();
+        if (tenantRecordId == InternalCallContextFactory.INTERNAL_TENANT_RECORD_ID) {
+            return;
+        }
+
+        pluginCatalogCacheController.remove(tenantRecordId);
+        if (cacheController.get(tenantRecordId) == null) {
+            // Nothing cached on this node, the catalog will be loaded on first use
+            return;
+        }
+
+        try {
+            final List<String> catalogXMLs = tenantInternalApi.getTenantCatalogs(tenantContext);
+            final VersionedCatalog newCatalog = catalogXMLs.isEmpty() ? null : loader.load(catalogXMLs, tenantRecordId);
+            cacheController.remove(tenantRecordId);
+            if (newCatalog != null) {
+                cacheController.add(tenantRecordId, newCatalog);
+            }
+        } catch (final CatalogApiException e) {
+            logger.warn("Failed to refresh catalog for tenant {}, invalidating cached version", tenantRecordId, e);
+            cacheController.remove(tenantRecordId);
         }
     }
 
@@ -122,13 +161,74 @@ public class EhCacheCatalogCache implements CatalogCache {
             final VersionedPluginCatalog pluginCatalog = plugin.getVersionedPluginCatalog(ImmutableList.<PluginProperty>of(), tenantContext);
             // First plugin that gets something (for that tenant) returns it
             if (pluginCatalog != null) {
-                logger.info("Returning catalog from plugin {} on tenant {} ", service, internalTenantContext.getTenantRecordId());
-                return versionedCatalogMapper.toVersionedCatalog(pluginCatalog, internalTenantContext);
+                logger.debug("Returning catalog from plugin {} on tenant {} ", service, internalTenantContext.getTenantRecordId());
+                return getConvertedPluginCatalog(pluginCatalog, internalTenantContext);
             }
         }
         return null;
     }
 
+    //
+    // The conversion of the plugin catalog into a VersionedCatalog rebuilds the full object graph, so we cache the result per tenant.
+    // The content hash of the plugin catalog (see PluginCatalogFingerprint) acts as the version marker: any change made by the plugin,
+    // even within an existing catalog version, invalidates the cached entry.
+    //
+    private VersionedCatalog getConvertedPluginCatalog(final VersionedPluginCatalog pluginCatalog, final InternalTenantContext internalTenantContext) {
+        final Long tenantRecordId = internalTenantContext.getTenantRecordId();
+        final String fingerprint = PluginCatalogFingerprint.compute(pluginCatalog);
+
+        final PluginCatalogCacheEntry cachedEntry = (PluginCatalogCacheEntry) pluginCatalogCacheController.get(tenantRecordId);
+        if (cachedEntry != null) {
+            if (cachedEntry.getFingerprint().equals(fingerprint)) {
+                return cachedEntry.getCatalog();
+            }
+            logger.info("Plugin catalog version has changed on tenant {}, invalidating cached catalog", tenantRecordId);
+            pluginCatalogCacheController.remove(tenantRecordId);
+        }
+
+        final Object[] args = new Object[2];
+        args[0] = pluginCatalogLoaderCallback;
+        args[1] = pluginCatalog;
+        final ObjectType irrelevant = null;
+        final InternalTenantContext notUsed = null;
+        final PluginCatalogCacheEntry convertedEntry = (PluginCatalogCacheEntry) pluginCatalogCacheController.get(tenantRecordId, new CacheLoaderArgument(irrelevant, args, notUsed));
+        // Another thread may have concurrently cached a different version: never return a catalog that doesn't match what the plugin returned
+        if (convertedEntry == null || !convertedEntry.getFingerprint().equals(fingerprint)) {
+            return versionedCatalogMapper.toVersionedCatalog(pluginCatalog, internalTenantContext);
+        }
+        return convertedEntry.getCatalog();
+    }
+
+    private TenantPluginCatalogCacheLoader.LoaderCallback initializePluginCatalogLoaderCallback() {
+        return new TenantPluginCatalogCacheLoader.LoaderCallback() {
+            @Override
+            public Object loadPluginCatalog(final Object pluginCatalog, final InternalTenantContext internalTenantContext) {
+                final VersionedPluginCatalog versionedPluginCatalog = (VersionedPluginCatalog) pluginCatalog;
+                return new PluginCatalogCacheEntry(PluginCatalogFingerprint.compute(versionedPluginCatalog),
+                                                   versionedCatalogMapper.toVersionedCatalog(versionedPluginCatalog, internalTenantContext));
+            }
+        };
+    }
+
+    private static final class PluginCatalogCacheEntry {
+
+        private final String fingerprint;
+        private final VersionedCatalog catalog;
+
+        private PluginCatalogCacheEntry(final String fingerprint, final VersionedCatalog catalog) {
+            this.fingerprint = fingerprint;
+            this.catalog = catalog;
+        }
+
+        public String getFingerprint() {
+            return fingerprint;
+        }
+
+        public VersionedCatalog getCatalog() {
+            return catalog;
+        }
+    }
+
     //
     // Build the LoaderCallback that is required to build the catalog from the xml from a module that knows
     // nothing about catalog.
@@ -25,16 +25,25 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.killbill.billing.ErrorCode;
+import org.killbill.billing.ObjectType;
+import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.catalog.StandaloneCatalog;
 import org.killbill.billing.catalog.StandaloneCatalogWithPriceOverride;
 import org.killbill.billing.catalog.VersionedCatalog;
 import org.killbill.billing.catalog.api.CatalogApiException;
 import org.killbill.billing.catalog.override.PriceOverride;
+import org.killbill.billing.util.cache.Cachable.CacheType;
+import org.killbill.billing.util.cache.CacheController;
+import org.killbill.billing.util.cache.CacheControllerDispatcher;
+import org.killbill.billing.util.cache.CacheLoaderArgument;
+import org.killbill.billing.util.cache.ParsedCatalogCacheLoader.LoaderCallback;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
 import org.killbill.clock.Clock;
 import org.killbill.xmlloader.UriAccessor;
 import org.killbill.xmlloader.XMLLoader;
 
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
 import com.google.common.io.Resources;
 import com.google.inject.Inject;
 
@@ -46,12 +55,26 @@ public class VersionedCatalogLoader implements CatalogLoader {
     private final Clock clock;
     private final PriceOverride priceOverride;
     private final InternalCallContextFactory internalCallContextFactory;
+    private final CacheController<Object, Object> parsedCatalogCacheController;
+    private final LoaderCallback parsedCatalogLoaderCallback;
 
     @Inject
-    public VersionedCatalogLoader(final Clock clock, final PriceOverride priceOverride, final InternalCallContextFactory internalCallContextFactory) {
+    public VersionedCatalogLoader(final Clock clock, final PriceOverride priceOverride, final InternalCallContextFactory internalCallContextFactory, final CacheControllerDispatcher cacheControllerDispatcher) {
         this.clock = clock;
         this.priceOverride = priceOverride;
         this.internalCallContextFactory = internalCallContextFactory;
+        this.parsedCatalogCacheController = cacheControllerDispatcher.getCacheController(CacheType.PARSED_CATALOG);
+        this.parsedCatalogLoaderCallback = new LoaderCallback() {
+            @Override
+            public Object parseCatalog(final String catalogXML) throws CatalogApiException {
+                try {
+                    final InputStream curCatalogStream = new ByteArrayInputStream(catalogXML.getBytes());
+                    return XMLLoader.getObjectFromStream(new URI("/tenantCatalog"), curCatalogStream, StandaloneCatalog.class);
+                } catch (final Exception e) {
+                    throw new CatalogApiException(ErrorCode.CAT_INVALID_DEFAULT, "Problem encountered loading catalog ", e);
+                }
+            }
+        };
     }
 
     /* (non-Javadoc)
@@ -82,12 +105,9 @@ public class VersionedCatalogLoader implements CatalogLoader {
 
     public VersionedCatalog load(final List<String> catalogXMLs, final Long tenantRecordId) throws CatalogApiException {
         final VersionedCatalog result = new VersionedCatalog(clock);
-        final URI uri;
         try {
-            uri = new URI("/tenantCatalog");
             for (final String cur : catalogXMLs) {
-                final InputStream curCatalogStream = new ByteArrayInputStream(cur.getBytes());
-                final StandaloneCatalog catalog = XMLLoader.getObjectFromStream(uri, curCatalogStream, StandaloneCatalog.class);
+                final StandaloneCatalog catalog = getParsedCatalog(cur);
                 result.add(new StandaloneCatalogWithPriceOverride(catalog, priceOverride, tenantRecordId, internalCallContextFactory));
             }
             return result;
@@ -96,6 +116,20 @@ public class VersionedCatalogLoader implements CatalogLoader {
         }
     }
 
+    //
+    // Parsing and validating a catalog is expensive and tenants frequently upload the exact same XML: the parsed StandaloneCatalog
+    // is immutable once loaded, so it is shared across tenants (only the StandaloneCatalogWithPriceOverride wrapper is per tenant).
+    //
+    private StandaloneCatalog getParsedCatalog(final String catalogXML) {
+        final String catalogHash = Hashing.sha256().hashString(catalogXML, Charsets.UTF_8).toString();
+        final Object[] args = new Object[2];
+        args[0] = parsedCatalogLoaderCallback;
+        args[1] = catalogXML;
+        final ObjectType irrelevant = null;
+        final InternalTenantContext notUsed = null;
+        return (StandaloneCatalog) parsedCatalogCacheController.get(catalogHash, new CacheLoaderArgument(irrelevant, args, notUsed));
+    }
+
     protected List<URI> findXmlReferences(final String directoryContents, final URL url) throws URISyntaxException {
         if (url.getProtocol().equals(PROTOCOL_FOR_FILE)) {
             return findXmlFileReferences(directoryContents, url);
@@ -0,0 +1,270 @@
+/*
+ * Copyright 2014-2016 Groupon, Inc
+ * Copyright 2014-2016 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.catalog.plugin;
+
+import javax.annotation.Nullable;
+
+import org.killbill.billing.catalog.api.Block;
+import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.catalog.api.CurrencyValueNull;
+import org.killbill.billing.catalog.api.InternationalPrice;
+import org.killbill.billing.catalog.api.Limit;
+import org.killbill.billing.catalog.api.Plan;
+import org.killbill.billing.catalog.api.PlanPhase;
+import org.killbill.billing.catalog.api.Price;
+import org.killbill.billing.catalog.api.PriceList;
+import org.killbill.billing.catalog.api.Product;
+import org.killbill.billing.catalog.api.Tier;
+import org.killbill.billing.catalog.api.TieredBlock;
+import org.killbill.billing.catalog.api.Unit;
+import org.killbill.billing.catalog.api.Usage;
+import org.killbill.billing.catalog.api.rules.Case;
+import org.killbill.billing.catalog.api.rules.CaseBillingAlignment;
+import org.killbill.billing.catalog.api.rules.CaseCancelPolicy;
+import org.killbill.billing.catalog.api.rules.CaseChange;
+import org.killbill.billing.catalog.api.rules.CaseChangePlanAlignment;
+import org.killbill.billing.catalog.api.rules.CaseChangePlanPolicy;
+import org.killbill.billing.catalog.api.rules.CaseCreateAlignment;
+import org.killbill.billing.catalog.api.rules.CasePriceList;
+import org.killbill.billing.catalog.api.rules.PlanRules;
+import org.killbill.billing.catalog.plugin.api.StandalonePluginCatalog;
+import org.killbill.billing.catalog.plugin.api.VersionedPluginCatalog;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+/**
+ * Content hash of a plugin catalog, covering everything read by the VersionedCatalogMapper: two plugin catalogs with the same
+ * fingerprint are converted into the same VersionedCatalog. Phase usages are covered as well, even though they aren't converted yet.
+ * <p/>
+ * Walking the plugin catalog is much cheaper than converting it, which rebuilds (and initializes) the full catalog object graph.
+ */
+public class PluginCatalogFingerprint {
+
+    private PluginCatalogFingerprint() {
+    }
+
+    public static String compute(final VersionedPluginCatalog pluginCatalog) {
+        final Hasher hasher = Hashing.sha256().newHasher();
+        putValue(hasher, pluginCatalog.getCatalogName());
+        putValue(hasher, pluginCatalog.getRecurringBillingMode());
+        for (final StandalonePluginCatalog standalonePluginCatalog : pluginCatalog.getStandalonePluginCatalogs()) {
+            putStandalonePluginCatalog(hasher, standalonePluginCatalog);
+        }
+        return hasher.hash().toString();
+    }
+
+    private static void putStandalonePluginCatalog(final Hasher hasher, final StandalonePluginCatalog standalonePluginCatalog) {
+        putValue(hasher, standalonePluginCatalog.getEffectiveDate() == null ? null : standalonePluginCatalog.getEffectiveDate().getMillis());
+        for (final Currency currency : standalonePluginCatalog.getCurrencies()) {
+            putValue(hasher, currency);
+        }
+        for (final Unit unit : standalonePluginCatalog.getUnits()) {
+            putValue(hasher, unit.getName());
+        }
+        for (final Product product : standalonePluginCatalog.getProducts()) {
+            putValue(hasher, product.getName());
+            putValue(hasher, product.getCategory());
+            for (final Product available : product.getAvailable()) {
+                putProductName(hasher, available);
+            }
+            for (final Product included : product.getIncluded()) {
+                putProductName(hasher, included);
+            }
+        }
+        for (final Plan plan : standalonePluginCatalog.getPlans()) {
+            putPlan(hasher, plan);
+        }
+        putPriceList(hasher, standalonePluginCatalog.getDefaultPriceList());
+        for (final PriceList priceList : standalonePluginCatalog.getChildrenPriceList()) {
+            putPriceList(hasher, priceList);
+        }
+        putPlanRules(hasher, standalonePluginCatalog.getPlanRules());
+    }
+
+    private static void putPlan(final Hasher hasher, final Plan plan) {
+        putValue(hasher, plan.getName());
+        putProductName(hasher, plan.getProduct());
+        putValue(hasher, plan.getPlansAllowedInBundle());
+        putValue(hasher, plan.getEffectiveDateForExistingSubscriptons() == null ? null : plan.getEffectiveDateForExistingSubscriptons().getTime());
+        for (final PlanPhase phase : plan.getAllPhases()) {
+            putValue(hasher, phase.getPhaseType());
+            if (phase.getDuration() != null) {
+                putValue(hasher, phase.getDuration().getUnit());
+                putValue(hasher, phase.getDuration().getNumber());
+            }
+            if (phase.getFixed() != null) {
+                putValue(hasher, phase.getFixed().getType());
+                putInternationalPrice(hasher, phase.getFixed().getPrice());
+            }
+            if (phase.getRecurring() != null) {
+                putValue(hasher, phase.getRecurring().getBillingPeriod());
+                putInternationalPrice(hasher, phase.getRecurring().getRecurringPrice());
+            }
+            if (phase.getUsages() != null) {
+                putValue(hasher, phase.getUsages().length);
+                for (final Usage usage : phase.getUsages()) {
+                    putUsage(hasher, usage);
+                }
+            }
+        }
+    }
+
+    private static void putUsage(final Hasher hasher, final Usage usage) {
+        putValue(hasher, usage.getName());
+        putValue(hasher, usage.getBillingMode());
+        putValue(hasher, usage.getUsageType());
+        putValue(hasher, usage.getBillingPeriod());
+        putLimits(hasher, usage.getLimits());
+        if (usage.getTiers() != null) {
+            putValue(hasher, usage.getTiers().length);
+            for (final Tier tier : usage.getTiers()) {
+                putLimits(hasher, tier.getLimits());
+                if (tier.getTieredBlocks() != null) {
+                    putValue(hasher, tier.getTieredBlocks().length);
+                    for (final TieredBlock tieredBlock : tier.getTieredBlocks()) {
+                        putBlock(hasher, tieredBlock);
+                        putValue(hasher, tieredBlock.getMax());
+                    }
+                }
+                putInternationalPrice(hasher, tier.getFixedPrice());
+                putInternationalPrice(hasher, tier.getRecurringPrice());
+            }
+        }
+        if (usage.getBlocks() != null) {
+            putValue(hasher, usage.getBlocks().length);
+            for (final Block block : usage.getBlocks()) {
+                putBlock(hasher, block);
+            }
+        }
+        putInternationalPrice(hasher, usage.getFixedPrice());
+        putInternationalPrice(hasher, usage.getRecurringPrice());
+    }
+
+    private static void putLimits(final Hasher hasher, @Nullable final Limit[] limits) {
+        if (limits == null) {
+            putValue(hasher, null);
+            return;
+        }
+        putValue(hasher, limits.length);
+        for (final Limit limit : limits) {
+            putValue(hasher, limit.getUnit() == null ? null : limit.getUnit().getName());
+            putValue(hasher, limit.getMin());
+            putValue(hasher, limit.getMax());
+        }
+    }
+
+    private static void putBlock(final Hasher hasher, final Block block) {
+        putValue(hasher, block.getType());
+        putValue(hasher, block.getUnit() == null ? null : block.getUnit().getName());
+        putValue(hasher, block.getSize());
+        putInternationalPrice(hasher, block.getPrice());
+    }
+
+    private static void putInternationalPrice(final Hasher hasher, @Nullable final InternationalPrice internationalPrice) {
+        if (internationalPrice == null) {
+            putValue(hasher, null);
+            return;
+        }
+        for (final Price price : internationalPrice.getPrices()) {
+            putValue(hasher, price.getCurrency());
+            try {
+                putValue(hasher, price.getValue());
+            } catch (final CurrencyValueNull e) {
+                putValue(hasher, null);
+            }
+        }
+    }
+
+    private static void putPriceList(final Hasher hasher, @Nullable final PriceList priceList) {
+        putPriceListName(hasher, priceList);
+        if (priceList != null) {
+            for (final Plan plan : priceList.getPlans()) {
+                putValue(hasher, plan.getName());
+            }
+        }
+    }
+
+    private static void putPlanRules(final Hasher hasher, @Nullable final PlanRules planRules) {
+        if (planRules == null) {
+            putValue(hasher, null);
+            return;
+        }
+        for (final CaseChangePlanPolicy caseChangePlanPolicy : planRules.getCaseChangePlanPolicy()) {
+            putCaseChange(hasher, caseChangePlanPolicy);
+            putValue(hasher, caseChangePlanPolicy.getBillingActionPolicy());
+        }
+        for (final CaseChangePlanAlignment caseChangePlanAlignment : planRules.getCaseChangePlanAlignment()) {
+            putCaseChange(hasher, caseChangePlanAlignment);
+            putValue(hasher, caseChangePlanAlignment.getAlignment());
+        }
+        for (final CaseCancelPolicy caseCancelPolicy : planRules.getCaseCancelPolicy()) {
+            putCase(hasher, caseCancelPolicy);
+            putValue(hasher, caseCancelPolicy.getPhaseType());
+            putValue(hasher, caseCancelPolicy.getBillingActionPolicy());
+        }
+        for (final CaseCreateAlignment caseCreateAlignment : planRules.getCaseCreateAlignment()) {
+            putCase(hasher, caseCreateAlignment);
+            putValue(hasher, caseCreateAlignment.getPlanAlignmentCreate());
+        }
+        for (final CaseBillingAlignment caseBillingAlignment : planRules.getCaseBillingAlignment()) {
+            putCase(hasher, caseBillingAlignment);
+            putValue(hasher, caseBillingAlignment.getPhaseType());
+            putValue(hasher, caseBillingAlignment.getBillingAlignment());
+        }
+        for (final CasePriceList casePriceList : planRules.getCasePriceList()) {
+            putCase(hasher, casePriceList);
+            putPriceListName(hasher, casePriceList.getDestinationPriceList());
+        }
+    }
+
+    private static void putCase(final Hasher hasher, final Case input) {
+        putProductName(hasher, input.getProduct());
+        putValue(hasher, input.getProductCategory());
+        putValue(hasher, input.getBillingPeriod());
+        putPriceListName(hasher, input.getPriceList());
+    }
+
+    private static void putCaseChange(final Hasher hasher, final CaseChange input) {
+        putValue(hasher, input.getPhaseType());
+        putProductName(hasher, input.getFromProduct());
+        putValue(hasher, input.getFromProductCategory());
+        putValue(hasher, input.getFromBillingPeriod());
+        putPriceListName(hasher, input.getFromPriceList());
+        putProductName(hasher, input.getToProduct());
+        putValue(hasher, input.getToProductCategory());
+        putValue(hasher, input.getToBillingPeriod());
+        putPriceListName(hasher, input.getToPriceList());
+    }
+
+    private static void putProductName(final Hasher hasher, @Nullable final Product product) {
+        putValue(hasher, product == null ? null : product.getName());
+    }
+
+    private static void putPriceListName(final Hasher hasher, @Nullable final PriceList priceList) {
+        putValue(hasher, priceList == null ? null : priceList.getName());
+    }
+
+    // Each value is length-prefixed, so that consecutive values cannot be confused
+    private static void putValue(final Hasher hasher, @Nullable final Object value) {
+        final String stringValue = String.valueOf(value);
+        hasher.putInt(stringValue.length());
+        hasher.putString(stringValue, Charsets.UTF_8);
+    }
+}
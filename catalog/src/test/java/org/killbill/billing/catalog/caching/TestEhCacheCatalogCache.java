@@ -174,4 +174,47 @@ public class TestEhCacheCatalogCache extends CatalogTestSuiteNoDB {
         // Verify the lookup with the other tenant
         Assert.assertEquals(catalogCache.getCatalog(otherMultiTenantContext), otherResult);
     }
+
+    //
+    // Verify that tenants sharing the same catalog XML share the same parsed StandaloneCatalog
+    //
+    @Test(groups = "fast")
+    public void testIdenticalTenantCatalogsAreParsedOnce() throws CatalogApiException, URISyntaxException, IOException {
+        final InputStream tenantInputCatalog = UriAccessor.accessUri(new URI(Resources.getResource("SpyCarAdvanced.xml").toExternalForm()));
+        final String tenantCatalogXML = CharStreams.toString(new InputStreamReader(tenantInputCatalog, "UTF-8"));
+        Mockito.when(tenantInternalApi.getTenantCatalogs(Mockito.any(InternalTenantContext.class))).thenReturn(ImmutableList.<String>of(tenantCatalogXML));
+
+        final VersionedCatalog result = catalogCache.getCatalog(multiTenantContext);
+        final VersionedCatalog otherResult = catalogCache.getCatalog(otherMultiTenantContext);
+        Assert.assertNotSame(otherResult, result);
+        Assert.assertEquals(otherResult.getVersions().size(), 1);
+        Assert.assertEquals(result.getVersions().size(), 1);
+        Assert.assertSame(otherResult.getVersions().get(0).getStandaloneCatalog(), result.getVersions().get(0).getStandaloneCatalog());
+        Assert.assertEquals(result.getVersions().get(0).getTenantRecordId(), multiTenantContext.getTenantRecordId());
+        Assert.assertEquals(otherResult.getVersions().get(0).getTenantRecordId(), otherMultiTenantContext.getTenantRecordId());
+    }
+
+    //
+    // Verify the previous catalog keeps being served until the refreshed version has been loaded
+    //
+    @Test(groups = "fast")
+    public void testRefreshTenantCatalog() throws CatalogApiException, URISyntaxException, IOException {
+        final InputStream tenantInputCatalog = UriAccessor.accessUri(new URI(Resources.getResource("SpyCarBasic.xml").toExternalForm()));
+        final String tenantCatalogXML = CharStreams.toString(new InputStreamReader(tenantInputCatalog, "UTF-8"));
+        final InputStream newTenantInputCatalog = UriAccessor.accessUri(new URI(Resources.getResource("SpyCarAdvanced.xml").toExternalForm()));
+        final String newTenantCatalogXML = CharStreams.toString(new InputStreamReader(newTenantInputCatalog, "UTF-8"));
+
+        Mockito.when(tenantInternalApi.getTenantCatalogs(Mockito.any(InternalTenantContext.class))).thenReturn(ImmutableList.<String>of(tenantCatalogXML));
+        final VersionedCatalog result = catalogCache.getCatalog(multiTenantContext);
+        Assert.assertEquals(result.getProducts(clock.getUTCNow()).length, 3);
+
+        // The new catalog was uploaded, but the cache hasn't been notified yet
+        Mockito.when(tenantInternalApi.getTenantCatalogs(Mockito.any(InternalTenantContext.class))).thenReturn(ImmutableList.<String>of(newTenantCatalogXML));
+        Assert.assertSame(catalogCache.getCatalog(multiTenantContext), result);
+
+        catalogCache.refreshCatalog(multiTenantContext);
+        final VersionedCatalog refreshedResult = catalogCache.getCatalog(multiTenantContext);
+        Assert.assertNotSame(refreshedResult, result);
+        Assert.assertEquals(refreshedResult.getProducts(clock.getUTCNow()).length, 6);
+    }
 }
@@ -17,13 +17,17 @@
 
 package org.killbill.billing.catalog.plugin;
 
+import java.math.BigDecimal;
+
 import org.joda.time.DateTime;
 import org.killbill.billing.catalog.CatalogTestSuiteNoDB;
+import org.killbill.billing.catalog.DefaultPrice;
 import org.killbill.billing.catalog.StandaloneCatalog;
 import org.killbill.billing.catalog.api.Currency;
 import org.killbill.billing.catalog.api.Plan;
 import org.killbill.billing.catalog.api.PriceList;
 import org.killbill.billing.catalog.api.Product;
+import org.killbill.billing.catalog.api.TieredBlock;
 import org.killbill.billing.catalog.api.Unit;
 import org.killbill.billing.catalog.api.rules.CaseBillingAlignment;
 import org.killbill.billing.catalog.api.rules.CaseCancelPolicy;
@@ -32,6 +36,7 @@ import org.killbill.billing.catalog.api.rules.CaseChangePlanPolicy;
 import org.killbill.billing.catalog.api.rules.CaseCreateAlignment;
 import org.killbill.billing.catalog.api.rules.CasePriceList;
 import org.killbill.billing.catalog.plugin.api.StandalonePluginCatalog;
+import org.killbill.billing.catalog.plugin.api.VersionedPluginCatalog;
 import org.killbill.xmlloader.XMLLoader;
 import org.testng.Assert;
 import org.testng.annotations.Test;
@@ -53,6 +58,38 @@ public class TestCatalogPluginMapping extends CatalogTestSuiteNoDB {
 
     }
 
+    @Test(groups = "fast")
+    public void testFingerprint() throws Exception {
+        final StandaloneCatalog inputCatalog = XMLLoader.getObjectFromString(Resources.getResource("SpyCarAdvanced.xml").toExternalForm(), StandaloneCatalog.class);
+        final String fingerprint = PluginCatalogFingerprint.compute(buildVersionedPluginCatalog(inputCatalog));
+        Assert.assertEquals(PluginCatalogFingerprint.compute(buildVersionedPluginCatalog(inputCatalog)), fingerprint);
+
+        // Same catalog version (effective date), but a different price
+        final Plan plan = inputCatalog.findCurrentPlan("standard-monthly");
+        final DefaultPrice price = (DefaultPrice) plan.getFinalPhase().getRecurring().getRecurringPrice().getPrices()[0];
+        price.setValue(price.getValue().add(BigDecimal.ONE));
+        Assert.assertNotEquals(PluginCatalogFingerprint.compute(buildVersionedPluginCatalog(inputCatalog)), fingerprint);
+    }
+
+    @Test(groups = "fast")
+    public void testFingerprintWithUsageChange() throws Exception {
+        final StandaloneCatalog inputCatalog = XMLLoader.getObjectFromString(Resources.getResource("SpyCarAdvanced.xml").toExternalForm(), StandaloneCatalog.class);
+        final String fingerprint = PluginCatalogFingerprint.compute(buildVersionedPluginCatalog(inputCatalog));
+
+        // Only the price of a usage block changes
+        final Plan plan = inputCatalog.findCurrentPlan("gas-monthly");
+        final TieredBlock tieredBlock = plan.getFinalPhase().getUsages()[0].getTiers()[0].getTieredBlocks()[0];
+        final DefaultPrice price = (DefaultPrice) tieredBlock.getPrice().getPrices()[0];
+        price.setValue(price.getValue().add(BigDecimal.ONE));
+        Assert.assertNotEquals(PluginCatalogFingerprint.compute(buildVersionedPluginCatalog(inputCatalog)), fingerprint);
+    }
+
+    private VersionedPluginCatalog buildVersionedPluginCatalog(final StandaloneCatalog inputCatalog) throws Exception {
+        return new TestModelVersionedPluginCatalog(inputCatalog.getCatalogName(),
+                                                   inputCatalog.getRecurringBillingMode(),
+                                                   ImmutableList.<StandalonePluginCatalog>of(buildStandalonePluginCatalog(inputCatalog)));
+    }
+
     private StandalonePluginCatalog buildStandalonePluginCatalog(final StandaloneCatalog inputCatalog) throws Exception {
 
         final TestModelPlanRules rules = new TestModelPlanRules(ImmutableList.<Product>copyOf(inputCatalog.getCurrentProducts()),
@@ -23,6 +23,7 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.UUID;
 
 import javax.inject.Inject;
@@ -89,11 +90,40 @@ public class DefaultInvoiceInternalApi implements InvoiceInternalApi {
         });
     }
 
+    @Override
+    public Iterable<Invoice> streamInvoicesByAccount(final InternalTenantContext context) {
+        return Iterables.transform(dao.streamInvoicesByAccount(context), new Function<InvoiceModelDao, Invoice>() {
+            @Override
+            public Invoice apply(final InvoiceModelDao input) {
+                return new DefaultInvoice(input);
+            }
+        });
+    }
+
+    @Override
+    public Map<UUID, Collection<Invoice>> getUnpaidInvoicesByAccountRecordIds(final Collection<Long> accountRecordIds, final InternalTenantContext context) {
+        final Map<UUID, Collection<Invoice>> result = new HashMap<UUID, Collection<Invoice>>();
+        for (final Entry<UUID, List<InvoiceModelDao>> entry : dao.getUnpaidInvoicesByAccountRecordIds(accountRecordIds, context).entrySet()) {
+            result.put(entry.getKey(), Collections2.transform(entry.getValue(), new Function<InvoiceModelDao, Invoice>() {
+                @Override
+                public Invoice apply(final InvoiceModelDao input) {
+                    return new DefaultInvoice(input);
+                }
+            }));
+        }
+        return result;
+    }
+
     @Override
     public BigDecimal getAccountBalance(final UUID accountId, final InternalTenantContext context) {
         return dao.getAccountBalance(accountId, context);
     }
 
+    @Override
+    public void rebuildAccountBalance(final InternalCallContext context) {
+        dao.rebuildAccountBalance(context);
+    }
+
     @Override
     public void notifyOfPayment(final UUID invoiceId, final BigDecimal amount, final Currency currency, final Currency processedCurrency, final UUID paymentId, final DateTime paymentDate, final boolean success, final InternalCallContext context) throws InvoiceApiException {
         final InvoicePayment invoicePayment = new DefaultInvoicePayment(InvoicePaymentType.ATTEMPT, paymentId, invoiceId, paymentDate, amount, currency, processedCurrency, success);
@@ -35,16 +35,23 @@ import com.google.common.collect.Ordering;
 public class CBADao {
 
     private final InvoiceDaoHelper invoiceDaoHelper;
+    private final InvoiceAccountBalanceDao invoiceAccountBalanceDao;
 
     @Inject
-    public CBADao(final InvoiceDaoHelper invoiceDaoHelper) {
+    public CBADao(final InvoiceDaoHelper invoiceDaoHelper, final InvoiceAccountBalanceDao invoiceAccountBalanceDao) {
         this.invoiceDaoHelper = invoiceDaoHelper;
+        this.invoiceAccountBalanceDao = invoiceAccountBalanceDao;
     }
 
 
     public BigDecimal getAccountCBAFromTransaction(final UUID accountId,
                                                     final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory,
                                                     final InternalTenantContext context) {
+        final InvoiceAccountBalanceModelDao accountBalance = invoiceAccountBalanceDao.getAccountBalanceFromTransaction(entitySqlDaoWrapperFactory, context);
+        if (accountBalance != null) {
+            return accountBalance.getCba();
+        }
+
         final List<InvoiceModelDao> invoices = invoiceDaoHelper.getAllInvoicesByAccountFromTransaction(entitySqlDaoWrapperFactory, context);
         return getAccountCBAFromTransaction(invoices);
     }
@@ -69,8 +76,7 @@ public class CBADao {
         // Current balance is positive, we need to use some of the existing if available (negative CBA amount)
         } else if (balance.compareTo(BigDecimal.ZERO) > 0) {
 
-            final List<InvoiceModelDao> allInvoices = invoiceDaoHelper.getAllInvoicesByAccountFromTransaction(entitySqlDaoWrapperFactory, context);
-            final BigDecimal accountCBA = getAccountCBAFromTransaction(allInvoices);
+            final BigDecimal accountCBA = getAccountCBAFromTransaction(invoice.getAccountId(), entitySqlDaoWrapperFactory, context);
             if (accountCBA.compareTo(BigDecimal.ZERO) <= 0) {
                 return null;
             }
@@ -97,6 +103,14 @@ public class CBADao {
         if (cbaItem != null) {
             final InvoiceItemSqlDao transInvoiceItemDao = entitySqlDaoWrapperFactory.become(InvoiceItemSqlDao.class);
             transInvoiceItemDao.create(cbaItem, context);
+            invoiceAccountBalanceDao.recordInvoiceItemFromTransaction(cbaItem, entitySqlDaoWrapperFactory, context);
+        }
+
+        // Avoid loading all the invoices of the account when the summary shows there is no credit left to use (otherwise, the
+        // CBA is computed from the invoices loaded below, see useExistingCBAFromTransaction)
+        final InvoiceAccountBalanceModelDao accountBalance = invoiceAccountBalanceDao.getAccountBalanceFromTransaction(entitySqlDaoWrapperFactory, context);
+        if (accountBalance != null && accountBalance.getCba().compareTo(BigDecimal.ZERO) <= 0) {
+            return;
         }
         List<InvoiceModelDao> invoiceItemModelDaos = invoiceDaoHelper.getAllInvoicesByAccountFromTransaction(entitySqlDaoWrapperFactory, context);
         useExistingCBAFromTransaction(invoiceItemModelDaos, entitySqlDaoWrapperFactory, context);
@@ -129,6 +143,7 @@ public class CBADao {
             final InvoiceItemSqlDao transInvoiceItemDao = entitySqlDaoWrapperFactory.become(InvoiceItemSqlDao.class);
             final InvoiceItemModelDao cbaAdjItem = new InvoiceItemModelDao(new CreditBalanceAdjInvoiceItem(invoice.getId(), invoice.getAccountId(), context.getCreatedDate().toLocalDate(), balance.negate(), invoice.getCurrency()));
             transInvoiceItemDao.create(cbaAdjItem, context);
+            invoiceAccountBalanceDao.recordInvoiceItemFromTransaction(cbaAdjItem, entitySqlDaoWrapperFactory, context);
         }
     }
 
@@ -159,6 +174,7 @@ public class CBADao {
 
             final InvoiceItemSqlDao transInvoiceItemDao = entitySqlDaoWrapperFactory.become(InvoiceItemSqlDao.class);
             transInvoiceItemDao.create(cbaAdjItem, context);
+            invoiceAccountBalanceDao.recordInvoiceItemFromTransaction(cbaAdjItem, entitySqlDaoWrapperFactory, context);
 
             if (remainingAccountCBA.compareTo(BigDecimal.ZERO) <= 0) {
                 break;
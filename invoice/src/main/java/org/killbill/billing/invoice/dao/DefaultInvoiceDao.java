@@ -20,10 +20,13 @@ package org.killbill.billing.invoice.dao;
 
 import java.math.BigDecimal;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 import javax.annotation.Nullable;
@@ -43,11 +46,15 @@ import org.killbill.billing.invoice.api.InvoiceItemType;
 import org.killbill.billing.invoice.api.InvoicePaymentType;
 import org.killbill.billing.invoice.api.user.DefaultInvoiceAdjustmentEvent;
 import org.killbill.billing.invoice.notification.NextBillingDatePoster;
+import org.killbill.billing.invoice.notification.NextBillingDatePoster.NextBillingNotification;
 import org.killbill.billing.util.UUIDs;
+import org.killbill.billing.util.audit.ChangeType;
 import org.killbill.billing.util.cache.CacheControllerDispatcher;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
 import org.killbill.billing.util.config.InvoiceConfig;
+import org.killbill.billing.util.dao.EntityAudit;
 import org.killbill.billing.util.dao.NonEntityDao;
+import org.killbill.billing.util.dao.TableName;
 import org.killbill.billing.util.entity.Pagination;
 import org.killbill.billing.util.entity.dao.DefaultPaginationSqlDaoHelper.PaginationIteratorBuilder;
 import org.killbill.billing.util.entity.dao.EntityDaoBase;
@@ -65,8 +72,10 @@ import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Ordering;
 import com.google.inject.Inject;
 
@@ -82,6 +91,12 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
                                                                                             }
                                                                                         });
 
+    // Number of invoices (with their children) loaded at a time by streamInvoicesByAccount
+    private static final int STREAMING_BATCH_SIZE = 100;
+
+    // Maximum number of ids in the IN clause of the invoice items lookups done by the bulk creation path
+    private static final int MAX_INVOICE_ITEM_IDS_PER_QUERY = 1000;
+
     private static final Collection<InvoiceItemType> INVOICE_ITEM_TYPES_ADJUSTABLE = ImmutableList.<InvoiceItemType>of(InvoiceItemType.EXTERNAL_CHARGE,
                                                                                                                        InvoiceItemType.FIXED,
                                                                                                                        InvoiceItemType.RECURRING,
@@ -93,6 +108,7 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
     private final InternalCallContextFactory internalCallContextFactory;
     private final InvoiceDaoHelper invoiceDaoHelper;
     private final CBADao cbaDao;
+    private final InvoiceAccountBalanceDao invoiceAccountBalanceDao;
     private final InvoiceConfig invoiceConfig;
     private final Clock clock;
 
@@ -106,6 +122,7 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
                              final InvoiceConfig invoiceConfig,
                              final InvoiceDaoHelper invoiceDaoHelper,
                              final CBADao cbaDao,
+                             final InvoiceAccountBalanceDao invoiceAccountBalanceDao,
                              final InternalCallContextFactory internalCallContextFactory) {
         super(new EntitySqlDaoTransactionalJdbiWrapper(dbi, clock, cacheControllerDispatcher, nonEntityDao), InvoiceSqlDao.class);
         this.nextBillingDatePoster = nextBillingDatePoster;
@@ -114,6 +131,7 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
         this.internalCallContextFactory = internalCallContextFactory;
         this.invoiceDaoHelper = invoiceDaoHelper;
         this.cbaDao = cbaDao;
+        this.invoiceAccountBalanceDao = invoiceAccountBalanceDao;
         this.clock = clock;
     }
 
@@ -143,6 +161,51 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
         });
     }
 
+    @Override
+    public Iterable<InvoiceModelDao> streamInvoicesByAccount(final InternalTenantContext context) {
+        return new Iterable<InvoiceModelDao>() {
+            @Override
+            public Iterator<InvoiceModelDao> iterator() {
+                // Only the record ids are retrieved upfront: the invoices and their children are loaded one batch at a time, as the iteration progresses
+                final List<Long> invoiceRecordIds = transactionalSqlDao.execute(new EntitySqlDaoTransactionWrapper<List<Long>>() {
+                    @Override
+                    public List<Long> inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
+                        return entitySqlDaoWrapperFactory.become(InvoiceSqlDao.class).getNonMigratedInvoiceRecordIdsByAccountRecordId(context);
+                    }
+                });
+                final Set<UUID> writtenOffInvoiceIds = invoiceDaoHelper.getWrittenOffInvoiceIds(context);
+
+                return Iterators.<InvoiceModelDao>concat(Iterators.<List<Long>, Iterator<InvoiceModelDao>>transform(Iterators.<Long>partition(invoiceRecordIds.iterator(), STREAMING_BATCH_SIZE),
+                                                                                                                     new Function<List<Long>, Iterator<InvoiceModelDao>>() {
+                                                                                                                         @Override
+                                                                                                                         public Iterator<InvoiceModelDao> apply(final List<Long> batch) {
+                                                                                                                             return getInvoicesByRecordIds(batch, writtenOffInvoiceIds, context).iterator();
+                                                                                                                         }
+                                                                                                                     }));
+            }
+        };
+    }
+
+    private List<InvoiceModelDao> getInvoicesByRecordIds(final List<Long> invoiceRecordIds, final Set<UUID> writtenOffInvoiceIds, final InternalTenantContext context) {
+        return transactionalSqlDao.execute(new EntitySqlDaoTransactionWrapper<List<InvoiceModelDao>>() {
+            @Override
+            public List<InvoiceModelDao> inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
+                final List<InvoiceModelDao> invoices = entitySqlDaoWrapperFactory.become(InvoiceSqlDao.class).getByRecordIds(invoiceRecordIds, context);
+                // Keep the (target date) order of the record ids
+                final List<InvoiceModelDao> sortedInvoices = Ordering.<Long>explicit(invoiceRecordIds)
+                                                                     .onResultOf(new Function<InvoiceModelDao, Long>() {
+                                                                         @Override
+                                                                         public Long apply(final InvoiceModelDao invoice) {
+                                                                             return invoice.getRecordId();
+                                                                         }
+                                                                     })
+                                                                     .sortedCopy(invoices);
+                invoiceDaoHelper.populateChildren(sortedInvoices, writtenOffInvoiceIds, entitySqlDaoWrapperFactory, context);
+                return sortedInvoices;
+            }
+        });
+    }
+
     @Override
     public List<InvoiceModelDao> getAllInvoicesByAccount(final InternalTenantContext context) {
         return transactionalSqlDao.execute(new EntitySqlDaoTransactionWrapper<List<InvoiceModelDao>>() {
@@ -160,7 +223,7 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
             public List<InvoiceModelDao> inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
                 final InvoiceSqlDao invoiceDao = entitySqlDaoWrapperFactory.become(InvoiceSqlDao.class);
                 final List<InvoiceModelDao> invoices = getAllNonMigratedInvoicesByAccountAfterDate(invoiceDao, fromDate, context);
-                invoiceDaoHelper.populateChildren(invoices, entitySqlDaoWrapperFactory, context);
+                invoiceDaoHelper.populateChildrenForInvoices(invoices, entitySqlDaoWrapperFactory, context);
 
                 return invoices;
             }
@@ -253,9 +316,7 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
 
                     // Create the invoice items
                     final InvoiceItemSqlDao transInvoiceItemSqlDao = entitySqlDaoWrapperFactory.become(InvoiceItemSqlDao.class);
-                    for (final InvoiceItemModelDao invoiceItemModelDao : invoiceItems) {
-                        createInvoiceItemFromTransaction(transInvoiceItemSqlDao, invoiceItemModelDao, context);
-                    }
+                    createInvoiceItemsFromTransaction(transInvoiceItemSqlDao, invoiceItems, entitySqlDaoWrapperFactory, context);
                     cbaDao.addCBAComplexityFromTransaction(invoice, entitySqlDaoWrapperFactory, context);
                     notifyOfFutureBillingEvents(entitySqlDaoWrapperFactory, invoice.getAccountId(), callbackDateTimePerSubscriptions, context);
                 }
@@ -283,13 +344,20 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
                     }
 
                     // Create the invoice items if needed
+                    final Set<UUID> existingInvoiceItemIds = new HashSet<UUID>();
+                    for (final InvoiceItemModelDao existingInvoiceItem : getInvoiceItemsByIdsFromTransaction(transInvoiceItemSqlDao, invoiceModelDao.getInvoiceItems(), context)) {
+                        existingInvoiceItemIds.add(existingInvoiceItem.getId());
+                    }
+                    final List<InvoiceItemModelDao> invoiceItemsToCreate = new LinkedList<InvoiceItemModelDao>();
                     for (final InvoiceItemModelDao invoiceItemModelDao : invoiceModelDao.getInvoiceItems()) {
-                        if (transInvoiceItemSqlDao.getById(invoiceItemModelDao.getId().toString(), context) == null) {
-                            createInvoiceItemFromTransaction(transInvoiceItemSqlDao, invoiceItemModelDao, context);
-                            createdInvoiceItems.add(transInvoiceItemSqlDao.getById(invoiceItemModelDao.getId().toString(), context));
-                            madeChanges = true;
+                        if (!existingInvoiceItemIds.contains(invoiceItemModelDao.getId())) {
+                            invoiceItemsToCreate.add(invoiceItemModelDao);
                         }
                     }
+                    if (!invoiceItemsToCreate.isEmpty()) {
+                        createdInvoiceItems.addAll(createInvoiceItemsFromTransaction(transInvoiceItemSqlDao, invoiceItemsToCreate, entitySqlDaoWrapperFactory, context));
+                        madeChanges = true;
+                    }
 
                     if (madeChanges) {
                         cbaDao.addCBAComplexityFromTransaction(invoiceModelDao.getId(), entitySqlDaoWrapperFactory, context);
@@ -313,7 +381,7 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
                 final InvoiceSqlDao invoiceDao = entitySqlDaoWrapperFactory.become(InvoiceSqlDao.class);
 
                 final List<InvoiceModelDao> invoices = invoiceDao.getInvoicesBySubscription(subscriptionId.toString(), context);
-                invoiceDaoHelper.populateChildren(invoices, entitySqlDaoWrapperFactory, context);
+                invoiceDaoHelper.populateChildrenForInvoices(invoices, entitySqlDaoWrapperFactory, context);
 
                 return invoices;
             }
@@ -358,6 +426,11 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
         return transactionalSqlDao.execute(new EntitySqlDaoTransactionWrapper<BigDecimal>() {
             @Override
             public BigDecimal inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
+                final InvoiceAccountBalanceModelDao accountBalanceSummary = invoiceAccountBalanceDao.getAccountBalanceFromTransaction(entitySqlDaoWrapperFactory, context);
+                if (accountBalanceSummary != null) {
+                    return accountBalanceSummary.getBalance();
+                }
+
                 BigDecimal cba = BigDecimal.ZERO;
 
                 BigDecimal accountBalance = BigDecimal.ZERO;
@@ -381,6 +454,17 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
         });
     }
 
+    @Override
+    public void rebuildAccountBalance(final InternalCallContext context) {
+        transactionalSqlDao.execute(new EntitySqlDaoTransactionWrapper<Void>() {
+            @Override
+            public Void inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
+                invoiceAccountBalanceDao.rebuildFromTransaction(entitySqlDaoWrapperFactory, context);
+                return null;
+            }
+        });
+    }
+
     @Override
     public List<InvoiceModelDao> getUnpaidInvoicesByAccountId(final UUID accountId, @Nullable final LocalDate upToDate, final InternalTenantContext context) {
         return transactionalSqlDao.execute(new EntitySqlDaoTransactionWrapper<List<InvoiceModelDao>>() {
@@ -391,6 +475,16 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
         });
     }
 
+    @Override
+    public Map<UUID, List<InvoiceModelDao>> getUnpaidInvoicesByAccountRecordIds(final Collection<Long> accountRecordIds, final InternalTenantContext context) {
+        return transactionalSqlDao.execute(new EntitySqlDaoTransactionWrapper<Map<UUID, List<InvoiceModelDao>>>() {
+            @Override
+            public Map<UUID, List<InvoiceModelDao>> inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
+                return invoiceDaoHelper.getUnpaidInvoicesByAccountRecordIdsFromTransaction(accountRecordIds, entitySqlDaoWrapperFactory, context);
+            }
+        });
+    }
+
     @Override
     public UUID getInvoiceIdByPaymentId(final UUID paymentId, final InternalTenantContext context) {
         return transactionalSqlDao.execute(new EntitySqlDaoTransactionWrapper<UUID>() {
@@ -466,6 +560,7 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
                                                                                  context.getCreatedDate(), requestedPositiveAmount.negate(),
                                                                                  payment.getCurrency(), payment.getProcessedCurrency(), transactionExternalKey, payment.getId(), true);
                 transactional.create(refund, context);
+                invoiceAccountBalanceDao.recordInvoicePaymentFromTransaction(refund, entitySqlDaoWrapperFactory, context);
 
                 // Retrieve invoice after the Refund
                 final InvoiceModelDao invoice = transInvoiceDao.getById(payment.getInvoiceId().toString(), context);
@@ -486,7 +581,7 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
                         final InvoiceItemModelDao adjItem = new InvoiceItemModelDao(context.getCreatedDate(), InvoiceItemType.REFUND_ADJ, invoice.getId(), invoice.getAccountId(),
                                                                                     null, null, null, null, null, null, context.getCreatedDate().toLocalDate(), null,
                                                                                     requestedPositiveAmountToAdjust.negate(), null, invoice.getCurrency(), null);
-                        createInvoiceItemFromTransaction(transInvoiceItemDao, adjItem, context);
+                        createInvoiceItemFromTransaction(transInvoiceItemDao, adjItem, entitySqlDaoWrapperFactory, context);
                         invoice.addInvoiceItem(adjItem);
                     }
                 } else if (isInvoiceAdjusted) {
@@ -497,7 +592,7 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
                                                                                                invoice.getCurrency(), context.getCreatedDate().toLocalDate(),
                                                                                                context);
 
-                        createInvoiceItemFromTransaction(transInvoiceItemDao, item, context);
+                        createInvoiceItemFromTransaction(transInvoiceItemDao, item, entitySqlDaoWrapperFactory, context);
                         invoice.addInvoiceItem(item);
                     }
                 }
@@ -552,6 +647,7 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
                                                                                      requestedChargedBackAmount.negate(), payment.getCurrency(), payment.getProcessedCurrency(),
                                                                                      null, payment.getId(), true);
                 transactional.create(chargeBack, context);
+                invoiceAccountBalanceDao.recordInvoicePaymentFromTransaction(chargeBack, entitySqlDaoWrapperFactory, context);
 
                 // Notify the bus since the balance of the invoice changed
                 final UUID accountId = transactional.getAccountIdFromInvoicePaymentId(chargeBack.getId().toString(), context);
@@ -676,8 +772,11 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
                 }).orNull();
                 if (existingAttempt == null) {
                     transactional.create(invoicePayment, context);
+                    invoiceAccountBalanceDao.recordInvoicePaymentFromTransaction(invoicePayment, entitySqlDaoWrapperFactory, context);
                 } else if (!existingAttempt.getSuccess() && invoicePayment.getSuccess()) {
                     transactional.updateAttempt(existingAttempt.getRecordId(), invoicePayment.getPaymentDate().toDate(), invoicePayment.getAmount(), invoicePayment.getCurrency(), invoicePayment.getProcessedCurrency(), context);
+                    // The failed attempt wasn't accounted for
+                    invoiceAccountBalanceDao.recordInvoicePaymentFromTransaction(transactional.getById(existingAttempt.getId().toString(), context), entitySqlDaoWrapperFactory, context);
                 }
                 return null;
             }
@@ -723,7 +822,7 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
                 final InvoiceItemModelDao cbaAdjItem = new InvoiceItemModelDao(context.getCreatedDate(), InvoiceItemType.CBA_ADJ, invoice.getId(), invoice.getAccountId(),
                                                                                null, null, null, null, null, null, context.getCreatedDate().toLocalDate(),
                                                                                null, cbaItem.getAmount().negate(), null, cbaItem.getCurrency(), cbaItem.getId());
-                createInvoiceItemFromTransaction(invoiceItemSqlDao, cbaAdjItem, context);
+                createInvoiceItemFromTransaction(invoiceItemSqlDao, cbaAdjItem, entitySqlDaoWrapperFactory, context);
 
                 // Verify the final invoice balance is not negative
                 invoiceDaoHelper.populateChildren(invoice, entitySqlDaoWrapperFactory, context);
@@ -739,7 +838,7 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
                         throw new IllegalStateException("The account balance can't be lower than the amount adjusted");
                     }
                     final List<InvoiceModelDao> invoicesFollowing = getAllNonMigratedInvoicesByAccountAfterDate(transactional, invoice.getInvoiceDate(), context);
-                    invoiceDaoHelper.populateChildren(invoicesFollowing, entitySqlDaoWrapperFactory, context);
+                    invoiceDaoHelper.populateChildrenForInvoices(invoicesFollowing, entitySqlDaoWrapperFactory, context);
 
                     // The remaining amount to adjust (i.e. the amount of credits used on following invoices)
                     // is the current account CBA balance (minus the sign)
@@ -780,7 +879,7 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
                                                                                            invoice.getAccountId(), null, null, null, null, null, null,
                                                                                            context.getCreatedDate().toLocalDate(), null,
                                                                                            positiveCBAAdjItemAmount, null, cbaItem.getCurrency(), cbaItem.getId());
-                        createInvoiceItemFromTransaction(invoiceItemSqlDao, nextCBAAdjItem, context);
+                        createInvoiceItemFromTransaction(invoiceItemSqlDao, nextCBAAdjItem, entitySqlDaoWrapperFactory, context);
                         if (positiveRemainderToAdjust.compareTo(BigDecimal.ZERO) == 0) {
                             break;
                         }
@@ -808,19 +907,21 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
 
         final long dryRunNotificationTime = invoiceConfig.getDryRunNotificationSchedule().getMillis();
         final boolean isInvoiceNotificationEnabled = dryRunNotificationTime > 0;
+        final List<NextBillingNotification> notifications = new LinkedList<NextBillingNotification>();
         for (final UUID subscriptionId : callbackDateTimePerSubscriptions.getNotifications().keySet()) {
             final List<SubscriptionNotification> callbackDateTimeUTC = callbackDateTimePerSubscriptions.getNotifications().get(subscriptionId);
             for (final SubscriptionNotification cur : callbackDateTimeUTC) {
                 if (isInvoiceNotificationEnabled) {
                     final DateTime curDryRunNotificationTime = cur.getEffectiveDate().minus(dryRunNotificationTime);
                     final DateTime effectiveCurDryRunNotificationTime = (curDryRunNotificationTime.isAfter(clock.getUTCNow())) ? curDryRunNotificationTime : clock.getUTCNow();
-                    nextBillingDatePoster.insertNextBillingDryRunNotificationFromTransaction(entitySqlDaoWrapperFactory, accountId, subscriptionId, effectiveCurDryRunNotificationTime, cur.getEffectiveDate(), callbackDateTimePerSubscriptions.getAccountDateAndTimeZoneContext(), internalCallContext);
+                    notifications.add(NextBillingNotification.nextBillingDryRunNotification(subscriptionId, effectiveCurDryRunNotificationTime, cur.getEffectiveDate()));
                 }
                 if (cur.isForInvoiceNotificationTrigger()) {
-                    nextBillingDatePoster.insertNextBillingNotificationFromTransaction(entitySqlDaoWrapperFactory, accountId, subscriptionId, cur.getEffectiveDate(), callbackDateTimePerSubscriptions.getAccountDateAndTimeZoneContext(), internalCallContext);
+                    notifications.add(NextBillingNotification.nextBillingNotification(subscriptionId, cur.getEffectiveDate()));
                 }
             }
         }
+        nextBillingDatePoster.insertNextBillingNotificationsFromTransaction(entitySqlDaoWrapperFactory, accountId, notifications, callbackDateTimePerSubscriptions.getAccountDateAndTimeZoneContext(), internalCallContext);
     }
 
     private void notifyBusOfInvoiceAdjustment(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory, final UUID invoiceId, final UUID accountId,
@@ -833,7 +934,7 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
         }
     }
 
-    private void createInvoiceItemFromTransaction(final InvoiceItemSqlDao invoiceItemSqlDao, final InvoiceItemModelDao invoiceItemModelDao, final InternalCallContext context) throws EntityPersistenceException, InvoiceApiException {
+    private void createInvoiceItemFromTransaction(final InvoiceItemSqlDao invoiceItemSqlDao, final InvoiceItemModelDao invoiceItemModelDao, final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory, final InternalCallContext context) throws EntityPersistenceException, InvoiceApiException {
         // There is no efficient way to retrieve an invoice item given an ID today (and invoice plugins can put item adjustments
         // on a different invoice than the original item), so it's easier to do the check in the DAO rather than in the API layer
         // See also https://github.com/killbill/killbill/issues/7
@@ -842,13 +943,76 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
         }
 
         invoiceItemSqlDao.create(invoiceItemModelDao, context);
+        invoiceAccountBalanceDao.recordInvoiceItemFromTransaction(invoiceItemModelDao, entitySqlDaoWrapperFactory, context);
+    }
+
+    /**
+     * Bulk version of createInvoiceItemFromTransaction: the items are inserted using JDBC batching and their audit logs
+     * are written in one batch as well (instead of going through the @Audited create path, which costs several statements per item).
+     *
+     * @return the created items, in the same order
+     */
+    private List<InvoiceItemModelDao> createInvoiceItemsFromTransaction(final InvoiceItemSqlDao invoiceItemSqlDao, final List<InvoiceItemModelDao> invoiceItemModelDaos, final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory, final InternalCallContext context) throws InvoiceApiException {
+        if (invoiceItemModelDaos.isEmpty()) {
+            return ImmutableList.<InvoiceItemModelDao>of();
+        }
+
+        // Item adjustments may point to an item of the batch, which isn't in the database yet
+        final Map<UUID, InvoiceItemModelDao> invoiceItemsById = new HashMap<UUID, InvoiceItemModelDao>();
+        for (final InvoiceItemModelDao invoiceItemModelDao : invoiceItemModelDaos) {
+            invoiceItemsById.put(invoiceItemModelDao.getId(), invoiceItemModelDao);
+        }
+        for (final InvoiceItemModelDao invoiceItemModelDao : invoiceItemModelDaos) {
+            if (InvoiceItemType.ITEM_ADJ.equals(invoiceItemModelDao.getType())) {
+                validateInvoiceItemToBeAdjusted(invoiceItemSqlDao, invoiceItemModelDao, invoiceItemsById, context);
+            }
+        }
+
+        invoiceItemSqlDao.createBatch(invoiceItemModelDaos, context);
+
+        // We need the record ids for the audit logs. Note that invoice_items doesn't have a history table, so the audit logs point to the items directly.
+        final Map<UUID, InvoiceItemModelDao> createdInvoiceItemsById = new HashMap<UUID, InvoiceItemModelDao>();
+        for (final InvoiceItemModelDao createdInvoiceItem : getInvoiceItemsByIdsFromTransaction(invoiceItemSqlDao, invoiceItemModelDaos, context)) {
+            createdInvoiceItemsById.put(createdInvoiceItem.getId(), createdInvoiceItem);
+        }
+        final List<InvoiceItemModelDao> createdInvoiceItems = new LinkedList<InvoiceItemModelDao>();
+        final List<EntityAudit> audits = new LinkedList<EntityAudit>();
+        final DateTime auditDate = clock.getUTCNow();
+        for (final InvoiceItemModelDao invoiceItemModelDao : invoiceItemModelDaos) {
+            final InvoiceItemModelDao createdInvoiceItem = createdInvoiceItemsById.get(invoiceItemModelDao.getId());
+            createdInvoiceItems.add(createdInvoiceItem);
+            audits.add(new EntityAudit(TableName.INVOICE_ITEMS, createdInvoiceItem.getRecordId(), ChangeType.INSERT, auditDate));
+        }
+        // No need to invalidate the audit log cache: nothing can have been cached yet for these new record ids
+        invoiceItemSqlDao.insertAuditsFromTransaction(audits, context);
+
+        invoiceAccountBalanceDao.recordInvoiceItemsFromTransaction(invoiceItemModelDaos, entitySqlDaoWrapperFactory, context);
+
+        return createdInvoiceItems;
+    }
+
+    private List<InvoiceItemModelDao> getInvoiceItemsByIdsFromTransaction(final InvoiceItemSqlDao invoiceItemSqlDao, final List<InvoiceItemModelDao> invoiceItemModelDaos, final InternalTenantContext context) {
+        final List<InvoiceItemModelDao> invoiceItems = new LinkedList<InvoiceItemModelDao>();
+        for (final List<InvoiceItemModelDao> partition : Lists.partition(invoiceItemModelDaos, MAX_INVOICE_ITEM_IDS_PER_QUERY)) {
+            final List<String> invoiceItemIds = new LinkedList<String>();
+            for (final InvoiceItemModelDao invoiceItemModelDao : partition) {
+                invoiceItemIds.add(invoiceItemModelDao.getId().toString());
+            }
+            invoiceItems.addAll(invoiceItemSqlDao.getByIds(invoiceItemIds, context));
+        }
+        return invoiceItems;
     }
 
     private void validateInvoiceItemToBeAdjusted(final InvoiceItemSqlDao invoiceItemSqlDao, final InvoiceItemModelDao invoiceItemModelDao, final InternalCallContext context) throws InvoiceApiException {
+        validateInvoiceItemToBeAdjusted(invoiceItemSqlDao, invoiceItemModelDao, ImmutableMap.<UUID, InvoiceItemModelDao>of(), context);
+    }
+
+    private void validateInvoiceItemToBeAdjusted(final InvoiceItemSqlDao invoiceItemSqlDao, final InvoiceItemModelDao invoiceItemModelDao, final Map<UUID, InvoiceItemModelDao> pendingInvoiceItemsById, final InternalCallContext context) throws InvoiceApiException {
         Preconditions.checkNotNull(invoiceItemModelDao.getLinkedItemId(), "LinkedItemId cannot be null for ITEM_ADJ item: " + invoiceItemModelDao);
-        // Note: this assumes the linked item has already been created in or prior to the transaction, which should almost always be the case
+        // Note: this assumes the linked item has already been created in or prior to the transaction (or is part of the same batch), which should almost always be the case
         // (unless some whacky plugin creates an out-of-order item adjustment on a subsequent external charge)
-        final InvoiceItemModelDao invoiceItemToBeAdjusted = invoiceItemSqlDao.getById(invoiceItemModelDao.getLinkedItemId().toString(), context);
+        final InvoiceItemModelDao pendingInvoiceItemToBeAdjusted = pendingInvoiceItemsById.get(invoiceItemModelDao.getLinkedItemId());
+        final InvoiceItemModelDao invoiceItemToBeAdjusted = pendingInvoiceItemToBeAdjusted != null ? pendingInvoiceItemToBeAdjusted : invoiceItemSqlDao.getById(invoiceItemModelDao.getLinkedItemId().toString(), context);
         if (!INVOICE_ITEM_TYPES_ADJUSTABLE.contains(invoiceItemToBeAdjusted.getType())) {
             throw new InvoiceApiException(ErrorCode.INVOICE_ITEM_ADJUSTMENT_ITEM_INVALID, invoiceItemToBeAdjusted.getId());
         }
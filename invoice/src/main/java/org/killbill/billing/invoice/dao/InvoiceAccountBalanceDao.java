@@ -0,0 +1,263 @@
+/*
+ * Copyright 2014-2016 Groupon, Inc
+ * Copyright 2014-2016 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.invoice.dao;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+
+import org.killbill.billing.callcontext.InternalCallContext;
+import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.util.config.InvoiceConfig;
+import org.killbill.billing.util.entity.dao.EntitySqlDaoWrapperFactory;
+import org.skife.jdbi.v2.Handle;
+import org.skife.jdbi.v2.exceptions.UnableToExecuteStatementException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+
+/**
+ * Incrementally maintained summary of the balance and CBA of an account, to avoid loading all the invoices of the account
+ * (with all their items and payments) each time these are needed.
+ * <p/>
+ * Each invoice item and invoice payment written must be recorded here, in the same transaction. The summary of an account is
+ * initialized from its invoices on the first write after the ledger has been enabled; until then, callers need to fall back to
+ * computing the values from the invoices (see computeFromInvoices).
+ * <p/>
+ * While the ledger is disabled, each write deletes the summary of its account instead, so that turning the ledger back on
+ * never serves a stale summary: the summaries of the accounts written to in the meantime are re-initialized on their next write.
+ * <p/>
+ * The balance of an invoice is rounded to the currency unit (see InvoiceCalculatorUtils#computeInvoiceBalance): each write is
+ * recorded as the difference of the rounded balance (and CBA) of the invoices it touches, so that the summary always matches computeFromInvoices.
+ */
+public class InvoiceAccountBalanceDao {
+
+    private static final Logger log = LoggerFactory.getLogger(InvoiceAccountBalanceDao.class);
+
+    private static final String CREATE_ACCOUNT_BALANCE_CHECKPOINT = "create_account_balance";
+
+    private final InvoiceDaoHelper invoiceDaoHelper;
+    private final InvoiceConfig invoiceConfig;
+
+    @Inject
+    public InvoiceAccountBalanceDao(final InvoiceDaoHelper invoiceDaoHelper, final InvoiceConfig invoiceConfig) {
+        this.invoiceDaoHelper = invoiceDaoHelper;
+        this.invoiceConfig = invoiceConfig;
+    }
+
+    public void recordInvoiceItemFromTransaction(final InvoiceItemModelDao invoiceItem, final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory, final InternalCallContext context) {
+        recordInvoiceItemsFromTransaction(ImmutableList.<InvoiceItemModelDao>of(invoiceItem), entitySqlDaoWrapperFactory, context);
+    }
+
+    // The deltas of all items are summed up, so that the summary is updated once
+    public void recordInvoiceItemsFromTransaction(final Iterable<InvoiceItemModelDao> invoiceItems, final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory, final InternalCallContext context) {
+        if (!invoiceConfig.isAccountBalanceLedgerEnabled()) {
+            deleteAccountBalanceFromTransaction(entitySqlDaoWrapperFactory, context);
+            return;
+        }
+
+        final Set<UUID> invoiceIds = new HashSet<UUID>();
+        final Set<UUID> invoiceItemIds = new HashSet<UUID>();
+        for (final InvoiceItemModelDao invoiceItem : invoiceItems) {
+            invoiceIds.add(invoiceItem.getInvoiceId());
+            invoiceItemIds.add(invoiceItem.getId());
+        }
+        recordFromTransaction(invoiceIds, invoiceItemIds, entitySqlDaoWrapperFactory, context);
+    }
+
+    // To be invoked (with the row as stored) for new invoice payments, and for existing ones transitioning to success
+    public void recordInvoicePaymentFromTransaction(final InvoicePaymentModelDao invoicePayment, final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory, final InternalCallContext context) {
+        // Unsuccessful payments don't contribute to the balance
+        if (Boolean.FALSE.equals(invoicePayment.getSuccess())) {
+            return;
+        }
+
+        if (!invoiceConfig.isAccountBalanceLedgerEnabled()) {
+            deleteAccountBalanceFromTransaction(entitySqlDaoWrapperFactory, context);
+            return;
+        }
+
+        recordFromTransaction(ImmutableSet.<UUID>of(invoicePayment.getInvoiceId()), ImmutableSet.<UUID>of(invoicePayment.getId()), entitySqlDaoWrapperFactory, context);
+    }
+
+    /**
+     * @return the summary of the account, or null if the ledger is disabled or not yet initialized for that account
+     */
+    @Nullable
+    public InvoiceAccountBalanceModelDao getAccountBalanceFromTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory, final InternalTenantContext context) {
+        if (!invoiceConfig.isAccountBalanceLedgerEnabled()) {
+            return null;
+        }
+
+        final InvoiceAccountBalanceModelDao accountBalance = getSqlDao(entitySqlDaoWrapperFactory).getAccountBalance(context);
+        if (accountBalance != null && invoiceConfig.isAccountBalanceLedgerVerificationEnabled()) {
+            final InvoiceAccountBalanceModelDao expectedAccountBalance = computeFromTransaction(entitySqlDaoWrapperFactory, context);
+            if (!accountBalance.isSameAs(expectedAccountBalance)) {
+                log.warn("Inconsistent account balance summary {}: expected balance={}, cba={}", accountBalance, expectedAccountBalance.getBalance(), expectedAccountBalance.getCba());
+                return expectedAccountBalance;
+            }
+        }
+        return accountBalance;
+    }
+
+    /**
+     * Recompute the summary of the account from its invoices, and fix (or create) it.
+     * <p/>
+     * This isn't invoked under the account lock: the correction is applied as a delta (computed minus previous, both read in
+     * this transaction) so that the deltas of writes committed concurrently are preserved.
+     *
+     * @return the summary prior to the rebuild, or null if there was none
+     */
+    @Nullable
+    public InvoiceAccountBalanceModelDao rebuildFromTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory, final InternalCallContext context) {
+        final InvoiceAccountBalanceSqlDao sqlDao = getSqlDao(entitySqlDaoWrapperFactory);
+        final InvoiceAccountBalanceModelDao previousAccountBalance = sqlDao.getAccountBalance(context);
+        final InvoiceAccountBalanceModelDao accountBalance = computeFromTransaction(entitySqlDaoWrapperFactory, context);
+        if (previousAccountBalance == null) {
+            sqlDao.create(accountBalance.getBalance(), accountBalance.getCba(), context);
+        } else if (!previousAccountBalance.isSameAs(accountBalance)) {
+            log.warn("Rebuilding inconsistent account balance summary {}: balance={}, cba={}", previousAccountBalance, accountBalance.getBalance(), accountBalance.getCba());
+            sqlDao.addToAccountBalance(accountBalance.getBalance().subtract(previousAccountBalance.getBalance()),
+                                       accountBalance.getCba().subtract(previousAccountBalance.getCba()),
+                                       context);
+        }
+        return previousAccountBalance;
+    }
+
+    public InvoiceAccountBalanceModelDao computeFromTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory, final InternalTenantContext context) {
+        return computeFromInvoices(invoiceDaoHelper.getAllInvoicesByAccountFromTransaction(entitySqlDaoWrapperFactory, context));
+    }
+
+    public static InvoiceAccountBalanceModelDao computeFromInvoices(final Iterable<InvoiceModelDao> invoices) {
+        BigDecimal balance = BigDecimal.ZERO;
+        BigDecimal cba = BigDecimal.ZERO;
+        for (final InvoiceModelDao cur : invoices) {
+            balance = balance.add(InvoiceModelDaoHelper.getBalance(cur));
+            cba = cba.add(InvoiceModelDaoHelper.getCBAAmount(cur));
+        }
+        return new InvoiceAccountBalanceModelDao(balance.subtract(cba), cba);
+    }
+
+    private void recordFromTransaction(final Set<UUID> invoiceIds, final Set<UUID> writtenIds, final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory, final InternalCallContext context) {
+        final InvoiceSqlDao invoiceSqlDao = entitySqlDaoWrapperFactory.become(InvoiceSqlDao.class);
+        final List<InvoiceModelDao> invoices = new LinkedList<InvoiceModelDao>();
+        for (final UUID invoiceId : invoiceIds) {
+            final InvoiceModelDao invoice = invoiceSqlDao.getById(invoiceId.toString(), context);
+            if (invoice != null) {
+                invoices.add(invoice);
+            }
+        }
+        // Written off tags don't matter here (see InvoiceModelDaoHelper#getBalance)
+        invoiceDaoHelper.populateChildren(invoices, ImmutableSet.<UUID>of(), entitySqlDaoWrapperFactory, context);
+
+        final InvoiceAccountBalanceModelDao after = computeFromInvoices(invoices);
+        final List<InvoiceModelDao> previousInvoices = new LinkedList<InvoiceModelDao>();
+        for (final InvoiceModelDao invoice : invoices) {
+            previousInvoices.add(withoutChildren(invoice, writtenIds));
+        }
+        final InvoiceAccountBalanceModelDao before = computeFromInvoices(previousInvoices);
+        final BigDecimal balanceDelta = after.getBalance().subtract(before.getBalance());
+        final BigDecimal cbaDelta = after.getCba().subtract(before.getCba());
+        if (balanceDelta.compareTo(BigDecimal.ZERO) != 0 || cbaDelta.compareTo(BigDecimal.ZERO) != 0) {
+            addToAccountBalanceFromTransaction(balanceDelta, cbaDelta, entitySqlDaoWrapperFactory, context);
+        }
+    }
+
+    // The invoice as it was prior to the write of the specified items and payments
+    private static InvoiceModelDao withoutChildren(final InvoiceModelDao invoice, final Set<UUID> writtenIds) {
+        final InvoiceModelDao previousInvoice = new InvoiceModelDao();
+        previousInvoice.setCurrency(invoice.getCurrency());
+        previousInvoice.setInvoiceItems(ImmutableList.<InvoiceItemModelDao>copyOf(Iterables.<InvoiceItemModelDao>filter(invoice.getInvoiceItems(), new Predicate<InvoiceItemModelDao>() {
+            @Override
+            public boolean apply(final InvoiceItemModelDao invoiceItem) {
+                return !writtenIds.contains(invoiceItem.getId());
+            }
+        })));
+        previousInvoice.setInvoicePayments(ImmutableList.<InvoicePaymentModelDao>copyOf(Iterables.<InvoicePaymentModelDao>filter(invoice.getInvoicePayments(), new Predicate<InvoicePaymentModelDao>() {
+            @Override
+            public boolean apply(final InvoicePaymentModelDao invoicePayment) {
+                return !writtenIds.contains(invoicePayment.getId());
+            }
+        })));
+        return previousInvoice;
+    }
+
+    private void addToAccountBalanceFromTransaction(final BigDecimal balanceDelta, final BigDecimal cbaDelta, final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory, final InternalCallContext context) {
+        final InvoiceAccountBalanceSqlDao sqlDao = getSqlDao(entitySqlDaoWrapperFactory);
+        if (sqlDao.addToAccountBalance(balanceDelta, cbaDelta, context) > 0) {
+            return;
+        }
+
+        // First write since the ledger was enabled: initialize it from the invoices, which already include the current write.
+        // Invoice and payment writes don't grab the same account lock, so another transaction may initialize it concurrently:
+        // if it wins, our write is applied on top of its summary (which doesn't include it) instead.
+        final InvoiceAccountBalanceModelDao accountBalance = computeFromTransaction(entitySqlDaoWrapperFactory, context);
+        if (!createAccountBalanceIfAbsent(sqlDao, accountBalance, entitySqlDaoWrapperFactory, context) &&
+            sqlDao.addToAccountBalance(balanceDelta, cbaDelta, context) == 0) {
+            throw new IllegalStateException(String.format("Unable to initialize the account balance summary for accountRecordId='%s'", context.getAccountRecordId()));
+        }
+    }
+
+    // The insert runs within a savepoint, so that a duplicate doesn't abort the whole transaction
+    private boolean createAccountBalanceIfAbsent(final InvoiceAccountBalanceSqlDao sqlDao, final InvoiceAccountBalanceModelDao accountBalance, final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory, final InternalCallContext context) {
+        final Handle handle = entitySqlDaoWrapperFactory.getHandle();
+        handle.checkpoint(CREATE_ACCOUNT_BALANCE_CHECKPOINT);
+        try {
+            sqlDao.create(accountBalance.getBalance(), accountBalance.getCba(), context);
+        } catch (final UnableToExecuteStatementException e) {
+            if (!isIntegrityConstraintViolation(e)) {
+                throw e;
+            }
+            handle.rollback(CREATE_ACCOUNT_BALANCE_CHECKPOINT);
+            return false;
+        }
+        handle.release(CREATE_ACCOUNT_BALANCE_CHECKPOINT);
+        return true;
+    }
+
+    // SQLState class 23: integrity constraint violation (here, the unique index on account_record_id)
+    private static boolean isIntegrityConstraintViolation(final Throwable e) {
+        Throwable cause = e;
+        while (cause != null) {
+            if (cause instanceof SQLException && ((SQLException) cause).getSQLState() != null && ((SQLException) cause).getSQLState().startsWith("23")) {
+                return true;
+            }
+            cause = cause.getCause();
+        }
+        return false;
+    }
+
+    private void deleteAccountBalanceFromTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory, final InternalCallContext context) {
+        getSqlDao(entitySqlDaoWrapperFactory).deleteAccountBalance(context);
+    }
+
+    private InvoiceAccountBalanceSqlDao getSqlDao(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) {
+        return entitySqlDaoWrapperFactory.getHandle().attach(InvoiceAccountBalanceSqlDao.class);
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2014-2016 Groupon, Inc
+ * Copyright 2014-2016 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.invoice.dao;
+
+import java.math.BigDecimal;
+
+import org.joda.time.DateTime;
+
+public class InvoiceAccountBalanceModelDao {
+
+    private Long recordId;
+    private BigDecimal balance;
+    private BigDecimal cba;
+    private DateTime createdDate;
+    private DateTime updatedDate;
+    private Long accountRecordId;
+    private Long tenantRecordId;
+
+    public InvoiceAccountBalanceModelDao() { /* For the DAO mapper */ }
+
+    public InvoiceAccountBalanceModelDao(final BigDecimal balance, final BigDecimal cba) {
+        this.balance = balance;
+        this.cba = cba;
+    }
+
+    public Long getRecordId() {
+        return recordId;
+    }
+
+    public void setRecordId(final Long recordId) {
+        this.recordId = recordId;
+    }
+
+    // Account balance, CBA excluded (i.e. sum of the invoice balances minus the CBA)
+    public BigDecimal getBalance() {
+        return balance;
+    }
+
+    public void setBalance(final BigDecimal balance) {
+        this.balance = balance;
+    }
+
+    public BigDecimal getCba() {
+        return cba;
+    }
+
+    public void setCba(final BigDecimal cba) {
+        this.cba = cba;
+    }
+
+    public DateTime getCreatedDate() {
+        return createdDate;
+    }
+
+    public void setCreatedDate(final DateTime createdDate) {
+        this.createdDate = createdDate;
+    }
+
+    public DateTime getUpdatedDate() {
+        return updatedDate;
+    }
+
+    public void setUpdatedDate(final DateTime updatedDate) {
+        this.updatedDate = updatedDate;
+    }
+
+    public Long getAccountRecordId() {
+        return accountRecordId;
+    }
+
+    public void setAccountRecordId(final Long accountRecordId) {
+        this.accountRecordId = accountRecordId;
+    }
+
+    public Long getTenantRecordId() {
+        return tenantRecordId;
+    }
+
+    public void setTenantRecordId(final Long tenantRecordId) {
+        this.tenantRecordId = tenantRecordId;
+    }
+
+    // Note: BigDecimal#equals takes the scale into account
+    public boolean isSameAs(final InvoiceAccountBalanceModelDao other) {
+        return balance.compareTo(other.getBalance()) == 0 && cba.compareTo(other.getCba()) == 0;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("InvoiceAccountBalanceModelDao{");
+        sb.append("recordId=").append(recordId);
+        sb.append(", balance=").append(balance);
+        sb.append(", cba=").append(cba);
+        sb.append(", updatedDate=").append(updatedDate);
+        sb.append(", accountRecordId=").append(accountRecordId);
+        sb.append(", tenantRecordId=").append(tenantRecordId);
+        sb.append('}');
+        return sb.toString();
+    }
+}
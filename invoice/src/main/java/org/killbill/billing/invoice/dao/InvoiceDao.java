@@ -19,6 +19,7 @@
 package org.killbill.billing.invoice.dao;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -52,6 +53,9 @@ public interface InvoiceDao extends EntityDao<InvoiceModelDao, Invoice, InvoiceA
 
     List<InvoiceModelDao> getInvoicesByAccount(LocalDate fromDate, InternalTenantContext context);
 
+    // Same as getInvoicesByAccount, but the invoices are loaded lazily (in batches) while iterating
+    Iterable<InvoiceModelDao> streamInvoicesByAccount(InternalTenantContext context);
+
     List<InvoiceModelDao> getInvoicesBySubscription(UUID subscriptionId, InternalTenantContext context);
 
     Pagination<InvoiceModelDao> searchInvoices(String searchKey, Long offset, Long limit, InternalTenantContext context);
@@ -66,8 +70,14 @@ public interface InvoiceDao extends EntityDao<InvoiceModelDao, Invoice, InvoiceA
 
     BigDecimal getAccountCBA(UUID accountId, InternalTenantContext context);
 
+    // Recompute the account balance and CBA summary from the invoices of the account (see InvoiceAccountBalanceDao)
+    void rebuildAccountBalance(InternalCallContext context);
+
     List<InvoiceModelDao> getUnpaidInvoicesByAccountId(UUID accountId, @Nullable LocalDate upToDate, InternalTenantContext context);
 
+    // Unpaid invoices for a batch of accounts (regardless of their target date), grouped by account id
+    Map<UUID, List<InvoiceModelDao>> getUnpaidInvoicesByAccountRecordIds(Collection<Long> accountRecordIds, InternalTenantContext context);
+
     // Include migrated invoices
     List<InvoiceModelDao> getAllInvoicesByAccount(InternalTenantContext context);
 
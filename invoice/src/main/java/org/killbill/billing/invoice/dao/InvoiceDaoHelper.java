@@ -22,9 +22,11 @@ import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 import javax.annotation.Nullable;
@@ -43,14 +45,20 @@ import org.killbill.billing.util.entity.dao.EntitySqlDaoWrapperFactory;
 import org.killbill.billing.util.tag.ControlTagType;
 import org.killbill.billing.util.tag.Tag;
 
+import com.google.common.base.Function;
 import com.google.common.base.Objects;
 import com.google.common.base.Predicate;
 import com.google.common.collect.Collections2;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
 
 public class InvoiceDaoHelper {
 
+    // Maximum number of invoice ids in a single IN-list query
+    private static final int BULK_QUERY_BATCH_SIZE = 1000;
+
     private final TagInternalApi tagInternalApi;
 
     @Inject
@@ -163,7 +171,9 @@ public class InvoiceDaoHelper {
     }
 
     public List<InvoiceModelDao> getUnpaidInvoicesByAccountFromTransaction(final UUID accountId, final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory, final LocalDate upToDate, final InternalTenantContext context) {
-        final List<InvoiceModelDao> invoices = getAllInvoicesByAccountFromTransaction(entitySqlDaoWrapperFactory, context);
+        // Let the database discard the paid invoices, and only hydrate the remaining ones (the balance is then re-computed as usual)
+        final List<InvoiceModelDao> invoices = entitySqlDaoWrapperFactory.become(InvoiceSqlDao.class).getInvoicesWithPositiveBalanceByAccountRecordId(context);
+        populateChildrenForInvoices(invoices, entitySqlDaoWrapperFactory, context);
         return getUnpaidInvoicesByAccountFromTransaction(invoices, upToDate);
     }
 
@@ -178,6 +188,38 @@ public class InvoiceDaoHelper {
 
     }
 
+    /**
+     * Set-based variant of getUnpaidInvoicesByAccountFromTransaction for a batch of accounts: the candidate invoices are retrieved
+     * with a single query regardless of the number of accounts, and only their items and payments are then retrieved.
+     *
+     * @param accountRecordIds           the account record ids of the batch
+     * @param entitySqlDaoWrapperFactory the EntitySqlDaoWrapperFactory from the current transaction
+     * @param context                    the tenant callcontext (not tied to a specific account)
+     * @return the unpaid invoices, grouped by account id. Accounts without any unpaid invoice are absent from the map
+     */
+    public Map<UUID, List<InvoiceModelDao>> getUnpaidInvoicesByAccountRecordIdsFromTransaction(final Collection<Long> accountRecordIds, final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory, final InternalTenantContext context) {
+        final Map<UUID, List<InvoiceModelDao>> unpaidInvoicesPerAccountId = new HashMap<UUID, List<InvoiceModelDao>>();
+        if (accountRecordIds.isEmpty()) {
+            return unpaidInvoicesPerAccountId;
+        }
+
+        // Let the database discard the paid invoices, and only hydrate the remaining ones (the written off flags are set below, on the unpaid ones)
+        final List<InvoiceModelDao> invoices = entitySqlDaoWrapperFactory.become(InvoiceSqlDao.class).getInvoicesWithPositiveBalanceByAccountRecordIds(accountRecordIds, context);
+        populateChildren(invoices, ImmutableSet.<UUID>of(), entitySqlDaoWrapperFactory, context);
+
+        final List<InvoiceModelDao> unpaidInvoices = getUnpaidInvoicesByAccountFromTransaction(invoices, null);
+        final Set<UUID> writtenOffInvoiceIds = getWrittenOffInvoiceIds(unpaidInvoices, context);
+        for (final InvoiceModelDao unpaidInvoice : unpaidInvoices) {
+            unpaidInvoice.setIsWrittenOff(writtenOffInvoiceIds.contains(unpaidInvoice.getId()));
+
+            if (unpaidInvoicesPerAccountId.get(unpaidInvoice.getAccountId()) == null) {
+                unpaidInvoicesPerAccountId.put(unpaidInvoice.getAccountId(), new LinkedList<InvoiceModelDao>());
+            }
+            unpaidInvoicesPerAccountId.get(unpaidInvoice.getAccountId()).add(unpaidInvoice);
+        }
+        return unpaidInvoicesPerAccountId;
+    }
+
     /**
      * Create an adjustment for a given invoice item. This just creates the object in memory, it doesn't write it to disk.
      *
@@ -215,17 +257,86 @@ public class InvoiceDaoHelper {
     }
 
     public void populateChildren(final InvoiceModelDao invoice, final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory, final InternalTenantContext context) {
-        getInvoiceItemsWithinTransaction(ImmutableList.<InvoiceModelDao>of(invoice), entitySqlDaoWrapperFactory, context);
-        getInvoicePaymentsWithinTransaction(ImmutableList.<InvoiceModelDao>of(invoice), entitySqlDaoWrapperFactory, context);
+        // Only retrieve the children of that invoice
+        final String invoiceId = invoice.getId().toString();
+        setInvoiceItems(ImmutableList.<InvoiceModelDao>of(invoice), entitySqlDaoWrapperFactory.become(InvoiceItemSqlDao.class).getInvoiceItemsByInvoice(invoiceId, context));
+        setInvoicePayments(ImmutableList.<InvoiceModelDao>of(invoice), entitySqlDaoWrapperFactory.become(InvoicePaymentSqlDao.class).getPaymentsForInvoice(invoiceId, context));
         setInvoiceWrittenOff(invoice, context);
     }
 
+    /**
+     * Populate the items and payments of all (or most) invoices of the account: the children of the whole account are retrieved at once.
+     * <p/>
+     * For a bounded set of invoices (e.g. the invoices of a subscription), use populateChildrenForInvoices instead.
+     *
+     * @param invoices                   the invoices to populate
+     * @param entitySqlDaoWrapperFactory the EntitySqlDaoWrapperFactory from the current transaction
+     * @param context                    the tenant callcontext
+     */
     public void populateChildren(final Iterable<InvoiceModelDao> invoices, final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory, final InternalTenantContext context) {
         getInvoiceItemsWithinTransaction(invoices, entitySqlDaoWrapperFactory, context);
         getInvoicePaymentsWithinTransaction(invoices, entitySqlDaoWrapperFactory, context);
         setInvoicesWrittenOff(invoices, context);
     }
 
+    /**
+     * Populate the items and payments of a bounded set of invoices, retrieving the children of these invoices only (instead of all the children of the account).
+     *
+     * @param invoices                   the invoices to populate
+     * @param entitySqlDaoWrapperFactory the EntitySqlDaoWrapperFactory from the current transaction
+     * @param context                    the tenant callcontext
+     */
+    public void populateChildrenForInvoices(final List<InvoiceModelDao> invoices, final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory, final InternalTenantContext context) {
+        if (invoices.isEmpty()) {
+            return;
+        }
+
+        populateChildren(invoices, getWrittenOffInvoiceIds(invoices, context), entitySqlDaoWrapperFactory, context);
+    }
+
+    /**
+     * Populate the items and payments of a batch of invoices, retrieving the children of these invoices only (instead of all the children of the account).
+     *
+     * @param invoices                   the invoices to populate
+     * @param writtenOffInvoiceIds       ids of the written off invoices of the account (see getWrittenOffInvoiceIds)
+     * @param entitySqlDaoWrapperFactory the EntitySqlDaoWrapperFactory from the current transaction
+     * @param context                    the tenant callcontext
+     */
+    public void populateChildren(final List<InvoiceModelDao> invoices, final Set<UUID> writtenOffInvoiceIds, final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory, final InternalTenantContext context) {
+        if (invoices.isEmpty()) {
+            return;
+        }
+
+        final List<String> invoiceIds = Lists.<InvoiceModelDao, String>transform(invoices, new Function<InvoiceModelDao, String>() {
+            @Override
+            public String apply(final InvoiceModelDao invoice) {
+                return invoice.getId().toString();
+            }
+        });
+
+        final List<InvoiceItemModelDao> invoiceItems = new LinkedList<InvoiceItemModelDao>();
+        final List<InvoicePaymentModelDao> invoicePayments = new LinkedList<InvoicePaymentModelDao>();
+        for (final List<String> batch : Lists.<String>partition(invoiceIds, BULK_QUERY_BATCH_SIZE)) {
+            invoiceItems.addAll(entitySqlDaoWrapperFactory.become(InvoiceItemSqlDao.class).getInvoiceItemsByInvoiceIds(batch, context));
+            invoicePayments.addAll(entitySqlDaoWrapperFactory.become(InvoicePaymentSqlDao.class).getPaymentsForInvoices(batch, context));
+        }
+        setInvoiceItems(invoices, invoiceItems);
+        setInvoicePayments(invoices, invoicePayments);
+        for (final InvoiceModelDao invoice : invoices) {
+            invoice.setIsWrittenOff(writtenOffInvoiceIds.contains(invoice.getId()));
+        }
+    }
+
+    public Set<UUID> getWrittenOffInvoiceIds(final InternalTenantContext context) {
+        final List<Tag> tags = tagInternalApi.getTagsForAccountType(ObjectType.INVOICE, false, context);
+        return ImmutableSet.<UUID>copyOf(Iterables.<Tag, UUID>transform(filterForWrittenOff(tags), new Function<Tag, UUID>() {
+            @Override
+            public UUID apply(final Tag tag) {
+                return tag.getObjectId();
+            }
+        }));
+    }
+
     public List<InvoiceModelDao> getAllInvoicesByAccountFromTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory, final InternalTenantContext context) {
         final List<InvoiceModelDao> invoices = entitySqlDaoWrapperFactory.become(InvoiceSqlDao.class).getByAccountRecordId(context);
         populateChildren(invoices, entitySqlDaoWrapperFactory, context);
@@ -240,7 +351,10 @@ public class InvoiceDaoHelper {
     private void getInvoiceItemsWithinTransaction(final Iterable<InvoiceModelDao> invoices, final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory, final InternalTenantContext context) {
         final InvoiceItemSqlDao invoiceItemSqlDao = entitySqlDaoWrapperFactory.become(InvoiceItemSqlDao.class);
         final List<InvoiceItemModelDao> invoiceItemsForAccount = invoiceItemSqlDao.getByAccountRecordId(context);
+        setInvoiceItems(invoices, invoiceItemsForAccount);
+    }
 
+    private void setInvoiceItems(final Iterable<InvoiceModelDao> invoices, final Iterable<InvoiceItemModelDao> invoiceItemsForAccount) {
         final Map<UUID, List<InvoiceItemModelDao>> invoiceItemsPerInvoiceId = new HashMap<UUID, List<InvoiceItemModelDao>>();
         for (final InvoiceItemModelDao item : invoiceItemsForAccount) {
             if (invoiceItemsPerInvoiceId.get(item.getInvoiceId()) == null) {
@@ -259,7 +373,10 @@ public class InvoiceDaoHelper {
     private void getInvoicePaymentsWithinTransaction(final Iterable<InvoiceModelDao> invoices, final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory, final InternalTenantContext context) {
         final InvoicePaymentSqlDao invoicePaymentSqlDao = entitySqlDaoWrapperFactory.become(InvoicePaymentSqlDao.class);
         final List<InvoicePaymentModelDao> invoicePaymentsForAccount = invoicePaymentSqlDao.getByAccountRecordId(context);
+        setInvoicePayments(invoices, invoicePaymentsForAccount);
+    }
 
+    private void setInvoicePayments(final Iterable<InvoiceModelDao> invoices, final Iterable<InvoicePaymentModelDao> invoicePaymentsForAccount) {
         final Map<UUID, List<InvoicePaymentModelDao>> invoicePaymentsPerInvoiceId = new HashMap<UUID, List<InvoicePaymentModelDao>>();
         for (final InvoicePaymentModelDao invoicePayment : invoicePaymentsForAccount) {
             if (invoicePaymentsPerInvoiceId.get(invoicePayment.getInvoiceId()) == null) {
@@ -306,6 +423,27 @@ public class InvoiceDaoHelper {
         invoice.setIsWrittenOff(writtenOffTags.iterator().hasNext());
     }
 
+    // Look-up the tags of the given invoices only (instead of all the tags of the account), with a single query
+    private Set<UUID> getWrittenOffInvoiceIds(final List<InvoiceModelDao> invoices, final InternalTenantContext context) {
+        final Set<UUID> writtenOffInvoiceIds = new HashSet<UUID>();
+        if (invoices.isEmpty()) {
+            return writtenOffInvoiceIds;
+        }
+
+        final Map<UUID, List<Tag>> tagsByInvoiceId = tagInternalApi.getTagsForObjects(Lists.<InvoiceModelDao, UUID>transform(invoices, new Function<InvoiceModelDao, UUID>() {
+            @Override
+            public UUID apply(final InvoiceModelDao invoice) {
+                return invoice.getId();
+            }
+        }), ObjectType.INVOICE, context);
+        for (final Map.Entry<UUID, List<Tag>> entry : tagsByInvoiceId.entrySet()) {
+            if (filterForWrittenOff(entry.getValue()).iterator().hasNext()) {
+                writtenOffInvoiceIds.add(entry.getKey());
+            }
+        }
+        return writtenOffInvoiceIds;
+    }
+
     private Iterable<Tag> filterForWrittenOff(final List<Tag> tags) {
         return Iterables.filter(tags, new Predicate<Tag>() {
             @Override
@@ -16,16 +16,22 @@
 
 package org.killbill.billing.invoice.dao;
 
+import java.util.Collection;
 import java.util.List;
 
 import org.skife.jdbi.v2.sqlobject.Bind;
 import org.skife.jdbi.v2.sqlobject.BindBean;
+import org.skife.jdbi.v2.sqlobject.SqlBatch;
 import org.skife.jdbi.v2.sqlobject.SqlQuery;
+import org.skife.jdbi.v2.sqlobject.customizers.BatchChunkSize;
 
 import org.killbill.billing.invoice.api.InvoiceItem;
+import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.util.dao.EntityAudit;
 import org.killbill.billing.util.entity.dao.EntitySqlDao;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoStringTemplate;
+import org.killbill.billing.util.tag.dao.UUIDCollectionBinder;
 
 @EntitySqlDaoStringTemplate
 public interface InvoiceItemSqlDao extends EntitySqlDao<InvoiceItemModelDao, InvoiceItem> {
@@ -34,6 +40,10 @@ public interface InvoiceItemSqlDao extends EntitySqlDao<InvoiceItemModelDao, Inv
     List<InvoiceItemModelDao> getInvoiceItemsByInvoice(@Bind("invoiceId") final String invoiceId,
                                                        @BindBean final InternalTenantContext context);
 
+    @SqlQuery
+    List<InvoiceItemModelDao> getInvoiceItemsByInvoiceIds(@UUIDCollectionBinder final Collection<String> invoiceIds,
+                                                          @BindBean final InternalTenantContext context);
+
     @SqlQuery
     List<InvoiceItemModelDao> getInvoiceItemsBySubscription(@Bind("subscriptionId") final String subscriptionId,
                                                             @BindBean final InternalTenantContext context);
@@ -42,4 +52,19 @@ public interface InvoiceItemSqlDao extends EntitySqlDao<InvoiceItemModelDao, Inv
     @SqlQuery
     List<InvoiceItemModelDao> getAdjustedOrRepairedInvoiceItemsByLinkedId(@Bind("linkedItemId") final String linkedItemId,
                                                             @BindBean final InternalTenantContext context);
+
+    @SqlQuery
+    List<InvoiceItemModelDao> getByIds(@UUIDCollectionBinder final Collection<String> invoiceItemIds,
+                                       @BindBean final InternalTenantContext context);
+
+    // Not audited: see DefaultInvoiceDao#createInvoiceItemsFromTransaction, which writes the audit rows with insertAuditsFromTransaction
+    @SqlBatch(value = "create", transactional = false)
+    @BatchChunkSize(1000)
+    void createBatch(@BindBean final Iterable<InvoiceItemModelDao> invoiceItems,
+                     @BindBean final InternalCallContext context);
+
+    @SqlBatch(value = "insertAuditFromTransaction", transactional = false)
+    @BatchChunkSize(1000)
+    void insertAuditsFromTransaction(@BindBean final Iterable<EntityAudit> audits,
+                                     @BindBean final InternalCallContext context);
 }
@@ -16,6 +16,7 @@
 
 package org.killbill.billing.invoice.dao;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -25,6 +26,7 @@ import org.skife.jdbi.v2.sqlobject.SqlQuery;
 
 import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.invoice.api.Invoice;
+import org.killbill.billing.util.dao.RecordIdCollectionBinder;
 import org.killbill.billing.util.entity.dao.EntitySqlDao;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoStringTemplate;
 
@@ -38,5 +40,20 @@ public interface InvoiceSqlDao extends EntitySqlDao<InvoiceModelDao, Invoice> {
     @SqlQuery
     UUID getInvoiceIdByPaymentId(@Bind("paymentId") final String paymentId,
                                  @BindBean final InternalTenantContext context);
-}
 
+    // Ordered by target date, as returned by InvoiceDao#getInvoicesByAccount
+    @SqlQuery
+    List<Long> getNonMigratedInvoiceRecordIdsByAccountRecordId(@BindBean final InternalTenantContext context);
+
+    // Candidates only: the balance is computed without the rounding and snowflakes of InvoiceCalculatorUtils
+    @SqlQuery
+    List<InvoiceModelDao> getInvoicesWithPositiveBalanceByAccountRecordId(@BindBean final InternalTenantContext context);
+
+    @SqlQuery
+    List<InvoiceModelDao> getInvoicesWithPositiveBalanceByAccountRecordIds(@RecordIdCollectionBinder("accountRecordId") final Collection<Long> accountRecordIds,
+                                                                           @BindBean final InternalTenantContext context);
+
+    @SqlQuery
+    List<InvoiceModelDao> getByRecordIds(@RecordIdCollectionBinder final Collection<Long> recordIds,
+                                         @BindBean final InternalTenantContext context);
+}
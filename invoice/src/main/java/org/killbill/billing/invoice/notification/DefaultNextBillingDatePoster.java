@@ -19,7 +19,9 @@
 package org.killbill.billing.invoice.notification;
 
 import java.io.IOException;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
 import org.joda.time.DateTime;
@@ -35,7 +37,7 @@ import org.killbill.notificationq.api.NotificationQueueService.NoSuchNotificatio
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import com.google.inject.Inject;
 
@@ -53,53 +55,67 @@ public class DefaultNextBillingDatePoster implements NextBillingDatePoster {
     @Override
     public void insertNextBillingNotificationFromTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory, final UUID accountId,
                                                              final UUID subscriptionId, final DateTime futureNotificationTime, final AccountDateAndTimeZoneContext accountDateAndTimeZoneContext, final InternalCallContext internalCallContext) {
-        insertNextBillingFromTransactionInternal(entitySqlDaoWrapperFactory, accountId, subscriptionId, Boolean.FALSE, futureNotificationTime, futureNotificationTime, accountDateAndTimeZoneContext, internalCallContext);
+        insertNextBillingNotificationsFromTransaction(entitySqlDaoWrapperFactory, accountId, ImmutableList.<NextBillingNotification>of(NextBillingNotification.nextBillingNotification(subscriptionId, futureNotificationTime)), accountDateAndTimeZoneContext, internalCallContext);
     }
 
     @Override
     public void insertNextBillingDryRunNotificationFromTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory, final UUID accountId,
                                                                    final UUID subscriptionId, final DateTime futureNotificationTime, final DateTime targetDate, final AccountDateAndTimeZoneContext accountDateAndTimeZoneContext, final InternalCallContext internalCallContext) {
-        insertNextBillingFromTransactionInternal(entitySqlDaoWrapperFactory, accountId, subscriptionId, Boolean.TRUE, futureNotificationTime, targetDate, accountDateAndTimeZoneContext, internalCallContext);
+        insertNextBillingNotificationsFromTransaction(entitySqlDaoWrapperFactory, accountId, ImmutableList.<NextBillingNotification>of(NextBillingNotification.nextBillingDryRunNotification(subscriptionId, futureNotificationTime, targetDate)), accountDateAndTimeZoneContext, internalCallContext);
     }
 
-    private void insertNextBillingFromTransactionInternal(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory, final UUID accountId,
-                                                          final UUID subscriptionId, final Boolean isDryRunForInvoiceNotification, final DateTime futureNotificationTime, final DateTime targetDate, final AccountDateAndTimeZoneContext accountDateAndTimeZoneContext, final InternalCallContext internalCallContext) {
+    @Override
+    public void insertNextBillingNotificationsFromTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory, final UUID accountId,
+                                                              final Iterable<NextBillingNotification> notifications, final AccountDateAndTimeZoneContext accountDateAndTimeZoneContext, final InternalCallContext internalCallContext) {
+        if (Iterables.isEmpty(notifications)) {
+            return;
+        }
+
         final NotificationQueue nextBillingQueue;
         try {
             nextBillingQueue = notificationQueueService.getNotificationQueue(DefaultInvoiceService.INVOICE_SERVICE_NAME,
                                                                              DefaultNextBillingDateNotifier.NEXT_BILLING_DATE_NOTIFIER_QUEUE);
+        } catch (final NoSuchNotificationQueue e) {
+            log.error("Attempting to put items on a non-existent queue (NextBillingDateNotifier).", e);
+            return;
+        }
 
-            // If we see existing notification for the same date (and isDryRunForInvoiceNotification mode), we don't insert a new notification
-            final List<NotificationEventWithMetadata<NextBillingDateNotificationKey>> futureNotifications = nextBillingQueue.getFutureNotificationFromTransactionForSearchKeys(internalCallContext.getAccountRecordId(), internalCallContext.getTenantRecordId(), entitySqlDaoWrapperFactory.getHandle().getConnection());
-            final NotificationEventWithMetadata<NextBillingDateNotificationKey> existingFutureNotificationWithSameDate = Iterables.tryFind(futureNotifications, new Predicate<NotificationEventWithMetadata<NextBillingDateNotificationKey>>() {
-                @Override
-                public boolean apply(final NotificationEventWithMetadata<NextBillingDateNotificationKey> input) {
-                    final boolean isEventDryRunForNotifications = input.getEvent().isDryRunForInvoiceNotification() != null ?
-                                                                  input.getEvent().isDryRunForInvoiceNotification() : false;
-
-                    final LocalDate notificationEffectiveLocaleDate = accountDateAndTimeZoneContext.computeLocalDateFromFixedAccountOffset(futureNotificationTime);
-                    final LocalDate eventEffectiveLocaleDate = accountDateAndTimeZoneContext.computeLocalDateFromFixedAccountOffset(input.getEffectiveDate());
+        // If we see existing notification for the same date (and isDryRunForInvoiceNotification mode), we don't insert a new notification.
+        // The existing notifications are fetched once, and the dates of the ones recorded below are tracked in memory.
+        final Set<LocalDate> notificationDates = new HashSet<LocalDate>();
+        final Set<LocalDate> dryRunNotificationDates = new HashSet<LocalDate>();
+        final List<NotificationEventWithMetadata<NextBillingDateNotificationKey>> futureNotifications = nextBillingQueue.getFutureNotificationFromTransactionForSearchKeys(internalCallContext.getAccountRecordId(), internalCallContext.getTenantRecordId(), entitySqlDaoWrapperFactory.getHandle().getConnection());
+        for (final NotificationEventWithMetadata<NextBillingDateNotificationKey> futureNotification : futureNotifications) {
+            final boolean isEventDryRunForNotifications = futureNotification.getEvent().isDryRunForInvoiceNotification() != null ?
+                                                          futureNotification.getEvent().isDryRunForInvoiceNotification() : false;
+            final LocalDate eventEffectiveLocaleDate = accountDateAndTimeZoneContext.computeLocalDateFromFixedAccountOffset(futureNotification.getEffectiveDate());
+            if (isEventDryRunForNotifications) {
+                dryRunNotificationDates.add(eventEffectiveLocaleDate);
+            } else {
+                notificationDates.add(eventEffectiveLocaleDate);
+            }
+        }
 
-                    return notificationEffectiveLocaleDate.compareTo(eventEffectiveLocaleDate) == 0 &&
-                           ((isDryRunForInvoiceNotification && isEventDryRunForNotifications) ||
-                            (!isDryRunForInvoiceNotification && !isEventDryRunForNotifications));
+        for (final NextBillingNotification notification : notifications) {
+            final LocalDate notificationEffectiveLocaleDate = accountDateAndTimeZoneContext.computeLocalDateFromFixedAccountOffset(notification.getFutureNotificationTime());
+            final Set<LocalDate> existingNotificationDates = notification.isDryRunForInvoiceNotification() ? dryRunNotificationDates : notificationDates;
+            if (existingNotificationDates.contains(notificationEffectiveLocaleDate)) {
+                if (log.isDebugEnabled()) {
+                    log.debug("*********************   SKIPPING Queuing next billing date notification at {} for subscriptionId {} *******************", notification.getFutureNotificationTime().toString(), notification.getSubscriptionId().toString());
                 }
-            }).orNull();
-
-            if (existingFutureNotificationWithSameDate == null) {
-                log.info("Queuing next billing date notification at {} for subscriptionId {}", futureNotificationTime.toString(), subscriptionId.toString());
+                continue;
+            }
 
-                nextBillingQueue.recordFutureNotificationFromTransaction(entitySqlDaoWrapperFactory.getHandle().getConnection(), futureNotificationTime,
-                                                                         new NextBillingDateNotificationKey(subscriptionId, targetDate, isDryRunForInvoiceNotification), internalCallContext.getUserToken(),
+            log.info("Queuing next billing date notification at {} for subscriptionId {}", notification.getFutureNotificationTime().toString(), notification.getSubscriptionId().toString());
+            try {
+                nextBillingQueue.recordFutureNotificationFromTransaction(entitySqlDaoWrapperFactory.getHandle().getConnection(), notification.getFutureNotificationTime(),
+                                                                         new NextBillingDateNotificationKey(notification.getSubscriptionId(), notification.getTargetDate(), notification.isDryRunForInvoiceNotification()), internalCallContext.getUserToken(),
                                                                          internalCallContext.getAccountRecordId(), internalCallContext.getTenantRecordId());
-            } else if (log.isDebugEnabled()) {
-                log.debug("*********************   SKIPPING Queuing next billing date notification at {} for subscriptionId {} *******************", futureNotificationTime.toString(), subscriptionId.toString());
+                // Only track the date once the notification has been recorded, so that a failed insert doesn't suppress the next ones for that date
+                existingNotificationDates.add(notificationEffectiveLocaleDate);
+            } catch (final IOException e) {
+                log.error("Failed to serialize notificationKey for subscriptionId {}", notification.getSubscriptionId());
             }
-
-        } catch (final NoSuchNotificationQueue e) {
-            log.error("Attempting to put items on a non-existent queue (NextBillingDateNotifier).", e);
-        } catch (final IOException e) {
-            log.error("Failed to serialize notificationKey for subscriptionId {}", subscriptionId);
         }
     }
 
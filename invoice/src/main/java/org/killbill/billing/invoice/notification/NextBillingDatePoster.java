@@ -27,10 +27,52 @@ import org.killbill.billing.util.entity.dao.EntitySqlDaoWrapperFactory;
 
 public interface NextBillingDatePoster {
 
+    // Records all the notifications with a single lookup of the existing future notifications of the account
+    void insertNextBillingNotificationsFromTransaction(EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory, UUID accountId,
+                                                       Iterable<NextBillingNotification> notifications, final AccountDateAndTimeZoneContext accountDateAndTimeZoneContext, InternalCallContext internalCallContext);
+
     void insertNextBillingNotificationFromTransaction(EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory, UUID accountId,
                                                       UUID subscriptionId, DateTime futureNotificationTime, final AccountDateAndTimeZoneContext accountDateAndTimeZoneContext, InternalCallContext internalCallContext);
 
     void insertNextBillingDryRunNotificationFromTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory, final UUID accountId,
                                                             final UUID subscriptionId, final DateTime futureNotificationTime, final DateTime targetDate, final AccountDateAndTimeZoneContext accountDateAndTimeZoneContext, final InternalCallContext internalCallContext);
 
+    public static class NextBillingNotification {
+
+        private final UUID subscriptionId;
+        private final DateTime futureNotificationTime;
+        private final DateTime targetDate;
+        private final boolean isDryRunForInvoiceNotification;
+
+        private NextBillingNotification(final UUID subscriptionId, final DateTime futureNotificationTime, final DateTime targetDate, final boolean isDryRunForInvoiceNotification) {
+            this.subscriptionId = subscriptionId;
+            this.futureNotificationTime = futureNotificationTime;
+            this.targetDate = targetDate;
+            this.isDryRunForInvoiceNotification = isDryRunForInvoiceNotification;
+        }
+
+        public static NextBillingNotification nextBillingNotification(final UUID subscriptionId, final DateTime futureNotificationTime) {
+            return new NextBillingNotification(subscriptionId, futureNotificationTime, futureNotificationTime, false);
+        }
+
+        public static NextBillingNotification nextBillingDryRunNotification(final UUID subscriptionId, final DateTime futureNotificationTime, final DateTime targetDate) {
+            return new NextBillingNotification(subscriptionId, futureNotificationTime, targetDate, true);
+        }
+
+        public UUID getSubscriptionId() {
+            return subscriptionId;
+        }
+
+        public DateTime getFutureNotificationTime() {
+            return futureNotificationTime;
+        }
+
+        public DateTime getTargetDate() {
+            return targetDate;
+        }
+
+        public boolean isDryRunForInvoiceNotification() {
+            return isDryRunForInvoiceNotification;
+        }
+    }
 }
@@ -147,6 +147,11 @@ public class MockInvoiceDao extends MockEntityDaoBase<InvoiceModelDao, Invoice,
         return result;
     }
 
+    @Override
+    public Iterable<InvoiceModelDao> streamInvoicesByAccount(final InternalTenantContext context) {
+        return getInvoicesByAccount(context);
+    }
+
     @Override
     public List<InvoiceModelDao> getInvoicesByAccount(final LocalDate fromDate, final InternalTenantContext context) {
         final List<InvoiceModelDao> invoicesForAccount = new ArrayList<InvoiceModelDao>();
@@ -279,6 +284,27 @@ public class MockInvoiceDao extends MockEntityDaoBase<InvoiceModelDao, Invoice,
         return unpaidInvoices;
     }
 
+    @Override
+    public Map<UUID, List<InvoiceModelDao>> getUnpaidInvoicesByAccountRecordIds(final Collection<Long> accountRecordIdsToLookup, final InternalTenantContext context) {
+        final Map<UUID, List<InvoiceModelDao>> result = new LinkedHashMap<UUID, List<InvoiceModelDao>>();
+
+        synchronized (monitor) {
+            for (final Long accountRecordId : accountRecordIdsToLookup) {
+                final UUID accountId = accountRecordIds.inverse().get(accountRecordId);
+                if (accountId == null) {
+                    continue;
+                }
+
+                final List<InvoiceModelDao> unpaidInvoices = getUnpaidInvoicesByAccountId(accountId, null, context);
+                if (!unpaidInvoices.isEmpty()) {
+                    result.put(accountId, unpaidInvoices);
+                }
+            }
+        }
+
+        return result;
+    }
+
     @Override
     public List<InvoiceModelDao> getAllInvoicesByAccount(final InternalTenantContext context) {
         final List<InvoiceModelDao> result = new ArrayList<InvoiceModelDao>();
@@ -350,6 +376,11 @@ public class MockInvoiceDao extends MockEntityDaoBase<InvoiceModelDao, Invoice,
         return null;
     }
 
+    @Override
+    public void rebuildAccountBalance(final InternalCallContext context) {
+        throw new UnsupportedOperationException();
+    }
+
     @Override
     public InvoicePaymentModelDao createRefund(final UUID paymentId, final BigDecimal amount, final boolean isInvoiceAdjusted,
                                                final Map<UUID, BigDecimal> invoiceItemIdsWithAmounts, final String transactionExternalKey,
@@ -0,0 +1,341 @@
+/*
+ * Copyright 2014-2016 Groupon, Inc
+ * Copyright 2014-2016 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.invoice.dao;
+
+import java.math.BigDecimal;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+
+import org.killbill.billing.account.api.Account;
+import org.killbill.billing.callcontext.InternalCallContext;
+import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.invoice.InvoiceTestSuiteWithEmbeddedDB;
+import org.killbill.billing.invoice.api.Invoice;
+import org.killbill.billing.invoice.api.InvoicePaymentType;
+import org.killbill.billing.invoice.model.DefaultInvoice;
+import org.killbill.billing.invoice.model.DefaultInvoicePayment;
+import org.killbill.billing.invoice.model.FixedPriceInvoiceItem;
+import org.killbill.billing.invoice.model.RecurringInvoiceItem;
+import org.killbill.billing.invoice.model.RepairAdjInvoiceItem;
+import org.killbill.billing.platform.api.KillbillConfigSource;
+import org.killbill.billing.util.config.InvoiceConfig;
+import org.killbill.billing.util.entity.dao.EntitySqlDaoTransactionWrapper;
+import org.killbill.billing.util.entity.dao.EntitySqlDaoTransactionalJdbiWrapper;
+import org.killbill.billing.util.entity.dao.EntitySqlDaoWrapperFactory;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+public class TestInvoiceAccountBalanceDao extends InvoiceTestSuiteWithEmbeddedDB {
+
+    @Inject
+    private InvoiceAccountBalanceDao invoiceAccountBalanceDao;
+    @Inject
+    private InvoiceDaoHelper invoiceDaoHelper;
+
+    private EntitySqlDaoTransactionalJdbiWrapper transactionalSqlDao;
+    private Account account;
+    private InternalCallContext context;
+
+    @Override
+    protected KillbillConfigSource getConfigSource() {
+        return getConfigSource("/resource.properties", ImmutableMap.<String, String>of("org.killbill.invoice.accountBalanceLedger.enabled", "true"));
+    }
+
+    @BeforeMethod(groups = "slow")
+    public void setUp() throws Exception {
+        transactionalSqlDao = new EntitySqlDaoTransactionalJdbiWrapper(dbi, clock, controllerDispatcher, nonEntityDao);
+        account = invoiceUtil.createAccount(callContext);
+        context = internalCallContextFactory.createInternalCallContext(account.getId(), callContext);
+    }
+
+    @Test(groups = "slow")
+    public void testFirstWriteInitializesSummary() throws Exception {
+        // Invoice written before the ledger was enabled (bypassing the DAO)
+        final Invoice invoice1 = new DefaultInvoice(account.getId(), clock.getUTCToday(), clock.getUTCToday(), Currency.USD);
+        invoiceUtil.createInvoice(invoice1, true, context);
+        invoiceUtil.createInvoiceItem(createRecurringItem(invoice1.getId(), BigDecimal.TEN), context);
+        Assert.assertNull(getAccountBalanceSummary());
+
+        // The first write initializes the summary from all the invoices, including the current write
+        final Invoice invoice2 = new DefaultInvoice(account.getId(), clock.getUTCToday(), clock.getUTCToday(), Currency.USD);
+        invoice2.addInvoiceItem(createRecurringItem(invoice2.getId(), new BigDecimal("20")));
+        invoiceUtil.createInvoice(invoice2, true, context);
+
+        checkAccountBalanceSummary(new BigDecimal("30"), BigDecimal.ZERO);
+    }
+
+    @Test(groups = "slow")
+    public void testSummaryFollowsItemsPaymentsRefundsAndChargebacks() throws Exception {
+        final Invoice invoice = new DefaultInvoice(account.getId(), clock.getUTCToday(), clock.getUTCToday(), Currency.USD);
+        invoice.addInvoiceItem(createRecurringItem(invoice.getId(), new BigDecimal("20")));
+        invoiceUtil.createInvoice(invoice, true, context);
+        checkAccountBalanceSummary(new BigDecimal("20"), BigDecimal.ZERO);
+
+        // Failed attempt: no change
+        final UUID paymentId = UUID.randomUUID();
+        final DefaultInvoicePayment failedPayment = new DefaultInvoicePayment(InvoicePaymentType.ATTEMPT, paymentId, invoice.getId(), clock.getUTCNow(), new BigDecimal("20"),
+                                                                              Currency.USD, Currency.USD, false);
+        invoiceDao.notifyOfPayment(new InvoicePaymentModelDao(failedPayment), context);
+        checkAccountBalanceSummary(new BigDecimal("20"), BigDecimal.ZERO);
+
+        // Same attempt, transitioning to success
+        final DefaultInvoicePayment successfulPayment = new DefaultInvoicePayment(InvoicePaymentType.ATTEMPT, paymentId, invoice.getId(), clock.getUTCNow(), new BigDecimal("20"),
+                                                                                  Currency.USD, Currency.USD, true);
+        invoiceDao.notifyOfPayment(new InvoicePaymentModelDao(successfulPayment), context);
+        checkAccountBalanceSummary(BigDecimal.ZERO, BigDecimal.ZERO);
+
+        invoiceDao.createRefund(paymentId, new BigDecimal("5"), false, ImmutableMap.<UUID, BigDecimal>of(), UUID.randomUUID().toString(), context);
+        checkAccountBalanceSummary(new BigDecimal("5"), BigDecimal.ZERO);
+
+        invoiceDao.postChargeback(paymentId, new BigDecimal("5"), Currency.USD, context);
+        checkAccountBalanceSummary(BigDecimal.TEN, BigDecimal.ZERO);
+    }
+
+    @Test(groups = "slow")
+    public void testSummaryFollowsCBA() throws Exception {
+        final Invoice invoice1 = new DefaultInvoice(account.getId(), clock.getUTCToday(), clock.getUTCToday(), Currency.USD);
+        final FixedPriceInvoiceItem fixedItem1 = new FixedPriceInvoiceItem(invoice1.getId(), account.getId(), null, null, UUID.randomUUID().toString(),
+                                                                           UUID.randomUUID().toString(), clock.getUTCToday(), BigDecimal.TEN, Currency.USD);
+        invoice1.addInvoiceItem(fixedItem1);
+        invoiceUtil.createInvoice(invoice1, true, context);
+
+        final UUID paymentId = UUID.randomUUID();
+        final DefaultInvoicePayment payment = new DefaultInvoicePayment(InvoicePaymentType.ATTEMPT, paymentId, invoice1.getId(), clock.getUTCNow(), BigDecimal.TEN,
+                                                                        Currency.USD, Currency.USD, true);
+        invoiceDao.notifyOfPayment(new InvoicePaymentModelDao(payment), context);
+        checkAccountBalanceSummary(BigDecimal.ZERO, BigDecimal.ZERO);
+
+        // Repair of the paid item: CBA generation
+        final InvoiceModelDao invoiceModelDao1 = invoiceDao.getById(invoice1.getId(), context);
+        invoiceModelDao1.addInvoiceItem(new InvoiceItemModelDao(new RepairAdjInvoiceItem(invoice1.getId(), account.getId(), fixedItem1.getStartDate(), fixedItem1.getEndDate(),
+                                                                                         BigDecimal.TEN.negate(), Currency.USD, fixedItem1.getId())));
+        invoiceDao.createInvoices(ImmutableList.<InvoiceModelDao>of(invoiceModelDao1), context);
+        checkAccountBalanceSummary(BigDecimal.TEN.negate(), BigDecimal.TEN);
+
+        // New invoice: CBA use
+        final Invoice invoice2 = new DefaultInvoice(account.getId(), clock.getUTCToday(), clock.getUTCToday(), Currency.USD);
+        invoice2.addInvoiceItem(new FixedPriceInvoiceItem(invoice2.getId(), account.getId(), null, null, UUID.randomUUID().toString(),
+                                                          UUID.randomUUID().toString(), clock.getUTCToday(), new BigDecimal("5"), Currency.USD));
+        invoiceUtil.createInvoice(invoice2, true, context);
+        checkAccountBalanceSummary(new BigDecimal("-5"), new BigDecimal("5"));
+
+        // Refund of the payment which generated the CBA: the remaining CBA is used
+        invoiceDao.createRefund(paymentId, BigDecimal.TEN, false, ImmutableMap.<UUID, BigDecimal>of(), UUID.randomUUID().toString(), context);
+        checkAccountBalanceSummary(new BigDecimal("5"), BigDecimal.ZERO);
+    }
+
+    @Test(groups = "slow")
+    public void testVerificationModeReturnsRecomputedSummaryOnMismatch() throws Exception {
+        final Invoice invoice = new DefaultInvoice(account.getId(), clock.getUTCToday(), clock.getUTCToday(), Currency.USD);
+        invoice.addInvoiceItem(createRecurringItem(invoice.getId(), new BigDecimal("20")));
+        invoiceUtil.createInvoice(invoice, true, context);
+        corruptAccountBalanceSummary(new BigDecimal("7"));
+
+        final InvoiceConfig verifyingInvoiceConfig = Mockito.mock(InvoiceConfig.class);
+        Mockito.when(verifyingInvoiceConfig.isAccountBalanceLedgerEnabled()).thenReturn(true);
+        Mockito.when(verifyingInvoiceConfig.isAccountBalanceLedgerVerificationEnabled()).thenReturn(true);
+        final InvoiceAccountBalanceDao verifyingInvoiceAccountBalanceDao = new InvoiceAccountBalanceDao(invoiceDaoHelper, verifyingInvoiceConfig);
+
+        Assert.assertEquals(getAccountBalanceSummary(invoiceAccountBalanceDao).getBalance().compareTo(new BigDecimal("27")), 0);
+        Assert.assertEquals(getAccountBalanceSummary(verifyingInvoiceAccountBalanceDao).getBalance().compareTo(new BigDecimal("20")), 0);
+        // The stored summary isn't fixed by reads
+        Assert.assertEquals(getAccountBalanceSummary().getBalance().compareTo(new BigDecimal("27")), 0);
+    }
+
+    @Test(groups = "slow")
+    public void testSummaryFollowsRoundedInvoiceBalances() throws Exception {
+        // Each invoice balance is rounded to the cent: 0.008 -> 0.01 and 0.004 -> 0.00
+        final Invoice invoice1 = new DefaultInvoice(account.getId(), clock.getUTCToday(), clock.getUTCToday(), Currency.USD);
+        invoice1.addInvoiceItem(createRecurringItem(invoice1.getId(), new BigDecimal("0.004")));
+        invoice1.addInvoiceItem(createRecurringItem(invoice1.getId(), new BigDecimal("0.004")));
+        invoiceUtil.createInvoice(invoice1, true, context);
+        final Invoice invoice2 = new DefaultInvoice(account.getId(), clock.getUTCToday(), clock.getUTCToday(), Currency.USD);
+        invoice2.addInvoiceItem(createRecurringItem(invoice2.getId(), new BigDecimal("0.004")));
+        invoiceUtil.createInvoice(invoice2, true, context);
+        checkAccountBalanceSummary(new BigDecimal("0.01"), BigDecimal.ZERO);
+
+        // Item added to an existing invoice: 0.008 -> 0.01
+        final InvoiceModelDao invoiceModelDao2 = invoiceDao.getById(invoice2.getId(), context);
+        invoiceModelDao2.addInvoiceItem(new InvoiceItemModelDao(createRecurringItem(invoice2.getId(), new BigDecimal("0.004"))));
+        invoiceDao.createInvoices(ImmutableList.<InvoiceModelDao>of(invoiceModelDao2), context);
+        checkAccountBalanceSummary(new BigDecimal("0.02"), BigDecimal.ZERO);
+    }
+
+    @Test(groups = "slow")
+    public void testDisabledLedgerDeletesSummary() throws Exception {
+        final Invoice invoice = new DefaultInvoice(account.getId(), clock.getUTCToday(), clock.getUTCToday(), Currency.USD);
+        invoice.addInvoiceItem(createRecurringItem(invoice.getId(), new BigDecimal("20")));
+        invoiceUtil.createInvoice(invoice, true, context);
+        checkAccountBalanceSummary(new BigDecimal("20"), BigDecimal.ZERO);
+
+        // Write while the ledger is disabled
+        final InvoiceConfig disabledInvoiceConfig = Mockito.mock(InvoiceConfig.class);
+        Mockito.when(disabledInvoiceConfig.isAccountBalanceLedgerEnabled()).thenReturn(false);
+        final InvoiceAccountBalanceDao disabledInvoiceAccountBalanceDao = new InvoiceAccountBalanceDao(invoiceDaoHelper, disabledInvoiceConfig);
+        final InvoiceItemModelDao invoiceItem = new InvoiceItemModelDao(createRecurringItem(invoice.getId(), BigDecimal.TEN));
+        transactionalSqlDao.execute(new EntitySqlDaoTransactionWrapper<Void>() {
+            @Override
+            public Void inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
+                entitySqlDaoWrapperFactory.become(InvoiceItemSqlDao.class).create(invoiceItem, context);
+                disabledInvoiceAccountBalanceDao.recordInvoiceItemFromTransaction(invoiceItem, entitySqlDaoWrapperFactory, context);
+                return null;
+            }
+        });
+        Assert.assertNull(getAccountBalanceSummary());
+
+        // Once re-enabled, the next write re-initializes the summary, including the write made in the meantime
+        final Invoice invoice2 = new DefaultInvoice(account.getId(), clock.getUTCToday(), clock.getUTCToday(), Currency.USD);
+        invoice2.addInvoiceItem(createRecurringItem(invoice2.getId(), new BigDecimal("5")));
+        invoiceUtil.createInvoice(invoice2, true, context);
+        checkAccountBalanceSummary(new BigDecimal("35"), BigDecimal.ZERO);
+    }
+
+    @Test(groups = "slow")
+    public void testConcurrentFirstWrites() throws Exception {
+        final Invoice invoice = new DefaultInvoice(account.getId(), clock.getUTCToday(), clock.getUTCToday(), Currency.USD);
+        invoiceUtil.createInvoice(invoice, true, context);
+        Assert.assertNull(getAccountBalanceSummary());
+
+        // Both transactions see no summary, and compute it before either one inserts it
+        final CyclicBarrier barrier = new CyclicBarrier(2);
+        final InvoiceConfig enabledInvoiceConfig = Mockito.mock(InvoiceConfig.class);
+        Mockito.when(enabledInvoiceConfig.isAccountBalanceLedgerEnabled()).thenReturn(true);
+        final InvoiceAccountBalanceDao racingInvoiceAccountBalanceDao = new InvoiceAccountBalanceDao(invoiceDaoHelper, enabledInvoiceConfig) {
+            @Override
+            public InvoiceAccountBalanceModelDao computeFromTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory, final InternalTenantContext context) {
+                final InvoiceAccountBalanceModelDao accountBalance = super.computeFromTransaction(entitySqlDaoWrapperFactory, context);
+                try {
+                    barrier.await(10, TimeUnit.SECONDS);
+                } catch (final Exception e) {
+                    throw new RuntimeException(e);
+                }
+                return accountBalance;
+            }
+        };
+
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final List<Future<Void>> futures = new LinkedList<Future<Void>>();
+            for (final BigDecimal amount : ImmutableList.<BigDecimal>of(BigDecimal.TEN, new BigDecimal("20"))) {
+                final InvoiceItemModelDao invoiceItem = new InvoiceItemModelDao(createRecurringItem(invoice.getId(), amount));
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        return transactionalSqlDao.execute(new EntitySqlDaoTransactionWrapper<Void>() {
+                            @Override
+                            public Void inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
+                                entitySqlDaoWrapperFactory.become(InvoiceItemSqlDao.class).create(invoiceItem, context);
+                                racingInvoiceAccountBalanceDao.recordInvoiceItemFromTransaction(invoiceItem, entitySqlDaoWrapperFactory, context);
+                                return null;
+                            }
+                        });
+                    }
+                }));
+            }
+            // Neither transaction fails on the unique index
+            for (final Future<Void> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        checkAccountBalanceSummary(new BigDecimal("30"), BigDecimal.ZERO);
+    }
+
+    @Test(groups = "slow")
+    public void testRebuildAccountBalance() throws Exception {
+        // No summary yet: the rebuild creates it
+        final Invoice invoice1 = new DefaultInvoice(account.getId(), clock.getUTCToday(), clock.getUTCToday(), Currency.USD);
+        invoiceUtil.createInvoice(invoice1, true, context);
+        invoiceUtil.createInvoiceItem(createRecurringItem(invoice1.getId(), BigDecimal.TEN), context);
+        Assert.assertNull(getAccountBalanceSummary());
+        invoiceDao.rebuildAccountBalance(context);
+        checkAccountBalanceSummary(BigDecimal.TEN, BigDecimal.ZERO);
+
+        // Inconsistent summary: the rebuild fixes it
+        corruptAccountBalanceSummary(new BigDecimal("7"));
+        invoiceDao.rebuildAccountBalance(context);
+        checkAccountBalanceSummary(BigDecimal.TEN, BigDecimal.ZERO);
+
+        // Subsequent writes still apply on top of the rebuilt summary
+        final Invoice invoice2 = new DefaultInvoice(account.getId(), clock.getUTCToday(), clock.getUTCToday(), Currency.USD);
+        invoice2.addInvoiceItem(createRecurringItem(invoice2.getId(), new BigDecimal("20")));
+        invoiceUtil.createInvoice(invoice2, true, context);
+        checkAccountBalanceSummary(new BigDecimal("30"), BigDecimal.ZERO);
+    }
+
+    private RecurringInvoiceItem createRecurringItem(final UUID invoiceId, final BigDecimal amount) {
+        return new RecurringInvoiceItem(invoiceId, account.getId(), UUID.randomUUID(), UUID.randomUUID(), "test plan", "test phase", clock.getUTCToday(), clock.getUTCToday().plusMonths(1),
+                                        amount, amount, Currency.USD);
+    }
+
+    // Verify the stored summary against the one computed from the invoices
+    private void checkAccountBalanceSummary(final BigDecimal expectedBalance, final BigDecimal expectedCba) {
+        final InvoiceAccountBalanceModelDao accountBalance = getAccountBalanceSummary();
+        Assert.assertNotNull(accountBalance);
+
+        final InvoiceAccountBalanceModelDao computedAccountBalance = InvoiceAccountBalanceDao.computeFromInvoices(invoiceDao.getAllInvoicesByAccount(context));
+        Assert.assertTrue(accountBalance.isSameAs(computedAccountBalance), accountBalance + " != " + computedAccountBalance);
+        Assert.assertEquals(accountBalance.getBalance().compareTo(expectedBalance), 0, accountBalance.toString());
+        Assert.assertEquals(accountBalance.getCba().compareTo(expectedCba), 0, accountBalance.toString());
+    }
+
+    private InvoiceAccountBalanceModelDao getAccountBalanceSummary() {
+        return transactionalSqlDao.execute(new EntitySqlDaoTransactionWrapper<InvoiceAccountBalanceModelDao>() {
+            @Override
+            public InvoiceAccountBalanceModelDao inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
+                return entitySqlDaoWrapperFactory.getHandle().attach(InvoiceAccountBalanceSqlDao.class).getAccountBalance(context);
+            }
+        });
+    }
+
+    private InvoiceAccountBalanceModelDao getAccountBalanceSummary(final InvoiceAccountBalanceDao dao) {
+        return transactionalSqlDao.execute(new EntitySqlDaoTransactionWrapper<InvoiceAccountBalanceModelDao>() {
+            @Override
+            public InvoiceAccountBalanceModelDao inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
+                return dao.getAccountBalanceFromTransaction(entitySqlDaoWrapperFactory, context);
+            }
+        });
+    }
+
+    private void corruptAccountBalanceSummary(final BigDecimal balanceDelta) {
+        transactionalSqlDao.execute(new EntitySqlDaoTransactionWrapper<Void>() {
+            @Override
+            public Void inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
+                entitySqlDaoWrapperFactory.getHandle().attach(InvoiceAccountBalanceSqlDao.class).addToAccountBalance(balanceDelta, BigDecimal.ZERO, context);
+                return null;
+            }
+        });
+    }
+}
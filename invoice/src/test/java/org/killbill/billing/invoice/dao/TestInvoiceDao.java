@@ -61,13 +61,18 @@ import org.killbill.billing.invoice.model.DefaultInvoice;
 import org.killbill.billing.invoice.model.DefaultInvoicePayment;
 import org.killbill.billing.invoice.model.ExternalChargeInvoiceItem;
 import org.killbill.billing.invoice.model.FixedPriceInvoiceItem;
+import org.killbill.billing.invoice.model.ItemAdjInvoiceItem;
 import org.killbill.billing.invoice.model.RecurringInvoiceItem;
 import org.killbill.billing.invoice.model.RepairAdjInvoiceItem;
 import org.killbill.billing.junction.BillingEvent;
 import org.killbill.billing.junction.BillingEventSet;
 import org.killbill.billing.subscription.api.SubscriptionBase;
 import org.killbill.billing.subscription.api.SubscriptionBaseTransitionType;
+import org.killbill.billing.util.audit.ChangeType;
+import org.killbill.billing.util.audit.dao.AuditLogModelDao;
 import org.killbill.billing.util.currency.KillBillMoney;
+import org.killbill.billing.util.dao.AuditSqlDao;
+import org.killbill.billing.util.dao.TableName;
 import org.killbill.clock.ClockMock;
 import org.mockito.Mockito;
 import org.skife.jdbi.v2.exceptions.TransactionFailedException;
@@ -81,6 +86,7 @@ import com.google.common.collect.ImmutableMap;
 import static org.killbill.billing.invoice.TestInvoiceHelper.FIVE;
 import static org.killbill.billing.invoice.TestInvoiceHelper.TEN;
 import static org.killbill.billing.invoice.TestInvoiceHelper.TWENTY;
+import static org.killbill.billing.invoice.TestInvoiceHelper.TWENTY_FIVE;
 import static org.killbill.billing.invoice.TestInvoiceHelper.ZERO;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNotNull;
@@ -109,6 +115,45 @@ public class TestInvoiceDao extends InvoiceTestSuiteWithEmbeddedDB {
         invoiceUtil.checkInvoicesEqual(invoiceDao.getByNumber(retrievedInvoice.getInvoiceNumber(), context), invoice);
     }
 
+    @Test(groups = "slow")
+    public void testCreateInvoiceWithItemsInBulk() throws Exception {
+        final UUID accountId = account.getId();
+        final UUID bundleId = UUID.randomUUID();
+        final LocalDate startDate = new LocalDate(2011, 3, 1);
+        final LocalDate endDate = startDate.plusMonths(1);
+
+        final Invoice invoice = new DefaultInvoice(accountId, clock.getUTCToday(), clock.getUTCToday(), Currency.USD);
+        final RecurringInvoiceItem item1 = new RecurringInvoiceItem(invoice.getId(), accountId, bundleId, UUID.randomUUID(), "test plan", "test phase A", startDate, endDate,
+                                                                    TEN, TEN, Currency.USD);
+        final RecurringInvoiceItem item2 = new RecurringInvoiceItem(invoice.getId(), accountId, bundleId, UUID.randomUUID(), "test plan", "test phase B", startDate, endDate,
+                                                                    TWENTY, TWENTY, Currency.USD);
+        // Adjustment of an item created in the same batch
+        final ItemAdjInvoiceItem item3 = new ItemAdjInvoiceItem(item1, startDate, FIVE.negate(), Currency.USD);
+        invoice.addInvoiceItem(item1);
+        invoice.addInvoiceItem(item2);
+        invoice.addInvoiceItem(item3);
+        invoiceUtil.createInvoice(invoice, true, context);
+
+        final InvoiceModelDao retrievedInvoice = invoiceDao.getById(invoice.getId(), context);
+        assertEquals(retrievedInvoice.getInvoiceItems().size(), 3);
+        final AuditSqlDao auditSqlDao = dbi.onDemand(AuditSqlDao.class);
+        for (final InvoiceItemModelDao invoiceItem : retrievedInvoice.getInvoiceItems()) {
+            assertNotNull(invoiceItem.getRecordId());
+
+            // Each item of the batch is audited individually
+            final List<AuditLogModelDao> auditLogs = auditSqlDao.getAuditLogsForTargetRecordId(TableName.INVOICE_ITEMS.name(), invoiceItem.getRecordId(), context);
+            assertEquals(auditLogs.size(), 1);
+            assertEquals(auditLogs.get(0).getChangeType(), ChangeType.INSERT);
+            assertEquals(auditLogs.get(0).getTableName(), TableName.INVOICE_ITEMS);
+            assertEquals(auditLogs.get(0).getTargetRecordId(), invoiceItem.getRecordId());
+
+            if (InvoiceItemType.ITEM_ADJ.equals(invoiceItem.getType())) {
+                assertEquals(invoiceItem.getLinkedItemId(), item1.getId());
+            }
+        }
+        assertEquals(InvoiceModelDaoHelper.getBalance(retrievedInvoice).compareTo(TWENTY_FIVE), 0);
+    }
+
     @Test(groups = "slow")
     public void testCreationAndRetrievalByAccount() {
         final UUID accountId = account.getId();
@@ -499,6 +544,37 @@ public class TestInvoiceDao extends InvoiceTestSuiteWithEmbeddedDB {
         assertEquals(invoices.size(), 0);
     }
 
+    @Test(groups = "slow")
+    public void testStreamInvoicesByAccount() throws EntityPersistenceException {
+        final UUID accountId = account.getId();
+        final UUID bundleId = UUID.randomUUID();
+        final UUID subscriptionId = UUID.randomUUID();
+        final BigDecimal rate = new BigDecimal("10.0");
+
+        // More invoices than a single batch
+        final List<UUID> invoiceIds = new ArrayList<UUID>();
+        LocalDate targetDate = new LocalDate(2001, 1, 1);
+        for (int i = 0; i < 120; i++) {
+            final Invoice invoice = new DefaultInvoice(accountId, clock.getUTCToday(), targetDate, Currency.USD);
+            invoiceUtil.createInvoice(invoice, true, context);
+            invoiceUtil.createInvoiceItem(new RecurringInvoiceItem(invoice.getId(), accountId, bundleId, subscriptionId, "test plan", "test phase", targetDate, targetDate.plusMonths(1),
+                                                                   rate, rate, Currency.USD), context);
+            invoiceIds.add(invoice.getId());
+            targetDate = targetDate.plusMonths(1);
+        }
+
+        final List<InvoiceModelDao> expected = invoiceDao.getInvoicesByAccount(context);
+        assertEquals(expected.size(), 120);
+
+        final List<UUID> streamedInvoiceIds = new ArrayList<UUID>();
+        for (final InvoiceModelDao invoice : invoiceDao.streamInvoicesByAccount(context)) {
+            assertEquals(invoice.getInvoiceItems().size(), 1);
+            assertEquals(InvoiceModelDaoHelper.getBalance(invoice).compareTo(rate), 0);
+            streamedInvoiceIds.add(invoice.getId());
+        }
+        assertEquals(streamedInvoiceIds, invoiceIds);
+    }
+
     @Test(groups = "slow")
     public void testAccountBalance() throws EntityPersistenceException {
         final UUID accountId = account.getId();
@@ -1081,6 +1157,26 @@ public class TestInvoiceDao extends InvoiceTestSuiteWithEmbeddedDB {
         upToDate = new LocalDate(2012, 1, 1);
         invoices = invoiceDao.getUnpaidInvoicesByAccountId(accountId, upToDate, context);
         assertEquals(invoices.size(), 2);
+
+        // Failed payments don't reduce the balance
+        final DefaultInvoicePayment failedPayment = new DefaultInvoicePayment(InvoicePaymentType.ATTEMPT, UUID.randomUUID(), invoice2.getId(), clock.getUTCNow(), rate3, Currency.USD, Currency.USD, false);
+        invoiceDao.notifyOfPayment(new InvoicePaymentModelDao(failedPayment), context);
+        invoices = invoiceDao.getUnpaidInvoicesByAccountId(accountId, upToDate, context);
+        assertEquals(invoices.size(), 2);
+
+        final DefaultInvoicePayment payment = new DefaultInvoicePayment(InvoicePaymentType.ATTEMPT, UUID.randomUUID(), invoice2.getId(), clock.getUTCNow(), rate3, Currency.USD, Currency.USD, true);
+        invoiceDao.notifyOfPayment(new InvoicePaymentModelDao(payment), context);
+        invoices = invoiceDao.getUnpaidInvoicesByAccountId(accountId, upToDate, context);
+        assertEquals(invoices.size(), 1);
+        assertEquals(invoices.iterator().next().getId(), invoice1.getId());
+        assertEquals(InvoiceModelDaoHelper.getBalance(invoices.iterator().next()).compareTo(rate1.add(rate2)), 0);
+
+        // Same for the batched variant, the paid invoice being discarded by the database
+        final Map<UUID, List<InvoiceModelDao>> unpaidInvoicesPerAccountId = invoiceDao.getUnpaidInvoicesByAccountRecordIds(ImmutableList.<Long>of(context.getAccountRecordId()), context);
+        assertEquals(unpaidInvoicesPerAccountId.size(), 1);
+        assertEquals(unpaidInvoicesPerAccountId.get(accountId).size(), 1);
+        assertEquals(unpaidInvoicesPerAccountId.get(accountId).get(0).getId(), invoice1.getId());
+        assertEquals(InvoiceModelDaoHelper.getBalance(unpaidInvoicesPerAccountId.get(accountId).get(0)).compareTo(rate1.add(rate2)), 0);
     }
 
 
@@ -133,6 +133,16 @@ public class TestDefaultInvoiceGenerator extends InvoiceTestSuiteNoDB {
             public int getMaxGlobalLockRetries() {
                 return 10;
             }
+
+            @Override
+            public boolean isAccountBalanceLedgerEnabled() {
+                return false;
+            }
+
+            @Override
+            public boolean isAccountBalanceLedgerVerificationEnabled() {
+                return false;
+            }
         };
         this.account = new MockAccountBuilder().name(UUID.randomUUID().toString().substring(1, 8))
                                                .firstNameLength(6)
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2014-2016 Groupon, Inc
+ * Copyright 2014-2016 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.invoice.notification;
+
+import java.util.List;
+import java.util.UUID;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.killbill.billing.account.api.Account;
+import org.killbill.billing.callcontext.InternalCallContext;
+import org.killbill.billing.invoice.InvoiceTestSuiteWithEmbeddedDB;
+import org.killbill.billing.invoice.api.DefaultInvoiceService;
+import org.killbill.billing.invoice.notification.NextBillingDatePoster.NextBillingNotification;
+import org.killbill.billing.util.AccountDateAndTimeZoneContext;
+import org.killbill.billing.util.entity.dao.EntitySqlDaoTransactionWrapper;
+import org.killbill.billing.util.entity.dao.EntitySqlDaoTransactionalJdbiWrapper;
+import org.killbill.billing.util.entity.dao.EntitySqlDaoWrapperFactory;
+import org.killbill.billing.util.timezone.DefaultAccountDateAndTimeZoneContext;
+import org.killbill.notificationq.api.NotificationEventWithMetadata;
+import org.killbill.notificationq.api.NotificationQueue;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+
+public class TestDefaultNextBillingDatePoster extends InvoiceTestSuiteWithEmbeddedDB {
+
+    private EntitySqlDaoTransactionalJdbiWrapper transactionalSqlDao;
+    private NextBillingDatePoster nextBillingDatePoster;
+    private NotificationQueue nextBillingQueue;
+    private AccountDateAndTimeZoneContext accountDateAndTimeZoneContext;
+    private Account account;
+    private InternalCallContext context;
+
+    @BeforeMethod(groups = "slow")
+    public void setUp() throws Exception {
+        transactionalSqlDao = new EntitySqlDaoTransactionalJdbiWrapper(dbi, clock, controllerDispatcher, nonEntityDao);
+        nextBillingDatePoster = new DefaultNextBillingDatePoster(notificationQueueService);
+        nextBillingQueue = notificationQueueService.getNotificationQueue(DefaultInvoiceService.INVOICE_SERVICE_NAME, DefaultNextBillingDateNotifier.NEXT_BILLING_DATE_NOTIFIER_QUEUE);
+        accountDateAndTimeZoneContext = new DefaultAccountDateAndTimeZoneContext(clock.getUTCNow(), DateTimeZone.UTC);
+        account = invoiceUtil.createAccount(callContext);
+        context = internalCallContextFactory.createInternalCallContext(account.getId(), callContext);
+    }
+
+    @Test(groups = "slow")
+    public void testOneNotificationPerDate() throws Exception {
+        final UUID subscriptionId1 = UUID.randomUUID();
+        final UUID subscriptionId2 = UUID.randomUUID();
+        final DateTime firstDate = clock.getUTCNow().plusDays(10).withTimeAtStartOfDay().plusHours(1);
+        final DateTime secondDate = firstDate.plusDays(1);
+
+        // Same date (in the account timezone) across subscriptions, dry-run notifications being tracked separately
+        insertNextBillingNotifications(ImmutableList.<NextBillingNotification>of(NextBillingNotification.nextBillingNotification(subscriptionId1, firstDate),
+                                                                                 NextBillingNotification.nextBillingNotification(subscriptionId2, firstDate.plusHours(2)),
+                                                                                 NextBillingNotification.nextBillingDryRunNotification(subscriptionId2, firstDate.plusHours(3), firstDate.plusDays(3)),
+                                                                                 NextBillingNotification.nextBillingNotification(subscriptionId2, secondDate)));
+        checkFutureNotifications(ImmutableList.<UUID>of(subscriptionId1, subscriptionId2, subscriptionId2), ImmutableList.<Boolean>of(false, true, false));
+
+        // The notifications already recorded are taken into account
+        insertNextBillingNotifications(ImmutableList.<NextBillingNotification>of(NextBillingNotification.nextBillingNotification(UUID.randomUUID(), firstDate.plusHours(5)),
+                                                                                 NextBillingNotification.nextBillingDryRunNotification(UUID.randomUUID(), secondDate.plusHours(1), secondDate)));
+        final List<NotificationEventWithMetadata<NextBillingDateNotificationKey>> futureNotifications = nextBillingQueue.getFutureNotificationForSearchKeys(context.getAccountRecordId(), context.getTenantRecordId());
+        Assert.assertEquals(futureNotifications.size(), 4);
+        Assert.assertTrue(futureNotifications.get(3).getEvent().isDryRunForInvoiceNotification());
+    }
+
+    private void insertNextBillingNotifications(final Iterable<NextBillingNotification> notifications) {
+        transactionalSqlDao.execute(new EntitySqlDaoTransactionWrapper<Void>() {
+            @Override
+            public Void inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
+                nextBillingDatePoster.insertNextBillingNotificationsFromTransaction(entitySqlDaoWrapperFactory, account.getId(), notifications, accountDateAndTimeZoneContext, context);
+                return null;
+            }
+        });
+    }
+
+    private void checkFutureNotifications(final List<UUID> expectedSubscriptionIds, final List<Boolean> expectedDryRuns) {
+        final List<NotificationEventWithMetadata<NextBillingDateNotificationKey>> futureNotifications = nextBillingQueue.getFutureNotificationForSearchKeys(context.getAccountRecordId(), context.getTenantRecordId());
+        Assert.assertEquals(futureNotifications.size(), expectedSubscriptionIds.size());
+        for (int i = 0; i < futureNotifications.size(); i++) {
+            Assert.assertEquals(futureNotifications.get(i).getEvent().getUuidKey(), expectedSubscriptionIds.get(i));
+            Assert.assertEquals(futureNotifications.get(i).getEvent().isDryRunForInvoiceNotification(), expectedDryRuns.get(i));
+        }
+    }
+}
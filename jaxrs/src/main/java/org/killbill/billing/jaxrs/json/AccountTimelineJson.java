@@ -18,6 +18,7 @@
 
 package org.killbill.billing.jaxrs.json;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -38,6 +39,7 @@ import org.killbill.billing.util.audit.AuditLog;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonGenerator;
 
 public class AccountTimelineJson {
 
@@ -66,12 +68,59 @@ public class AccountTimelineJson {
         this.account = new AccountJson(account, null, null, accountAuditLogs);
         this.bundles = new LinkedList<BundleJson>();
         for (final SubscriptionBundle bundle : bundles) {
-            final BundleJson jsonWithSubscriptions = new BundleJson(bundle, accountAuditLogs);
-            this.bundles.add(jsonWithSubscriptions);
+            this.bundles.add(new BundleJson(bundle, accountAuditLogs));
         }
 
         this.invoices = new LinkedList<InvoiceJson>();
-        // Extract the credits from the invoices first
+        final List<CreditJson> credits = getCredits(invoices, accountAuditLogs);
+        for (final Invoice invoice : invoices) {
+            this.invoices.add(toInvoiceJson(invoice, bundles, credits, accountAuditLogs));
+        }
+
+        this.payments = new LinkedList<InvoicePaymentJson>();
+        for (final Payment payment : payments) {
+            this.payments.add(toInvoicePaymentJson(payment, invoicePayments, accountAuditLogs));
+        }
+    }
+
+    /**
+     * Write the same JSON as an AccountTimelineJson built from these objects, converting one element at a time.
+     */
+    public static void write(final JsonGenerator generator,
+                             final Account account,
+                             final List<Invoice> invoices,
+                             final List<Payment> payments,
+                             final List<InvoicePayment> invoicePayments,
+                             final List<SubscriptionBundle> bundles,
+                             final AccountAuditLogs accountAuditLogs) throws IOException {
+        generator.writeStartObject();
+
+        generator.writeObjectField("account", new AccountJson(account, null, null, accountAuditLogs));
+
+        generator.writeArrayFieldStart("bundles");
+        for (final SubscriptionBundle bundle : bundles) {
+            generator.writeObject(new BundleJson(bundle, accountAuditLogs));
+        }
+        generator.writeEndArray();
+
+        generator.writeArrayFieldStart("invoices");
+        final List<CreditJson> credits = getCredits(invoices, accountAuditLogs);
+        for (final Invoice invoice : invoices) {
+            generator.writeObject(toInvoiceJson(invoice, bundles, credits, accountAuditLogs));
+        }
+        generator.writeEndArray();
+
+        generator.writeArrayFieldStart("payments");
+        for (final Payment payment : payments) {
+            generator.writeObject(toInvoicePaymentJson(payment, invoicePayments, accountAuditLogs));
+        }
+        generator.writeEndArray();
+
+        generator.writeEndObject();
+    }
+
+    // Extract the credits from the invoices first
+    private static List<CreditJson> getCredits(final List<Invoice> invoices, final AccountAuditLogs accountAuditLogs) {
         final List<CreditJson> credits = new ArrayList<CreditJson>();
         for (final Invoice invoice : invoices) {
             for (final InvoiceItem invoiceItem : invoice.getInvoiceItems()) {
@@ -81,20 +130,20 @@ public class AccountTimelineJson {
                 }
             }
         }
-        // Create now the invoice json objects
-        for (final Invoice invoice : invoices) {
-            final List<AuditLog> auditLogs = accountAuditLogs.getAuditLogsForInvoice(invoice.getId());
-            this.invoices.add(new InvoiceJson(invoice,
-                                              getBundleExternalKey(invoice, bundles),
-                                              credits,
-                                              auditLogs));
-        }
+        return credits;
+    }
 
-        this.payments = new LinkedList<InvoicePaymentJson>();
-        for (final Payment payment : payments) {
-            final UUID invoiceId = JaxRsResourceBase.getInvoiceId(invoicePayments, payment);
-            this.payments.add(new InvoicePaymentJson(payment, invoiceId, accountAuditLogs));
-        }
+    private static InvoiceJson toInvoiceJson(final Invoice invoice, final List<SubscriptionBundle> bundles, final List<CreditJson> credits, final AccountAuditLogs accountAuditLogs) {
+        final List<AuditLog> auditLogs = accountAuditLogs.getAuditLogsForInvoice(invoice.getId());
+        return new InvoiceJson(invoice,
+                               getBundleExternalKey(invoice, bundles),
+                               credits,
+                               auditLogs);
+    }
+
+    private static InvoicePaymentJson toInvoicePaymentJson(final Payment payment, final List<InvoicePayment> invoicePayments, final AccountAuditLogs accountAuditLogs) {
+        final UUID invoiceId = JaxRsResourceBase.getInvoiceId(invoicePayments, payment);
+        return new InvoicePaymentJson(payment, invoiceId, accountAuditLogs);
     }
 
     public AccountJson getAccount() {
@@ -173,7 +222,7 @@ public class AccountTimelineJson {
         return null;
     }
 
-    private String getBundleExternalKey(final Invoice invoice, final List<SubscriptionBundle> bundles) {
+    private static String getBundleExternalKey(final Invoice invoice, final List<SubscriptionBundle> bundles) {
         final Set<UUID> b = new HashSet<UUID>();
         for (final InvoiceItem cur : invoice.getInvoiceItems()) {
             b.add(cur.getBundleId());
@@ -19,7 +19,10 @@ package org.killbill.billing.jaxrs.json;
 
 import java.util.List;
 
+import javax.annotation.Nullable;
+
 import org.joda.time.DateTime;
+import org.killbill.billing.util.nodes.json.CacheWarmUpModelJson;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
@@ -35,6 +38,7 @@ public class NodeInfoJson {
     private final String commonVersion;
     private final String platformVersion;
     private final List<PluginInfoJson> pluginsInfo;
+    private final CacheWarmUpModelJson cacheWarmUp;
 
     @JsonCreator
     public NodeInfoJson(@JsonProperty("nodeName") final String nodeName,
@@ -45,7 +49,8 @@ public class NodeInfoJson {
                         @JsonProperty("pluginApiVersion") final String pluginApiVersion,
                         @JsonProperty("commonVersion") final String commonVersion,
                         @JsonProperty("platformVersion") final String platformVersion,
-                        @JsonProperty("pluginsInfo") final List<PluginInfoJson> pluginsInfo) {
+                        @JsonProperty("pluginsInfo") final List<PluginInfoJson> pluginsInfo,
+                        @JsonProperty("cacheWarmUp") @Nullable final CacheWarmUpModelJson cacheWarmUp) {
         this.nodeName = nodeName;
         this.bootTime = bootTime;
         this.lastUpdatedDate = lastUpdatedDate;
@@ -55,6 +60,7 @@ public class NodeInfoJson {
         this.commonVersion = commonVersion;
         this.platformVersion = platformVersion;
         this.pluginsInfo = pluginsInfo;
+        this.cacheWarmUp = cacheWarmUp;
     }
 
     public String getNodeName() {
@@ -92,4 +98,9 @@ public class NodeInfoJson {
     public List<PluginInfoJson> getPluginsInfo() {
         return pluginsInfo;
     }
+
+    @Nullable
+    public CacheWarmUpModelJson getCacheWarmUp() {
+        return cacheWarmUp;
+    }
 }
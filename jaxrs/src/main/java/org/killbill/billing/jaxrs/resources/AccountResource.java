@@ -18,6 +18,8 @@
 
 package org.killbill.billing.jaxrs.resources;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.net.URI;
 import java.util.ArrayList;
@@ -45,8 +47,10 @@ import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriInfo;
 
 import org.killbill.billing.ErrorCode;
@@ -64,6 +68,7 @@ import org.killbill.billing.entitlement.api.SubscriptionApiException;
 import org.killbill.billing.entitlement.api.SubscriptionBundle;
 import org.killbill.billing.invoice.api.Invoice;
 import org.killbill.billing.invoice.api.InvoiceApiException;
+import org.killbill.billing.invoice.api.InvoiceInternalApi;
 import org.killbill.billing.invoice.api.InvoicePayment;
 import org.killbill.billing.invoice.api.InvoicePaymentApi;
 import org.killbill.billing.invoice.api.InvoiceUserApi;
@@ -104,6 +109,7 @@ import org.killbill.billing.util.api.TagDefinitionApiException;
 import org.killbill.billing.util.api.TagUserApi;
 import org.killbill.billing.util.audit.AccountAuditLogs;
 import org.killbill.billing.util.callcontext.CallContext;
+import org.killbill.billing.util.callcontext.InternalCallContextFactory;
 import org.killbill.billing.util.callcontext.TenantContext;
 import org.killbill.billing.util.config.JaxrsConfig;
 import org.killbill.billing.util.config.PaymentConfig;
@@ -114,6 +120,7 @@ import org.killbill.clock.Clock;
 import org.killbill.commons.metrics.MetricTag;
 import org.killbill.commons.metrics.TimedResource;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.google.common.base.Function;
 import com.google.common.base.Predicate;
 import com.google.common.collect.Collections2;
@@ -138,16 +145,19 @@ public class AccountResource extends JaxRsResourceBase {
 
     private final SubscriptionApi subscriptionApi;
     private final InvoiceUserApi invoiceApi;
+    private final InvoiceInternalApi invoiceInternalApi;
     private final InvoicePaymentApi invoicePaymentApi;
     private final OverdueInternalApi overdueApi;
     private final PaymentConfig paymentConfig;
     private final JaxrsExecutors jaxrsExecutors;
     private final JaxrsConfig jaxrsConfig;
+    private final InternalCallContextFactory internalCallContextFactory;
 
     @Inject
     public AccountResource(final JaxrsUriBuilder uriBuilder,
                            final AccountUserApi accountApi,
                            final InvoiceUserApi invoiceApi,
+                           final InvoiceInternalApi invoiceInternalApi,
                            final InvoicePaymentApi invoicePaymentApi,
                            final PaymentApi paymentApi,
                            final TagUserApi tagUserApi,
@@ -160,15 +170,18 @@ public class AccountResource extends JaxRsResourceBase {
                            final PaymentConfig paymentConfig,
                            final JaxrsExecutors jaxrsExecutors,
                            final JaxrsConfig jaxrsConfig,
+                           final InternalCallContextFactory internalCallContextFactory,
                            final Context context) {
         super(uriBuilder, tagUserApi, customFieldUserApi, auditUserApi, accountApi, paymentApi, clock, context);
         this.subscriptionApi = subscriptionApi;
         this.invoiceApi = invoiceApi;
+        this.invoiceInternalApi = invoiceInternalApi;
         this.invoicePaymentApi = invoicePaymentApi;
         this.overdueApi = overdueApi;
         this.paymentConfig = paymentConfig;
         this.jaxrsExecutors = jaxrsExecutors;
         this.jaxrsConfig = jaxrsConfig;
+        this.internalCallContextFactory = internalCallContextFactory;
     }
 
     @TimedResource
@@ -215,6 +228,7 @@ public class AccountResource extends JaxRsResourceBase {
                                                         return getAccount(account, accountWithBalance, accountWithBalanceAndCBA, accountAuditLogs, tenantContext);
                                                     }
                                                 },
+                                                this.<Account>createAuditLogsPreloader(internalCallContextFactory, ObjectType.ACCOUNT, auditMode, tenantContext),
                                                 nextPageUri
                                                );
     }
@@ -246,6 +260,7 @@ public class AccountResource extends JaxRsResourceBase {
                                                         return getAccount(account, accountWithBalance, accountWithBalanceAndCBA, accountAuditLogs, tenantContext);
                                                     }
                                                 },
+                                                this.<Account>createAuditLogsPreloader(internalCallContextFactory, ObjectType.ACCOUNT, auditMode, tenantContext),
                                                 nextPageUri
                                                );
     }
@@ -418,43 +433,39 @@ public class AccountResource extends JaxRsResourceBase {
             }
         };
 
-        final AccountTimelineJson json;
-
-        List<Invoice> invoices = null;
-        List<SubscriptionBundle> bundles = null;
-        List<InvoicePayment> invoicePayments = null;
-        List<Payment> payments = null;
-        AccountAuditLogs accountAuditLogs = null;
+        final List<Invoice> invoices;
+        final List<SubscriptionBundle> bundles;
+        final List<InvoicePayment> invoicePayments;
+        final List<Payment> payments;
+        final AccountAuditLogs accountAuditLogs;
 
         if (parallel) {
-
             final ExecutorService executor = jaxrsExecutors.getJaxrsExecutorService();
             final Future<List<SubscriptionBundle>> futureBundlesCallable = executor.submit(bundlesCallable);
             final Future<List<Invoice>> futureInvoicesCallable = executor.submit(invoicesCallable);
             final Future<List<InvoicePayment>> futureInvoicePaymentsCallable = executor.submit(invoicePaymentsCallable);
             final Future<List<Payment>> futurePaymentsCallable = executor.submit(paymentsCallable);
             final Future<AccountAuditLogs> futureAuditsCallable = executor.submit(auditsCallable);
+            final List<Future> futures = ImmutableList.<Future>of(futureBundlesCallable, futureInvoicesCallable, futureInvoicePaymentsCallable, futurePaymentsCallable, futureAuditsCallable);
 
+            // Single deadline for all the calls
+            final long deadlineMillis = System.currentTimeMillis() + jaxrsConfig.getJaxrsTimeout().getMillis();
             try {
-                long ini = System.currentTimeMillis();
-                do {
-                    bundles = (bundles == null) ? runCallableAndHandleTimeout(futureBundlesCallable, 100) : bundles;
-                    invoices = (invoices == null) ? runCallableAndHandleTimeout(futureInvoicesCallable, 100) : invoices;
-                    invoicePayments = (invoicePayments == null) ? runCallableAndHandleTimeout(futureInvoicePaymentsCallable, 100) : invoicePayments;
-                    payments = (payments == null) ? runCallableAndHandleTimeout(futurePaymentsCallable, 100) : payments;
-                    accountAuditLogs = (accountAuditLogs == null) ? runCallableAndHandleTimeout(futureAuditsCallable, 100) : accountAuditLogs;
-                } while ((System.currentTimeMillis() - ini < jaxrsConfig.getJaxrsTimeout().getMillis()) &&
-                         (bundles == null || invoices == null || invoicePayments == null || payments == null || accountAuditLogs == null));
-
-                if (bundles == null || invoices == null || invoicePayments == null || payments == null || accountAuditLogs == null) {
-                    Response.status(Status.SERVICE_UNAVAILABLE).build();
-                }
-            } catch (InterruptedException e) {
-                handleCallableException(e, ImmutableList.<Future>of(futureBundlesCallable, futureInvoicesCallable, futureInvoicePaymentsCallable, futurePaymentsCallable, futureAuditsCallable));
-            } catch (ExecutionException e) {
-                handleCallableException(e.getCause(), ImmutableList.<Future>of(futureBundlesCallable, futureInvoicesCallable, futureInvoicePaymentsCallable, futurePaymentsCallable, futureAuditsCallable));
+                bundles = getBeforeDeadline(futureBundlesCallable, deadlineMillis);
+                invoices = getBeforeDeadline(futureInvoicesCallable, deadlineMillis);
+                invoicePayments = getBeforeDeadline(futureInvoicePaymentsCallable, deadlineMillis);
+                payments = getBeforeDeadline(futurePaymentsCallable, deadlineMillis);
+                accountAuditLogs = getBeforeDeadline(futureAuditsCallable, deadlineMillis);
+            } catch (final TimeoutException e) {
+                cancel(futures);
+                return Response.status(Status.SERVICE_UNAVAILABLE).build();
+            } catch (final InterruptedException e) {
+                handleCallableException(e, futures);
+                return null;
+            } catch (final ExecutionException e) {
+                handleCallableException(e.getCause(), futures);
+                return null;
             }
-
         } else {
             try {
                 invoices = invoicesCallable.call();
@@ -462,27 +473,37 @@ public class AccountResource extends JaxRsResourceBase {
                 bundles = bundlesCallable.call();
                 accountAuditLogs = auditsCallable.call();
                 invoicePayments = invoicePaymentsCallable.call();
-            } catch (Exception e) {
+            } catch (final Exception e) {
                 handleCallableException(e);
+                return null;
             }
         }
 
-        json = new AccountTimelineJson(account, invoices, payments, invoicePayments, bundles, accountAuditLogs);
+        // Convert and write the timeline one element at a time, instead of building the whole AccountTimelineJson first
+        final StreamingOutput json = new StreamingOutput() {
+            @Override
+            public void write(final OutputStream output) throws IOException, WebApplicationException {
+                final JsonGenerator generator = mapper.getFactory().createJsonGenerator(output);
+                generator.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+                AccountTimelineJson.write(generator, account, invoices, payments, invoicePayments, bundles, accountAuditLogs);
+                generator.close();
+            }
+        };
         return Response.status(Status.OK).entity(json).build();
     }
 
-    private <T> T runCallableAndHandleTimeout(final Future<T> future, final long timeoutMsec) throws ExecutionException, InterruptedException {
-        try {
-            return future.get(timeoutMsec, TimeUnit.MILLISECONDS);
-        } catch (TimeoutException e) {
-            return null;
-        }
+    private <T> T getBeforeDeadline(final Future<T> future, final long deadlineMillis) throws ExecutionException, InterruptedException, TimeoutException {
+        return future.get(Math.max(0L, deadlineMillis - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
     }
 
-    private void handleCallableException(final Throwable causeOrException, final List<Future> toBeCancelled) throws AccountApiException, SubscriptionApiException, PaymentApiException, InvoiceApiException {
+    private void cancel(final List<Future> toBeCancelled) {
         for (final Future f : toBeCancelled) {
             f.cancel(true);
         }
+    }
+
+    private void handleCallableException(final Throwable causeOrException, final List<Future> toBeCancelled) throws AccountApiException, SubscriptionApiException, PaymentApiException, InvoiceApiException {
+        cancel(toBeCancelled);
         handleCallableException(causeOrException);
     }
 
@@ -596,18 +617,33 @@ public class AccountResource extends JaxRsResourceBase {
         final UUID accountId = UUID.fromString(accountIdString);
         accountUserApi.getAccountById(accountId, tenantContext);
 
-        final List<Invoice> invoices = unpaidInvoicesOnly ?
-                                       new ArrayList<Invoice>(invoiceApi.getUnpaidInvoicesByAccountId(accountId, null, tenantContext)) :
-                                       invoiceApi.getInvoicesByAccount(accountId, tenantContext);
-
         final AccountAuditLogs accountAuditLogs = auditUserApi.getAccountAuditLogs(accountId, auditMode.getLevel(), tenantContext);
 
-        final List<InvoiceJson> result = new LinkedList<InvoiceJson>();
-        for (final Invoice invoice : invoices) {
-            result.add(new InvoiceJson(invoice, withItems, accountAuditLogs));
+        if (unpaidInvoicesOnly) {
+            final List<InvoiceJson> result = new LinkedList<InvoiceJson>();
+            for (final Invoice invoice : invoiceApi.getUnpaidInvoicesByAccountId(accountId, null, tenantContext)) {
+                result.add(new InvoiceJson(invoice, withItems, accountAuditLogs));
+            }
+            return Response.status(Status.OK).entity(result).build();
         }
 
-        return Response.status(Status.OK).entity(result).build();
+        // Accounts with a deep history can have thousands of invoices: write them as they are loaded (in batches)
+        final Iterable<Invoice> invoices = invoiceInternalApi.streamInvoicesByAccount(internalCallContextFactory.createInternalTenantContext(accountId, tenantContext));
+        final StreamingOutput json = new StreamingOutput() {
+            @Override
+            public void write(final OutputStream output) throws IOException, WebApplicationException {
+                final JsonGenerator generator = mapper.getFactory().createJsonGenerator(output);
+                generator.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+
+                generator.writeStartArray();
+                for (final Invoice invoice : invoices) {
+                    generator.writeObject(new InvoiceJson(invoice, withItems, accountAuditLogs));
+                }
+                generator.writeEndArray();
+                generator.close();
+            }
+        };
+        return Response.status(Status.OK).entity(json).build();
     }
 
     /*
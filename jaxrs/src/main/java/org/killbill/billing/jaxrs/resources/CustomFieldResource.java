@@ -39,6 +39,7 @@ import org.killbill.billing.util.api.CustomFieldApiException;
 import org.killbill.billing.util.api.CustomFieldUserApi;
 import org.killbill.billing.util.api.TagUserApi;
 import org.killbill.billing.util.audit.AuditLog;
+import org.killbill.billing.util.callcontext.InternalCallContextFactory;
 import org.killbill.billing.util.callcontext.TenantContext;
 import org.killbill.billing.util.customfield.CustomField;
 import org.killbill.billing.util.entity.Pagination;
@@ -60,6 +61,8 @@ import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
 @Api(value = JaxrsResource.CUSTOM_FIELDS_PATH, description = "Operations on custom fields")
 public class CustomFieldResource extends JaxRsResourceBase {
 
+    private final InternalCallContextFactory internalCallContextFactory;
+
     @Inject
     public CustomFieldResource(final JaxrsUriBuilder uriBuilder,
                                final TagUserApi tagUserApi,
@@ -67,9 +70,11 @@ public class CustomFieldResource extends JaxRsResourceBase {
                                final AuditUserApi auditUserApi,
                                final AccountUserApi accountUserApi,
                                final PaymentApi paymentApi,
+                               final InternalCallContextFactory internalCallContextFactory,
                                final Clock clock,
                                final Context context) {
         super(uriBuilder, tagUserApi, customFieldUserApi, auditUserApi, accountUserApi, paymentApi, clock, context);
+        this.internalCallContextFactory = internalCallContextFactory;
     }
 
     @TimedResource
@@ -95,6 +100,7 @@ public class CustomFieldResource extends JaxRsResourceBase {
                                                         return new CustomFieldJson(customField, auditLogs);
                                                     }
                                                 },
+                                                this.<CustomField>createAuditLogsPreloader(internalCallContextFactory, ObjectType.CUSTOM_FIELD, auditMode, tenantContext),
                                                 nextPageUri);
     }
 
@@ -122,6 +128,7 @@ public class CustomFieldResource extends JaxRsResourceBase {
                                                         return new CustomFieldJson(customField, auditLogs);
                                                     }
                                                 },
+                                                this.<CustomField>createAuditLogsPreloader(internalCallContextFactory, ObjectType.CUSTOM_FIELD, auditMode, tenantContext),
                                                 nextPageUri);
     }
 }
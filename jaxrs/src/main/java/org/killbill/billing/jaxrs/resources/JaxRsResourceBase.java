@@ -67,6 +67,7 @@ import org.killbill.billing.payment.api.PaymentTransaction;
 import org.killbill.billing.payment.api.PluginProperty;
 import org.killbill.billing.payment.api.TransactionType;
 import org.killbill.billing.util.UUIDs;
+import org.killbill.billing.util.api.AuditLevel;
 import org.killbill.billing.util.api.AuditUserApi;
 import org.killbill.billing.util.api.CustomFieldApiException;
 import org.killbill.billing.util.api.CustomFieldUserApi;
@@ -76,6 +77,7 @@ import org.killbill.billing.util.api.TagUserApi;
 import org.killbill.billing.util.audit.AccountAuditLogsForObjectType;
 import org.killbill.billing.util.audit.AuditLog;
 import org.killbill.billing.util.callcontext.CallContext;
+import org.killbill.billing.util.callcontext.InternalCallContextFactory;
 import org.killbill.billing.util.callcontext.TenantContext;
 import org.killbill.billing.util.customfield.CustomField;
 import org.killbill.billing.util.customfield.StringCustomField;
@@ -104,6 +106,9 @@ public abstract class JaxRsResourceBase implements JaxrsResource {
 
     protected static final ObjectMapper mapper = new ObjectMapper();
 
+    // Number of entities of a page of results handed at once to the EntityBatchPreloader
+    private static final int STREAMING_PAGINATION_BATCH_SIZE = 100;
+
     protected final JaxrsUriBuilder uriBuilder;
     protected final TagUserApi tagUserApi;
     protected final CustomFieldUserApi customFieldUserApi;
@@ -261,6 +266,13 @@ public abstract class JaxRsResourceBase implements JaxrsResource {
     protected <E extends Entity, J extends JsonBase> Response buildStreamingPaginationResponse(final Pagination<E> entities,
                                                                                                final Function<E, J> toJson,
                                                                                                final URI nextPageUri) {
+        return buildStreamingPaginationResponse(entities, toJson, null, nextPageUri);
+    }
+
+    protected <E extends Entity, J extends JsonBase> Response buildStreamingPaginationResponse(final Pagination<E> entities,
+                                                                                               final Function<E, J> toJson,
+                                                                                               @Nullable final EntityBatchPreloader<E> preloader,
+                                                                                               final URI nextPageUri) {
         final StreamingOutput json = new StreamingOutput() {
             @Override
             public void write(final OutputStream output) throws IOException, WebApplicationException {
@@ -268,10 +280,16 @@ public abstract class JaxRsResourceBase implements JaxrsResource {
                 generator.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
 
                 generator.writeStartArray();
-                for (final E entity : entities) {
-                    final J asJson = toJson.apply(entity);
-                    if (asJson != null) {
-                        generator.writeObject(asJson);
+                if (preloader == null) {
+                    for (final E entity : entities) {
+                        writeEntity(generator, entity, toJson);
+                    }
+                } else {
+                    for (final List<E> batch : Iterables.<E>partition(entities, STREAMING_PAGINATION_BATCH_SIZE)) {
+                        preloader.preload(batch);
+                        for (final E entity : batch) {
+                            writeEntity(generator, entity, toJson);
+                        }
                     }
                 }
                 generator.writeEndArray();
@@ -289,6 +307,40 @@ public abstract class JaxRsResourceBase implements JaxrsResource {
                        .build();
     }
 
+    private <E extends Entity, J extends JsonBase> void writeEntity(final JsonGenerator generator, final E entity, final Function<E, J> toJson) throws IOException {
+        final J asJson = toJson.apply(entity);
+        if (asJson != null) {
+            generator.writeObject(asJson);
+        }
+    }
+
+    // Invoked on each batch of entities of a page of results, before they are converted to JSON
+    protected interface EntityBatchPreloader<E extends Entity> {
+
+        public void preload(List<E> entities);
+    }
+
+    // Resolves (and caches) the record ids, account and tenant record ids of each batch with a single query, instead of one lookup per entity when retrieving its audit logs
+    protected <E extends Entity> EntityBatchPreloader<E> createAuditLogsPreloader(final InternalCallContextFactory internalCallContextFactory,
+                                                                                 final ObjectType objectType,
+                                                                                 final AuditMode auditMode,
+                                                                                 final TenantContext tenantContext) {
+        if (AuditLevel.NONE.equals(auditMode.getLevel())) {
+            return null;
+        }
+
+        return new EntityBatchPreloader<E>() {
+            @Override
+            public void preload(final List<E> entities) {
+                final List<UUID> objectIds = new ArrayList<UUID>(entities.size());
+                for (final E entity : entities) {
+                    objectIds.add(entity.getId());
+                }
+                internalCallContextFactory.getRecordIdsFromObjects(objectIds, objectType, tenantContext);
+            }
+        };
+    }
+
     protected void validatePaymentMethodForAccount(final UUID accountId, final UUID paymentMethodId, final CallContext callContext) throws PaymentApiException {
         verifyNonNull(paymentMethodId, "paymentMethodId should be specified");
 
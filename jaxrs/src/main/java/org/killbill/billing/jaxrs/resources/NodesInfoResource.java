@@ -51,6 +51,7 @@ import org.killbill.billing.payment.api.PaymentApi;
 import org.killbill.billing.util.api.AuditUserApi;
 import org.killbill.billing.util.api.CustomFieldUserApi;
 import org.killbill.billing.util.api.TagUserApi;
+import org.killbill.billing.util.nodes.DefaultNodeInfo;
 import org.killbill.billing.util.nodes.KillbillNodesApi;
 import org.killbill.billing.util.nodes.NodeCommand;
 import org.killbill.billing.util.nodes.NodeCommandMetadata;
@@ -134,7 +135,8 @@ public class NodesInfoResource extends JaxRsResourceBase {
                                         input.getPluginApiVersion(),
                                         input.getCommonVersion(),
                                         input.getPlatformVersion(),
-                                        pluginsInfoJson);
+                                        pluginsInfoJson,
+                                        input instanceof DefaultNodeInfo ? ((DefaultNodeInfo) input).getCacheWarmUp() : null);
             }
         }));
 
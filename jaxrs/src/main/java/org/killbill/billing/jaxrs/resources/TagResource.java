@@ -43,6 +43,7 @@ import org.killbill.billing.util.api.CustomFieldUserApi;
 import org.killbill.billing.util.api.TagApiException;
 import org.killbill.billing.util.api.TagUserApi;
 import org.killbill.billing.util.audit.AuditLog;
+import org.killbill.billing.util.callcontext.InternalCallContextFactory;
 import org.killbill.billing.util.callcontext.TenantContext;
 import org.killbill.billing.util.entity.Pagination;
 import org.killbill.billing.util.tag.Tag;
@@ -64,6 +65,8 @@ import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
 @Api(value = JaxrsResource.TAGS_PATH, description = "Operations on tags")
 public class TagResource extends JaxRsResourceBase {
 
+    private final InternalCallContextFactory internalCallContextFactory;
+
     @Inject
     public TagResource(final JaxrsUriBuilder uriBuilder,
                        final TagUserApi tagUserApi,
@@ -71,9 +74,11 @@ public class TagResource extends JaxRsResourceBase {
                        final AuditUserApi auditUserApi,
                        final AccountUserApi accountUserApi,
                        final PaymentApi paymentApi,
+                       final InternalCallContextFactory internalCallContextFactory,
                        final Clock clock,
                        final Context context) {
         super(uriBuilder, tagUserApi, customFieldUserApi, auditUserApi, accountUserApi, paymentApi, clock, context);
+        this.internalCallContextFactory = internalCallContextFactory;
     }
 
     @TimedResource
@@ -106,6 +111,7 @@ public class TagResource extends JaxRsResourceBase {
                                                         return new TagJson(tag, tagDefinition, auditLogs);
                                                     }
                                                 },
+                                                this.<Tag>createAuditLogsPreloader(internalCallContextFactory, ObjectType.TAG, auditMode, tenantContext),
                                                 nextPageUri);
     }
 
@@ -139,6 +145,7 @@ public class TagResource extends JaxRsResourceBase {
                                                         return new TagJson(tag, tagDefinition, auditLogs);
                                                     }
                                                 },
+                                                this.<Tag>createAuditLogsPreloader(internalCallContextFactory, ObjectType.TAG, auditMode, tenantContext),
                                                 nextPageUri);
     }
 }
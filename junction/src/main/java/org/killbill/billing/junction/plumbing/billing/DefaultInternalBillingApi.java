@@ -17,6 +17,7 @@
 package org.killbill.billing.junction.plumbing.billing;
 
 import java.util.List;
+import java.util.Map;
 import java.util.SortedSet;
 import java.util.UUID;
 
@@ -139,6 +140,14 @@ public class DefaultInternalBillingApi implements BillingInternalApi {
 
         }
 
+        // Retrieve the tags of all bundles at once
+        final Map<UUID, List<Tag>> tagsByBundleId = tagApi.getTagsForObjects(Collections2.transform(bundles, new Function<SubscriptionBaseBundle, UUID>() {
+            @Override
+            public UUID apply(final SubscriptionBaseBundle bundle) {
+                return bundle.getId();
+            }
+        }), ObjectType.BUNDLE, context);
+
         for (final SubscriptionBaseBundle bundle : bundles) {
             final DryRunArguments dryRunArgumentsForBundle = (dryRunArguments != null &&
                                                               dryRunArguments.getBundleId() != null &&
@@ -147,8 +156,8 @@ public class DefaultInternalBillingApi implements BillingInternalApi {
             final List<SubscriptionBase> subscriptions = subscriptionApi.getSubscriptionsForBundle(bundle.getId(), dryRunArgumentsForBundle, context);
 
             //Check if billing is off for the bundle
-            final List<Tag> bundleTags = tagApi.getTags(bundle.getId(), ObjectType.BUNDLE, context);
-            boolean found_AUTO_INVOICING_OFF = is_AUTO_INVOICING_OFF(bundleTags);
+            final List<Tag> bundleTags = tagsByBundleId.get(bundle.getId());
+            boolean found_AUTO_INVOICING_OFF = bundleTags != null && is_AUTO_INVOICING_OFF(bundleTags);
             if (found_AUTO_INVOICING_OFF) {
                 for (final SubscriptionBase subscription : subscriptions) { // billing is off so list sub ids in set to be excluded
                     result.getSubscriptionIdsWithAutoInvoiceOff().add(subscription.getId());
@@ -19,6 +19,7 @@ package org.killbill.billing.overdue;
 import org.skife.config.Config;
 import org.skife.config.Default;
 import org.skife.config.Description;
+import org.skife.config.TimeSpan;
 
 import org.killbill.billing.util.config.KillbillConfig;
 
@@ -28,4 +29,19 @@ public interface OverdueProperties extends KillbillConfig {
     @Default("NoOverdueConfig.xml")
     @Description("Overdue configuration location. Either in the classpath or in the filesystem")
     public String getConfigURI();
+
+    @Config("org.killbill.overdue.refresh.debounce")
+    @Default("0s")
+    @Description("Delay applied to overdue refresh notifications, so that bursts of payment or invoice events for the same account are collapsed into a single evaluation")
+    public TimeSpan getRefreshDebounceWindow();
+
+    @Config("org.killbill.overdue.bulk.pageSize")
+    @Default("100")
+    @Description("Number of accounts retrieved (and whose billing states are computed) at once when re-evaluating all the accounts of a tenant")
+    public int getBulkRefreshPageSize();
+
+    @Config("org.killbill.overdue.bulk.nbThreads")
+    @Default("4")
+    @Description("Maximum number of accounts whose overdue state is applied concurrently when re-evaluating all the accounts of a tenant")
+    public int getBulkRefreshNbThreads();
 }
@@ -30,6 +30,7 @@ import org.killbill.billing.overdue.config.DefaultOverdueConfig;
 import org.killbill.billing.overdue.config.api.BillingState;
 import org.killbill.billing.overdue.config.api.OverdueException;
 import org.killbill.billing.overdue.config.api.OverdueStateSet;
+import org.killbill.billing.overdue.wrapper.OverdueBulkEvaluator;
 import org.killbill.billing.overdue.wrapper.OverdueWrapper;
 import org.killbill.billing.overdue.wrapper.OverdueWrapperFactory;
 import org.killbill.billing.util.callcontext.CallContext;
@@ -45,16 +46,19 @@ public class DefaultOverdueInternalApi implements OverdueInternalApi {
     Logger log = LoggerFactory.getLogger(DefaultOverdueInternalApi.class);
 
     private final OverdueWrapperFactory factory;
+    private final OverdueBulkEvaluator bulkEvaluator;
     private final BlockingInternalApi accessApi;
     private final InternalCallContextFactory internalCallContextFactory;
     private final OverdueConfigCache overdueConfigCache;
 
     @Inject
     public DefaultOverdueInternalApi(final OverdueWrapperFactory factory,
+                                     final OverdueBulkEvaluator bulkEvaluator,
                                      final BlockingInternalApi accessApi,
                                      final OverdueConfigCache overdueConfigCache,
                                      final InternalCallContextFactory internalCallContextFactory) {
         this.factory = factory;
+        this.bulkEvaluator = bulkEvaluator;
         this.accessApi = accessApi;
         this.overdueConfigCache = overdueConfigCache;
         this.internalCallContextFactory = internalCallContextFactory;
@@ -91,6 +95,12 @@ public class DefaultOverdueInternalApi implements OverdueInternalApi {
         return wrapper.refresh(internalCallContext);
     }
 
+    @Override
+    public int refreshOverdueStatesForAllAccounts(final CallContext context) throws OverdueException {
+        log.info("Refresh of all accounts requested");
+        return bulkEvaluator.refreshAllAccounts(internalCallContextFactory.createInternalCallContext(context));
+    }
+
     private InternalCallContext createInternalCallContext(final ImmutableAccountData blockable, final CallContext context) {
         return internalCallContextFactory.createInternalCallContext(blockable.getId(), ObjectType.ACCOUNT, context);
     }
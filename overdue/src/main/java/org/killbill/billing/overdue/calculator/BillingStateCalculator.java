@@ -64,7 +64,28 @@ public class BillingStateCalculator {
 
     public BillingState calculateBillingState(final ImmutableAccountData account, final InternalTenantContext context) throws OverdueException {
         final SortedSet<Invoice> unpaidInvoices = unpaidInvoicesForAccount(account.getId(), account.getTimeZone(), context);
+        return buildBillingState(account, unpaidInvoices);
+    }
+
+    /**
+     * Compute the billing state from unpaid invoices already retrieved by the caller (e.g. for a batch of accounts).
+     *
+     * @param account        the account
+     * @param unpaidInvoices all unpaid invoices of the account, invoices with a target date in the future are ignored
+     * @return the billing state
+     */
+    public BillingState calculateBillingState(final ImmutableAccountData account, final Iterable<Invoice> unpaidInvoices) {
+        final LocalDate today = clock.getToday(account.getTimeZone());
+        final SortedSet<Invoice> sortedInvoices = new TreeSet<Invoice>(new InvoiceDateComparator());
+        for (final Invoice invoice : unpaidInvoices) {
+            if (!invoice.getTargetDate().isAfter(today)) {
+                sortedInvoices.add(invoice);
+            }
+        }
+        return buildBillingState(account, sortedInvoices);
+    }
 
+    private BillingState buildBillingState(final ImmutableAccountData account, final SortedSet<Invoice> unpaidInvoices) {
         final int numberOfUnpaidInvoices = unpaidInvoices.size();
         final BigDecimal unpaidInvoiceBalance = sumBalance(unpaidInvoices);
         LocalDate dateOfEarliestUnpaidInvoice = null;
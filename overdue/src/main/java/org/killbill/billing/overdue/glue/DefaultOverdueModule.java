@@ -31,6 +31,7 @@ import org.killbill.billing.overdue.applicator.formatters.OverdueEmailFormatterF
 import org.killbill.billing.overdue.caching.EhCacheOverdueConfigCache;
 import org.killbill.billing.overdue.caching.OverdueCacheInvalidationCallback;
 import org.killbill.billing.overdue.caching.OverdueConfigCache;
+import org.killbill.billing.overdue.caching.OverdueConfigCacheWarmUpCallback;
 import org.killbill.billing.overdue.listener.OverdueListener;
 import org.killbill.billing.overdue.notification.OverdueAsyncBusNotifier;
 import org.killbill.billing.overdue.notification.OverdueAsyncBusPoster;
@@ -39,12 +40,15 @@ import org.killbill.billing.overdue.notification.OverdueCheckPoster;
 import org.killbill.billing.overdue.notification.OverdueNotifier;
 import org.killbill.billing.overdue.notification.OverduePoster;
 import org.killbill.billing.overdue.service.DefaultOverdueService;
+import org.killbill.billing.overdue.wrapper.OverdueBulkEvaluator;
 import org.killbill.billing.overdue.wrapper.OverdueWrapperFactory;
 import org.killbill.billing.platform.api.KillbillConfigSource;
 import org.killbill.billing.tenant.api.TenantInternalApi.CacheInvalidationCallback;
+import org.killbill.billing.util.cache.TenantCacheWarmUpCallback;
 import org.killbill.billing.util.glue.KillBillModule;
 import org.skife.config.ConfigurationObjectFactory;
 
+import com.google.inject.multibindings.Multibinder;
 import com.google.inject.name.Names;
 
 public class DefaultOverdueModule extends KillBillModule implements OverdueModule {
@@ -86,6 +90,7 @@ public class DefaultOverdueModule extends KillBillModule implements OverdueModul
 
     protected void installOverdueWrapperFactory() {
         bind(OverdueWrapperFactory.class).asEagerSingleton();
+        bind(OverdueBulkEvaluator.class).asEagerSingleton();
     }
 
     protected void installOverdueEmail() {
@@ -102,5 +107,6 @@ public class DefaultOverdueModule extends KillBillModule implements OverdueModul
     public void installOverdueConfigCache() {
         bind(OverdueConfigCache.class).to(EhCacheOverdueConfigCache.class).asEagerSingleton();
         bind(CacheInvalidationCallback.class).annotatedWith(Names.named(OVERDUE_INVALIDATION_CALLBACK)).to(OverdueCacheInvalidationCallback.class).asEagerSingleton();
+        Multibinder.newSetBinder(binder(), TenantCacheWarmUpCallback.class).addBinding().to(OverdueConfigCacheWarmUpCallback.class).asEagerSingleton();
     }
 }
@@ -21,6 +21,7 @@ package org.killbill.billing.overdue.notification;
 import java.util.Collection;
 
 import org.joda.time.DateTime;
+import org.killbill.billing.overdue.notification.OverdueAsyncBusNotificationKey.OverdueAsyncBusNotificationAction;
 import org.killbill.billing.util.cache.CacheControllerDispatcher;
 import org.killbill.billing.util.dao.NonEntityDao;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoWrapperFactory;
@@ -30,25 +31,58 @@ import org.killbill.notificationq.api.NotificationQueue;
 import org.killbill.notificationq.api.NotificationQueueService;
 import org.skife.jdbi.v2.IDBI;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
 import com.google.inject.Inject;
 
 public class OverdueAsyncBusPoster extends DefaultOverduePosterBase {
 
+    private final Counter refreshNotifications;
+    private final Counter coalescedRefreshNotifications;
+
     @Inject
     public OverdueAsyncBusPoster(final NotificationQueueService notificationQueueService,
                                  final IDBI dbi, final Clock clock,
-                                 final CacheControllerDispatcher cacheControllerDispatcher, final NonEntityDao nonEntityDao) {
+                                 final CacheControllerDispatcher cacheControllerDispatcher, final NonEntityDao nonEntityDao,
+                                 final MetricRegistry metricRegistry) {
         super(notificationQueueService, dbi, clock, cacheControllerDispatcher, nonEntityDao);
+        this.refreshNotifications = metricRegistry.counter(MetricRegistry.name(OverdueAsyncBusPoster.class, "refresh-notifications"));
+        this.coalescedRefreshNotifications = metricRegistry.counter(MetricRegistry.name(OverdueAsyncBusPoster.class, "coalesced-refresh-notifications"));
     }
 
     @Override
     protected <T extends OverdueCheckNotificationKey> boolean cleanupFutureNotificationsFormTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory,
                                                                                                         final Collection<NotificationEventWithMetadata<T>> futureNotifications,
                                                                                                         final DateTime futureNotificationTime,
+                                                                                                        final T notificationKey,
                                                                                                         final NotificationQueue overdueQueue) {
-        // If we already have notification for that account we don't insert the new one
-        // Note that this is slightly incorrect because we could for instance already have a REFRESH and insert a CLEAR, but if that were the case,
+        if (isAction(notificationKey, OverdueAsyncBusNotificationAction.CLEAR)) {
+            // A CLEAR is never delayed and supersedes any pending (debounced) REFRESH for that account
+            boolean hasPendingClear = false;
+            for (final NotificationEventWithMetadata<T> cur : futureNotifications) {
+                if (isAction(cur.getEvent(), OverdueAsyncBusNotificationAction.CLEAR)) {
+                    hasPendingClear = true;
+                } else {
+                    overdueQueue.removeNotificationFromTransaction(entitySqlDaoWrapperFactory.getHandle().getConnection(), cur.getRecordId());
+                }
+            }
+            return !hasPendingClear;
+        }
+
+        refreshNotifications.inc();
+
+        // If we already have notification for that account we don't insert the new one: the REFRESH is collapsed into the pending
+        // notification, which will evaluate the overdue state for the account once, when it fires.
+        // Note that this is slightly incorrect because we could for instance already have a CLEAR and insert a REFRESH, but if that were the case,
         // if means overdue state would change very rapidly and the behavior would anyway be non deterministic
-        return futureNotifications.isEmpty();
+        if (!futureNotifications.isEmpty()) {
+            coalescedRefreshNotifications.inc();
+            return false;
+        }
+        return true;
+    }
+
+    private boolean isAction(final OverdueCheckNotificationKey notificationKey, final OverdueAsyncBusNotificationAction action) {
+        return notificationKey instanceof OverdueAsyncBusNotificationKey && ((OverdueAsyncBusNotificationKey) notificationKey).getAction() == action;
     }
 }
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2014-2016 Groupon, Inc
+ * Copyright 2014-2016 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.overdue.wrapper;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.killbill.billing.account.api.AccountInternalApi;
+import org.killbill.billing.account.api.ImmutableAccountData;
+import org.killbill.billing.callcontext.InternalCallContext;
+import org.killbill.billing.invoice.api.Invoice;
+import org.killbill.billing.invoice.api.InvoiceInternalApi;
+import org.killbill.billing.overdue.OverdueProperties;
+import org.killbill.billing.overdue.api.OverdueState;
+import org.killbill.billing.overdue.calculator.BillingStateCalculator;
+import org.killbill.billing.overdue.config.api.BillingState;
+import org.killbill.billing.overdue.config.api.OverdueException;
+import org.killbill.billing.overdue.config.api.OverdueStateSet;
+import org.killbill.billing.util.callcontext.InternalCallContextFactory;
+import org.killbill.commons.concurrent.WithProfilingThreadPoolExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.inject.Inject;
+
+/**
+ * Re-evaluates the overdue state of all the accounts of a tenant (e.g. after an overdue config change), without going
+ * through the overdue notification queues.
+ * <p/>
+ * Accounts are processed page by page: the unpaid invoices of all the accounts of a page are retrieved with a constant number
+ * of queries and the billing states computed in memory, while the resulting overdue states are applied by a bounded pool of threads.
+ */
+public class OverdueBulkEvaluator {
+
+    private static final Logger log = LoggerFactory.getLogger(OverdueBulkEvaluator.class);
+
+    private static final long TIMEOUT_EXECUTOR_SEC = 3L;
+
+    private static final String OVERDUE_BULK_THREAD_PREFIX = "overdue-bulk-th-";
+    private static final String OVERDUE_BULK_TH_GROUP_NAME = "overdue-bulk-grp";
+
+    private final AccountInternalApi accountApi;
+    private final InvoiceInternalApi invoiceApi;
+    private final BillingStateCalculator billingStateCalculator;
+    private final OverdueWrapperFactory factory;
+    private final OverdueProperties overdueProperties;
+    private final InternalCallContextFactory internalCallContextFactory;
+
+    @Inject
+    public OverdueBulkEvaluator(final AccountInternalApi accountApi,
+                                final InvoiceInternalApi invoiceApi,
+                                final BillingStateCalculator billingStateCalculator,
+                                final OverdueWrapperFactory factory,
+                                final OverdueProperties overdueProperties,
+                                final InternalCallContextFactory internalCallContextFactory) {
+        this.accountApi = accountApi;
+        this.invoiceApi = invoiceApi;
+        this.billingStateCalculator = billingStateCalculator;
+        this.factory = factory;
+        this.overdueProperties = overdueProperties;
+        this.internalCallContextFactory = internalCallContextFactory;
+    }
+
+    /**
+     * @param context the call context of the tenant (not tied to any account)
+     * @return the number of accounts evaluated
+     */
+    public int refreshAllAccounts(final InternalCallContext context) throws OverdueException {
+        final OverdueStateSet overdueStateSet = factory.getOverdueStateSet(context);
+        if (overdueStateSet.size() < 1) { // No configuration available
+            return 0;
+        }
+
+        final long pageSize = overdueProperties.getBulkRefreshPageSize();
+        final ExecutorService executor = createBulkExecutorService();
+        int nbAccounts = 0;
+        try {
+            Long fromRecordId = 0L;
+            while (true) {
+                final Map<Long, ImmutableAccountData> accounts = accountApi.getImmutableAccountDataAfterRecordId(fromRecordId, pageSize, context);
+                if (accounts.isEmpty()) {
+                    break;
+                }
+
+                refreshPage(accounts, overdueStateSet, executor, context);
+                nbAccounts += accounts.size();
+
+                if (accounts.size() < pageSize) {
+                    break;
+                }
+                fromRecordId = Iterables.getLast(accounts.keySet());
+            }
+        } catch (final InterruptedException e) {
+            log.warn("Interrupted while re-evaluating overdue states for tenantRecordId='{}', {} accounts evaluated", context.getTenantRecordId(), nbAccounts);
+            Thread.currentThread().interrupt();
+        } finally {
+            shutdown(executor);
+        }
+
+        log.info("Re-evaluated overdue states of {} accounts for tenantRecordId='{}'", nbAccounts, context.getTenantRecordId());
+        return nbAccounts;
+    }
+
+    private void refreshPage(final Map<Long, ImmutableAccountData> accounts, final OverdueStateSet overdueStateSet, final ExecutorService executor, final InternalCallContext context) throws InterruptedException {
+        final Map<UUID, Collection<Invoice>> unpaidInvoicesPerAccountId = invoiceApi.getUnpaidInvoicesByAccountRecordIds(accounts.keySet(), context);
+
+        final Map<UUID, Future<OverdueState>> futures = new LinkedHashMap<UUID, Future<OverdueState>>();
+        for (final Entry<Long, ImmutableAccountData> entry : accounts.entrySet()) {
+            final ImmutableAccountData account = entry.getValue();
+            final Collection<Invoice> unpaidInvoices = Objects.firstNonNull(unpaidInvoicesPerAccountId.get(account.getId()), ImmutableList.<Invoice>of());
+            final BillingState billingState = billingStateCalculator.calculateBillingState(account, unpaidInvoices);
+            final InternalCallContext accountContext = internalCallContextFactory.createInternalCallContext(entry.getKey(), context);
+            final OverdueWrapper wrapper = factory.createOverdueWrapperFor(account, overdueStateSet);
+
+            futures.put(account.getId(), executor.submit(new Callable<OverdueState>() {
+                @Override
+                public OverdueState call() throws Exception {
+                    return wrapper.refresh(billingState, accountContext);
+                }
+            }));
+        }
+
+        // Wait for the whole page before moving on, to bound the number of pending evaluations
+        for (final Entry<UUID, Future<OverdueState>> entry : futures.entrySet()) {
+            try {
+                entry.getValue().get();
+            } catch (final ExecutionException e) {
+                log.error(String.format("Error processing Overdue for blockable %s", entry.getKey()), e.getCause());
+            }
+        }
+    }
+
+    private ExecutorService createBulkExecutorService() {
+        final int nbThreads = overdueProperties.getBulkRefreshNbThreads();
+        return new WithProfilingThreadPoolExecutor(nbThreads,
+                                                   nbThreads,
+                                                   0L,
+                                                   TimeUnit.MILLISECONDS,
+                                                   new LinkedBlockingQueue<Runnable>(),
+                                                   new ThreadFactory() {
+
+                                                       @Override
+                                                       public Thread newThread(final Runnable r) {
+                                                           final Thread th = new Thread(new ThreadGroup(OVERDUE_BULK_TH_GROUP_NAME), r);
+                                                           th.setName(OVERDUE_BULK_THREAD_PREFIX + th.getId());
+                                                           return th;
+                                                       }
+                                                   });
+    }
+
+    private void shutdown(final ExecutorService executor) {
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(TIMEOUT_EXECUTOR_SEC, TimeUnit.SECONDS);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -59,7 +59,21 @@ public class OverdueWrapper {
             return overdueStateSet.getClearState();
         }
 
-        final BillingState billingState = billingState(context);
+        return refresh(billingState(context), context);
+    }
+
+    /**
+     * Refresh the overdue state from an already computed billing state.
+     *
+     * @param billingState the billing state of the account
+     * @param context      the call context, tied to the account
+     * @return the new overdue state
+     */
+    public OverdueState refresh(final BillingState billingState, final InternalCallContext context) throws OverdueException, OverdueApiException {
+        if (overdueStateSet.size() < 1) { // No configuration available
+            return overdueStateSet.getClearState();
+        }
+
         final String previousOverdueStateName = api.getBlockingStateForService(overdueable.getId(), BlockingStateType.ACCOUNT, OverdueService.OVERDUE_SERVICE_NAME, context).getStateName();
 
         final OverdueState currentOverdueState = overdueStateSet.findState(previousOverdueStateName);
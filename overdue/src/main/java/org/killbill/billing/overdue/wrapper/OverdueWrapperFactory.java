@@ -83,7 +83,12 @@ public class OverdueWrapperFactory {
         }
     }
 
-    private OverdueStateSet getOverdueStateSet(final InternalTenantContext context) throws OverdueException {
+    // Package scope for the bulk evaluator, which shares the same state set for all the accounts of the tenant
+    OverdueWrapper createOverdueWrapperFor(final ImmutableAccountData blockable, final OverdueStateSet overdueStateSet) {
+        return new OverdueWrapper(blockable, api, overdueStateSet, clock, billingStateCalculator, overdueStateApplicator);
+    }
+
+    OverdueStateSet getOverdueStateSet(final InternalTenantContext context) throws OverdueException {
         final OverdueConfig overdueConfig;
         try {
             overdueConfig = overdueConfigCache.getOverdueConfig(context);
@@ -123,6 +123,7 @@ public class TestOverdueHelper {
 
         final Invoice invoice = Mockito.mock(Invoice.class);
         Mockito.when(invoice.getInvoiceDate()).thenReturn(dateOfLastUnPaidInvoice);
+        Mockito.when(invoice.getTargetDate()).thenReturn(dateOfLastUnPaidInvoice);
         Mockito.when(invoice.getBalance()).thenReturn(BigDecimal.TEN);
         Mockito.when(invoice.getId()).thenReturn(UUID.randomUUID());
 
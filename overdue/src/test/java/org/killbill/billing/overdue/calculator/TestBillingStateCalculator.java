@@ -38,6 +38,8 @@ import org.killbill.billing.overdue.OverdueTestSuiteNoDB;
 import org.killbill.billing.overdue.config.api.BillingState;
 import org.killbill.billing.callcontext.InternalTenantContext;
 
+import com.google.common.collect.ImmutableList;
+
 public class TestBillingStateCalculator extends OverdueTestSuiteNoDB {
 
     protected LocalDate now;
@@ -102,4 +104,27 @@ public class TestBillingStateCalculator extends OverdueTestSuiteNoDB {
         final SortedSet<Invoice> invoices = calc.unpaidInvoicesForAccount(new UUID(0L, 0L), DateTimeZone.UTC, internalCallContext);
         Assert.assertEquals(calc.earliest(invoices).getInvoiceDate(), now);
     }
+
+    @Test(groups = "fast")
+    public void testBillingStateFromUnpaidInvoices() {
+        final BillingStateCalculator calc = new BillingStateCalculator(invoiceApi, clock);
+        final LocalDate today = clock.getUTCToday();
+
+        final Invoice oldestInvoice = createInvoice(today.minusDays(20), BigDecimal.TEN, null);
+        Mockito.when(oldestInvoice.getTargetDate()).thenReturn(today.minusDays(20));
+        final Invoice invoice = createInvoice(today.minusDays(10), new BigDecimal("100.0"), null);
+        Mockito.when(invoice.getTargetDate()).thenReturn(today.minusDays(10));
+        final Invoice futureInvoice = createInvoice(today, BigDecimal.ONE, null);
+        Mockito.when(futureInvoice.getTargetDate()).thenReturn(today.plusDays(1));
+
+        final ImmutableAccountData account = Mockito.mock(ImmutableAccountData.class);
+        Mockito.when(account.getId()).thenReturn(UUID.randomUUID());
+        Mockito.when(account.getTimeZone()).thenReturn(DateTimeZone.UTC);
+
+        final BillingState billingState = calc.calculateBillingState(account, ImmutableList.<Invoice>of(invoice, futureInvoice, oldestInvoice));
+        Assert.assertEquals(billingState.getNumberOfUnpaidInvoices(), 2);
+        Assert.assertEquals(billingState.getBalanceOfUnpaidInvoices().compareTo(new BigDecimal("110.0")), 0);
+        Assert.assertEquals(billingState.getDateOfEarliestUnpaidInvoice(), today.minusDays(20));
+        Assert.assertEquals(billingState.getIdOfEarliestUnpaidInvoice(), oldestInvoice.getId());
+    }
 }
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2014-2016 Groupon, Inc
+ * Copyright 2014-2016 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.overdue.notification;
+
+import java.util.Collection;
+import java.util.UUID;
+
+import javax.inject.Inject;
+
+import org.joda.time.DateTime;
+import org.killbill.billing.overdue.OverdueTestSuiteWithEmbeddedDB;
+import org.killbill.billing.overdue.notification.OverdueAsyncBusNotificationKey.OverdueAsyncBusNotificationAction;
+import org.killbill.billing.overdue.service.DefaultOverdueService;
+import org.killbill.billing.util.entity.dao.EntitySqlDaoTransactionWrapper;
+import org.killbill.billing.util.entity.dao.EntitySqlDaoTransactionalJdbiWrapper;
+import org.killbill.billing.util.entity.dao.EntitySqlDaoWrapperFactory;
+import org.killbill.notificationq.api.NotificationEventWithMetadata;
+import org.killbill.notificationq.api.NotificationQueue;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.codahale.metrics.MetricRegistry;
+
+public class TestOverdueAsyncBusPoster extends OverdueTestSuiteWithEmbeddedDB {
+
+    @Inject
+    private MetricRegistry metricRegistry;
+
+    private EntitySqlDaoTransactionalJdbiWrapper entitySqlDaoTransactionalJdbiWrapper;
+    private NotificationQueue overdueQueue;
+    private DateTime testReferenceTime;
+
+    @Override
+    @BeforeMethod(groups = "slow")
+    public void beforeMethod() throws Exception {
+        super.beforeMethod();
+        entitySqlDaoTransactionalJdbiWrapper = new EntitySqlDaoTransactionalJdbiWrapper(dbi, clock, cacheControllerDispatcher, nonEntityDao);
+
+        overdueQueue = notificationQueueService.getNotificationQueue(DefaultOverdueService.OVERDUE_SERVICE_NAME,
+                                                                     OverdueAsyncBusNotifier.OVERDUE_ASYNC_BUS_NOTIFIER_QUEUE);
+        Assert.assertTrue(overdueQueue.isStarted());
+
+        testReferenceTime = clock.getUTCNow();
+    }
+
+    @Test(groups = "slow")
+    public void testRefreshNotificationsAreCoalesced() throws Exception {
+        final UUID accountId = UUID.randomUUID();
+        final long coalescedBefore = getCoalescedRefreshNotificationsCount();
+
+        final OverdueAsyncBusNotificationKey refreshKey = new OverdueAsyncBusNotificationKey(accountId, OverdueAsyncBusNotificationAction.REFRESH);
+        for (int i = 0; i < 5; i++) {
+            asyncPoster.insertOverdueNotification(accountId, testReferenceTime.plusHours(1), OverdueAsyncBusNotifier.OVERDUE_ASYNC_BUS_NOTIFIER_QUEUE, refreshKey, internalCallContext);
+        }
+
+        final Collection<NotificationEventWithMetadata<OverdueAsyncBusNotificationKey>> notifications = getNotificationsForAccount();
+        Assert.assertEquals(notifications.size(), 1);
+        Assert.assertEquals(notifications.iterator().next().getEvent(), refreshKey);
+        Assert.assertEquals(getCoalescedRefreshNotificationsCount() - coalescedBefore, 4);
+    }
+
+    @Test(groups = "slow")
+    public void testClearSupersedesPendingRefresh() throws Exception {
+        final UUID accountId = UUID.randomUUID();
+
+        final OverdueAsyncBusNotificationKey refreshKey = new OverdueAsyncBusNotificationKey(accountId, OverdueAsyncBusNotificationAction.REFRESH);
+        asyncPoster.insertOverdueNotification(accountId, testReferenceTime.plusHours(1), OverdueAsyncBusNotifier.OVERDUE_ASYNC_BUS_NOTIFIER_QUEUE, refreshKey, internalCallContext);
+
+        final OverdueAsyncBusNotificationKey clearKey = new OverdueAsyncBusNotificationKey(accountId, OverdueAsyncBusNotificationAction.CLEAR);
+        asyncPoster.insertOverdueNotification(accountId, testReferenceTime.plusMinutes(1), OverdueAsyncBusNotifier.OVERDUE_ASYNC_BUS_NOTIFIER_QUEUE, clearKey, internalCallContext);
+
+        final Collection<NotificationEventWithMetadata<OverdueAsyncBusNotificationKey>> notifications = getNotificationsForAccount();
+        Assert.assertEquals(notifications.size(), 1);
+        Assert.assertEquals(notifications.iterator().next().getEvent(), clearKey);
+        Assert.assertEquals(notifications.iterator().next().getEffectiveDate(), testReferenceTime.plusMinutes(1));
+    }
+
+    private long getCoalescedRefreshNotificationsCount() {
+        return metricRegistry.counter(MetricRegistry.name(OverdueAsyncBusPoster.class, "coalesced-refresh-notifications")).getCount();
+    }
+
+    private Collection<NotificationEventWithMetadata<OverdueAsyncBusNotificationKey>> getNotificationsForAccount() {
+        return entitySqlDaoTransactionalJdbiWrapper.execute(new EntitySqlDaoTransactionWrapper<Collection<NotificationEventWithMetadata<OverdueAsyncBusNotificationKey>>>() {
+            @Override
+            public Collection<NotificationEventWithMetadata<OverdueAsyncBusNotificationKey>> inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
+                return ((OverdueAsyncBusPoster) asyncPoster).getFutureNotificationsForAccountInTransaction(entitySqlDaoWrapperFactory, overdueQueue, OverdueAsyncBusNotificationKey.class, internalCallContext);
+            }
+        });
+    }
+}
@@ -18,20 +18,33 @@ package org.killbill.billing.overdue.wrapper;
 
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.util.Collection;
+import java.util.UUID;
+
+import javax.inject.Inject;
 
 import org.killbill.billing.account.api.ImmutableAccountData;
+import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.invoice.api.Invoice;
 import org.killbill.billing.junction.DefaultBlockingState;
 import org.killbill.billing.overdue.OverdueTestSuiteWithEmbeddedDB;
 import org.killbill.billing.overdue.api.OverdueState;
 import org.killbill.billing.overdue.caching.MockOverdueConfigCache;
 import org.killbill.billing.overdue.config.DefaultOverdueConfig;
 import org.killbill.xmlloader.XMLLoader;
+import org.mockito.Mockito;
 import org.testng.Assert;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
 public class TestOverdueWrapper extends OverdueTestSuiteWithEmbeddedDB {
 
+    @Inject
+    private OverdueBulkEvaluator overdueBulkEvaluator;
+
     @BeforeMethod(groups = "slow")
     public void beforeMethod() throws Exception {
         super.beforeMethod();
@@ -85,4 +98,25 @@ public class TestOverdueWrapper extends OverdueTestSuiteWithEmbeddedDB {
         Assert.assertEquals(result.isBlockChanges(), state.isBlockChanges());
         Assert.assertEquals(result.isDisableEntitlementAndChangesBlocked(), state.isDisableEntitlementAndChangesBlocked());
     }
+
+    @Test(groups = "slow")
+    public void testBulkRefresh() throws Exception {
+        final InputStream is = new ByteArrayInputStream(testOverdueHelper.getConfigXml().getBytes());
+        final DefaultOverdueConfig config = XMLLoader.getObjectFromStreamNoValidation(is, DefaultOverdueConfig.class);
+        ((MockOverdueConfigCache) overdueConfigCache).loadOverwriteDefaultOverdueConfig(config);
+
+        final OverdueState state = config.getOverdueStatesAccount().findState("OD2");
+        final ImmutableAccountData account = testOverdueHelper.createImmutableAccountData(clock.getUTCToday().minusDays(41));
+        final Invoice unpaidInvoice = invoiceApi.getUnpaidInvoicesByAccountId(account.getId(), clock.getUTCToday(), internalCallContext).iterator().next();
+        final Invoice futureInvoice = Mockito.mock(Invoice.class);
+        Mockito.when(futureInvoice.getTargetDate()).thenReturn(clock.getUTCToday().plusDays(1));
+
+        Mockito.when(accountApi.getImmutableAccountDataAfterRecordId(Mockito.eq(0L), Mockito.anyLong(), Mockito.<InternalTenantContext>any()))
+               .thenReturn(ImmutableMap.<Long, ImmutableAccountData>of(1L, account));
+        Mockito.when(invoiceApi.getUnpaidInvoicesByAccountRecordIds(Mockito.<Collection<Long>>any(), Mockito.<InternalTenantContext>any()))
+               .thenReturn(ImmutableMap.<UUID, Collection<Invoice>>of(account.getId(), ImmutableList.<Invoice>of(futureInvoice, unpaidInvoice)));
+
+        Assert.assertEquals(overdueBulkEvaluator.refreshAllAccounts(internalCallContext), 1);
+        testOverdueHelper.checkStateApplied(state);
+    }
 }
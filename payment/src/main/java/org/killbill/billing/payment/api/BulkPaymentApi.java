@@ -0,0 +1,36 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.payment.api;
+
+import java.util.List;
+
+import org.killbill.billing.util.callcontext.CallContext;
+
+/**
+ * Submission of many payments at once, for batch collection runs.
+ * <p/>
+ * Each purchase goes through the same (control plugins) state machine as PaymentApi#createPurchaseWithPaymentControl, but
+ * the purchases of different accounts are processed concurrently, with a limit on the number of concurrent payments per payment plugin.
+ */
+public interface BulkPaymentApi {
+
+    /**
+     * @return one result per request, in the order of the requests
+     */
+    public List<BulkPaymentResult> createPurchasesWithPaymentControl(List<BulkPurchaseRequest> requests, PaymentOptions paymentOptions, CallContext callContext);
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.payment.api;
+
+import javax.annotation.Nullable;
+
+/**
+ * Outcome of one purchase of a bulk payment request: either the payment (which may itself have failed at the gateway),
+ * or the exception which prevented it from being created.
+ */
+public class BulkPaymentResult {
+
+    private final BulkPurchaseRequest request;
+    private final Payment payment;
+    private final PaymentApiException exception;
+
+    public BulkPaymentResult(final BulkPurchaseRequest request, final Payment payment) {
+        this(request, payment, null);
+    }
+
+    public BulkPaymentResult(final BulkPurchaseRequest request, final PaymentApiException exception) {
+        this(request, null, exception);
+    }
+
+    private BulkPaymentResult(final BulkPurchaseRequest request, @Nullable final Payment payment, @Nullable final PaymentApiException exception) {
+        this.request = request;
+        this.payment = payment;
+        this.exception = exception;
+    }
+
+    public BulkPurchaseRequest getRequest() {
+        return request;
+    }
+
+    @Nullable
+    public Payment getPayment() {
+        return payment;
+    }
+
+    @Nullable
+    public PaymentApiException getException() {
+        return exception;
+    }
+
+    public boolean isSuccess() {
+        return exception == null;
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.payment.api;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import javax.annotation.Nullable;
+
+import org.killbill.billing.account.api.Account;
+import org.killbill.billing.catalog.api.Currency;
+
+/**
+ * One purchase of a bulk payment request (see BulkPaymentApi): same parameters as PaymentApi#createPurchaseWithPaymentControl.
+ */
+public class BulkPurchaseRequest {
+
+    private final Account account;
+    private final UUID paymentMethodId;
+    private final UUID paymentId;
+    private final BigDecimal amount;
+    private final Currency currency;
+    private final String paymentExternalKey;
+    private final String paymentTransactionExternalKey;
+    private final Iterable<PluginProperty> properties;
+
+    public BulkPurchaseRequest(final Account account, final UUID paymentMethodId, @Nullable final UUID paymentId, final BigDecimal amount, final Currency currency,
+                               @Nullable final String paymentExternalKey, final String paymentTransactionExternalKey, final Iterable<PluginProperty> properties) {
+        this.account = account;
+        this.paymentMethodId = paymentMethodId;
+        this.paymentId = paymentId;
+        this.amount = amount;
+        this.currency = currency;
+        this.paymentExternalKey = paymentExternalKey;
+        this.paymentTransactionExternalKey = paymentTransactionExternalKey;
+        this.properties = properties;
+    }
+
+    public Account getAccount() {
+        return account;
+    }
+
+    public UUID getPaymentMethodId() {
+        return paymentMethodId;
+    }
+
+    public UUID getPaymentId() {
+        return paymentId;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public Currency getCurrency() {
+        return currency;
+    }
+
+    public String getPaymentExternalKey() {
+        return paymentExternalKey;
+    }
+
+    public String getPaymentTransactionExternalKey() {
+        return paymentTransactionExternalKey;
+    }
+
+    public Iterable<PluginProperty> getProperties() {
+        return properties;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("BulkPurchaseRequest{");
+        sb.append("accountId=").append(account == null ? null : account.getId());
+        sb.append(", paymentMethodId=").append(paymentMethodId);
+        sb.append(", paymentId=").append(paymentId);
+        sb.append(", amount=").append(amount);
+        sb.append(", currency=").append(currency);
+        sb.append(", paymentExternalKey='").append(paymentExternalKey).append('\'');
+        sb.append(", paymentTransactionExternalKey='").append(paymentTransactionExternalKey).append('\'');
+        sb.append('}');
+        return sb.toString();
+    }
+}
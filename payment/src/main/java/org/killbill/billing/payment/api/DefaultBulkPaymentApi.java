@@ -0,0 +1,80 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.payment.api;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.inject.Inject;
+
+import org.killbill.billing.payment.core.BulkPaymentProcessor;
+import org.killbill.billing.util.callcontext.CallContext;
+import org.killbill.billing.util.config.PaymentConfig;
+
+public class DefaultBulkPaymentApi extends DefaultApiBase implements BulkPaymentApi {
+
+    private final BulkPaymentProcessor bulkPaymentProcessor;
+
+    @Inject
+    public DefaultBulkPaymentApi(final PaymentConfig paymentConfig, final BulkPaymentProcessor bulkPaymentProcessor) {
+        super(paymentConfig);
+        this.bulkPaymentProcessor = bulkPaymentProcessor;
+    }
+
+    @Override
+    public List<BulkPaymentResult> createPurchasesWithPaymentControl(final List<BulkPurchaseRequest> requests, final PaymentOptions paymentOptions, final CallContext callContext) {
+        final List<String> paymentControlPluginNames = toPaymentControlPluginNames(paymentOptions);
+
+        // Invalid requests are rejected upfront, without preventing the others from being processed
+        final List<BulkPaymentResult> results = new ArrayList<BulkPaymentResult>(requests.size());
+        final List<BulkPurchaseRequest> validRequests = new ArrayList<BulkPurchaseRequest>(requests.size());
+        for (final BulkPurchaseRequest request : requests) {
+            try {
+                checkRequest(request);
+                logAPICall(TransactionType.PURCHASE.name(), request.getAccount(), request.getPaymentMethodId(), request.getPaymentId(), null, request.getAmount(), request.getCurrency(),
+                           request.getPaymentExternalKey(), request.getPaymentTransactionExternalKey());
+                validRequests.add(request);
+                results.add(null);
+            } catch (final PaymentApiException e) {
+                results.add(new BulkPaymentResult(request, e));
+            }
+        }
+
+        final List<BulkPaymentResult> processedResults = bulkPaymentProcessor.createPurchases(validRequests, paymentControlPluginNames, callContext);
+        int processedIndex = 0;
+        for (int i = 0; i < results.size(); i++) {
+            if (results.get(i) == null) {
+                results.set(i, processedResults.get(processedIndex++));
+            }
+        }
+        return results;
+    }
+
+    private void checkRequest(final BulkPurchaseRequest request) throws PaymentApiException {
+        checkNotNullParameter(request.getAccount(), "account");
+        // Unlike createPurchaseWithPaymentControl, external payment methods aren't created on the fly
+        checkNotNullParameter(request.getPaymentMethodId(), "paymentMethodId");
+        if (request.getPaymentId() == null) {
+            checkNotNullParameter(request.getAmount(), "amount");
+            checkPositiveAmount(request.getAmount());
+            checkNotNullParameter(request.getCurrency(), "currency");
+        }
+        checkNotNullParameter(request.getPaymentTransactionExternalKey(), "paymentTransactionExternalKey");
+        checkNotNullParameter(request.getProperties(), "plugin properties");
+    }
+}
@@ -0,0 +1,279 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.payment.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import javax.inject.Inject;
+
+import org.apache.shiro.util.ThreadContext;
+import org.joda.time.DateTime;
+import org.killbill.billing.ErrorCode;
+import org.killbill.billing.account.api.AccountInternalApi;
+import org.killbill.billing.callcontext.InternalCallContext;
+import org.killbill.billing.invoice.api.InvoiceInternalApi;
+import org.killbill.billing.osgi.api.OSGIServiceRegistration;
+import org.killbill.billing.payment.api.BulkPaymentResult;
+import org.killbill.billing.payment.api.BulkPurchaseRequest;
+import org.killbill.billing.payment.api.Payment;
+import org.killbill.billing.payment.api.PaymentApiException;
+import org.killbill.billing.payment.api.PluginProperty;
+import org.killbill.billing.payment.api.TransactionType;
+import org.killbill.billing.payment.core.sm.PaymentControlStateMachineHelper;
+import org.killbill.billing.payment.dao.PaymentAttemptModelDao;
+import org.killbill.billing.payment.dao.PaymentDao;
+import org.killbill.billing.payment.dao.PluginPropertySerializer;
+import org.killbill.billing.payment.dao.PluginPropertySerializer.PluginPropertySerializerException;
+import org.killbill.billing.payment.dispatcher.CallableWithRequestData;
+import org.killbill.billing.payment.plugin.api.PaymentPluginApi;
+import org.killbill.billing.tag.TagInternalApi;
+import org.killbill.billing.util.UUIDs;
+import org.killbill.billing.util.cache.CacheControllerDispatcher;
+import org.killbill.billing.util.callcontext.CallContext;
+import org.killbill.billing.util.callcontext.InternalCallContextFactory;
+import org.killbill.billing.util.config.PaymentConfig;
+import org.killbill.clock.Clock;
+import org.killbill.commons.locker.GlobalLocker;
+import org.killbill.commons.request.Request;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Runs the purchases of a bulk payment request through the regular payment state machines:
+ * the purchases of a given account are processed sequentially (they would contend for the account lock anyway),
+ * while different accounts are processed concurrently on the bulk payment executor, with at most
+ * getBulkPaymentMaxConcurrentPaymentsPerPlugin() payments in flight per payment plugin.
+ * <p/>
+ * When control plugins are involved, the attempts of the new payments of an account are created in a single transaction, right
+ * before that account's payments are processed (the janitor aborts the attempts left in the initial state after
+ * org.killbill.payment.janitor.attempts.delay). The payment transactions are still created by each payment, as they need to be
+ * committed before the payment plugin is called.
+ */
+public class BulkPaymentProcessor extends ProcessorBase {
+
+    private static final boolean IS_API_PAYMENT = true;
+    private static final boolean SHOULD_LOCK_ACCOUNT = true;
+    private static final UUID NULL_ATTEMPT_ID = null;
+
+    private final PaymentProcessor paymentProcessor;
+    private final PluginControlPaymentProcessor pluginControlPaymentProcessor;
+    private final PaymentExecutors paymentExecutors;
+    private final PaymentConfig paymentConfig;
+    private final PaymentControlStateMachineHelper paymentControlStateMachineHelper;
+    private final ConcurrentMap<String, ResizableSemaphore> permitsByPluginName = new ConcurrentHashMap<String, ResizableSemaphore>();
+
+    @Inject
+    public BulkPaymentProcessor(final OSGIServiceRegistration<PaymentPluginApi> pluginRegistry,
+                                final AccountInternalApi accountInternalApi,
+                                final InvoiceInternalApi invoiceApi,
+                                final TagInternalApi tagUserApi,
+                                final PaymentDao paymentDao,
+                                final GlobalLocker locker,
+                                final InternalCallContextFactory internalCallContextFactory,
+                                final PaymentProcessor paymentProcessor,
+                                final PluginControlPaymentProcessor pluginControlPaymentProcessor,
+                                final PaymentExecutors paymentExecutors,
+                                final PaymentConfig paymentConfig,
+                                final PaymentControlStateMachineHelper paymentControlStateMachineHelper,
+                                final CacheControllerDispatcher cacheControllerDispatcher,
+                                final Clock clock) {
+        super(pluginRegistry, accountInternalApi, paymentDao, tagUserApi, locker, internalCallContextFactory, invoiceApi, cacheControllerDispatcher, clock);
+        this.paymentProcessor = paymentProcessor;
+        this.pluginControlPaymentProcessor = pluginControlPaymentProcessor;
+        this.paymentExecutors = paymentExecutors;
+        this.paymentConfig = paymentConfig;
+        this.paymentControlStateMachineHelper = paymentControlStateMachineHelper;
+    }
+
+    public List<BulkPaymentResult> createPurchases(final List<BulkPurchaseRequest> requests, final List<String> paymentControlPluginNames, final CallContext callContext) {
+        final Map<UUID, List<Integer>> requestIndexesByAccountId = new LinkedHashMap<UUID, List<Integer>>();
+        for (int i = 0; i < requests.size(); i++) {
+            final UUID accountId = requests.get(i).getAccount().getId();
+            if (requestIndexesByAccountId.get(accountId) == null) {
+                requestIndexesByAccountId.put(accountId, new LinkedList<Integer>());
+            }
+            requestIndexesByAccountId.get(accountId).add(i);
+        }
+
+        final BulkPaymentResult[] results = new BulkPaymentResult[requests.size()];
+
+        final ExecutorService bulkPaymentExecutor = paymentExecutors.getBulkPaymentExecutorService();
+        final List<Future<Void>> futures = new ArrayList<Future<Void>>(requestIndexesByAccountId.size());
+        for (final Map.Entry<UUID, List<Integer>> entry : requestIndexesByAccountId.entrySet()) {
+            final Callable<Void> task = new Callable<Void>() {
+                @Override
+                public Void call() {
+                    final InternalCallContext internalCallContext = internalCallContextFactory.createInternalCallContext(entry.getKey(), callContext);
+                    final Map<Integer, PaymentAttemptModelDao> attempts = createPaymentAttempts(requests, entry.getValue(), paymentControlPluginNames, internalCallContext);
+                    for (final Integer index : entry.getValue()) {
+                        results[index] = createPurchase(requests.get(index), attempts.get(index), paymentControlPluginNames, callContext, internalCallContext);
+                    }
+                    return null;
+                }
+            };
+            // Wrap the callable to keep the original requestId
+            futures.add(bulkPaymentExecutor.submit(new CallableWithRequestData<Void>(Request.getPerThreadRequestData(), ThreadContext.getSecurityManager(), ThreadContext.getSubject(), task)));
+        }
+
+        for (final Future<Void> future : futures) {
+            try {
+                future.get();
+            } catch (final ExecutionException e) {
+                log.warn("Unexpected failure while processing bulk payments", e.getCause());
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.warn("Interrupted while waiting for bulk payments, cancelling the remaining ones");
+                for (final Future<Void> futureToCancel : futures) {
+                    futureToCancel.cancel(true);
+                }
+                break;
+            }
+        }
+
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] == null) {
+                results[i] = new BulkPaymentResult(requests.get(i), new PaymentApiException(ErrorCode.PAYMENT_INTERNAL_ERROR, "Bulk payment request wasn't processed"));
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    // Returns the attempts created for the requests of a given account, by request index (missing entries being left to the regular path)
+    private Map<Integer, PaymentAttemptModelDao> createPaymentAttempts(final List<BulkPurchaseRequest> requests, final List<Integer> requestIndexes, final List<String> paymentControlPluginNames, final InternalCallContext internalCallContext) {
+        final Map<Integer, PaymentAttemptModelDao> attempts = new LinkedHashMap<Integer, PaymentAttemptModelDao>();
+        if (paymentControlPluginNames.isEmpty()) {
+            return attempts;
+        }
+
+        final byte[] serializedProperties;
+        try {
+            // As in DefaultControlInitiated, we don't serialize any properties at this stage to avoid serializing sensitive information
+            serializedProperties = PluginPropertySerializer.serialize(ImmutableList.<PluginProperty>of());
+        } catch (final PluginPropertySerializerException e) {
+            log.warn("Unable to serialize bulk payment attempt properties, attempts will be created by each payment", e);
+            return attempts;
+        }
+
+        final DateTime utcNow = clock.getUTCNow();
+        for (final Integer index : requestIndexes) {
+            final BulkPurchaseRequest request = requests.get(index);
+            // Payments being completed go through the regular path, which needs to look up the existing payment
+            if (request.getPaymentId() != null) {
+                continue;
+            }
+            final String paymentExternalKey = request.getPaymentExternalKey() != null ? request.getPaymentExternalKey() : UUIDs.randomUUID().toString();
+            final String transactionExternalKey = request.getPaymentTransactionExternalKey() != null ? request.getPaymentTransactionExternalKey() : UUIDs.randomUUID().toString();
+            attempts.put(index, new PaymentAttemptModelDao(request.getAccount().getId(), request.getPaymentMethodId(), utcNow, utcNow, paymentExternalKey, null,
+                                                           transactionExternalKey, TransactionType.PURCHASE, paymentControlStateMachineHelper.getInitialState().getName(),
+                                                           request.getAmount(), request.getCurrency(), paymentControlPluginNames, serializedProperties));
+        }
+        if (attempts.isEmpty()) {
+            return attempts;
+        }
+
+        try {
+            final UUID accountId = requests.get(requestIndexes.get(0)).getAccount().getId();
+            paymentDao.insertPaymentAttemptsWithProperties(ImmutableList.<PaymentAttemptModelDao>copyOf(attempts.values()), ImmutableMap.<UUID, InternalCallContext>of(accountId, internalCallContext));
+        } catch (final RuntimeException e) {
+            log.warn("Unable to create bulk payment attempts, attempts will be created by each payment", e);
+            return new HashMap<Integer, PaymentAttemptModelDao>();
+        }
+        return attempts;
+    }
+
+    private BulkPaymentResult createPurchase(final BulkPurchaseRequest request, final PaymentAttemptModelDao attempt, final List<String> paymentControlPluginNames, final CallContext callContext, final InternalCallContext internalCallContext) {
+        final Semaphore permits;
+        try {
+            permits = getPermits(getPaymentProviderPluginName(request.getPaymentMethodId(), internalCallContext));
+        } catch (final PaymentApiException e) {
+            return new BulkPaymentResult(request, e);
+        }
+
+        try {
+            permits.acquire();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new BulkPaymentResult(request, new PaymentApiException(ErrorCode.PAYMENT_INTERNAL_ERROR, "Interrupted while waiting to process bulk payment request"));
+        }
+        try {
+            final Payment payment;
+            if (paymentControlPluginNames.isEmpty()) {
+                payment = paymentProcessor.createPurchase(IS_API_PAYMENT, NULL_ATTEMPT_ID, request.getAccount(), request.getPaymentMethodId(), request.getPaymentId(), request.getAmount(), request.getCurrency(),
+                                                          request.getPaymentExternalKey(), request.getPaymentTransactionExternalKey(), SHOULD_LOCK_ACCOUNT, request.getProperties(), callContext, internalCallContext);
+            } else if (attempt != null) {
+                payment = pluginControlPaymentProcessor.createPurchase(IS_API_PAYMENT, attempt, request.getAccount(), request.getProperties(), callContext, internalCallContext);
+            } else {
+                payment = pluginControlPaymentProcessor.createPurchase(IS_API_PAYMENT, request.getAccount(), request.getPaymentMethodId(), request.getPaymentId(), request.getAmount(), request.getCurrency(),
+                                                                       request.getPaymentExternalKey(), request.getPaymentTransactionExternalKey(), request.getProperties(), paymentControlPluginNames, callContext, internalCallContext);
+            }
+            return new BulkPaymentResult(request, payment);
+        } catch (final PaymentApiException e) {
+            return new BulkPaymentResult(request, e);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private Semaphore getPermits(final String pluginName) {
+        final int maxConcurrentPayments = paymentConfig.getBulkPaymentMaxConcurrentPaymentsPerPlugin();
+        ResizableSemaphore permits = permitsByPluginName.get(pluginName);
+        if (permits == null) {
+            permitsByPluginName.putIfAbsent(pluginName, new ResizableSemaphore(maxConcurrentPayments));
+            permits = permitsByPluginName.get(pluginName);
+        }
+        // Pick up config changes
+        permits.resize(maxConcurrentPayments);
+        return permits;
+    }
+
+    // Payments in flight keep their permits when shrinking: the new size is effective once enough of them have been released
+    private static final class ResizableSemaphore extends Semaphore {
+
+        private int size;
+
+        private ResizableSemaphore(final int size) {
+            super(size, true);
+            this.size = size;
+        }
+
+        private synchronized void resize(final int newSize) {
+            final int delta = newSize - size;
+            if (delta > 0) {
+                release(delta);
+            } else if (delta < 0) {
+                reducePermits(-delta);
+            }
+            size = newSize;
+        }
+    }
+}
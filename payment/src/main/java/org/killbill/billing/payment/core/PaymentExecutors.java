@@ -40,11 +40,14 @@ public class PaymentExecutors {
 
     public static final String JANITOR_EXECUTOR_NAMED = "JanitorExecutor";
     public static final String PLUGIN_EXECUTOR_NAMED = "PluginExecutor";
+    public static final String BULK_PAYMENT_EXECUTOR_NAMED = "BulkPaymentExecutor";
 
     private final PaymentConfig paymentConfig;
 
     private volatile ExecutorService pluginExecutorService;
     private volatile ScheduledExecutorService janitorExecutorService;
+    private volatile ExecutorService bulkPaymentExecutorService;
+    private volatile ExecutorService controlObserverExecutorService;
 
     @Inject
     public PaymentExecutors(PaymentConfig paymentConfig) {
@@ -55,18 +58,28 @@ public class PaymentExecutors {
     public void initialize() {
         this.pluginExecutorService = createPluginExecutorService();
         this.janitorExecutorService = createJanitorExecutorService();
+        this.bulkPaymentExecutorService = createBulkPaymentExecutorService();
+        this.controlObserverExecutorService = createControlObserverExecutorService();
     }
 
 
     public void stop() throws InterruptedException {
         pluginExecutorService.shutdownNow();
         janitorExecutorService.shutdownNow();
+        bulkPaymentExecutorService.shutdownNow();
+        controlObserverExecutorService.shutdownNow();
 
         pluginExecutorService.awaitTermination(TIMEOUT_EXECUTOR_SEC, TimeUnit.SECONDS);
         pluginExecutorService = null;
 
         janitorExecutorService.awaitTermination(TIMEOUT_EXECUTOR_SEC, TimeUnit.SECONDS);
         janitorExecutorService = null;
+
+        bulkPaymentExecutorService.awaitTermination(TIMEOUT_EXECUTOR_SEC, TimeUnit.SECONDS);
+        bulkPaymentExecutorService = null;
+
+        controlObserverExecutorService.awaitTermination(TIMEOUT_EXECUTOR_SEC, TimeUnit.SECONDS);
+        controlObserverExecutorService = null;
     }
 
     public ExecutorService getPluginExecutorService() {
@@ -77,6 +90,14 @@ public class PaymentExecutors {
         return janitorExecutorService;
     }
 
+    public ExecutorService getBulkPaymentExecutorService() {
+        return bulkPaymentExecutorService;
+    }
+
+    public ExecutorService getControlObserverExecutorService() {
+        return controlObserverExecutorService;
+    }
+
     private ExecutorService createPluginExecutorService() {
         final int minThreadNb = DEFAULT_MIN_PLUGIN_THREADS < paymentConfig.getPaymentPluginThreadNb() ? DEFAULT_MIN_PLUGIN_THREADS : paymentConfig.getPaymentPluginThreadNb();
         return new WithProfilingThreadPoolExecutor(minThreadNb,
@@ -99,4 +120,15 @@ public class PaymentExecutors {
     private ScheduledExecutorService createJanitorExecutorService() {
         return Executors.newSingleThreadScheduledExecutor("PaymentJanitor");
     }
+
+    // Separate from the plugin executor, as the payments submitted here dispatch their plugin calls to the latter
+    private ExecutorService createBulkPaymentExecutorService() {
+        return Executors.newFixedThreadPool(paymentConfig.getBulkPaymentThreadNb(), "PaymentBulk");
+    }
+
+    // Separate from the plugin executor, as the control plugins are often invoked from one of its threads: observers queued
+    // behind their own callers would otherwise only run once these have given up waiting for them
+    private ExecutorService createControlObserverExecutorService() {
+        return Executors.newFixedThreadPool(paymentConfig.getPaymentControlObserverThreadNb(), "PaymentControlObserver");
+    }
 }
@@ -52,6 +52,7 @@ import org.killbill.billing.payment.provider.DefaultPaymentMethodInfoPlugin;
 import org.killbill.billing.payment.provider.ExternalPaymentProviderPlugin;
 import org.killbill.billing.tag.TagInternalApi;
 import org.killbill.billing.util.UUIDs;
+import org.killbill.billing.util.cache.CacheControllerDispatcher;
 import org.killbill.billing.util.callcontext.CallContext;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
 import org.killbill.billing.util.callcontext.TenantContext;
@@ -96,8 +97,9 @@ public class PaymentMethodProcessor extends ProcessorBase {
                                   final PaymentConfig paymentConfig,
                                   final PaymentExecutors executors,
                                   final InternalCallContextFactory internalCallContextFactory,
+                                  final CacheControllerDispatcher cacheControllerDispatcher,
                                   final Clock clock) {
-        super(pluginRegistry, accountInternalApi, paymentDao, tagUserApi, locker, internalCallContextFactory, invoiceApi, clock);
+        super(pluginRegistry, accountInternalApi, paymentDao, tagUserApi, locker, internalCallContextFactory, invoiceApi, cacheControllerDispatcher, clock);
         final long paymentPluginTimeoutSec = TimeUnit.SECONDS.convert(paymentConfig.getPaymentPluginTimeout().getPeriod(), paymentConfig.getPaymentPluginTimeout().getUnit());
         this.paymentConfig = paymentConfig;
         this.uuidPluginNotificationDispatcher = new PluginDispatcher<UUID>(paymentPluginTimeoutSec, executors);
@@ -422,6 +424,7 @@ public class PaymentMethodProcessor extends ProcessorBase {
                         final PaymentPluginApi pluginApi = getPluginApi(paymentMethodId, context);
                         pluginApi.deletePaymentMethod(account.getId(), paymentMethodId, properties, callContext);
                         paymentDao.deletedPaymentMethod(paymentMethodId, context);
+                        invalidatePaymentProviderPluginName(paymentMethodId);
                         return PluginDispatcher.createPluginDispatcherReturnType(null);
                     } catch (final PaymentPluginApiException e) {
                         log.warn("Error deleting payment method " + paymentMethodId, e);
@@ -538,6 +541,9 @@ public class PaymentMethodProcessor extends ProcessorBase {
                                                                                                                  pluginName,
                                                                                                                  finalPaymentMethods,
                                                                                                                  context);
+                    for (final PaymentMethodModelDao refreshedPaymentMethod : finalPaymentMethods) {
+                        invalidatePaymentProviderPluginName(refreshedPaymentMethod.getId());
+                    }
 
                     try {
                         pluginApi.resetPaymentMethods(account.getId(), pluginPmsWithId, properties, callContext);
@@ -19,18 +19,29 @@
 package org.killbill.billing.payment.core;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import javax.annotation.Nullable;
 import javax.inject.Inject;
 
+import org.apache.shiro.util.ThreadContext;
 import org.killbill.automaton.OperationResult;
 import org.killbill.billing.ErrorCode;
 import org.killbill.billing.account.api.Account;
@@ -53,28 +64,34 @@ import org.killbill.billing.payment.core.sm.PaymentAutomatonRunner;
 import org.killbill.billing.payment.dao.PaymentDao;
 import org.killbill.billing.payment.dao.PaymentModelDao;
 import org.killbill.billing.payment.dao.PaymentTransactionModelDao;
+import org.killbill.billing.payment.dispatcher.CallableWithRequestData;
 import org.killbill.billing.payment.plugin.api.PaymentPluginApi;
 import org.killbill.billing.payment.plugin.api.PaymentPluginApiException;
 import org.killbill.billing.payment.plugin.api.PaymentTransactionInfoPlugin;
 import org.killbill.billing.tag.TagInternalApi;
+import org.killbill.billing.util.cache.CacheControllerDispatcher;
 import org.killbill.billing.util.callcontext.CallContext;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
 import org.killbill.billing.util.callcontext.TenantContext;
+import org.killbill.billing.util.config.PaymentConfig;
 import org.killbill.billing.util.entity.DefaultPagination;
 import org.killbill.billing.util.entity.Pagination;
 import org.killbill.billing.util.entity.dao.DefaultPaginationHelper.EntityPaginationBuilder;
 import org.killbill.billing.util.entity.dao.DefaultPaginationHelper.SourcePaginationBuilder;
 import org.killbill.clock.Clock;
 import org.killbill.commons.locker.GlobalLocker;
+import org.killbill.commons.request.Request;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Function;
 import com.google.common.base.Predicate;
+import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Iterators;
-import com.google.common.collect.Lists;
+import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Ordering;
 
 import static org.killbill.billing.util.entity.dao.DefaultPaginationHelper.getEntityPagination;
@@ -86,6 +103,8 @@ public class PaymentProcessor extends ProcessorBase {
 
     private final PaymentAutomatonRunner paymentAutomatonRunner;
     private final IncompletePaymentTransactionTask incompletePaymentTransactionTask;
+    private final PaymentExecutors paymentExecutors;
+    private final PaymentConfig paymentConfig;
 
     private static final Logger log = LoggerFactory.getLogger(PaymentProcessor.class);
 
@@ -99,10 +118,15 @@ public class PaymentProcessor extends ProcessorBase {
                             final GlobalLocker locker,
                             final PaymentAutomatonRunner paymentAutomatonRunner,
                             final IncompletePaymentTransactionTask incompletePaymentTransactionTask,
+                            final PaymentExecutors paymentExecutors,
+                            final PaymentConfig paymentConfig,
+                            final CacheControllerDispatcher cacheControllerDispatcher,
                             final Clock clock) {
-        super(pluginRegistry, accountUserApi, paymentDao, tagUserApi, locker, internalCallContextFactory, invoiceApi, clock);
+        super(pluginRegistry, accountUserApi, paymentDao, tagUserApi, locker, internalCallContextFactory, invoiceApi, cacheControllerDispatcher, clock);
         this.paymentAutomatonRunner = paymentAutomatonRunner;
         this.incompletePaymentTransactionTask = incompletePaymentTransactionTask;
+        this.paymentExecutors = paymentExecutors;
+        this.paymentConfig = paymentConfig;
     }
 
     public Payment createAuthorization(final boolean isApiPayment, @Nullable final UUID attemptId, final Account account, @Nullable final UUID paymentMethodId, @Nullable final UUID paymentId, final BigDecimal amount, final Currency currency,
@@ -162,32 +186,94 @@ public class PaymentProcessor extends ProcessorBase {
         final List<PaymentModelDao> paymentsModelDao = paymentDao.getPaymentsForAccount(accountId, tenantContext);
         final List<PaymentTransactionModelDao> transactionsModelDao = paymentDao.getTransactionsForAccount(accountId, tenantContext);
 
+        // Group the transactions once, instead of filtering the account transactions for each payment
+        final ListMultimap<UUID, PaymentTransactionModelDao> transactionsByPaymentId = ArrayListMultimap.<UUID, PaymentTransactionModelDao>create();
+        for (final PaymentTransactionModelDao transactionModelDao : transactionsModelDao) {
+            transactionsByPaymentId.put(transactionModelDao.getPaymentId(), transactionModelDao);
+        }
+
+        final Map<UUID, List<PaymentTransactionInfoPlugin>> pluginInfoByPaymentId = withPluginInfo ? getPaymentTransactionInfoPluginsByPaymentId(paymentsModelDao, context, tenantContext) : ImmutableMap.<UUID, List<PaymentTransactionInfoPlugin>>of();
+
+        final List<Payment> payments = new ArrayList<Payment>(paymentsModelDao.size());
+        for (final PaymentModelDao paymentModelDao : paymentsModelDao) {
+            payments.add(toPayment(paymentModelDao, transactionsByPaymentId.get(paymentModelDao.getId()), pluginInfoByPaymentId.get(paymentModelDao.getId()), tenantContext));
+        }
+        return payments;
+    }
+
+    // Used in bulk get API (getAccountPayments): the plugins are invoked concurrently, all calls sharing the same deadline.
+    // The plugin executor is shared with the payment calls: the number of calls in flight for a given request is bounded,
+    // so that an account with many payments doesn't queue up work ahead of them.
+    private Map<UUID, List<PaymentTransactionInfoPlugin>> getPaymentTransactionInfoPluginsByPaymentId(final Iterable<PaymentModelDao> paymentsModelDao, final TenantContext context, final InternalTenantContext tenantContext) {
         final Map<UUID, PaymentPluginApi> paymentPluginByPaymentMethodId = new HashMap<UUID, PaymentPluginApi>();
         final Collection<UUID> absentPlugins = new HashSet<UUID>();
-        return Lists.<PaymentModelDao, Payment>transform(paymentsModelDao,
-                                                         new Function<PaymentModelDao, Payment>() {
-                                                             @Override
-                                                             public Payment apply(final PaymentModelDao paymentModelDao) {
-                                                                 List<PaymentTransactionInfoPlugin> pluginInfo = null;
-
-                                                                 if (withPluginInfo) {
-                                                                     PaymentPluginApi pluginApi = paymentPluginByPaymentMethodId.get(paymentModelDao.getPaymentMethodId());
-                                                                     if (pluginApi == null && !absentPlugins.contains(paymentModelDao.getPaymentMethodId())) {
-                                                                         try {
-                                                                             pluginApi = getPaymentProviderPlugin(paymentModelDao.getPaymentMethodId(), tenantContext);
-                                                                             paymentPluginByPaymentMethodId.put(paymentModelDao.getPaymentMethodId(), pluginApi);
-                                                                         } catch (final PaymentApiException e) {
-                                                                             log.warn("Unable to retrieve pluginApi for payment method " + paymentModelDao.getPaymentMethodId());
-                                                                             absentPlugins.add(paymentModelDao.getPaymentMethodId());
-                                                                         }
-                                                                     }
-
-                                                                     pluginInfo = getPaymentTransactionInfoPluginsIfNeeded(pluginApi, paymentModelDao, context);
-                                                                 }
-
-                                                                 return toPayment(paymentModelDao, transactionsModelDao, pluginInfo, tenantContext);
-                                                             }
-                                                         });
+
+        final ExecutorService pluginExecutor = paymentExecutors.getPluginExecutorService();
+        final Semaphore permits = new Semaphore(paymentConfig.getPaymentPluginInfoMaxConcurrentCalls());
+        final long deadlineNanos = System.nanoTime() + TimeUnit.NANOSECONDS.convert(paymentConfig.getPaymentPluginTimeout().getPeriod(), paymentConfig.getPaymentPluginTimeout().getUnit());
+        final Map<UUID, Future<List<PaymentTransactionInfoPlugin>>> futures = new LinkedHashMap<UUID, Future<List<PaymentTransactionInfoPlugin>>>();
+        for (final PaymentModelDao paymentModelDao : paymentsModelDao) {
+            PaymentPluginApi pluginApi = paymentPluginByPaymentMethodId.get(paymentModelDao.getPaymentMethodId());
+            if (pluginApi == null && !absentPlugins.contains(paymentModelDao.getPaymentMethodId())) {
+                try {
+                    pluginApi = getPaymentProviderPlugin(paymentModelDao.getPaymentMethodId(), tenantContext);
+                    paymentPluginByPaymentMethodId.put(paymentModelDao.getPaymentMethodId(), pluginApi);
+                } catch (final PaymentApiException e) {
+                    log.warn("Unable to retrieve pluginApi for payment method " + paymentModelDao.getPaymentMethodId());
+                    absentPlugins.add(paymentModelDao.getPaymentMethodId());
+                }
+            }
+            if (pluginApi == null) {
+                continue;
+            }
+
+            try {
+                if (!permits.tryAcquire(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                    log.warn("Timeout while retrieving plugin info, skipping payment " + paymentModelDao.getId() + " and the following ones");
+                    break;
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.warn("Interrupted while retrieving plugin info, skipping payment " + paymentModelDao.getId() + " and the following ones");
+                break;
+            }
+
+            final PaymentPluginApi paymentPluginApi = pluginApi;
+            final Callable<List<PaymentTransactionInfoPlugin>> task = new Callable<List<PaymentTransactionInfoPlugin>>() {
+                @Override
+                public List<PaymentTransactionInfoPlugin> call() {
+                    try {
+                        return getPaymentTransactionInfoPluginsIfNeeded(paymentPluginApi, paymentModelDao, context);
+                    } finally {
+                        permits.release();
+                    }
+                }
+            };
+            try {
+                // Wrap the callable to keep the original requestId
+                futures.put(paymentModelDao.getId(), pluginExecutor.submit(new CallableWithRequestData<List<PaymentTransactionInfoPlugin>>(Request.getPerThreadRequestData(), ThreadContext.getSecurityManager(), ThreadContext.getSubject(), task)));
+            } catch (final RuntimeException e) {
+                permits.release();
+                log.warn("Unable to retrieve plugin info for payment " + paymentModelDao.getId(), e);
+            }
+        }
+
+        final Map<UUID, List<PaymentTransactionInfoPlugin>> pluginInfoByPaymentId = new HashMap<UUID, List<PaymentTransactionInfoPlugin>>();
+        for (final Entry<UUID, Future<List<PaymentTransactionInfoPlugin>>> entry : futures.entrySet()) {
+            try {
+                pluginInfoByPaymentId.put(entry.getKey(), entry.getValue().get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS));
+            } catch (final TimeoutException e) {
+                log.warn("Timeout while retrieving plugin info for payment " + entry.getKey());
+                entry.getValue().cancel(true);
+            } catch (final ExecutionException e) {
+                log.warn("Unable to retrieve plugin info for payment " + entry.getKey(), e.getCause());
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.warn("Interrupted while retrieving plugin info for payment " + entry.getKey());
+                entry.getValue().cancel(true);
+            }
+        }
+        return pluginInfoByPaymentId;
     }
 
     public Payment getPayment(final UUID paymentId, final boolean withPluginInfo, final Iterable<PluginProperty> properties, final TenantContext tenantContext, final InternalTenantContext internalTenantContext) throws PaymentApiException {
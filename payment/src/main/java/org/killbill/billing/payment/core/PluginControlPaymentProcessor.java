@@ -47,6 +47,7 @@ import org.killbill.billing.payment.dao.PluginPropertySerializer;
 import org.killbill.billing.payment.dao.PluginPropertySerializer.PluginPropertySerializerException;
 import org.killbill.billing.payment.plugin.api.PaymentPluginApi;
 import org.killbill.billing.tag.TagInternalApi;
+import org.killbill.billing.util.cache.CacheControllerDispatcher;
 import org.killbill.billing.util.callcontext.CallContext;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
 import org.killbill.clock.Clock;
@@ -72,8 +73,9 @@ public class PluginControlPaymentProcessor extends ProcessorBase {
                                          final InternalCallContextFactory internalCallContextFactory,
                                          final PluginControlPaymentAutomatonRunner pluginControlledPaymentAutomatonRunner,
                                          final PaymentControlStateMachineHelper paymentControlStateMachineHelper,
+                                         final CacheControllerDispatcher cacheControllerDispatcher,
                                          final Clock clock) {
-        super(pluginRegistry, accountInternalApi, paymentDao, tagUserApi, locker, internalCallContextFactory, invoiceApi, clock);
+        super(pluginRegistry, accountInternalApi, paymentDao, tagUserApi, locker, internalCallContextFactory, invoiceApi, cacheControllerDispatcher, clock);
         this.paymentControlStateMachineHelper = paymentControlStateMachineHelper;
         this.pluginControlledPaymentAutomatonRunner = pluginControlledPaymentAutomatonRunner;
     }
@@ -129,6 +131,12 @@ public class PluginControlPaymentProcessor extends ProcessorBase {
                                                           callContext, internalCallContext);
     }
 
+    // The attempt must have been created ahead of time, in the initial state
+    public Payment createPurchase(final boolean isApiPayment, final PaymentAttemptModelDao attempt, final Account account, final Iterable<PluginProperty> properties,
+                                  final CallContext callContext, final InternalCallContext internalCallContext) throws PaymentApiException {
+        return pluginControlledPaymentAutomatonRunner.run(attempt, isApiPayment, account, properties, callContext, internalCallContext);
+    }
+
     public Payment createVoid(final boolean isApiPayment, final Account account, final UUID paymentId, final String transactionExternalKey,
                               final Iterable<PluginProperty> properties, final List<String> paymentControlPluginNames, final CallContext callContext, final InternalCallContext internalCallContext) throws PaymentApiException {
         return pluginControlledPaymentAutomatonRunner.run(isApiPayment,
@@ -231,6 +239,18 @@ public class PluginControlPaymentProcessor extends ProcessorBase {
         }
     }
 
+    public String getRetryPaymentPluginName(final UUID attemptId, final InternalCallContext internalCallContext) {
+        try {
+            final PaymentAttemptModelDao attempt = paymentDao.getPaymentAttempt(attemptId, internalCallContext);
+            if (attempt == null || attempt.getPaymentMethodId() == null) {
+                return null;
+            }
+            return getPaymentProviderPluginName(attempt.getPaymentMethodId(), internalCallContext);
+        } catch (final PaymentApiException e) {
+            return null;
+        }
+    }
+
     private String toPluginNamesOnError(final String prefixMessage, final Collection<String> paymentControlPluginNames) {
         if (paymentControlPluginNames == null || paymentControlPluginNames.isEmpty()) {
             return "";
@@ -40,6 +40,11 @@ import org.killbill.billing.payment.dispatcher.PluginDispatcher.PluginDispatcher
 import org.killbill.billing.payment.plugin.api.PaymentPluginApi;
 import org.killbill.billing.tag.TagInternalApi;
 import org.killbill.billing.util.api.TagApiException;
+import org.killbill.billing.util.cache.Cachable.CacheType;
+import org.killbill.billing.util.cache.CacheController;
+import org.killbill.billing.util.cache.CacheControllerDispatcher;
+import org.killbill.billing.util.cache.CacheLoaderArgument;
+import org.killbill.billing.util.cache.PaymentMethodPluginNameCacheLoader;
 import org.killbill.billing.util.callcontext.CallContext;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
 import org.killbill.billing.util.callcontext.TenantContext;
@@ -69,6 +74,7 @@ public abstract class ProcessorBase {
 
     protected static final Logger log = LoggerFactory.getLogger(ProcessorBase.class);
     protected final InvoiceInternalApi invoiceApi;
+    protected final CacheController<Object, Object> paymentMethodPluginNameCacheController;
 
     public ProcessorBase(final OSGIServiceRegistration<PaymentPluginApi> pluginRegistry,
                          final AccountInternalApi accountInternalApi,
@@ -77,6 +83,7 @@ public abstract class ProcessorBase {
                          final GlobalLocker locker,
                          final InternalCallContextFactory internalCallContextFactory,
                          final InvoiceInternalApi invoiceApi,
+                         final CacheControllerDispatcher cacheControllerDispatcher,
                          final Clock clock) {
         this.pluginRegistry = pluginRegistry;
         this.accountInternalApi = accountInternalApi;
@@ -85,6 +92,7 @@ public abstract class ProcessorBase {
         this.tagInternalApi = tagInternalApi;
         this.internalCallContextFactory = internalCallContextFactory;
         this.invoiceApi = invoiceApi;
+        this.paymentMethodPluginNameCacheController = cacheControllerDispatcher.getCacheController(CacheType.PAYMENT_METHOD_PLUGIN_NAME);
         this.clock = clock;
     }
 
@@ -127,12 +135,31 @@ public abstract class ProcessorBase {
     }
 
     protected String getPaymentProviderPluginName(final UUID paymentMethodId, final InternalTenantContext context) throws PaymentApiException {
-        final PaymentMethodModelDao methodDao = paymentDao.getPaymentMethodIncludedDeleted(paymentMethodId, context);
-        if (methodDao == null) {
+        // The plugin of a payment method never changes (deleted payment methods included), so avoid the database round trip
+        final String pluginName = (String) paymentMethodPluginNameCacheController.get(paymentMethodId, createPaymentMethodPluginNameCacheLoaderArgument(context));
+        if (pluginName == null) {
             log.error("PaymentMethod does not exist", paymentMethodId);
             throw new PaymentApiException(ErrorCode.PAYMENT_NO_SUCH_PAYMENT_METHOD, paymentMethodId);
         }
-        return methodDao.getPluginName();
+        return pluginName;
+    }
+
+    protected void invalidatePaymentProviderPluginName(final UUID paymentMethodId) {
+        paymentMethodPluginNameCacheController.remove(paymentMethodId);
+    }
+
+    private CacheLoaderArgument createPaymentMethodPluginNameCacheLoaderArgument(final InternalTenantContext context) {
+        final PaymentMethodPluginNameCacheLoader.LoaderCallback loaderCallback = new PaymentMethodPluginNameCacheLoader.LoaderCallback() {
+            @Override
+            public Object loadPluginName(final UUID paymentMethodId, final InternalTenantContext context) {
+                final PaymentMethodModelDao methodDao = paymentDao.getPaymentMethodIncludedDeleted(paymentMethodId, context);
+                return methodDao == null ? null : methodDao.getPluginName();
+            }
+        };
+        final Object[] args = new Object[1];
+        args[0] = loaderCallback;
+        final ObjectType irrelevant = null;
+        return new CacheLoaderArgument(irrelevant, args, context);
     }
 
     protected PaymentPluginApi getPaymentProviderPlugin(final Account account, final InternalTenantContext context) throws PaymentApiException {
@@ -58,6 +58,7 @@ import org.killbill.billing.payment.core.sm.control.PaymentStateControlContext;
 import org.killbill.billing.payment.core.sm.control.PurchaseControlOperation;
 import org.killbill.billing.payment.core.sm.control.RefundControlOperation;
 import org.killbill.billing.payment.core.sm.control.VoidControlOperation;
+import org.killbill.billing.payment.dao.PaymentAttemptModelDao;
 import org.killbill.billing.payment.dao.PaymentDao;
 import org.killbill.billing.payment.plugin.api.PaymentPluginApi;
 import org.killbill.billing.payment.retry.BaseRetryService.RetryServiceScheduler;
@@ -115,6 +116,23 @@ public class PluginControlPaymentAutomatonRunner extends PaymentAutomatonRunner
                                                                              paymentTransactionExternalKey,
                                                                              amount, currency,
                                                                              properties, paymentControlPluginNames, callContext, internalCallContext);
+        return run(state, transactionType, paymentStateContext);
+    }
+
+    // Run a new payment for an attempt created ahead of time, in the initial state (see PaymentDao#insertPaymentAttemptsWithProperties)
+    public Payment run(final PaymentAttemptModelDao attempt, final boolean isApiPayment, final Account account, final Iterable<PluginProperty> properties,
+                       final CallContext callContext, final InternalCallContext internalCallContext) throws PaymentApiException {
+        final PaymentStateControlContext paymentStateContext = createContext(isApiPayment, attempt.getTransactionType(), account, attempt.getPaymentMethodId(),
+                                                                             null, attempt.getPaymentExternalKey(),
+                                                                             attempt.getTransactionExternalKey(),
+                                                                             attempt.getAmount(), attempt.getCurrency(),
+                                                                             properties, attempt.toPaymentControlPluginNames(), callContext, internalCallContext);
+        // DefaultControlInitiated won't create a new attempt
+        paymentStateContext.setAttemptId(attempt.getId());
+        return run(paymentControlStateMachineHelper.getInitialState(), attempt.getTransactionType(), paymentStateContext);
+    }
+
+    private Payment run(final State state, final TransactionType transactionType, final PaymentStateControlContext paymentStateContext) throws PaymentApiException {
         try {
             final OperationCallback callback = createOperationCallback(transactionType, paymentStateContext);
             final LeavingStateCallback leavingStateCallback = new DefaultControlInitiated(this, paymentStateContext, paymentDao, paymentControlStateMachineHelper.getInitialState(), paymentControlStateMachineHelper.getRetriedState(), transactionType);
@@ -18,12 +18,23 @@
 package org.killbill.billing.payment.core.sm.control;
 
 import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import javax.annotation.Nullable;
 import javax.inject.Inject;
 
+import org.apache.shiro.util.ThreadContext;
 import org.joda.time.DateTime;
 import org.killbill.billing.account.api.Account;
 import org.killbill.billing.callcontext.DefaultCallContext;
@@ -39,22 +50,43 @@ import org.killbill.billing.control.plugin.api.PriorPaymentControlResult;
 import org.killbill.billing.osgi.api.OSGIServiceRegistration;
 import org.killbill.billing.payment.api.PluginProperty;
 import org.killbill.billing.payment.api.TransactionType;
+import org.killbill.billing.payment.core.PaymentExecutors;
+import org.killbill.billing.payment.dispatcher.CallableWithRequestData;
 import org.killbill.billing.payment.retry.DefaultFailureCallResult;
 import org.killbill.billing.payment.retry.DefaultOnSuccessPaymentControlResult;
 import org.killbill.billing.payment.retry.DefaultPriorPaymentControlResult;
 import org.killbill.billing.util.callcontext.CallContext;
+import org.killbill.billing.util.config.PaymentConfig;
+import org.killbill.commons.request.Request;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.base.Predicates;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
+
+/**
+ * Invokes the payment control plugins, in order: each plugin sees the adjustments (amount, payment method, ...) of the previous ones.
+ * <p/>
+ * Plugins configured as observers (see PaymentConfig#getPaymentControlObserverPluginNames) are the exception: their results are ignored,
+ * so they are invoked concurrently on a dedicated executor, with the initial context, while the other plugins run in order.
+ * Failures and timeouts of observers are logged, and never affect the payment.
+ */
 public class ControlPluginRunner {
 
     private static final Logger log = LoggerFactory.getLogger(ControlPluginRunner.class);
 
     private final OSGIServiceRegistration<PaymentControlPluginApi> paymentControlPluginRegistry;
+    private final PaymentExecutors paymentExecutors;
+    private final PaymentConfig paymentConfig;
 
     @Inject
-    public ControlPluginRunner(final OSGIServiceRegistration<PaymentControlPluginApi> paymentControlPluginRegistry) {
+    public ControlPluginRunner(final OSGIServiceRegistration<PaymentControlPluginApi> paymentControlPluginRegistry,
+                               final PaymentExecutors paymentExecutors,
+                               final PaymentConfig paymentConfig) {
         this.paymentControlPluginRegistry = paymentControlPluginRegistry;
+        this.paymentExecutors = paymentExecutors;
+        this.paymentConfig = paymentConfig;
     }
 
     public PriorPaymentControlResult executePluginPriorCalls(final Account account,
@@ -94,7 +126,15 @@ public class ControlPluginRunner {
                                                                                             isApiPayment,
                                                                                             callContext);
 
-        for (final String pluginName : paymentControlPluginNames) {
+        final PaymentControlContext observerPaymentControlContext = inputPaymentControlContext;
+        final Map<String, Future<Void>> observerCalls = dispatchObserverCalls(paymentControlPluginNames, new ObserverCall() {
+            @Override
+            public void call(final PaymentControlPluginApi plugin) throws PaymentControlApiException {
+                plugin.priorCall(observerPaymentControlContext, pluginProperties);
+            }
+        });
+
+        for (final String pluginName : getOrderedPluginNames(paymentControlPluginNames)) {
             final PaymentControlPluginApi plugin = paymentControlPluginRegistry.getServiceForName(pluginName);
             if (plugin == null) {
                 // First call to plugin, we log warn, if plugin is not registered
@@ -133,6 +173,8 @@ public class ControlPluginRunner {
                                                                           isApiPayment,
                                                                           callContext);
         }
+        awaitObserverCalls(observerCalls, "priorCall", paymentExternalKey);
+
         // Rebuild latest result to include inputPluginProperties
         prevResult = new DefaultPriorPaymentControlResult(prevResult.isAborted(), inputPaymentMethodId, inputAmount, inputCurrency, inputPluginProperties);
         return prevResult;
@@ -174,8 +216,15 @@ public class ControlPluginRunner {
                                                                                                   isApiPayment,
                                                                                                   callContext);
 
+        final Map<String, Future<Void>> observerCalls = dispatchObserverCalls(paymentControlPluginNames, new ObserverCall() {
+            @Override
+            public void call(final PaymentControlPluginApi plugin) throws PaymentControlApiException {
+                plugin.onSuccessCall(inputPaymentControlContext, pluginProperties);
+            }
+        });
+
         Iterable<PluginProperty> inputPluginProperties = pluginProperties;
-        for (final String pluginName : paymentControlPluginNames) {
+        for (final String pluginName : getOrderedPluginNames(paymentControlPluginNames)) {
             final PaymentControlPluginApi plugin = paymentControlPluginRegistry.getServiceForName(pluginName);
             if (plugin != null) {
                 try {
@@ -193,6 +242,8 @@ public class ControlPluginRunner {
                 }
             }
         }
+
+        awaitObserverCalls(observerCalls, "onSuccessCall", paymentExternalKey);
         return new DefaultOnSuccessPaymentControlResult(inputPluginProperties);
     }
 
@@ -226,10 +277,17 @@ public class ControlPluginRunner {
                                                                                                   isApiPayment,
                                                                                                   callContext);
 
+        final Map<String, Future<Void>> observerCalls = dispatchObserverCalls(paymentControlPluginNames, new ObserverCall() {
+            @Override
+            public void call(final PaymentControlPluginApi plugin) throws PaymentControlApiException {
+                plugin.onFailureCall(inputPaymentControlContext, pluginProperties);
+            }
+        });
+
         DateTime candidate = null;
         Iterable<PluginProperty> inputPluginProperties = pluginProperties;
 
-        for (final String pluginName : paymentControlPluginNames) {
+        for (final String pluginName : getOrderedPluginNames(paymentControlPluginNames)) {
             final PaymentControlPluginApi plugin = paymentControlPluginRegistry.getServiceForName(pluginName);
             if (plugin != null) {
                 try {
@@ -248,13 +306,80 @@ public class ControlPluginRunner {
 
                 } catch (final PaymentControlApiException e) {
                     log.warn("Plugin " + pluginName + " failed to return next retryDate for payment " + inputPaymentControlContext.getPaymentExternalKey(), e);
+                    awaitObserverCalls(observerCalls, "onFailureCall", paymentExternalKey);
                     return new DefaultFailureCallResult(candidate, inputPluginProperties);
                 }
             }
         }
+
+        awaitObserverCalls(observerCalls, "onFailureCall", paymentExternalKey);
         return new DefaultFailureCallResult(candidate, inputPluginProperties);
     }
 
+    private interface ObserverCall {
+
+        void call(PaymentControlPluginApi plugin) throws PaymentControlApiException;
+    }
+
+    // Plugins whose results are taken into account, in order
+    private Iterable<String> getOrderedPluginNames(final List<String> paymentControlPluginNames) {
+        final Collection<String> observerPluginNames = paymentConfig.getPaymentControlObserverPluginNames();
+        if (observerPluginNames == null || observerPluginNames.isEmpty()) {
+            return paymentControlPluginNames;
+        }
+        return Iterables.filter(paymentControlPluginNames, Predicates.not(Predicates.in(observerPluginNames)));
+    }
+
+    private Map<String, Future<Void>> dispatchObserverCalls(final List<String> paymentControlPluginNames, final ObserverCall observerCall) {
+        final Collection<String> observerPluginNames = paymentConfig.getPaymentControlObserverPluginNames();
+        if (observerPluginNames == null || observerPluginNames.isEmpty()) {
+            return ImmutableMap.<String, Future<Void>>of();
+        }
+
+        final ExecutorService observerExecutor = paymentExecutors.getControlObserverExecutorService();
+        final Map<String, Future<Void>> observerCalls = new LinkedHashMap<String, Future<Void>>();
+        for (final String pluginName : Iterables.filter(paymentControlPluginNames, Predicates.in(observerPluginNames))) {
+            final PaymentControlPluginApi plugin = paymentControlPluginRegistry.getServiceForName(pluginName);
+            if (plugin == null) {
+                log.warn("Skipping unknown payment control plugin {} when fetching results", pluginName);
+                continue;
+            }
+
+            final Callable<Void> task = new Callable<Void>() {
+                @Override
+                public Void call() throws PaymentControlApiException {
+                    observerCall.call(plugin);
+                    return null;
+                }
+            };
+            // Wrap the callable to keep the original requestId
+            observerCalls.put(pluginName, observerExecutor.submit(new CallableWithRequestData<Void>(Request.getPerThreadRequestData(), ThreadContext.getSecurityManager(), ThreadContext.getSubject(), task)));
+        }
+        return observerCalls;
+    }
+
+    private void awaitObserverCalls(final Map<String, Future<Void>> observerCalls, final String callName, final String paymentExternalKey) {
+        if (observerCalls.isEmpty()) {
+            return;
+        }
+
+        final long deadlineNanos = System.nanoTime() + TimeUnit.NANOSECONDS.convert(paymentConfig.getPaymentControlObserverTimeout().getPeriod(), paymentConfig.getPaymentControlObserverTimeout().getUnit());
+        for (final Entry<String, Future<Void>> entry : observerCalls.entrySet()) {
+            try {
+                entry.getValue().get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (final TimeoutException e) {
+                log.warn("Plugin " + entry.getKey() + " timed out during " + callName + " for " + paymentExternalKey);
+                entry.getValue().cancel(true);
+            } catch (final ExecutionException e) {
+                log.warn("Plugin " + entry.getKey() + " failed to complete " + callName + " for " + paymentExternalKey, e.getCause());
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.warn("Interrupted while waiting for plugin " + entry.getKey() + " to complete " + callName + " for " + paymentExternalKey);
+                entry.getValue().cancel(true);
+            }
+        }
+    }
+
     public static class DefaultPaymentControlContext extends DefaultCallContext implements PaymentControlContext {
 
         private final Account account;
@@ -74,7 +74,8 @@ public class DefaultControlInitiated implements LeavingStateCallback {
             stateContext.setPaymentTransactionExternalKey(UUIDs.randomUUID().toString());
         }
 
-        if (state.getName().equals(initialState.getName()) || state.getName().equals(retriedState.getName())) {
+        // The attempt may have been created ahead of time (see PluginControlPaymentAutomatonRunner)
+        if (stateContext.getAttemptId() == null && (state.getName().equals(initialState.getName()) || state.getName().equals(retriedState.getName()))) {
             try {
                 //
                 // We don't serialize any properties at this stage to avoid serializing sensitive information.
@@ -23,6 +23,7 @@ import java.util.Collection;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import javax.annotation.Nullable;
@@ -106,6 +107,25 @@ public class DefaultPaymentDao implements PaymentDao {
         });
     }
 
+    @Override
+    public void insertPaymentAttemptsWithProperties(final List<PaymentAttemptModelDao> attempts, final Map<UUID, InternalCallContext> contextsByAccountId) {
+        if (attempts.isEmpty()) {
+            return;
+        }
+
+        transactionalSqlDao.execute(new EntitySqlDaoTransactionWrapper<Void>() {
+
+            @Override
+            public Void inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
+                final PaymentAttemptSqlDao transactional = entitySqlDaoWrapperFactory.become(PaymentAttemptSqlDao.class);
+                for (final PaymentAttemptModelDao attempt : attempts) {
+                    transactional.create(attempt, contextsByAccountId.get(attempt.getAccountId()));
+                }
+                return null;
+            }
+        });
+    }
+
     @Override
     public void updatePaymentAttempt(final UUID paymentAttemptId, @Nullable final UUID transactionId, final String state, final InternalCallContext context) {
         transactionalSqlDao.execute(new EntitySqlDaoTransactionWrapper<Void>() {
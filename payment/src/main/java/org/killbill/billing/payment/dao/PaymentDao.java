@@ -18,6 +18,7 @@ package org.killbill.billing.payment.dao;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import org.joda.time.DateTime;
@@ -34,6 +35,9 @@ public interface PaymentDao {
 
     public PaymentAttemptModelDao insertPaymentAttemptWithProperties(PaymentAttemptModelDao attempt, InternalCallContext context);
 
+    // The attempts (of possibly different accounts) are inserted in a single transaction, each one with the context of its account
+    public void insertPaymentAttemptsWithProperties(List<PaymentAttemptModelDao> attempts, Map<UUID, InternalCallContext> contextsByAccountId);
+
     public void updatePaymentAttempt(UUID paymentAttemptId, UUID transactionId, String state, InternalCallContext context);
 
     public void updatePaymentAttemptWithProperties(UUID paymentAttemptId, UUID transactionId, String state, final byte[] pluginProperties, InternalCallContext context);
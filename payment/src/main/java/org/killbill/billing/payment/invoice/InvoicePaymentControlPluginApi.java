@@ -18,8 +18,10 @@
 package org.killbill.billing.payment.invoice;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -59,13 +61,15 @@ import org.killbill.billing.payment.retry.BaseRetryService.RetryServiceScheduler
 import org.killbill.billing.payment.retry.DefaultFailureCallResult;
 import org.killbill.billing.payment.retry.DefaultOnSuccessPaymentControlResult;
 import org.killbill.billing.payment.retry.DefaultPriorPaymentControlResult;
-import org.killbill.billing.util.api.TagUserApi;
-import org.killbill.billing.util.callcontext.CallContext;
+import org.killbill.billing.payment.retry.RetryPriority;
+import org.killbill.billing.tag.TagInternalApi;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
 import org.killbill.billing.util.config.PaymentConfig;
 import org.killbill.billing.util.tag.ControlTagType;
 import org.killbill.billing.util.tag.Tag;
 import org.killbill.clock.Clock;
+import org.skife.jdbi.v2.Handle;
+import org.skife.jdbi.v2.TransactionCallback;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -90,7 +94,7 @@ public final class InvoicePaymentControlPluginApi implements PaymentControlPlugi
 
     private final PaymentConfig paymentConfig;
     private final InvoiceInternalApi invoiceApi;
-    private final TagUserApi tagApi;
+    private final TagInternalApi tagApi;
     private final PaymentDao paymentDao;
     private final InvoicePaymentControlDao controlDao;
     private final RetryServiceScheduler retryServiceScheduler;
@@ -100,7 +104,7 @@ public final class InvoicePaymentControlPluginApi implements PaymentControlPlugi
     private final Logger log = LoggerFactory.getLogger(InvoicePaymentControlPluginApi.class);
 
     @Inject
-    public InvoicePaymentControlPluginApi(final PaymentConfig paymentConfig, final InvoiceInternalApi invoiceApi, final TagUserApi tagApi, final PaymentDao paymentDao,
+    public InvoicePaymentControlPluginApi(final PaymentConfig paymentConfig, final InvoiceInternalApi invoiceApi, final TagInternalApi tagApi, final PaymentDao paymentDao,
                                           final InvoicePaymentControlDao invoicePaymentControlDao,
                                           @Named(PaymentModule.RETRYABLE_NAMED) final RetryServiceScheduler retryServiceScheduler,
                                           final InternalCallContextFactory internalCallContextFactory, final Clock clock) {
@@ -229,12 +233,60 @@ public final class InvoicePaymentControlPluginApi implements PaymentControlPlugi
     }
 
     public void process_AUTO_PAY_OFF_removal(final UUID accountId, final InternalCallContext internalCallContext) {
-        final List<PluginAutoPayOffModelDao> entries = controlDao.getAutoPayOffEntry(accountId);
+        final int pageSize = paymentConfig.getAutoPayOffDrainPageSize();
+
+        int nbDrained = 0;
+        Long lastRecordId = 0L;
+        List<PluginAutoPayOffModelDao> entries = controlDao.getAutoPayOffEntries(accountId, lastRecordId, pageSize);
+        while (!entries.isEmpty()) {
+            lastRecordId = entries.get(entries.size() - 1).getRecordId();
+
+            nbDrained += drain_AUTO_PAY_OFF_entries(accountId, entries, internalCallContext);
+            log.info("Drained {} AUTO_PAY_OFF entries so far for accountId {}", nbDrained, accountId);
+
+            if (entries.size() < pageSize) {
+                break;
+            }
+            entries = controlDao.getAutoPayOffEntries(accountId, lastRecordId, pageSize);
+        }
+    }
+
+    // The retries of the page are recorded, and the entries deactivated, within a single transaction: if anything fails, the whole page
+    // stays active so that the drain can be resumed
+    private int drain_AUTO_PAY_OFF_entries(final UUID accountId, final Collection<PluginAutoPayOffModelDao> entries, final InternalCallContext internalCallContext) {
+        final Collection<String> paymentExternalKeys = new HashSet<String>();
+        for (final PluginAutoPayOffModelDao cur : entries) {
+            paymentExternalKeys.add(cur.getPaymentExternalKey());
+        }
+
+        // Several entries for the same payment would re-drive it several times (the invoice balance is re-computed on each retry anyway): only
+        // retry the latest one, which may be on a later page, and simply deactivate the others
+        final Map<String, Long> latestRecordIds = controlDao.getLatestAutoPayOffRecordIds(accountId, paymentExternalKeys);
+        final Collection<UUID> attemptIds = new ArrayList<UUID>();
+        final Collection<Long> drainedRecordIds = new ArrayList<Long>();
         for (final PluginAutoPayOffModelDao cur : entries) {
-            // TODO In theory we should pass not only PLUGIN_NAME, but also all the plugin list associated which the original call
-            retryServiceScheduler.scheduleRetry(ObjectType.ACCOUNT, accountId, cur.getAttemptId(), internalCallContext.getTenantRecordId(), ImmutableList.<String>of(PLUGIN_NAME), clock.getUTCNow());
+            final Long latestRecordId = latestRecordIds.get(cur.getPaymentExternalKey());
+            if (latestRecordId == null || latestRecordId.equals(cur.getRecordId())) {
+                attemptIds.add(cur.getAttemptId());
+            }
+            drainedRecordIds.add(cur.getRecordId());
+        }
+
+        try {
+            controlDao.removeAutoPayOffEntries(drainedRecordIds, new TransactionCallback<Void>() {
+                @Override
+                public Void inTransaction(final Handle handle, final org.skife.jdbi.v2.TransactionStatus status) throws Exception {
+                    // TODO In theory we should pass not only PLUGIN_NAME, but also all the plugin list associated which the original call
+                    // The retry is triggered by a user action (tag removal), so don't make it wait behind the scheduled retries
+                    retryServiceScheduler.scheduleRetriesFromTransaction(ObjectType.ACCOUNT, accountId, attemptIds, internalCallContext.getTenantRecordId(), ImmutableList.<String>of(PLUGIN_NAME), clock.getUTCNow(), RetryPriority.HIGH, handle.getConnection());
+                    return null;
+                }
+            });
+            return drainedRecordIds.size();
+        } catch (final RuntimeException e) {
+            log.warn("Failed to schedule the AUTO_PAY_OFF retries of " + drainedRecordIds.size() + " entries for accountId " + accountId, e);
+            return 0;
         }
-        controlDao.removeAutoPayOffEntry(accountId);
     }
 
     private UUID getInvoiceId(final Iterable<PluginProperty> pluginProperties) throws PaymentControlApiException {
@@ -253,7 +305,7 @@ public final class InvoicePaymentControlPluginApi implements PaymentControlPlugi
             final BigDecimal requestedAmount = validateAndComputePaymentAmount(invoice, paymentControlPluginContext.getAmount(), paymentControlPluginContext.isApiPayment());
 
             final boolean isAborted = requestedAmount.compareTo(BigDecimal.ZERO) == 0;
-            if (!isAborted && insert_AUTO_PAY_OFF_ifRequired(paymentControlPluginContext, requestedAmount)) {
+            if (!isAborted && insert_AUTO_PAY_OFF_ifRequired(paymentControlPluginContext, requestedAmount, internalContext)) {
                 return new DefaultPriorPaymentControlResult(true);
             }
 
@@ -493,8 +545,8 @@ public final class InvoicePaymentControlPluginApi implements PaymentControlPlugi
         }
     }
 
-    private boolean insert_AUTO_PAY_OFF_ifRequired(final PaymentControlContext paymentControlContext, final BigDecimal computedAmount) {
-        if (paymentControlContext.isApiPayment() || !isAccountAutoPayOff(paymentControlContext.getAccountId(), paymentControlContext)) {
+    private boolean insert_AUTO_PAY_OFF_ifRequired(final PaymentControlContext paymentControlContext, final BigDecimal computedAmount, final InternalCallContext internalContext) {
+        if (paymentControlContext.isApiPayment() || !isAccountAutoPayOff(paymentControlContext.getAccountId(), internalContext)) {
             return false;
         }
         final PluginAutoPayOffModelDao data = new PluginAutoPayOffModelDao(paymentControlContext.getAttemptPaymentId(), paymentControlContext.getPaymentExternalKey(), paymentControlContext.getTransactionExternalKey(),
@@ -505,8 +557,9 @@ public final class InvoicePaymentControlPluginApi implements PaymentControlPlugi
         return true;
     }
 
-    private boolean isAccountAutoPayOff(final UUID accountId, final CallContext callContext) {
-        final List<Tag> accountTags = tagApi.getTagsForAccount(accountId, false, callContext);
+    private boolean isAccountAutoPayOff(final UUID accountId, final InternalCallContext internalContext) {
+        // Only the tags on the account object itself matter (not the ones on all the objects of the account)
+        final List<Tag> accountTags = tagApi.getTags(accountId, ObjectType.ACCOUNT, internalContext);
         return ControlTagType.isAutoPayOff(Collections2.transform(accountTags, new Function<Tag, UUID>() {
             @Override
             public UUID apply(final Tag tag) {
@@ -21,6 +21,9 @@ import java.math.BigDecimal;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -32,8 +35,12 @@ import org.joda.time.DateTimeZone;
 import org.killbill.billing.catalog.api.Currency;
 import org.skife.jdbi.v2.Handle;
 import org.skife.jdbi.v2.IDBI;
+import org.skife.jdbi.v2.TransactionCallback;
+import org.skife.jdbi.v2.TransactionStatus;
 import org.skife.jdbi.v2.tweak.HandleCallback;
 
+import com.google.common.base.Joiner;
+
 public class InvoicePaymentControlDao {
 
     private final IDBI dbi;
@@ -65,39 +72,102 @@ public class InvoicePaymentControlDao {
             @Override
             public List<PluginAutoPayOffModelDao> withHandle(final Handle handle) throws Exception {
                 final List<Map<String, Object>> queryResult = handle.select("select * from _invoice_payment_control_plugin_auto_pay_off where account_id = ? and is_active", accountId.toString());
-                final List<PluginAutoPayOffModelDao> result = new ArrayList<PluginAutoPayOffModelDao>(queryResult.size());
-                for (final Map<String, Object> row : queryResult) {
+                return toAutoPayOffEntries(queryResult);
+            }
+        });
+    }
 
-                    final PluginAutoPayOffModelDao entry = new PluginAutoPayOffModelDao(Long.valueOf(row.get("record_id").toString()),
-                                                                                        UUID.fromString((String) row.get("attempt_id")),
-                                                                                        (String) row.get("payment_external_key"),
-                                                                                        (String) row.get("transaction_external_key"),
-                                                                                        UUID.fromString((String) row.get("account_id")),
-                                                                                        (String) row.get("plugin_name"),
-                                                                                        row.get("payment_id") != null ? UUID.fromString((String) row.get("payment_id")) : null,
-                                                                                        UUID.fromString((String) row.get("payment_method_id")),
-                                                                                        (BigDecimal) row.get("amount"),
-                                                                                        Currency.valueOf((String) row.get("currency")),
-                                                                                        (String) row.get("created_by"),
-                                                                                        getDateTime(row.get("created_date")));
-                    result.add(entry);
+    // Keyset pagination over the active entries of the account, in insertion order
+    public List<PluginAutoPayOffModelDao> getAutoPayOffEntries(final UUID accountId, final Long fromRecordIdExcluded, final int limit) {
+        return dbi.withHandle(new HandleCallback<List<PluginAutoPayOffModelDao>>() {
+            @Override
+            public List<PluginAutoPayOffModelDao> withHandle(final Handle handle) throws Exception {
+                final List<Map<String, Object>> queryResult = handle.createQuery("select * from _invoice_payment_control_plugin_auto_pay_off where account_id = :accountId and is_active and record_id > :fromRecordId order by record_id limit :limit")
+                                                                    .bind("accountId", accountId.toString())
+                                                                    .bind("fromRecordId", fromRecordIdExcluded)
+                                                                    .bind("limit", limit)
+                                                                    .list();
+                return toAutoPayOffEntries(queryResult);
+            }
+        });
+    }
 
+    // Record id of the latest active entry of the account, for each of the specified payment external keys
+    public Map<String, Long> getLatestAutoPayOffRecordIds(final UUID accountId, final Collection<String> paymentExternalKeys) {
+        if (paymentExternalKeys.isEmpty()) {
+            return Collections.<String, Long>emptyMap();
+        }
+        return dbi.withHandle(new HandleCallback<Map<String, Long>>() {
+            @Override
+            public Map<String, Long> withHandle(final Handle handle) throws Exception {
+                final String placeholders = Joiner.on(",").join(Collections.nCopies(paymentExternalKeys.size(), "?"));
+                final List<Object> args = new ArrayList<Object>(paymentExternalKeys.size() + 1);
+                args.add(accountId.toString());
+                args.addAll(paymentExternalKeys);
+                final List<Map<String, Object>> queryResult = handle.select("select payment_external_key, max(record_id) as record_id from _invoice_payment_control_plugin_auto_pay_off " +
+                                                                            "where account_id = ? and is_active and payment_external_key in (" + placeholders + ") group by payment_external_key", args.toArray());
+                final Map<String, Long> result = new HashMap<String, Long>();
+                for (final Map<String, Object> row : queryResult) {
+                    result.put((String) row.get("payment_external_key"), Long.valueOf(row.get("record_id").toString()));
                 }
                 return result;
             }
         });
     }
 
-    public void removeAutoPayOffEntry(final UUID accountId) {
+    public void removeAutoPayOffEntries(final Collection<Long> recordIds) {
+        if (recordIds.isEmpty()) {
+            return;
+        }
         dbi.withHandle(new HandleCallback<Void>() {
             @Override
             public Void withHandle(final Handle handle) throws Exception {
-                handle.execute("update _invoice_payment_control_plugin_auto_pay_off set is_active = false where account_id = ?", accountId.toString());
+                removeAutoPayOffEntries(handle, recordIds);
                 return null;
             }
         });
     }
 
+    // Deactivate the entries within the same transaction as the callback (which records their retries): either both are committed, or neither
+    public void removeAutoPayOffEntries(final Collection<Long> recordIds, final TransactionCallback<Void> callback) {
+        dbi.inTransaction(new TransactionCallback<Void>() {
+            @Override
+            public Void inTransaction(final Handle handle, final TransactionStatus status) throws Exception {
+                if (!recordIds.isEmpty()) {
+                    removeAutoPayOffEntries(handle, recordIds);
+                }
+                return callback.inTransaction(handle, status);
+            }
+        });
+    }
+
+    private void removeAutoPayOffEntries(final Handle handle, final Collection<Long> recordIds) {
+        final String placeholders = Joiner.on(",").join(Collections.nCopies(recordIds.size(), "?"));
+        handle.execute("update _invoice_payment_control_plugin_auto_pay_off set is_active = false where record_id in (" + placeholders + ")", recordIds.toArray());
+    }
+
+    private List<PluginAutoPayOffModelDao> toAutoPayOffEntries(final List<Map<String, Object>> queryResult) throws SQLException {
+        final List<PluginAutoPayOffModelDao> result = new ArrayList<PluginAutoPayOffModelDao>(queryResult.size());
+        for (final Map<String, Object> row : queryResult) {
+
+            final PluginAutoPayOffModelDao entry = new PluginAutoPayOffModelDao(Long.valueOf(row.get("record_id").toString()),
+                                                                                UUID.fromString((String) row.get("attempt_id")),
+                                                                                (String) row.get("payment_external_key"),
+                                                                                (String) row.get("transaction_external_key"),
+                                                                                UUID.fromString((String) row.get("account_id")),
+                                                                                (String) row.get("plugin_name"),
+                                                                                row.get("payment_id") != null ? UUID.fromString((String) row.get("payment_id")) : null,
+                                                                                UUID.fromString((String) row.get("payment_method_id")),
+                                                                                (BigDecimal) row.get("amount"),
+                                                                                Currency.valueOf((String) row.get("currency")),
+                                                                                (String) row.get("created_by"),
+                                                                                getDateTime(row.get("created_date")));
+            result.add(entry);
+
+        }
+        return result;
+    }
+
     protected DateTime getDateTime(final Object timestamp) throws SQLException {
         final Timestamp resultStamp = (Timestamp) timestamp;
         return new DateTime(resultStamp).toDateTime(DateTimeZone.UTC);
@@ -19,8 +19,11 @@
 package org.killbill.billing.payment.retry;
 
 import java.io.IOException;
+import java.sql.Connection;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 import org.joda.time.DateTime;
 import org.killbill.billing.ObjectType;
@@ -29,16 +32,20 @@ import org.killbill.billing.payment.glue.DefaultPaymentService;
 import org.killbill.billing.util.callcontext.CallOrigin;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
 import org.killbill.billing.util.callcontext.UserType;
+import org.killbill.billing.util.config.PaymentConfig;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoWrapperFactory;
+import org.killbill.clock.Clock;
 import org.killbill.notificationq.api.NotificationEvent;
 import org.killbill.notificationq.api.NotificationQueue;
 import org.killbill.notificationq.api.NotificationQueueService;
 import org.killbill.notificationq.api.NotificationQueueService.NoSuchNotificationQueue;
 import org.killbill.notificationq.api.NotificationQueueService.NotificationQueueAlreadyExists;
 import org.killbill.notificationq.api.NotificationQueueService.NotificationQueueHandler;
+import org.skife.config.TimeSpan;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.codahale.metrics.MetricRegistry;
 import com.google.inject.Inject;
 
 public abstract class BaseRetryService implements RetryService {
@@ -47,14 +54,25 @@ public abstract class BaseRetryService implements RetryService {
 
     private final NotificationQueueService notificationQueueService;
     private final InternalCallContextFactory internalCallContextFactory;
+    private final PaymentConfig paymentConfig;
+    private final Clock clock;
+    private final MetricRegistry metricRegistry;
+    private final RetryRateLimiter retryRateLimiter;
     private final String paymentRetryService;
 
     private NotificationQueue retryQueue;
 
     public BaseRetryService(final NotificationQueueService notificationQueueService,
-                            final InternalCallContextFactory internalCallContextFactory) {
+                            final InternalCallContextFactory internalCallContextFactory,
+                            final PaymentConfig paymentConfig,
+                            final Clock clock,
+                            final MetricRegistry metricRegistry) {
         this.notificationQueueService = notificationQueueService;
         this.internalCallContextFactory = internalCallContextFactory;
+        this.paymentConfig = paymentConfig;
+        this.clock = clock;
+        this.metricRegistry = metricRegistry;
+        this.retryRateLimiter = new RetryRateLimiter(paymentConfig, clock);
         this.paymentRetryService = DefaultPaymentService.SERVICE_NAME + "-" + getQueueName();
     }
 
@@ -71,6 +89,11 @@ public abstract class BaseRetryService implements RetryService {
                                                                               }
                                                                               final PaymentRetryNotificationKey key = (PaymentRetryNotificationKey) notificationKey;
                                                                               final InternalCallContext callContext = internalCallContextFactory.createInternalCallContext(tenantRecordId, accountRecordId, paymentRetryService, CallOrigin.INTERNAL, UserType.SYSTEM, userToken);
+                                                                              metricRegistry.histogram(getLaneMetricName(key.getPriority(), "lag")).update(clock.getUTCNow().getMillis() - eventDateTime.getMillis());
+                                                                              if (!acquireRetryPermit(key, callContext)) {
+                                                                                  throttleRetry(key, userToken, accountRecordId, tenantRecordId);
+                                                                                  return;
+                                                                              }
                                                                               retryPaymentTransaction(key.getAttemptId(), key.getPaymentControlPluginNames(), callContext);
                                                                           }
                                                                       }
@@ -93,33 +116,83 @@ public abstract class BaseRetryService implements RetryService {
     @Override
     public abstract String getQueueName();
 
+    // Name of the payment plugin the attempt will be retried against, or null if unknown
+    protected abstract String getPaymentPluginName(final UUID attemptId, final InternalCallContext context);
+
+    private boolean acquireRetryPermit(final PaymentRetryNotificationKey key, final InternalCallContext context) {
+        if (!retryRateLimiter.isEnabled()) {
+            return true;
+        }
+        final String pluginName = getPaymentPluginName(key.getAttemptId(), context);
+        // Let the retry itself deal with unknown attempts or payment methods
+        return pluginName == null || retryRateLimiter.tryAcquire(pluginName, key.getPriority());
+    }
+
+    // Push the notification back instead of blocking the notification thread, so the other retries (and the priority lane) keep flowing.
+    // If it can't be pushed back, the failure is propagated so that the notification queue retries the original entry.
+    private void throttleRetry(final PaymentRetryNotificationKey key, final UUID userToken, final Long accountRecordId, final Long tenantRecordId) {
+        final TimeSpan throttleDelay = paymentConfig.getRetryThrottleDelay();
+        final long delayMillis = TimeUnit.MILLISECONDS.convert(throttleDelay.getPeriod(), throttleDelay.getUnit());
+        final long jitterMillis = delayMillis > 0 ? ThreadLocalRandom.current().nextLong(delayMillis) : 0;
+        final DateTime nextDispatchTime = clock.getUTCNow().plus(delayMillis + jitterMillis);
+        try {
+            retryQueue.recordFutureNotification(nextDispatchTime, key, userToken, accountRecordId, tenantRecordId);
+            metricRegistry.counter(getLaneMetricName(key.getPriority(), "throttled")).inc();
+        } catch (final IOException e) {
+            throw new IllegalStateException(String.format("Failed to reschedule throttled retry for attemptId %s", key.getAttemptId()), e);
+        }
+    }
+
+    private String getLaneMetricName(final RetryPriority priority, final String name) {
+        return MetricRegistry.name(BaseRetryService.class, getQueueName(), priority.toString().toLowerCase(), name);
+    }
+
     public abstract static class RetryServiceScheduler {
 
         private final NotificationQueueService notificationQueueService;
         private final InternalCallContextFactory internalCallContextFactory;
+        private final PaymentConfig paymentConfig;
 
         @Inject
         public RetryServiceScheduler(final NotificationQueueService notificationQueueService,
-                                     final InternalCallContextFactory internalCallContextFactory) {
+                                     final InternalCallContextFactory internalCallContextFactory,
+                                     final PaymentConfig paymentConfig) {
             this.notificationQueueService = notificationQueueService;
             this.internalCallContextFactory = internalCallContextFactory;
+            this.paymentConfig = paymentConfig;
         }
 
         public boolean scheduleRetry(final ObjectType objectType, final UUID objectId, final UUID attemptId, final Long tenantRecordId, final List<String> paymentControlPluginNames, final DateTime timeOfRetry) {
-            return scheduleRetryInternal(objectType, objectId, attemptId, tenantRecordId, paymentControlPluginNames, timeOfRetry, null);
+            return scheduleRetry(objectType, objectId, attemptId, tenantRecordId, paymentControlPluginNames, timeOfRetry, RetryPriority.NORMAL);
         }
 
-        private boolean scheduleRetryInternal(final ObjectType objectType, final UUID objectId, final UUID attemptId, final Long tenantRecordId, final List<String> paymentControlPluginNames, final DateTime timeOfRetry, final EntitySqlDaoWrapperFactory transactionalDao) {
+        public boolean scheduleRetry(final ObjectType objectType, final UUID objectId, final UUID attemptId, final Long tenantRecordId, final List<String> paymentControlPluginNames, final DateTime timeOfRetry, final RetryPriority priority) {
+            return scheduleRetryInternal(objectType, objectId, attemptId, tenantRecordId, paymentControlPluginNames, timeOfRetry, priority, null);
+        }
+
+        // Record the retries of several attempts of the same object within the transaction of the specified connection, so that they are
+        // committed (or rolled back) together with it: any failure is propagated, for the caller to roll back
+        public void scheduleRetriesFromTransaction(final ObjectType objectType, final UUID objectId, final Iterable<UUID> attemptIds, final Long tenantRecordId, final List<String> paymentControlPluginNames, final DateTime timeOfRetry, final RetryPriority priority, final Connection connection) throws NoSuchNotificationQueue, IOException {
+            final InternalCallContext context = createCallContextFromPaymentId(objectType, objectId, tenantRecordId);
+            final NotificationQueue retryQueue = notificationQueueService.getNotificationQueue(DefaultPaymentService.SERVICE_NAME, getQueueName());
+            for (final UUID attemptId : attemptIds) {
+                final NotificationEvent key = new PaymentRetryNotificationKey(attemptId, paymentControlPluginNames, priority);
+                retryQueue.recordFutureNotificationFromTransaction(connection, getEffectiveTimeOfRetry(timeOfRetry, attemptId, priority), key, context.getUserToken(), context.getAccountRecordId(), context.getTenantRecordId());
+            }
+        }
+
+        private boolean scheduleRetryInternal(final ObjectType objectType, final UUID objectId, final UUID attemptId, final Long tenantRecordId, final List<String> paymentControlPluginNames, final DateTime timeOfRetry, final RetryPriority priority, final EntitySqlDaoWrapperFactory transactionalDao) {
             final InternalCallContext context = createCallContextFromPaymentId(objectType, objectId, tenantRecordId);
 
             try {
                 final NotificationQueue retryQueue = notificationQueueService.getNotificationQueue(DefaultPaymentService.SERVICE_NAME, getQueueName());
-                final NotificationEvent key = new PaymentRetryNotificationKey(attemptId, paymentControlPluginNames);
+                final NotificationEvent key = new PaymentRetryNotificationKey(attemptId, paymentControlPluginNames, priority);
+                final DateTime effectiveTimeOfRetry = getEffectiveTimeOfRetry(timeOfRetry, attemptId, priority);
                 if (retryQueue != null) {
                     if (transactionalDao == null) {
-                        retryQueue.recordFutureNotification(timeOfRetry, key, context.getUserToken(), context.getAccountRecordId(), context.getTenantRecordId());
+                        retryQueue.recordFutureNotification(effectiveTimeOfRetry, key, context.getUserToken(), context.getAccountRecordId(), context.getTenantRecordId());
                     } else {
-                        retryQueue.recordFutureNotificationFromTransaction(transactionalDao.getHandle().getConnection(), timeOfRetry, key, context.getUserToken(), context.getAccountRecordId(), context.getTenantRecordId());
+                        retryQueue.recordFutureNotificationFromTransaction(transactionalDao.getHandle().getConnection(), effectiveTimeOfRetry, key, context.getUserToken(), context.getAccountRecordId(), context.getTenantRecordId());
                     }
                 }
             } catch (final NoSuchNotificationQueue e) {
@@ -132,6 +205,20 @@ public abstract class BaseRetryService implements RetryService {
             return true;
         }
 
+        private DateTime getEffectiveTimeOfRetry(final DateTime timeOfRetry, final UUID attemptId, final RetryPriority priority) {
+            return priority == RetryPriority.HIGH ? timeOfRetry : spreadRetry(timeOfRetry, attemptId, paymentConfig.getRetrySpreadWindow());
+        }
+
+        // Deterministic offset within the window, so that the retries of a cohort scheduled at the same time are spread evenly
+        static DateTime spreadRetry(final DateTime timeOfRetry, final UUID attemptId, final TimeSpan spreadWindow) {
+            final long windowMillis = TimeUnit.MILLISECONDS.convert(spreadWindow.getPeriod(), spreadWindow.getUnit());
+            if (windowMillis <= 0) {
+                return timeOfRetry;
+            }
+            final long offsetMillis = (attemptId.getLeastSignificantBits() & Long.MAX_VALUE) % windowMillis;
+            return timeOfRetry.plus(offsetMillis);
+        }
+
         protected InternalCallContext createCallContextFromPaymentId(final ObjectType objectType, final UUID objectId, final Long tenantRecordId) {
             final String paymentRetryService = DefaultPaymentService.SERVICE_NAME + "-" + getQueueName();
             return internalCallContextFactory.createInternalCallContext(objectId, objectType, paymentRetryService, CallOrigin.INTERNAL, UserType.SYSTEM, null, tenantRecordId);
@@ -23,8 +23,11 @@ import java.util.UUID;
 import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.payment.core.PluginControlPaymentProcessor;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
+import org.killbill.billing.util.config.PaymentConfig;
+import org.killbill.clock.Clock;
 import org.killbill.notificationq.api.NotificationQueueService;
 
+import com.codahale.metrics.MetricRegistry;
 import com.google.inject.Inject;
 
 public class DefaultRetryService extends BaseRetryService implements RetryService {
@@ -34,8 +37,9 @@ public class DefaultRetryService extends BaseRetryService implements RetryServic
     private final PluginControlPaymentProcessor processor;
 
     @Inject
-    public DefaultRetryService(final NotificationQueueService notificationQueueService, final InternalCallContextFactory internalCallContextFactory, final PluginControlPaymentProcessor processor) {
-        super(notificationQueueService, internalCallContextFactory);
+    public DefaultRetryService(final NotificationQueueService notificationQueueService, final InternalCallContextFactory internalCallContextFactory, final PluginControlPaymentProcessor processor,
+                               final PaymentConfig paymentConfig, final Clock clock, final MetricRegistry metricRegistry) {
+        super(notificationQueueService, internalCallContextFactory, paymentConfig, clock, metricRegistry);
         this.processor = processor;
     }
 
@@ -49,11 +53,16 @@ public class DefaultRetryService extends BaseRetryService implements RetryServic
         processor.retryPaymentTransaction(attemptId, paymentControlPluginNames, context);
     }
 
+    @Override
+    protected String getPaymentPluginName(final UUID attemptId, final InternalCallContext context) {
+        return processor.getRetryPaymentPluginName(attemptId, context);
+    }
+
     public static class DefaultRetryServiceScheduler extends RetryServiceScheduler {
 
         @Inject
-        public DefaultRetryServiceScheduler(final NotificationQueueService notificationQueueService, final InternalCallContextFactory internalCallContextFactory) {
-            super(notificationQueueService, internalCallContextFactory);
+        public DefaultRetryServiceScheduler(final NotificationQueueService notificationQueueService, final InternalCallContextFactory internalCallContextFactory, final PaymentConfig paymentConfig) {
+            super(notificationQueueService, internalCallContextFactory, paymentConfig);
         }
 
         @Override
@@ -28,12 +28,16 @@ public class PaymentRetryNotificationKey implements NotificationEvent {
 
     private final UUID attemptId;
     private final List<String> paymentControlPluginNames;
+    private final RetryPriority priority;
 
     @JsonCreator
     public PaymentRetryNotificationKey(@JsonProperty("attemptId") UUID attemptId,
-                                       @JsonProperty("paymentControlPluginNames") List<String> paymentControlPluginNames) {
+                                       @JsonProperty("paymentControlPluginNames") List<String> paymentControlPluginNames,
+                                       @JsonProperty("priority") RetryPriority priority) {
         this.attemptId = attemptId;
         this.paymentControlPluginNames = paymentControlPluginNames;
+        // Notifications recorded before the priority lanes were introduced
+        this.priority = priority != null ? priority : RetryPriority.NORMAL;
     }
 
     public UUID getAttemptId() {
@@ -43,4 +47,8 @@ public class PaymentRetryNotificationKey implements NotificationEvent {
     public List<String> getPaymentControlPluginNames() {
         return paymentControlPluginNames;
     }
+
+    public RetryPriority getPriority() {
+        return priority;
+    }
 }
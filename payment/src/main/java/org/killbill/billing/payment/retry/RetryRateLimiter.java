@@ -0,0 +1,86 @@
+/*
+ * Copyright 2014-2016 Groupon, Inc
+ * Copyright 2014-2016 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.payment.retry;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.killbill.billing.util.config.PaymentConfig;
+import org.killbill.clock.Clock;
+
+/**
+ * Caps the number of retries dispatched per second for each payment plugin.
+ * <p/>
+ * Both lanes share the same budget, but NORMAL retries can only use it up to the (maximum - reserved) mark,
+ * so that HIGH retries still go through when a large cohort of scheduled retries is being processed.
+ */
+public class RetryRateLimiter {
+
+    private static final long WINDOW_MS = 1000L;
+
+    private final PaymentConfig paymentConfig;
+    private final Clock clock;
+    private final ConcurrentMap<String, Window> windowsByPluginName = new ConcurrentHashMap<String, Window>();
+
+    public RetryRateLimiter(final PaymentConfig paymentConfig, final Clock clock) {
+        this.paymentConfig = paymentConfig;
+        this.clock = clock;
+    }
+
+    public boolean isEnabled() {
+        return paymentConfig.getRetryMaxPerSecondPerPlugin() > 0;
+    }
+
+    public boolean tryAcquire(final String pluginName, final RetryPriority priority) {
+        final int maxPerSecond = paymentConfig.getRetryMaxPerSecondPerPlugin();
+        if (maxPerSecond <= 0) {
+            return true;
+        }
+
+        // Always let at least one NORMAL retry through per window, so that a misconfiguration cannot starve them
+        final int limit = priority == RetryPriority.HIGH ? maxPerSecond : Math.max(1, maxPerSecond - paymentConfig.getRetryReservedPerSecondPerPlugin());
+
+        Window window = windowsByPluginName.get(pluginName);
+        if (window == null) {
+            final Window newWindow = new Window();
+            window = windowsByPluginName.putIfAbsent(pluginName, newWindow);
+            if (window == null) {
+                window = newWindow;
+            }
+        }
+        return window.tryAcquire(clock.getUTCNow().getMillis(), limit);
+    }
+
+    private static final class Window {
+
+        private long startMillis = Long.MIN_VALUE;
+        private int count;
+
+        synchronized boolean tryAcquire(final long nowMillis, final int limit) {
+            if (startMillis == Long.MIN_VALUE || nowMillis - startMillis >= WINDOW_MS) {
+                startMillis = nowMillis;
+                count = 0;
+            }
+            if (count >= limit) {
+                return false;
+            }
+            count++;
+            return true;
+        }
+    }
+}
@@ -59,6 +59,7 @@ import com.google.common.collect.ImmutableList;
 
 import static org.killbill.billing.payment.logging.TestLoggingHelper.withSpyLogger;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotNull;
 import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
@@ -155,6 +156,62 @@ public class TestPaymentApi extends PaymentTestSuiteWithEmbeddedDB {
         assertNotNull(payment.getTransactions().get(0).getGatewayErrorCode());
     }
 
+    @Test(groups = "slow")
+    public void testGetAccountPaymentsWithPluginInfo() throws PaymentApiException {
+        final BigDecimal requestedAmount = BigDecimal.TEN;
+
+        final List<UUID> paymentIds = new ArrayList<UUID>();
+        for (int i = 0; i < 5; i++) {
+            final Payment payment = paymentApi.createPurchase(account, account.getPaymentMethodId(), null, requestedAmount, Currency.AED, "accountPayment-" + i, "accountPaymentTransaction-" + i,
+                                                              ImmutableList.<PluginProperty>of(), callContext);
+            paymentIds.add(payment.getId());
+        }
+
+        final List<Payment> accountPayments = paymentApi.getAccountPayments(account.getId(), true, ImmutableList.<PluginProperty>of(), callContext);
+        assertEquals(accountPayments.size(), 5);
+        for (final Payment payment : accountPayments) {
+            assertTrue(paymentIds.contains(payment.getId()));
+            assertEquals(payment.getTransactions().size(), 1);
+            assertEquals(payment.getTransactions().get(0).getPaymentId(), payment.getId());
+            assertNotNull(payment.getTransactions().get(0).getPaymentInfoPlugin());
+        }
+    }
+
+    @Test(groups = "slow")
+    public void testCreateBulkPurchases() throws PaymentApiException {
+        final PaymentOptions noPaymentControl = new PaymentOptions() {
+            @Override
+            public boolean isExternalPayment() {
+                return false;
+            }
+
+            @Override
+            public List<String> getPaymentControlPluginNames() {
+                return ImmutableList.<String>of();
+            }
+        };
+
+        final List<BulkPurchaseRequest> requests = ImmutableList.<BulkPurchaseRequest>of(new BulkPurchaseRequest(account, account.getPaymentMethodId(), null, BigDecimal.TEN, Currency.AED, "bulk-1", "bulk-transaction-1", ImmutableList.<PluginProperty>of()),
+                                                                                         new BulkPurchaseRequest(account, account.getPaymentMethodId(), null, BigDecimal.TEN, Currency.AED, "bulk-2", null, ImmutableList.<PluginProperty>of()),
+                                                                                         new BulkPurchaseRequest(account, account.getPaymentMethodId(), null, BigDecimal.ONE, Currency.AED, "bulk-3", "bulk-transaction-3", ImmutableList.<PluginProperty>of()));
+        final List<BulkPaymentResult> results = bulkPaymentApi.createPurchasesWithPaymentControl(requests, noPaymentControl, callContext);
+        assertEquals(results.size(), 3);
+
+        assertTrue(results.get(0).isSuccess());
+        assertEquals(results.get(0).getPayment().getExternalKey(), "bulk-1");
+        assertEquals(results.get(0).getPayment().getPurchasedAmount().compareTo(BigDecimal.TEN), 0);
+
+        // Missing paymentTransactionExternalKey
+        assertFalse(results.get(1).isSuccess());
+        assertEquals(results.get(1).getException().getCode(), ErrorCode.PAYMENT_INVALID_PARAMETER.getCode());
+
+        assertTrue(results.get(2).isSuccess());
+        assertEquals(results.get(2).getPayment().getExternalKey(), "bulk-3");
+        assertEquals(results.get(2).getPayment().getPurchasedAmount().compareTo(BigDecimal.ONE), 0);
+
+        assertEquals(paymentApi.getAccountPayments(account.getId(), false, ImmutableList.<PluginProperty>of(), callContext).size(), 2);
+    }
+
     @Test(groups = "slow")
     public void testCreateFailedPurchase() throws PaymentApiException {
 
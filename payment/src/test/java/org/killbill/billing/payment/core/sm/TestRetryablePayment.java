@@ -210,6 +210,7 @@ public class TestRetryablePayment extends PaymentTestSuiteNoDB {
                                                       internalCallContextFactory,
                                                       runner,
                                                       retrySMHelper,
+                                                      cacheControllerDispatcher,
                                                       clock
         );
 
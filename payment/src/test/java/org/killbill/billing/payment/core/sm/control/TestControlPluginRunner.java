@@ -23,13 +23,19 @@ import java.util.UUID;
 import org.killbill.billing.account.api.Account;
 import org.killbill.billing.catalog.api.Currency;
 import org.killbill.billing.control.plugin.api.PaymentApiType;
+import org.killbill.billing.control.plugin.api.PaymentControlContext;
+import org.killbill.billing.control.plugin.api.PaymentControlPluginApi;
 import org.killbill.billing.control.plugin.api.PriorPaymentControlResult;
+import org.killbill.billing.osgi.api.OSGIServiceDescriptor;
 import org.killbill.billing.payment.PaymentTestSuiteNoDB;
 import org.killbill.billing.payment.api.PluginProperty;
 import org.killbill.billing.payment.api.TransactionType;
 import org.killbill.billing.payment.provider.DefaultPaymentControlProviderPluginRegistry;
+import org.killbill.billing.payment.retry.DefaultPriorPaymentControlResult;
 import org.killbill.billing.util.UUIDs;
+import org.killbill.billing.util.config.PaymentConfig;
 import org.mockito.Mockito;
+import org.skife.config.TimeSpan;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
@@ -49,7 +55,7 @@ public class TestControlPluginRunner extends PaymentTestSuiteNoDB {
         final ImmutableList<String> paymentControlPluginNames = ImmutableList.<String>of("not-registered");
         final ImmutableList<PluginProperty> pluginProperties = ImmutableList.<PluginProperty>of();
 
-        final ControlPluginRunner controlPluginRunner = new ControlPluginRunner(new DefaultPaymentControlProviderPluginRegistry());
+        final ControlPluginRunner controlPluginRunner = new ControlPluginRunner(new DefaultPaymentControlProviderPluginRegistry(), paymentExecutors, paymentConfig);
         final PriorPaymentControlResult paymentControlResult = controlPluginRunner.executePluginPriorCalls(account,
                                                                                                            paymentMethodId,
                                                                                                            null,
@@ -71,4 +77,72 @@ public class TestControlPluginRunner extends PaymentTestSuiteNoDB {
         Assert.assertEquals(paymentControlResult.getAdjustedPluginProperties(), pluginProperties);
         Assert.assertFalse(paymentControlResult.isAborted());
     }
+
+    @Test(groups = "fast")
+    public void testPriorCallWithObserverPlugin() throws Exception {
+        final Account account = Mockito.mock(Account.class);
+        final UUID paymentMethodId = UUIDs.randomUUID();
+        final BigDecimal amount = BigDecimal.ONE;
+        final Currency currency = Currency.USD;
+        final ImmutableList<PluginProperty> pluginProperties = ImmutableList.<PluginProperty>of();
+
+        final PaymentControlPluginApi mutatingPlugin = Mockito.mock(PaymentControlPluginApi.class);
+        Mockito.when(mutatingPlugin.priorCall(Mockito.<PaymentControlContext>any(), Mockito.<Iterable<PluginProperty>>any()))
+               .thenReturn(new DefaultPriorPaymentControlResult(false, null, BigDecimal.TEN, null, null));
+        final PaymentControlPluginApi observerPlugin = Mockito.mock(PaymentControlPluginApi.class);
+        Mockito.when(observerPlugin.priorCall(Mockito.<PaymentControlContext>any(), Mockito.<Iterable<PluginProperty>>any()))
+               .thenReturn(new DefaultPriorPaymentControlResult(true, null, BigDecimal.ZERO, null, null));
+
+        final DefaultPaymentControlProviderPluginRegistry registry = new DefaultPaymentControlProviderPluginRegistry();
+        registry.registerService(createDescriptor("mutating"), mutatingPlugin);
+        registry.registerService(createDescriptor("observer"), observerPlugin);
+
+        final PaymentConfig observerPaymentConfig = Mockito.mock(PaymentConfig.class);
+        Mockito.when(observerPaymentConfig.getPaymentControlObserverPluginNames()).thenReturn(ImmutableList.<String>of("observer"));
+        Mockito.when(observerPaymentConfig.getPaymentControlObserverTimeout()).thenReturn(new TimeSpan("5s"));
+
+        final ControlPluginRunner controlPluginRunner = new ControlPluginRunner(registry, paymentExecutors, observerPaymentConfig);
+        final PriorPaymentControlResult paymentControlResult = controlPluginRunner.executePluginPriorCalls(account,
+                                                                                                           paymentMethodId,
+                                                                                                           null,
+                                                                                                           UUIDs.randomUUID(),
+                                                                                                           UUIDs.randomUUID().toString(),
+                                                                                                           UUIDs.randomUUID().toString(),
+                                                                                                           PaymentApiType.PAYMENT_TRANSACTION,
+                                                                                                           TransactionType.AUTHORIZE,
+                                                                                                           null,
+                                                                                                           amount,
+                                                                                                           currency,
+                                                                                                           true,
+                                                                                                           ImmutableList.<String>of("observer", "mutating"),
+                                                                                                           pluginProperties,
+                                                                                                           callContext);
+        // The result of the observer is ignored
+        Assert.assertEquals(paymentControlResult.getAdjustedAmount(), BigDecimal.TEN);
+        Assert.assertEquals(paymentControlResult.getAdjustedCurrency(), currency);
+        Assert.assertEquals(paymentControlResult.getAdjustedPaymentMethodId(), paymentMethodId);
+        Assert.assertFalse(paymentControlResult.isAborted());
+
+        Mockito.verify(mutatingPlugin, Mockito.times(1)).priorCall(Mockito.<PaymentControlContext>any(), Mockito.<Iterable<PluginProperty>>any());
+        Mockito.verify(observerPlugin, Mockito.times(1)).priorCall(Mockito.<PaymentControlContext>any(), Mockito.<Iterable<PluginProperty>>any());
+    }
+
+    private OSGIServiceDescriptor createDescriptor(final String pluginName) {
+        return new OSGIServiceDescriptor() {
+            @Override
+            public String getPluginSymbolicName() {
+                return null;
+            }
+
+            @Override
+            public String getPluginName() {
+                return pluginName;
+            }
+
+            @Override
+            public String getRegistrationName() {
+                return pluginName;
+            }
+        };
+    }
 }
@@ -93,6 +93,13 @@ public class MockPaymentDao implements PaymentDao {
         }
     }
 
+    @Override
+    public void insertPaymentAttemptsWithProperties(final List<PaymentAttemptModelDao> attempts, final Map<UUID, InternalCallContext> contextsByAccountId) {
+        for (final PaymentAttemptModelDao attempt : attempts) {
+            insertPaymentAttemptWithProperties(attempt, contextsByAccountId.get(attempt.getAccountId()));
+        }
+    }
+
     @Override
     public void updatePaymentAttempt(final UUID paymentAttemptId, final UUID transactionId, final String state, final InternalCallContext context) {
         updatePaymentAttemptWithProperties(paymentAttemptId, transactionId, state, null, context);
@@ -39,6 +39,7 @@ import org.testng.annotations.Test;
 
 import com.google.common.base.Predicate;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
 
 import static org.testng.Assert.assertEquals;
@@ -557,6 +558,39 @@ public class TestPaymentDao extends PaymentTestSuiteWithEmbeddedDB {
         Assert.assertEquals(result.getTotalNbRecords().longValue(), 2L);
     }
 
+    @Test(groups = "slow")
+    public void testInsertPaymentAttemptsForMultipleAccounts() {
+        final UUID accountId1 = UUID.randomUUID();
+        final UUID accountId2 = UUID.randomUUID();
+        final PaymentAttemptModelDao attempt1 = new PaymentAttemptModelDao(accountId1, UUID.randomUUID(), clock.getUTCNow(), clock.getUTCNow(), "bulkKey1",
+                                                                           null, "bulkTransactionKey1", TransactionType.PURCHASE, "INIT", BigDecimal.ONE, Currency.USD,
+                                                                           ImmutableList.<String>of("miraculous"), null);
+        final PaymentAttemptModelDao attempt2 = new PaymentAttemptModelDao(accountId2, UUID.randomUUID(), clock.getUTCNow(), clock.getUTCNow(), "bulkKey2",
+                                                                           null, "bulkTransactionKey2", TransactionType.PURCHASE, "INIT", BigDecimal.TEN, Currency.USD,
+                                                                           ImmutableList.<String>of("miraculous"), null);
+
+        final InternalCallContext context2 = new InternalCallContext(internalCallContext.getTenantRecordId(),
+                                                                     internalCallContext.getAccountRecordId() + 1,
+                                                                     internalCallContext.getUserToken(),
+                                                                     internalCallContext.getCreatedBy(),
+                                                                     internalCallContext.getCallOrigin(),
+                                                                     internalCallContext.getContextUserType(),
+                                                                     internalCallContext.getReasonCode(),
+                                                                     internalCallContext.getComments(),
+                                                                     internalCallContext.getCreatedDate(),
+                                                                     internalCallContext.getUpdatedDate());
+        paymentDao.insertPaymentAttemptsWithProperties(ImmutableList.<PaymentAttemptModelDao>of(attempt1, attempt2),
+                                                       ImmutableMap.<UUID, InternalCallContext>of(accountId1, internalCallContext, accountId2, context2));
+
+        // Each attempt is recorded against its own account
+        final PaymentAttemptModelDao retrievedAttempt1 = paymentDao.getPaymentAttempt(attempt1.getId(), internalCallContext);
+        assertEquals(retrievedAttempt1.getTransactionExternalKey(), "bulkTransactionKey1");
+        assertEquals(retrievedAttempt1.getAccountRecordId(), internalCallContext.getAccountRecordId());
+        final PaymentAttemptModelDao retrievedAttempt2 = paymentDao.getPaymentAttempt(attempt2.getId(), context2);
+        assertEquals(retrievedAttempt2.getTransactionExternalKey(), "bulkTransactionKey2");
+        assertEquals(retrievedAttempt2.getAccountRecordId(), context2.getAccountRecordId());
+    }
+
     @Test(groups = "slow")
     public void testUpdatePaymentAttempt() throws PluginPropertySerializerException {
 
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2014-2016 Groupon, Inc
+ * Copyright 2014-2016 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.payment.invoice;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import org.joda.time.DateTime;
+import org.killbill.billing.ObjectType;
+import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.invoice.api.InvoiceInternalApi;
+import org.killbill.billing.payment.PaymentTestSuiteWithEmbeddedDB;
+import org.killbill.billing.payment.invoice.dao.InvoicePaymentControlDao;
+import org.killbill.billing.payment.invoice.dao.PluginAutoPayOffModelDao;
+import org.killbill.billing.payment.retry.BaseRetryService.RetryServiceScheduler;
+import org.killbill.billing.payment.retry.RetryPriority;
+import org.killbill.billing.tag.TagInternalApi;
+import org.killbill.billing.util.callcontext.InternalCallContextFactory;
+import org.killbill.billing.util.config.PaymentConfig;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.Iterables;
+
+import static org.testng.Assert.assertEquals;
+
+public class TestInvoicePaymentControlPluginApi extends PaymentTestSuiteWithEmbeddedDB {
+
+    private UUID accountId;
+    private InvoicePaymentControlDao controlDao;
+    private RetryServiceScheduler retryServiceScheduler;
+    private UUID failedAttemptId;
+    private List<UUID> scheduledAttemptIds;
+
+    @BeforeMethod(groups = "slow")
+    public void beforeMethod() throws Exception {
+        super.beforeMethod();
+
+        accountId = UUID.randomUUID();
+        controlDao = new InvoicePaymentControlDao(dbi);
+        failedAttemptId = null;
+        scheduledAttemptIds = new ArrayList<UUID>();
+        retryServiceScheduler = Mockito.mock(RetryServiceScheduler.class);
+        Mockito.doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(final InvocationOnMock invocation) throws Throwable {
+                final Iterable<UUID> attemptIds = (Iterable<UUID>) invocation.getArguments()[2];
+                if (failedAttemptId != null && Iterables.contains(attemptIds, failedAttemptId)) {
+                    throw new IllegalStateException("Simulated failure");
+                }
+                Iterables.addAll(scheduledAttemptIds, attemptIds);
+                return null;
+            }
+        }).when(retryServiceScheduler).scheduleRetriesFromTransaction(Mockito.eq(ObjectType.ACCOUNT), Mockito.eq(accountId), Mockito.<Iterable<UUID>>any(), Mockito.<Long>any(),
+                                                                      Mockito.<List<String>>any(), Mockito.<DateTime>any(), Mockito.eq(RetryPriority.HIGH), Mockito.<Connection>any());
+    }
+
+    @Test(groups = "slow")
+    public void testDrainCollapsesEntriesForTheSamePayment() {
+        final PluginAutoPayOffModelDao first = insertAutoPayOffEntry("key1");
+        final PluginAutoPayOffModelDao second = insertAutoPayOffEntry("key1");
+        final PluginAutoPayOffModelDao other = insertAutoPayOffEntry("key2");
+
+        createPluginApi(10).process_AUTO_PAY_OFF_removal(accountId, internalCallContext);
+
+        // Only the latest entry of each payment is re-driven, but all of them are deactivated
+        verifyRetryScheduled(first, 0);
+        verifyRetryScheduled(second, 1);
+        verifyRetryScheduled(other, 1);
+        assertEquals(controlDao.getAutoPayOffEntry(accountId).size(), 0);
+    }
+
+    @Test(groups = "slow")
+    public void testDrainCollapsesEntriesForTheSamePaymentAcrossPages() throws Exception {
+        final PluginAutoPayOffModelDao first = insertAutoPayOffEntry("key1");
+        final PluginAutoPayOffModelDao other = insertAutoPayOffEntry("key2");
+        final PluginAutoPayOffModelDao second = insertAutoPayOffEntry("key1");
+
+        createPluginApi(2).process_AUTO_PAY_OFF_removal(accountId, internalCallContext);
+
+        // The latest entry of the payment is only on the second page: the first one is deactivated without being re-driven
+        verifyRetryScheduled(first, 0);
+        verifyRetryScheduled(other, 1);
+        verifyRetryScheduled(second, 1);
+        assertEquals(controlDao.getAutoPayOffEntry(accountId).size(), 0);
+    }
+
+    @Test(groups = "slow")
+    public void testDrainMultiplePages() throws Exception {
+        final PluginAutoPayOffModelDao[] entries = new PluginAutoPayOffModelDao[5];
+        for (int i = 0; i < entries.length; i++) {
+            entries[i] = insertAutoPayOffEntry("key" + i);
+        }
+
+        createPluginApi(2).process_AUTO_PAY_OFF_removal(accountId, internalCallContext);
+
+        // The retries of each page are recorded together
+        Mockito.verify(retryServiceScheduler, Mockito.times(3)).scheduleRetriesFromTransaction(Mockito.<ObjectType>any(), Mockito.<UUID>any(), Mockito.<Iterable<UUID>>any(), Mockito.<Long>any(),
+                                                                                                Mockito.<List<String>>any(), Mockito.<DateTime>any(), Mockito.<RetryPriority>any(), Mockito.<Connection>any());
+        for (final PluginAutoPayOffModelDao entry : entries) {
+            verifyRetryScheduled(entry, 1);
+        }
+        assertEquals(controlDao.getAutoPayOffEntry(accountId).size(), 0);
+    }
+
+    @Test(groups = "slow")
+    public void testDrainWithFailures() {
+        final PluginAutoPayOffModelDao notScheduled = insertAutoPayOffEntry("key1");
+        final PluginAutoPayOffModelDao failed = insertAutoPayOffEntry("key2");
+        final PluginAutoPayOffModelDao nextPage = insertAutoPayOffEntry("key3");
+        failedAttemptId = failed.getAttemptId();
+
+        createPluginApi(2).process_AUTO_PAY_OFF_removal(accountId, internalCallContext);
+
+        // A failure doesn't stop the drain, but the page which couldn't be re-driven is left in place
+        verifyRetryScheduled(notScheduled, 0);
+        verifyRetryScheduled(nextPage, 1);
+        final List<PluginAutoPayOffModelDao> remainingEntries = controlDao.getAutoPayOffEntries(accountId, 0L, 10);
+        assertEquals(remainingEntries.size(), 2);
+        assertEquals(remainingEntries.get(0).getRecordId(), notScheduled.getRecordId());
+        assertEquals(remainingEntries.get(1).getRecordId(), failed.getRecordId());
+    }
+
+    private InvoicePaymentControlPluginApi createPluginApi(final int drainPageSize) {
+        final PaymentConfig drainPaymentConfig = Mockito.mock(PaymentConfig.class);
+        Mockito.when(drainPaymentConfig.getAutoPayOffDrainPageSize()).thenReturn(drainPageSize);
+        return new InvoicePaymentControlPluginApi(drainPaymentConfig,
+                                                  Mockito.mock(InvoiceInternalApi.class),
+                                                  Mockito.mock(TagInternalApi.class),
+                                                  paymentDao,
+                                                  controlDao,
+                                                  retryServiceScheduler,
+                                                  Mockito.mock(InternalCallContextFactory.class),
+                                                  clock);
+    }
+
+    private PluginAutoPayOffModelDao insertAutoPayOffEntry(final String paymentExternalKey) {
+        final PluginAutoPayOffModelDao entry = new PluginAutoPayOffModelDao(UUID.randomUUID(), paymentExternalKey, UUID.randomUUID().toString(), accountId, "XXX", UUID.randomUUID(),
+                                                                            UUID.randomUUID(), BigDecimal.TEN, Currency.USD, "lulu", clock.getUTCNow());
+        controlDao.insertAutoPayOff(entry);
+
+        // Retrieve the record id
+        final List<PluginAutoPayOffModelDao> entries = controlDao.getAutoPayOffEntries(accountId, 0L, 10);
+        return entries.get(entries.size() - 1);
+    }
+
+    private void verifyRetryScheduled(final PluginAutoPayOffModelDao entry, final int times) {
+        assertEquals(Collections.frequency(scheduledAttemptIds, entry.getAttemptId()), times);
+    }
+}
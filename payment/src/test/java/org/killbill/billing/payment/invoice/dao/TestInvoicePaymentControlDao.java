@@ -19,14 +19,21 @@ package org.killbill.billing.payment.invoice.dao;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import org.joda.time.DateTime;
 import org.killbill.billing.catalog.api.Currency;
 import org.killbill.billing.payment.PaymentTestSuiteWithEmbeddedDB;
+import org.skife.jdbi.v2.Handle;
+import org.skife.jdbi.v2.TransactionCallback;
+import org.skife.jdbi.v2.TransactionStatus;
+import org.testng.Assert;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
+import com.google.common.collect.ImmutableList;
+
 import static org.testng.Assert.assertEquals;
 
 public class TestInvoicePaymentControlDao extends PaymentTestSuiteWithEmbeddedDB {
@@ -99,4 +106,70 @@ public class TestInvoicePaymentControlDao extends PaymentTestSuiteWithEmbeddedDB
         final List<PluginAutoPayOffModelDao> entries = dao.getAutoPayOffEntry(UUID.randomUUID());
         assertEquals(entries.size(), 0);
     }
+
+    @Test(groups = "slow")
+    public void testPluginAutoPayOffPagination() {
+        final UUID accountId = UUID.randomUUID();
+        final UUID methodId = UUID.randomUUID();
+        final BigDecimal amount = new BigDecimal("13.33");
+        final DateTime utcNow = clock.getUTCNow();
+        for (int i = 0; i < 5; i++) {
+            final PluginAutoPayOffModelDao entry = new PluginAutoPayOffModelDao(UUID.randomUUID(), "key" + i, "tkey" + i, accountId, "XXX", UUID.randomUUID(), methodId, amount, Currency.USD, "lulu", utcNow);
+            dao.insertAutoPayOff(entry);
+        }
+
+        final List<PluginAutoPayOffModelDao> firstPage = dao.getAutoPayOffEntries(accountId, 0L, 3);
+        assertEquals(firstPage.size(), 3);
+        assertEquals(firstPage.get(0).getPaymentExternalKey(), "key0");
+        assertEquals(firstPage.get(2).getPaymentExternalKey(), "key2");
+
+        final List<PluginAutoPayOffModelDao> secondPage = dao.getAutoPayOffEntries(accountId, firstPage.get(2).getRecordId(), 3);
+        assertEquals(secondPage.size(), 2);
+        assertEquals(secondPage.get(0).getPaymentExternalKey(), "key3");
+
+        dao.removeAutoPayOffEntries(ImmutableList.<Long>of(firstPage.get(0).getRecordId(), secondPage.get(1).getRecordId()));
+        assertEquals(dao.getAutoPayOffEntry(accountId).size(), 3);
+        assertEquals(dao.getAutoPayOffEntries(accountId, 0L, 10).size(), 3);
+    }
+
+    @Test(groups = "slow")
+    public void testPluginAutoPayOffLatestEntries() {
+        final UUID accountId = UUID.randomUUID();
+        final UUID methodId = UUID.randomUUID();
+        final BigDecimal amount = new BigDecimal("13.33");
+        final DateTime utcNow = clock.getUTCNow();
+        for (final String paymentExternalKey : ImmutableList.<String>of("key1", "key2", "key1")) {
+            final PluginAutoPayOffModelDao entry = new PluginAutoPayOffModelDao(UUID.randomUUID(), paymentExternalKey, "tkey", accountId, "XXX", UUID.randomUUID(), methodId, amount, Currency.USD, "lulu", utcNow);
+            dao.insertAutoPayOff(entry);
+        }
+        final List<PluginAutoPayOffModelDao> entries = dao.getAutoPayOffEntries(accountId, 0L, 10);
+
+        final Map<String, Long> latestRecordIds = dao.getLatestAutoPayOffRecordIds(accountId, ImmutableList.<String>of("key1", "key3"));
+        assertEquals(latestRecordIds.size(), 1);
+        assertEquals(latestRecordIds.get("key1"), entries.get(2).getRecordId());
+
+        dao.removeAutoPayOffEntries(ImmutableList.<Long>of(entries.get(2).getRecordId()));
+        assertEquals(dao.getLatestAutoPayOffRecordIds(accountId, ImmutableList.<String>of("key1")).get("key1"), entries.get(0).getRecordId());
+    }
+
+    @Test(groups = "slow")
+    public void testPluginAutoPayOffRemovalRolledBack() {
+        final UUID accountId = UUID.randomUUID();
+        final PluginAutoPayOffModelDao entry = new PluginAutoPayOffModelDao(UUID.randomUUID(), "key1", "tkey1", accountId, "XXX", UUID.randomUUID(), UUID.randomUUID(), BigDecimal.TEN, Currency.USD, "lulu", clock.getUTCNow());
+        dao.insertAutoPayOff(entry);
+        final List<PluginAutoPayOffModelDao> entries = dao.getAutoPayOffEntries(accountId, 0L, 10);
+
+        try {
+            dao.removeAutoPayOffEntries(ImmutableList.<Long>of(entries.get(0).getRecordId()), new TransactionCallback<Void>() {
+                @Override
+                public Void inTransaction(final Handle handle, final TransactionStatus status) throws Exception {
+                    throw new IllegalStateException("Simulated failure");
+                }
+            });
+            Assert.fail("The failure should have been propagated");
+        } catch (final RuntimeException e) {
+            // The deactivation has been rolled back
+            assertEquals(dao.getAutoPayOffEntry(accountId).size(), 1);
+        }
+    }
 }
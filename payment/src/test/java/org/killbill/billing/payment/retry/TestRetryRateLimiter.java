@@ -0,0 +1,79 @@
+/*
+ * Copyright 2014-2016 Groupon, Inc
+ * Copyright 2014-2016 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.payment.retry;
+
+import java.util.UUID;
+
+import org.joda.time.DateTime;
+import org.killbill.billing.payment.PaymentTestSuiteNoDB;
+import org.killbill.billing.payment.retry.BaseRetryService.RetryServiceScheduler;
+import org.killbill.billing.util.UUIDs;
+import org.killbill.billing.util.config.PaymentConfig;
+import org.mockito.Mockito;
+import org.skife.config.TimeSpan;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestRetryRateLimiter extends PaymentTestSuiteNoDB {
+
+    @Test(groups = "fast")
+    public void testReservedCapacityForPriorityRetries() throws Exception {
+        final PaymentConfig limitedPaymentConfig = Mockito.mock(PaymentConfig.class);
+        Mockito.when(limitedPaymentConfig.getRetryMaxPerSecondPerPlugin()).thenReturn(3);
+        Mockito.when(limitedPaymentConfig.getRetryReservedPerSecondPerPlugin()).thenReturn(1);
+
+        final RetryRateLimiter retryRateLimiter = new RetryRateLimiter(limitedPaymentConfig, clock);
+        Assert.assertTrue(retryRateLimiter.isEnabled());
+
+        // NORMAL retries can only use the non reserved part of the budget
+        Assert.assertTrue(retryRateLimiter.tryAcquire("plugin", RetryPriority.NORMAL));
+        Assert.assertTrue(retryRateLimiter.tryAcquire("plugin", RetryPriority.NORMAL));
+        Assert.assertFalse(retryRateLimiter.tryAcquire("plugin", RetryPriority.NORMAL));
+        Assert.assertTrue(retryRateLimiter.tryAcquire("plugin", RetryPriority.HIGH));
+        Assert.assertFalse(retryRateLimiter.tryAcquire("plugin", RetryPriority.HIGH));
+
+        // Budgets are per plugin
+        Assert.assertTrue(retryRateLimiter.tryAcquire("otherPlugin", RetryPriority.NORMAL));
+
+        clock.addDeltaFromReality(1000);
+        Assert.assertTrue(retryRateLimiter.tryAcquire("plugin", RetryPriority.NORMAL));
+    }
+
+    @Test(groups = "fast")
+    public void testNoLimitByDefault() throws Exception {
+        final RetryRateLimiter retryRateLimiter = new RetryRateLimiter(paymentConfig, clock);
+        Assert.assertFalse(retryRateLimiter.isEnabled());
+        for (int i = 0; i < 100; i++) {
+            Assert.assertTrue(retryRateLimiter.tryAcquire("plugin", RetryPriority.NORMAL));
+        }
+    }
+
+    @Test(groups = "fast")
+    public void testSpreadRetry() throws Exception {
+        final DateTime timeOfRetry = clock.getUTCNow();
+        final UUID attemptId = UUIDs.randomUUID();
+
+        Assert.assertEquals(RetryServiceScheduler.spreadRetry(timeOfRetry, attemptId, new TimeSpan("0s")), timeOfRetry);
+
+        final DateTime spreadTimeOfRetry = RetryServiceScheduler.spreadRetry(timeOfRetry, attemptId, new TimeSpan("4h"));
+        Assert.assertFalse(spreadTimeOfRetry.isBefore(timeOfRetry));
+        Assert.assertTrue(spreadTimeOfRetry.isBefore(timeOfRetry.plusHours(4)));
+        // Stable for a given attempt
+        Assert.assertEquals(RetryServiceScheduler.spreadRetry(timeOfRetry, attemptId, new TimeSpan("4h")), spreadTimeOfRetry);
+    }
+}
@@ -27,6 +27,7 @@ import java.util.concurrent.atomic.AtomicLong;
 import javax.inject.Inject;
 import javax.inject.Named;
 
+import org.joda.time.DateTime;
 import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.events.BusInternalEvent;
 import org.killbill.billing.tenant.api.TenantInternalApi.CacheInvalidationCallback;
@@ -41,10 +42,14 @@ import org.killbill.billing.tenant.glue.DefaultTenantModule;
 import org.killbill.billing.util.config.TenantConfig;
 import org.killbill.bus.api.PersistentBus;
 import org.killbill.bus.api.PersistentBus.EventBusException;
+import org.killbill.clock.Clock;
 import org.killbill.commons.concurrent.Executors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.base.Predicate;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
@@ -58,6 +63,9 @@ import com.google.common.collect.Iterables;
  * <p/>
  * When this class initializes, it reads the current entry in the tenant_broadcasts table and from then on, keeps polling for new entries; when new
  * entries are found, it invokes the callback to invalidate the current caching and force the TenantCacheLoader to be invoked again.
+ * <p/>
+ * In adaptive mode, the polling rate goes up to org.killbill.tenant.broadcast.minRate right after entries are found, and backs off
+ * to org.killbill.tenant.broadcast.rate when idle. The node making the change doesn't wait for the next poll (see triggerRefresh).
  */
 public class TenantCacheInvalidation {
 
@@ -70,8 +78,13 @@ public class TenantCacheInvalidation {
     private final TenantConfig tenantConfig;
     private final PersistentBus eventBus;
     private final TenantDao tenantDao;
+    private final Clock clock;
+    private final Histogram invalidationLag;
+    private final Counter polls;
     private AtomicLong latestRecordIdProcessed;
     private volatile boolean isStopped;
+    // Current polling delay in adaptive mode
+    private volatile long pollingDelayMs;
 
     private ScheduledExecutorService tenantExecutor;
 
@@ -79,12 +92,18 @@ public class TenantCacheInvalidation {
     public TenantCacheInvalidation(@Named(DefaultTenantModule.NO_CACHING_TENANT) final TenantBroadcastDao broadcastDao,
                                    @Named(DefaultTenantModule.NO_CACHING_TENANT) final TenantDao tenantDao,
                                    final PersistentBus eventBus,
-                                   final TenantConfig tenantConfig) {
+                                   final TenantConfig tenantConfig,
+                                   final Clock clock,
+                                   final MetricRegistry metricRegistry) {
         this.cache = new HashMap<TenantKey, CacheInvalidationCallback>();
         this.broadcastDao = broadcastDao;
         this.tenantConfig = tenantConfig;
         this.tenantDao = tenantDao;
         this.eventBus = eventBus;
+        this.clock = clock;
+        // Time (in ms) between the tenant_broadcasts entry creation and the cache invalidation on this node
+        this.invalidationLag = metricRegistry.histogram(MetricRegistry.name(TenantCacheInvalidation.class, "invalidation-lag"));
+        this.polls = metricRegistry.counter(MetricRegistry.name(TenantCacheInvalidation.class, "polls"));
         this.isStopped = false;
     }
 
@@ -96,10 +115,27 @@ public class TenantCacheInvalidation {
     }
 
     public void start() {
-        final TimeUnit pendingRateUnit = tenantConfig.getTenantBroadcastServiceRunningRate().getUnit();
-        final long pendingPeriod = tenantConfig.getTenantBroadcastServiceRunningRate().getPeriod();
-        tenantExecutor.scheduleAtFixedRate(new TenantCacheInvalidationRunnable(this, broadcastDao, tenantDao), pendingPeriod, pendingPeriod, pendingRateUnit);
+        if (tenantConfig.isTenantBroadcastAdaptive()) {
+            pollingDelayMs = tenantConfig.getTenantBroadcastServiceRunningRate().getMillis();
+            tenantExecutor.schedule(new AdaptiveTenantCacheInvalidationRunnable(new TenantCacheInvalidationRunnable(this, broadcastDao, tenantDao)), pollingDelayMs, TimeUnit.MILLISECONDS);
+        } else {
+            final TimeUnit pendingRateUnit = tenantConfig.getTenantBroadcastServiceRunningRate().getUnit();
+            final long pendingPeriod = tenantConfig.getTenantBroadcastServiceRunningRate().getPeriod();
+            tenantExecutor.scheduleAtFixedRate(new TenantCacheInvalidationRunnable(this, broadcastDao, tenantDao), pendingPeriod, pendingPeriod, pendingRateUnit);
+        }
+    }
+
+    /**
+     * Process new tenant_broadcasts entries right away, instead of waiting for the next poll. This is invoked on the node making
+     * the change, once it has been committed.
+     */
+    public void triggerRefresh() {
+        if (isStopped || tenantExecutor == null || tenantExecutor.isShutdown()) {
+            return;
+        }
 
+        // The executor is single threaded, so this will never run concurrently with the scheduled polling
+        tenantExecutor.submit(new TenantCacheInvalidationRunnable(this, broadcastDao, tenantDao));
     }
 
     public void stop() {
@@ -147,6 +183,40 @@ public class TenantCacheInvalidation {
         return eventBus;
     }
 
+    public void recordInvalidationLag(final DateTime broadcastCreatedDate) {
+        if (broadcastCreatedDate != null) {
+            invalidationLag.update(Math.max(0L, clock.getUTCNow().getMillis() - broadcastCreatedDate.getMillis()));
+        }
+    }
+
+    private final class AdaptiveTenantCacheInvalidationRunnable implements Runnable {
+
+        private final TenantCacheInvalidationRunnable delegate;
+
+        private AdaptiveTenantCacheInvalidationRunnable(final TenantCacheInvalidationRunnable delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void run() {
+            try {
+                final int nbEntries = delegate.processNewEntries();
+                if (nbEntries > 0) {
+                    // More changes are likely to follow (e.g. catalog and overdue config uploaded together)
+                    pollingDelayMs = tenantConfig.getTenantBroadcastServiceMinRunningRate().getMillis();
+                } else {
+                    pollingDelayMs = Math.min(Math.max(pollingDelayMs * 2, 1L), tenantConfig.getTenantBroadcastServiceRunningRate().getMillis());
+                }
+            } catch (final RuntimeException e) {
+                logger.warn("Failed to process tenant broadcast entries", e);
+            } finally {
+                if (!isStopped && !tenantExecutor.isShutdown()) {
+                    tenantExecutor.schedule(this, pollingDelayMs, TimeUnit.MILLISECONDS);
+                }
+            }
+        }
+    }
+
     public static class TenantCacheInvalidationRunnable implements Runnable {
 
         private final TenantCacheInvalidation parent;
@@ -163,14 +233,20 @@ public class TenantCacheInvalidation {
 
         @Override
         public void run() {
+            processNewEntries();
+        }
+
+        // Returns the number of tenant_broadcasts entries found
+        public int processNewEntries() {
             if (parent.isStopped) {
-                return;
+                return 0;
             }
 
+            parent.polls.inc();
             final List<TenantBroadcastModelDao> entries = broadcastDao.getLatestEntriesFrom(parent.getLatestRecordIdProcessed().get());
             for (TenantBroadcastModelDao cur : entries) {
                 if (parent.isStopped()) {
-                    return;
+                    return entries.size();
                 }
 
                 try {
@@ -179,6 +255,7 @@ public class TenantCacheInvalidation {
                         final CacheInvalidationCallback callback = parent.getCacheInvalidation(tenantKeyAndCookie.getTenantKey());
                         if (callback != null) {
                             final InternalTenantContext tenantContext = new InternalTenantContext(cur.getTenantRecordId(), null);
+                            parent.recordInvalidationLag(cur.getCreatedDate());
                             callback.invalidateCache(tenantKeyAndCookie.getTenantKey(), tenantKeyAndCookie.getCookie(), tenantContext);
 
                             final Long tenantKvsTargetRecordId = cur.getTargetRecordId();
@@ -208,6 +285,7 @@ public class TenantCacheInvalidation {
                     parent.setLatestRecordIdProcessed(cur.getRecordId());
                 }
             }
+            return entries.size();
         }
 
         private TenantKeyAndCookie extractTenantKeyAndCookie(final String key) {
@@ -27,6 +27,7 @@ import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.tenant.api.DefaultTenant;
 import org.killbill.billing.tenant.api.Tenant;
+import org.killbill.billing.tenant.api.TenantCacheInvalidation;
 import org.killbill.billing.tenant.api.TenantApiException;
 import org.killbill.billing.tenant.api.TenantData;
 import org.killbill.billing.tenant.api.TenantKV.TenantKey;
@@ -68,11 +69,14 @@ public class DefaultTenantUserApi implements TenantUserApi {
     private final InternalCallContextFactory internalCallContextFactory;
     private final CacheController<Object, Object> tenantKVCache;
     private final CacheController<Object, Object> tenantCache;
+    private final TenantCacheInvalidation tenantCacheInvalidation;
 
 
     @Inject
-    public DefaultTenantUserApi(final TenantDao tenantDao, final InternalCallContextFactory internalCallContextFactory, final CacheControllerDispatcher cacheControllerDispatcher) {
+    public DefaultTenantUserApi(final TenantDao tenantDao, final InternalCallContextFactory internalCallContextFactory, final CacheControllerDispatcher cacheControllerDispatcher,
+                                final TenantCacheInvalidation tenantCacheInvalidation) {
         this.tenantDao = tenantDao;
+        this.tenantCacheInvalidation = tenantCacheInvalidation;
         this.internalCallContextFactory = internalCallContextFactory;
         this.tenantKVCache = cacheControllerDispatcher.getCacheController(CacheType.TENANT_KV);
         this.tenantCache = cacheControllerDispatcher.getCacheController(CacheType.TENANT);
@@ -126,6 +130,8 @@ public class DefaultTenantUserApi implements TenantUserApi {
         final String tenantKey = getCacheKeyName(key, internalContext);
         tenantDao.addTenantKeyValue(key, value, isSingleValueKey(key), internalContext);
         tenantKVCache.remove(tenantKey);
+        // Don't wait for the next broadcast poll to invalidate the higher level caches (catalog, overdue config, ...) on this node
+        tenantCacheInvalidation.triggerRefresh();
     }
 
     @Override
@@ -135,6 +141,8 @@ public class DefaultTenantUserApi implements TenantUserApi {
         final String tenantKey = getCacheKeyName(key, internalContext);
         tenantDao.deleteTenantKey(key, internalContext);
         tenantKVCache.remove(tenantKey);
+        // Don't wait for the next broadcast poll to invalidate the higher level caches (catalog, overdue config, ...) on this node
+        tenantCacheInvalidation.triggerRefresh();
     }
 
     private List<String> getCachedTenantValuesForKey(final String key, final InternalTenantContext internalContext) {
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2014-2016 Groupon, Inc
+ * Copyright 2014-2016 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.tenant.api;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+
+import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.tenant.TenantTestSuiteWithEmbeddedDb;
+import org.killbill.billing.tenant.api.TenantInternalApi.CacheInvalidationCallback;
+import org.killbill.billing.tenant.api.TenantKV.TenantKey;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.codahale.metrics.MetricRegistry;
+
+public class TestTenantCacheInvalidation extends TenantTestSuiteWithEmbeddedDb {
+
+    @Inject
+    private TenantCacheInvalidation tenantCacheInvalidation;
+
+    @Inject
+    private MetricRegistry metricRegistry;
+
+    @Test(groups = "slow")
+    public void testLocalChangeDoesNotWaitForPolling() throws Exception {
+        // Note: the scheduled polling isn't started
+        tenantCacheInvalidation.initialize();
+        try {
+            final CountDownLatch invalidated = new CountDownLatch(1);
+            tenantCacheInvalidation.registerCallback(TenantKey.PUSH_NOTIFICATION_CB, new CacheInvalidationCallback() {
+                @Override
+                public void invalidateCache(final TenantKey key, final Object cookie, final InternalTenantContext tenantContext) {
+                    invalidated.countDown();
+                }
+            });
+            final long nbLagsBefore = metricRegistry.histogram(MetricRegistry.name(TenantCacheInvalidation.class, "invalidation-lag")).getCount();
+
+            tenantUserApi.addTenantKeyValue(TenantKey.PUSH_NOTIFICATION_CB.toString(), "http://127.0.0.1:8080/callmeback", callContext);
+
+            Assert.assertTrue(invalidated.await(5, TimeUnit.SECONDS));
+            Assert.assertEquals(metricRegistry.histogram(MetricRegistry.name(TenantCacheInvalidation.class, "invalidation-lag")).getCount() - nbLagsBefore, 1);
+        } finally {
+            tenantCacheInvalidation.stop();
+        }
+    }
+}
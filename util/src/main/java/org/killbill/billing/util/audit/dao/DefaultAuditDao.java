@@ -32,6 +32,7 @@ import org.killbill.billing.util.audit.ChangeType;
 import org.killbill.billing.util.audit.DefaultAccountAuditLogs;
 import org.killbill.billing.util.audit.DefaultAccountAuditLogsForObjectType;
 import org.killbill.billing.util.audit.DefaultAuditLog;
+import org.killbill.billing.util.cache.Cachable.CacheType;
 import org.killbill.billing.util.cache.CacheControllerDispatcher;
 import org.killbill.billing.util.dao.NonEntityDao;
 import org.killbill.billing.util.dao.NonEntitySqlDao;
@@ -52,11 +53,15 @@ import com.google.common.collect.Lists;
 public class DefaultAuditDao implements AuditDao {
 
     private final NonEntitySqlDao nonEntitySqlDao;
+    private final NonEntityDao nonEntityDao;
+    private final CacheControllerDispatcher cacheControllerDispatcher;
     private final EntitySqlDaoTransactionalJdbiWrapper transactionalSqlDao;
 
     @Inject
     public DefaultAuditDao(final IDBI dbi, final Clock clock, final CacheControllerDispatcher cacheControllerDispatcher, final NonEntityDao nonEntityDao) {
         this.nonEntitySqlDao = dbi.onDemand(NonEntitySqlDao.class);
+        this.nonEntityDao = nonEntityDao;
+        this.cacheControllerDispatcher = cacheControllerDispatcher;
         this.transactionalSqlDao = new EntitySqlDaoTransactionalJdbiWrapper(dbi, clock, cacheControllerDispatcher, nonEntityDao);
     }
 
@@ -168,7 +173,7 @@ public class DefaultAuditDao implements AuditDao {
     }
 
     private List<AuditLog> doGetAuditLogsForId(final TableName tableName, final UUID objectId, final AuditLevel auditLevel, final InternalTenantContext context) {
-        final Long recordId = nonEntitySqlDao.getRecordIdFromObject(objectId.toString(), tableName.getTableName());
+        final Long recordId = getRecordIdFromObject(tableName, objectId);
         if (recordId == null) {
             return ImmutableList.<AuditLog>of();
         } else {
@@ -182,7 +187,7 @@ public class DefaultAuditDao implements AuditDao {
             throw new IllegalStateException("History table shouldn't be null for " + tableName);
         }
 
-        final Long targetRecordId = nonEntitySqlDao.getRecordIdFromObject(objectId.toString(), tableName.getTableName());
+        final Long targetRecordId = getRecordIdFromObject(tableName, objectId);
         final List<AuditLog> allAuditLogs = transactionalSqlDao.execute(new EntitySqlDaoTransactionWrapper<List<AuditLog>>() {
             @Override
             public List<AuditLog> inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
@@ -237,4 +242,14 @@ public class DefaultAuditDao implements AuditDao {
             return auditLogs;
         }
     }
+
+    private Long getRecordIdFromObject(final TableName tableName, final UUID objectId) {
+        if (tableName.getObjectType() == null) {
+            // e.g. history tables
+            return nonEntitySqlDao.getRecordIdFromObject(objectId.toString(), tableName.getTableName());
+        } else {
+            // Go through the cache, which may have been warmed up in bulk (e.g. when listing objects with their audit logs)
+            return nonEntityDao.retrieveRecordIdFromObject(objectId, tableName.getObjectType(), cacheControllerDispatcher.getCacheController(CacheType.RECORD_ID));
+        }
+    }
 }
@@ -29,15 +29,19 @@ public @interface Cachable {
     String ACCOUNT_RECORD_ID_CACHE_NAME = "account-record-id";
     String TENANT_RECORD_ID_CACHE_NAME = "tenant-record-id";
     String OBJECT_ID_CACHE_NAME = "object-id";
+    String ACCOUNT_ID_CACHE_NAME = "account-id";
     String AUDIT_LOG_CACHE_NAME = "audit-log";
     String AUDIT_LOG_VIA_HISTORY_CACHE_NAME = "audit-log-via-history";
     String TENANT_CATALOG_CACHE_NAME = "tenant-catalog";
+    String TENANT_PLUGIN_CATALOG_CACHE_NAME = "tenant-plugin-catalog";
+    String PARSED_CATALOG_CACHE_NAME = "parsed-catalog";
     String TENANT_OVERDUE_CONFIG_CACHE_NAME = "tenant-overdue-config";
     String TENANT_KV_CACHE_NAME = "tenant-kv";
     String TENANT_CACHE_NAME = "tenant";
     String OVERRIDDEN_PLAN_CACHE_NAME = "overridden-plan";
     String ACCOUNT_IMMUTABLE_CACHE_NAME = "account-immutable";
     String ACCOUNT_BCD_CACHE_NAME = "account-bcd";
+    String PAYMENT_METHOD_PLUGIN_NAME_CACHE_NAME = "payment-method-plugin-name";
 
     CacheType value();
 
@@ -55,6 +59,9 @@ public @interface Cachable {
         /* Mapping from object 'recordId (Long') -> object 'id (UUID)'  */
         OBJECT_ID(OBJECT_ID_CACHE_NAME, true),
 
+        /* Mapping from account 'recordId (Long)' -> account 'id (UUID)' */
+        ACCOUNT_ID(ACCOUNT_ID_CACHE_NAME, false),
+
         /* Mapping from object 'tableName::targetRecordId' -> matching objects 'Iterable<AuditLog>' */
         AUDIT_LOG(AUDIT_LOG_CACHE_NAME, true),
 
@@ -64,6 +71,12 @@ public @interface Cachable {
         /* Tenant catalog cache */
         TENANT_CATALOG(TENANT_CATALOG_CACHE_NAME, false),
 
+        /* Tenant catalog cache for catalogs provided by a CatalogPluginApi */
+        TENANT_PLUGIN_CATALOG(TENANT_PLUGIN_CATALOG_CACHE_NAME, false),
+
+        /* Mapping from catalog XML 'content hash (String)' -> parsed and validated 'StandaloneCatalog', shared across tenants */
+        PARSED_CATALOG(PARSED_CATALOG_CACHE_NAME, false),
+
         /* Tenant overdue config cache */
         TENANT_OVERDUE_CONFIG(TENANT_OVERDUE_CONFIG_CACHE_NAME, false),
 
@@ -80,7 +93,10 @@ public @interface Cachable {
         ACCOUNT_IMMUTABLE(ACCOUNT_IMMUTABLE_CACHE_NAME, false),
 
         /* Account BCD config cache */
-        ACCOUNT_BCD(ACCOUNT_BCD_CACHE_NAME, false);
+        ACCOUNT_BCD(ACCOUNT_BCD_CACHE_NAME, false),
+
+        /* Mapping from payment method 'id (UUID)' -> payment plugin 'name (String)' */
+        PAYMENT_METHOD_PLUGIN_NAME(PAYMENT_METHOD_PLUGIN_NAME_CACHE_NAME, false);
 
         private final String cacheName;
         private final boolean isKeyPrefixedWithTableName;
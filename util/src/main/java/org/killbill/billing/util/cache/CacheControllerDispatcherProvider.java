@@ -20,15 +20,19 @@ package org.killbill.billing.util.cache;
 
 import java.util.Collection;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 import javax.inject.Inject;
 import javax.inject.Provider;
 
 import org.killbill.billing.util.cache.Cachable.CacheType;
+import org.killbill.billing.util.config.CacheConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.base.Function;
 import com.google.common.collect.Collections2;
 import com.google.common.collect.ImmutableList;
@@ -42,28 +46,104 @@ public class CacheControllerDispatcherProvider implements Provider<CacheControll
     private static final Logger logger = LoggerFactory.getLogger(CacheControllerDispatcherProvider.class);
 
     private final CacheManager cacheManager;
+    private final CacheConfig cacheConfig;
+    private final MetricRegistry metricRegistry;
 
     @Inject
-    public CacheControllerDispatcherProvider(final CacheManager cacheManager) {
+    public CacheControllerDispatcherProvider(final CacheManager cacheManager, final CacheConfig cacheConfig, final MetricRegistry metricRegistry) {
         this.cacheManager = cacheManager;
+        this.cacheConfig = cacheConfig;
+        this.metricRegistry = metricRegistry;
     }
 
     @Override
     public CacheControllerDispatcher get() {
+        final List<String> guavaCacheNames = cacheConfig.getGuavaCacheNames();
+        final List<String> negativeCacheNames = cacheConfig.getNegativeCacheNames();
+
         final Map<CacheType, CacheController<Object, Object>> cacheControllers = new LinkedHashMap<CacheType, CacheController<Object, Object>>();
         for (final String cacheName : cacheManager.getCacheNames()) {
             final CacheType cacheType = CacheType.findByName(cacheName);
 
-            final Collection<EhCacheBasedCacheController<Object, Object>> cacheControllersForCacheName = getCacheControllersForCacheName(cacheName, cacheType);
-            // EhCache supports multiple cache loaders per type, but not Kill Bill - take the first one
-            if (cacheControllersForCacheName.size() > 0) {
-                final EhCacheBasedCacheController<Object, Object> ehCacheBasedCacheController = cacheControllersForCacheName.iterator().next();
-                cacheControllers.put(cacheType, ehCacheBasedCacheController);
+            CacheController<Object, Object> cacheController = null;
+            if (guavaCacheNames.contains(cacheName)) {
+                cacheController = getGuavaCacheController(cacheName, cacheType);
+            }
+            if (cacheController == null) {
+                final Collection<EhCacheBasedCacheController<Object, Object>> cacheControllersForCacheName = getCacheControllersForCacheName(cacheName, cacheType);
+                // EhCache supports multiple cache loaders per type, but not Kill Bill - take the first one
+                if (cacheControllersForCacheName.size() > 0) {
+                    cacheController = cacheControllersForCacheName.iterator().next();
+                }
+            }
+            if (cacheController == null) {
+                continue;
+            }
+
+            if (negativeCacheNames.contains(cacheName)) {
+                cacheController = new NegativeCachingCacheController<Object, Object>(cacheController,
+                                                                                     cacheConfig.getNegativeCacheMaxEntries(),
+                                                                                     cacheConfig.getNegativeCacheTtl().getMillis());
             }
+            cacheControllers.put(cacheType, cacheController);
         }
         return new CacheControllerDispatcher(cacheControllers);
     }
 
+    private GuavaCacheController<Object, Object> getGuavaCacheController(final String name, final CacheType cacheType) {
+        final Ehcache cache = cacheManager.getEhcache(name);
+        if (cache == null || cache.getRegisteredCacheLoaders().isEmpty()) {
+            logger.warn("No cache configured for name {}", name);
+            return null;
+        }
+
+        // The EhCache configuration (size, expiration) and the CacheLoader registered in EhCacheCacheManagerProvider are re-used
+        final BaseCacheLoader cacheLoader = (BaseCacheLoader) cache.getRegisteredCacheLoaders().get(0);
+        final GuavaCacheController<Object, Object> guavaCacheController = GuavaCacheController.<Object, Object>create(cache.getCacheConfiguration(), cacheType, cacheLoader);
+        registerStatsGauges(name, guavaCacheController);
+        return guavaCacheController;
+    }
+
+    private void registerStatsGauges(final String name, final GuavaCacheController<Object, Object> guavaCacheController) {
+        registerGauge(name, "hits", new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return guavaCacheController.getStats().hitCount();
+            }
+        });
+        registerGauge(name, "misses", new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return guavaCacheController.getStats().missCount();
+            }
+        });
+        registerGauge(name, "evictions", new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return guavaCacheController.getStats().evictionCount();
+            }
+        });
+        registerGauge(name, "average-load-time-nanos", new Gauge<Double>() {
+            @Override
+            public Double getValue() {
+                return guavaCacheController.getStats().averageLoadPenalty();
+            }
+        });
+        registerGauge(name, "size", new Gauge<Integer>() {
+            @Override
+            public Integer getValue() {
+                return guavaCacheController.size();
+            }
+        });
+    }
+
+    private void registerGauge(final String cacheName, final String statName, final Gauge<?> gauge) {
+        final String metricName = MetricRegistry.name(GuavaCacheController.class, cacheName, statName);
+        // The registry may outlive the dispatcher (e.g. in tests)
+        metricRegistry.remove(metricName);
+        metricRegistry.register(metricName, gauge);
+    }
+
     private Collection<EhCacheBasedCacheController<Object, Object>> getCacheControllersForCacheName(final String name, final CacheType cacheType) {
         final Ehcache cache = cacheManager.getEhcache(name);
         if (cache == null) {
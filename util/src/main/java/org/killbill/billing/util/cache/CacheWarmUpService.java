@@ -0,0 +1,30 @@
+/*
+ * Copyright 2014-2016 Groupon, Inc
+ * Copyright 2014-2016 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.cache;
+
+import javax.annotation.Nullable;
+
+import org.killbill.billing.platform.api.KillbillService;
+import org.killbill.billing.util.nodes.json.CacheWarmUpModelJson;
+
+public interface CacheWarmUpService extends KillbillService {
+
+    // Null if the warm-up is disabled or hasn't started yet
+    @Nullable
+    public CacheWarmUpModelJson getCacheWarmUp();
+}
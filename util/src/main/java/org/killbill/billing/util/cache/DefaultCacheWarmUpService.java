@@ -0,0 +1,278 @@
+/*
+ * Copyright 2014-2016 Groupon, Inc
+ * Copyright 2014-2016 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.cache;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+
+import org.joda.time.DateTime;
+import org.killbill.billing.ObjectType;
+import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.platform.api.LifecycleHandlerType;
+import org.killbill.billing.platform.api.LifecycleHandlerType.LifecycleLevel;
+import org.killbill.billing.util.cache.Cachable.CacheType;
+import org.killbill.billing.util.callcontext.InternalCallContextFactory;
+import org.killbill.billing.util.config.CacheConfig;
+import org.killbill.billing.util.dao.NonEntityDao;
+import org.killbill.billing.util.dao.NonEntitySqlDao;
+import org.killbill.billing.util.dao.ObjectRecordIds;
+import org.killbill.billing.util.nodes.KillbillNodesService;
+import org.killbill.billing.util.nodes.json.CacheWarmUpModelJson;
+import org.killbill.billing.util.nodes.json.CacheWarmUpModelJson.CacheWarmUpState;
+import org.killbill.clock.Clock;
+import org.killbill.commons.concurrent.Executors;
+import org.skife.jdbi.v2.IDBI;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+/**
+ * Pre-loads, when the node starts, the caches which are otherwise populated by the first requests of each tenant:
+ * tenant api keys and record ids, per tenant caches registered as {@link TenantCacheWarmUpCallback} (catalog, overdue config)
+ * and the record id mappings of the most recently updated accounts.
+ * <p/>
+ * The warm-up runs in the background (the node starts serving requests right away, with the caches filling up),
+ * tenants are processed in parallel and whatever isn't done once the time budget is exhausted is abandoned.
+ * Progress is reported through the node info.
+ */
+public class DefaultCacheWarmUpService implements CacheWarmUpService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DefaultCacheWarmUpService.class);
+
+    public static final String CACHE_WARM_UP_SERVICE_NAME = "cache-warm-up-service";
+
+    private static final long PROGRESS_REPORT_INTERVAL_MS = 1000;
+
+    private final CacheConfig cacheConfig;
+    private final NonEntitySqlDao nonEntitySqlDao;
+    private final NonEntityDao nonEntityDao;
+    private final CacheControllerDispatcher cacheControllerDispatcher;
+    private final InternalCallContextFactory internalCallContextFactory;
+    private final Set<TenantCacheWarmUpCallback> tenantCacheWarmUpCallbacks;
+    private final KillbillNodesService nodesService;
+    private final Clock clock;
+
+    private final AtomicInteger nbTenantsWarmedUp = new AtomicInteger(0);
+    private final AtomicInteger nbAccountsWarmedUp = new AtomicInteger(0);
+
+    private ExecutorService coordinatorExecutor;
+    private ExecutorService tenantsExecutor;
+
+    private volatile DateTime startDate;
+    private volatile int nbTenants;
+    private CacheWarmUpModelJson cacheWarmUp;
+    private long lastProgressReportMillis;
+
+    @Inject
+    public DefaultCacheWarmUpService(final CacheConfig cacheConfig,
+                                     final IDBI dbi,
+                                     final NonEntityDao nonEntityDao,
+                                     final CacheControllerDispatcher cacheControllerDispatcher,
+                                     final InternalCallContextFactory internalCallContextFactory,
+                                     final Set<TenantCacheWarmUpCallback> tenantCacheWarmUpCallbacks,
+                                     final KillbillNodesService nodesService,
+                                     final Clock clock) {
+        this.cacheConfig = cacheConfig;
+        this.nonEntitySqlDao = dbi.onDemand(NonEntitySqlDao.class);
+        this.nonEntityDao = nonEntityDao;
+        this.cacheControllerDispatcher = cacheControllerDispatcher;
+        this.internalCallContextFactory = internalCallContextFactory;
+        this.tenantCacheWarmUpCallbacks = tenantCacheWarmUpCallbacks;
+        this.nodesService = nodesService;
+        this.clock = clock;
+    }
+
+    @Override
+    public String getName() {
+        return CACHE_WARM_UP_SERVICE_NAME;
+    }
+
+    @Override
+    public synchronized CacheWarmUpModelJson getCacheWarmUp() {
+        return cacheWarmUp;
+    }
+
+    @LifecycleHandlerType(LifecycleLevel.START_SERVICE)
+    public void start() {
+        if (!cacheConfig.isCacheWarmUpEnabled()) {
+            return;
+        }
+
+        coordinatorExecutor = Executors.newSingleThreadExecutor("CacheWarmUpCoordinator");
+        tenantsExecutor = Executors.newFixedThreadPool(cacheConfig.getCacheWarmUpNbThreads(), "CacheWarmUp");
+        coordinatorExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+                warmUp();
+            }
+        });
+    }
+
+    @LifecycleHandlerType(LifecycleLevel.STOP_SERVICE)
+    public void stop() {
+        if (coordinatorExecutor != null) {
+            coordinatorExecutor.shutdownNow();
+        }
+        if (tenantsExecutor != null) {
+            tenantsExecutor.shutdownNow();
+        }
+    }
+
+    private void warmUp() {
+        startDate = clock.getUTCNow();
+        final long deadlineMillis = System.currentTimeMillis() + cacheConfig.getCacheWarmUpTimeBudget().getMillis();
+        logger.info("Starting cache warm-up, timeBudget={}", cacheConfig.getCacheWarmUpTimeBudget());
+
+        final List<Long> tenantRecordIds;
+        try {
+            tenantRecordIds = warmUpTenants(deadlineMillis);
+        } catch (final RuntimeException e) {
+            logger.warn("Cache warm-up failed", e);
+            reportProgress(CacheWarmUpState.FAILED, clock.getUTCNow());
+            return;
+        }
+        nbTenants = tenantRecordIds.size();
+        reportProgress(CacheWarmUpState.RUNNING, null);
+
+        final List<Future<?>> futures = new LinkedList<Future<?>>();
+        for (final Long tenantRecordId : tenantRecordIds) {
+            futures.add(tenantsExecutor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    warmUpTenant(tenantRecordId);
+                    nbTenantsWarmedUp.incrementAndGet();
+                    reportProgress(CacheWarmUpState.RUNNING, null);
+                }
+            }));
+        }
+
+        CacheWarmUpState state = CacheWarmUpState.COMPLETED;
+        for (final Future<?> future : futures) {
+            try {
+                future.get(Math.max(deadlineMillis - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS);
+            } catch (final TimeoutException e) {
+                state = CacheWarmUpState.TIMED_OUT;
+                break;
+            } catch (final InterruptedException e) {
+                // Node is shutting down
+                Thread.currentThread().interrupt();
+                state = CacheWarmUpState.FAILED;
+                break;
+            } catch (final ExecutionException e) {
+                logger.warn("Cache warm-up of a tenant failed", e.getCause());
+            } catch (final CancellationException e) {
+                state = CacheWarmUpState.FAILED;
+                break;
+            }
+        }
+
+        if (state != CacheWarmUpState.COMPLETED) {
+            for (final Future<?> future : futures) {
+                future.cancel(true);
+            }
+        }
+        tenantsExecutor.shutdown();
+
+        reportProgress(state, clock.getUTCNow());
+        logger.info("Cache warm-up done, state={}, nbTenantsWarmedUp={}/{}, nbAccountsWarmedUp={}", state, nbTenantsWarmedUp.get(), nbTenants, nbAccountsWarmedUp.get());
+    }
+
+    // Returns the record ids of the tenants to warm up, including the internal tenant
+    private List<Long> warmUpTenants(final long deadlineMillis) {
+        final CacheController<Object, Object> tenantCache = cacheControllerDispatcher.getCacheController(CacheType.TENANT);
+        if (tenantCache != null) {
+            final CacheLoaderArgument tenantLoaderArgument = new CacheLoaderArgument(ObjectType.TENANT);
+            for (final String apiKey : nonEntitySqlDao.getTenantApiKeys()) {
+                if (System.currentTimeMillis() > deadlineMillis) {
+                    break;
+                }
+                try {
+                    tenantCache.get(apiKey, tenantLoaderArgument);
+                } catch (final RuntimeException e) {
+                    logger.warn("Failed to warm up the tenant cache for apiKey={}", apiKey, e);
+                }
+            }
+        }
+
+        // Tenant id <-> record id mappings, in bulk
+        final List<Long> tenantRecordIds = nonEntitySqlDao.getTenantRecordIds();
+        nonEntityDao.retrieveObjectRecordIdsFromRecordIds(tenantRecordIds, ObjectType.TENANT, cacheControllerDispatcher);
+
+        return ImmutableList.<Long>builder()
+                            .add(InternalCallContextFactory.INTERNAL_TENANT_RECORD_ID)
+                            .addAll(tenantRecordIds)
+                            .build();
+    }
+
+    private void warmUpTenant(final Long tenantRecordId) {
+        final InternalTenantContext tenantContext = internalCallContextFactory.createInternalTenantContext(tenantRecordId, null);
+        for (final TenantCacheWarmUpCallback callback : tenantCacheWarmUpCallbacks) {
+            try {
+                callback.warmUp(tenantContext);
+            } catch (final Exception e) {
+                logger.warn("Failed to warm up cache for tenantRecordId={}", tenantRecordId, e);
+            }
+        }
+
+        final List<String> accountIds = nonEntitySqlDao.getRecentlyUpdatedAccountIds(tenantRecordId, cacheConfig.getCacheWarmUpNbAccountsPerTenant());
+        if (accountIds.isEmpty()) {
+            return;
+        }
+        final Map<UUID, ObjectRecordIds> accountRecordIds = nonEntityDao.retrieveObjectRecordIdsFromObjects(Lists.<String, UUID>transform(accountIds, new Function<String, UUID>() {
+                                                                                                                    @Override
+                                                                                                                    public UUID apply(final String input) {
+                                                                                                                        return UUID.fromString(input);
+                                                                                                                    }
+                                                                                                                }),
+                                                                                                                ObjectType.ACCOUNT,
+                                                                                                                cacheControllerDispatcher);
+        nbAccountsWarmedUp.addAndGet(accountRecordIds.size());
+    }
+
+    private synchronized void reportProgress(final CacheWarmUpState state, @Nullable final DateTime endDate) {
+        if (cacheWarmUp != null && cacheWarmUp.getState() != CacheWarmUpState.RUNNING) {
+            // Late progress from an abandoned tenant
+            return;
+        }
+
+        final long now = System.currentTimeMillis();
+        if (state == CacheWarmUpState.RUNNING && cacheWarmUp != null && now - lastProgressReportMillis < PROGRESS_REPORT_INTERVAL_MS) {
+            return;
+        }
+        lastProgressReportMillis = now;
+
+        cacheWarmUp = new CacheWarmUpModelJson(state, startDate, endDate, nbTenants, nbTenantsWarmedUp.get(), nbAccountsWarmedUp.get());
+        nodesService.updateCacheWarmUp(cacheWarmUp);
+    }
+}
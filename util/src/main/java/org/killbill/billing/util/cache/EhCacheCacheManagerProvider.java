@@ -57,13 +57,17 @@ public class EhCacheCacheManagerProvider implements Provider<CacheManager> {
                                        final AccountRecordIdCacheLoader accountRecordIdCacheLoader,
                                        final TenantRecordIdCacheLoader tenantRecordIdCacheLoader,
                                        final ObjectIdCacheLoader objectIdCacheLoader,
+                                       final AccountIdCacheLoader accountIdCacheLoader,
                                        final AuditLogCacheLoader auditLogCacheLoader,
                                        final AuditLogViaHistoryCacheLoader auditLogViaHistoryCacheLoader,
                                        final TenantCatalogCacheLoader tenantCatalogCacheLoader,
+                                       final TenantPluginCatalogCacheLoader tenantPluginCatalogCacheLoader,
+                                       final ParsedCatalogCacheLoader parsedCatalogCacheLoader,
                                        final TenantOverdueConfigCacheLoader tenantOverdueConfigCacheLoader,
                                        final TenantKVCacheLoader tenantKVCacheLoader,
                                        final TenantCacheLoader tenantCacheLoader,
-                                       final OverriddenPlanCacheLoader overriddenPlanCacheLoader) {
+                                       final OverriddenPlanCacheLoader overriddenPlanCacheLoader,
+                                       final PaymentMethodPluginNameCacheLoader paymentMethodPluginNameCacheLoader) {
         this.metricRegistry = metricRegistry;
         this.cacheConfig = cacheConfig;
         cacheLoaders.add(accountCacheLoader);
@@ -72,13 +76,17 @@ public class EhCacheCacheManagerProvider implements Provider<CacheManager> {
         cacheLoaders.add(accountRecordIdCacheLoader);
         cacheLoaders.add(tenantRecordIdCacheLoader);
         cacheLoaders.add(objectIdCacheLoader);
+        cacheLoaders.add(accountIdCacheLoader);
         cacheLoaders.add(auditLogCacheLoader);
         cacheLoaders.add(auditLogViaHistoryCacheLoader);
         cacheLoaders.add(tenantCatalogCacheLoader);
+        cacheLoaders.add(tenantPluginCatalogCacheLoader);
+        cacheLoaders.add(parsedCatalogCacheLoader);
         cacheLoaders.add(tenantOverdueConfigCacheLoader);
         cacheLoaders.add(tenantKVCacheLoader);
         cacheLoaders.add(tenantCacheLoader);
         cacheLoaders.add(overriddenPlanCacheLoader);
+        cacheLoaders.add(paymentMethodPluginNameCacheLoader);
     }
 
     @Override
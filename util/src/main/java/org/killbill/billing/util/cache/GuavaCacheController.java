@@ -0,0 +1,156 @@
+/*
+ * Copyright 2014-2016 Groupon, Inc
+ * Copyright 2014-2016 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.cache;
+
+import java.util.Collection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+import org.killbill.billing.util.cache.Cachable.CacheType;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader.InvalidCacheLoadException;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.Weigher;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import net.sf.ehcache.config.CacheConfiguration;
+
+/**
+ * In-process alternative to EhCache, backed by a Guava cache.
+ * <p/>
+ * Entries are weighted by their size (number of elements for collections, e.g. audit logs, 1 otherwise), so that the
+ * configured maximum bounds the number of cached objects rather than the number of keys.
+ */
+public class GuavaCacheController<K, V> implements CacheController<K, V> {
+
+    private final Cache<K, Object> cache;
+    private final CacheType cacheType;
+    private final BaseCacheLoader cacheLoader;
+
+    public GuavaCacheController(final Cache<K, Object> cache, final CacheType cacheType, final BaseCacheLoader cacheLoader) {
+        this.cache = cache;
+        this.cacheType = cacheType;
+        this.cacheLoader = cacheLoader;
+    }
+
+    // Re-use the EhCache XML configuration (size and expiration) of the cache
+    public static <K, V> GuavaCacheController<K, V> create(final CacheConfiguration cacheConfiguration, final CacheType cacheType, final BaseCacheLoader cacheLoader) {
+        final CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder().recordStats();
+        // 0 means unbounded in EhCache
+        if (cacheConfiguration.getMaxEntriesLocalHeap() > 0) {
+            builder.maximumWeight(cacheConfiguration.getMaxEntriesLocalHeap())
+                   .weigher(new SizeWeigher());
+        }
+        if (!cacheConfiguration.isEternal()) {
+            if (cacheConfiguration.getTimeToLiveSeconds() > 0) {
+                builder.expireAfterWrite(cacheConfiguration.getTimeToLiveSeconds(), TimeUnit.SECONDS);
+            }
+            if (cacheConfiguration.getTimeToIdleSeconds() > 0) {
+                builder.expireAfterAccess(cacheConfiguration.getTimeToIdleSeconds(), TimeUnit.SECONDS);
+            }
+        }
+        return new GuavaCacheController<K, V>(builder.<K, Object>build(), cacheType, cacheLoader);
+    }
+
+    @Override
+    public void add(final K key, final V value) {
+        putIfAbsent(key, value);
+    }
+
+    @Override
+    public V get(final K key, @Nullable final CacheLoaderArgument cacheLoaderArgument) {
+        if (cacheLoaderArgument == null) {
+            return get(key);
+        }
+
+        final Object value;
+        try {
+            value = cache.get(key, new Callable<Object>() {
+                @Override
+                public Object call() throws Exception {
+                    return cacheLoader.load(key, cacheLoaderArgument);
+                }
+            });
+        } catch (final InvalidCacheLoadException e) {
+            // The loader returned null: nothing to cache
+            return null;
+        } catch (final UncheckedExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        } catch (final ExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        }
+        return toValue(value);
+    }
+
+    @Override
+    public V get(final K key) {
+        return toValue(cache.getIfPresent(key));
+    }
+
+    @Override
+    public void putIfAbsent(final K key, final V value) {
+        cache.asMap().putIfAbsent(key, value);
+    }
+
+    @Override
+    public boolean remove(final K key) {
+        return cache.asMap().remove(key) != null;
+    }
+
+    @Override
+    public int size() {
+        return (int) cache.size();
+    }
+
+    @Override
+    public void removeAll() {
+        cache.invalidateAll();
+    }
+
+    @Override
+    public CacheType getCacheType() {
+        return cacheType;
+    }
+
+    public CacheStats getStats() {
+        return cache.stats();
+    }
+
+    private V toValue(@Nullable final Object value) {
+        if (value == null || value.equals(BaseCacheLoader.EMPTY_VALUE_PLACEHOLDER)) {
+            return null;
+        }
+        return (V) value;
+    }
+
+    private static final class SizeWeigher implements Weigher<Object, Object> {
+
+        @Override
+        public int weigh(final Object key, final Object value) {
+            if (value instanceof Collection) {
+                return Math.max(((Collection) value).size(), 1);
+            }
+            return 1;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2014-2016 Groupon, Inc
+ * Copyright 2014-2016 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.cache;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+import org.killbill.billing.util.cache.Cachable.CacheType;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Remembers, for a short while, the keys for which the loader didn't find anything, so that lookups of nonexistent
+ * objects don't hit the database every time.
+ * <p/>
+ * Negative entries are kept apart from the delegate (so that they can't evict real entries) and are invalidated
+ * whenever the key is populated (e.g. populateCacheOnGetByIdInvocation right after an object is created) or removed
+ * (e.g. tenant broadcast). Other nodes rely on the TTL.
+ * <p/>
+ * A negative entry never outlives a concurrent population of the key: writers populate the delegate before invalidating
+ * the negative entry, and readers check the delegate again after recording a miss.
+ */
+public class NegativeCachingCacheController<K, V> implements CacheController<K, V> {
+
+    private final CacheController<K, V> delegate;
+    private final Cache<K, Boolean> negativeCache;
+
+    public NegativeCachingCacheController(final CacheController<K, V> delegate, final long maxEntries, final long ttlMillis) {
+        this.delegate = delegate;
+        this.negativeCache = CacheBuilder.newBuilder()
+                                         .maximumSize(maxEntries)
+                                         .expireAfterWrite(ttlMillis, TimeUnit.MILLISECONDS)
+                                         .build();
+    }
+
+    @Override
+    public void add(final K key, final V value) {
+        delegate.add(key, value);
+        negativeCache.invalidate(key);
+    }
+
+    @Override
+    public V get(final K key, @Nullable final CacheLoaderArgument cacheLoaderArgument) {
+        if (cacheLoaderArgument == null) {
+            return delegate.get(key);
+        }
+        final V cachedValue = delegate.get(key);
+        if (cachedValue != null) {
+            return cachedValue;
+        }
+        if (negativeCache.getIfPresent(key) != null) {
+            return null;
+        }
+
+        final V value = delegate.get(key, cacheLoaderArgument);
+        if (value == null) {
+            negativeCache.put(key, Boolean.TRUE);
+            // The key may have been populated between the miss and the put
+            final V populatedValue = delegate.get(key);
+            if (populatedValue != null) {
+                negativeCache.invalidate(key);
+                return populatedValue;
+            }
+        }
+        return value;
+    }
+
+    @Override
+    public V get(final K key) {
+        return delegate.get(key);
+    }
+
+    @Override
+    public boolean remove(final K key) {
+        negativeCache.invalidate(key);
+        return delegate.remove(key);
+    }
+
+    @Override
+    public void putIfAbsent(final K key, final V value) {
+        delegate.putIfAbsent(key, value);
+        negativeCache.invalidate(key);
+    }
+
+    @Override
+    public int size() {
+        return delegate.size();
+    }
+
+    @Override
+    public void removeAll() {
+        negativeCache.invalidateAll();
+        delegate.removeAll();
+    }
+
+    @Override
+    public CacheType getCacheType() {
+        return delegate.getCacheType();
+    }
+
+    public long getNegativeCacheSize() {
+        return negativeCache.size();
+    }
+}
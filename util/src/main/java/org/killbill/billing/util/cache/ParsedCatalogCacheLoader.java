@@ -0,0 +1,80 @@
+/*
+ * Copyright 2014-2016 Groupon, Inc
+ * Copyright 2014-2016 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.cache;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.killbill.billing.catalog.api.CatalogApiException;
+import org.killbill.billing.util.cache.Cachable.CacheType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+@Singleton
+public class ParsedCatalogCacheLoader extends BaseCacheLoader {
+
+    private final Logger log = LoggerFactory.getLogger(ParsedCatalogCacheLoader.class);
+
+    @Inject
+    public ParsedCatalogCacheLoader() {
+        super();
+    }
+
+    @Override
+    public CacheType getCacheType() {
+        return CacheType.PARSED_CATALOG;
+    }
+
+    @Override
+    public Object load(final Object key, final Object argument) {
+        checkCacheLoaderStatus();
+
+        if (!(key instanceof String)) {
+            throw new IllegalArgumentException("Unexpected key type of " + key.getClass().getName());
+        }
+        if (!(argument instanceof CacheLoaderArgument)) {
+            throw new IllegalArgumentException("Unexpected argument type of " + argument.getClass().getName());
+        }
+
+        final CacheLoaderArgument cacheLoaderArgument = (CacheLoaderArgument) argument;
+        if (cacheLoaderArgument.getArgs() == null || cacheLoaderArgument.getArgs().length != 2) {
+            throw new IllegalArgumentException("Invalid arguments for parsed catalog");
+        }
+        if (!(cacheLoaderArgument.getArgs()[0] instanceof LoaderCallback)) {
+            throw new IllegalArgumentException("Invalid arguments for parsed catalog: missing loaderCallback from argument");
+        }
+        if (!(cacheLoaderArgument.getArgs()[1] instanceof String)) {
+            throw new IllegalArgumentException("Invalid arguments for parsed catalog: missing catalog XML from argument");
+        }
+
+        final String catalogHash = (String) key;
+        final LoaderCallback callback = (LoaderCallback) cacheLoaderArgument.getArgs()[0];
+        final String catalogXML = (String) cacheLoaderArgument.getArgs()[1];
+        try {
+            log.info("Parsing catalog with hash {}", catalogHash);
+            return callback.parseCatalog(catalogXML);
+        } catch (final CatalogApiException e) {
+            throw new IllegalStateException(String.format("Failed to de-serialize catalog with hash %s : %s", catalogHash, e.getMessage()), e);
+        }
+    }
+
+    public interface LoaderCallback {
+
+        public Object parseCatalog(final String catalogXML) throws CatalogApiException;
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2014-2016 Groupon, Inc
+ * Copyright 2014-2016 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.cache;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.util.cache.Cachable.CacheType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+@Singleton
+public class TenantPluginCatalogCacheLoader extends BaseCacheLoader {
+
+    private final Logger log = LoggerFactory.getLogger(TenantPluginCatalogCacheLoader.class);
+
+    @Inject
+    public TenantPluginCatalogCacheLoader() {
+        super();
+    }
+
+    @Override
+    public CacheType getCacheType() {
+        return CacheType.TENANT_PLUGIN_CATALOG;
+    }
+
+    @Override
+    public Object load(final Object key, final Object argument) {
+        checkCacheLoaderStatus();
+
+        if (!(key instanceof Long)) {
+            throw new IllegalArgumentException("Unexpected key type of " + key.getClass().getName());
+        }
+        if (!(argument instanceof CacheLoaderArgument)) {
+            throw new IllegalArgumentException("Unexpected argument type of " + argument.getClass().getName());
+        }
+
+        final CacheLoaderArgument cacheLoaderArgument = (CacheLoaderArgument) argument;
+        if (cacheLoaderArgument.getArgs() == null || cacheLoaderArgument.getArgs().length != 2) {
+            throw new IllegalArgumentException("Invalid arguments for plugin catalog");
+        }
+        if (!(cacheLoaderArgument.getArgs()[0] instanceof LoaderCallback)) {
+            throw new IllegalArgumentException("Invalid arguments for plugin catalog: missing loaderCallback from argument");
+        }
+        if (cacheLoaderArgument.getArgs()[1] == null) {
+            throw new IllegalArgumentException("Invalid arguments for plugin catalog: missing plugin catalog from argument");
+        }
+
+        final Long tenantRecordId = (Long) key;
+        final LoaderCallback callback = (LoaderCallback) cacheLoaderArgument.getArgs()[0];
+        final Object pluginCatalog = cacheLoaderArgument.getArgs()[1];
+        // The cached catalog is shared by all callers of that tenant, so we don't keep a reference on the caller context
+        final InternalTenantContext internalTenantContext = new InternalTenantContext(tenantRecordId);
+
+        log.info("Loading plugin catalog cache for tenant {}", tenantRecordId);
+        return callback.loadPluginCatalog(pluginCatalog, internalTenantContext);
+    }
+
+    public interface LoaderCallback {
+
+        // The pluginCatalog is the VersionedPluginCatalog returned by the CatalogPluginApi, which this module knows nothing about
+        public Object loadPluginCatalog(final Object pluginCatalog, final InternalTenantContext internalTenantContext);
+    }
+}
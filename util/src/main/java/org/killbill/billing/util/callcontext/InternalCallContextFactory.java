@@ -18,6 +18,9 @@
 
 package org.killbill.billing.util.callcontext;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.UUID;
 
 import javax.annotation.Nullable;
@@ -29,10 +32,13 @@ import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.util.cache.Cachable.CacheType;
 import org.killbill.billing.util.cache.CacheControllerDispatcher;
+import org.killbill.billing.util.cache.CacheLoaderArgument;
 import org.killbill.billing.util.dao.NonEntityDao;
+import org.killbill.billing.util.dao.ObjectRecordIds;
 import org.killbill.clock.Clock;
 
 import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableMap;
 
 // Internal contexts almost always expect accountRecordId and tenantRecordId to be populated
 public class InternalCallContextFactory {
@@ -245,6 +251,11 @@ public class InternalCallContextFactory {
         }
     }
 
+    // Retrieve the account id from its record id (e.g. the account record id from a bus event search key), through a dedicated cache
+    public UUID getAccountIdFromAccountRecordId(final Long accountRecordId) {
+        return (UUID) cacheControllerDispatcher.getCacheController(CacheType.ACCOUNT_ID).get(accountRecordId, new CacheLoaderArgument(ObjectType.ACCOUNT));
+    }
+
     // Safe method to retrieve the record id from any object (should only be used by DefaultRecordIdApi)
     public Long getRecordIdFromObject(final UUID objectId, final ObjectType objectType, final TenantContext context) {
         try {
@@ -258,6 +269,39 @@ public class InternalCallContextFactory {
         }
     }
 
+    // Safe method to retrieve, with one query, the record ids of objects of the same type (objects which don't exist or don't belong to the tenant are omitted).
+    // As a side effect, this warms up the caches used by the per-object methods (e.g. before iterating over a page of results)
+    public Map<UUID, Long> getRecordIdsFromObjects(final Collection<UUID> objectIds, final ObjectType objectType, final TenantContext context) {
+        final Long realTenantRecordId = getTenantRecordIdSafe(context);
+        if (realTenantRecordId == null || objectIds.isEmpty()) {
+            return ImmutableMap.<UUID, Long>of();
+        }
+
+        final Map<UUID, Long> recordIds = new LinkedHashMap<UUID, Long>();
+        for (final ObjectRecordIds objectRecordIds : nonEntityDao.retrieveObjectRecordIdsFromObjects(objectIds, objectType, cacheControllerDispatcher).values()) {
+            if (realTenantRecordId.equals(objectRecordIds.getTenantRecordId())) {
+                recordIds.put(objectRecordIds.getId(), objectRecordIds.getRecordId());
+            }
+        }
+        return recordIds;
+    }
+
+    // Safe method to retrieve, with one query, the ids of objects of the same type from their record ids (objects which don't exist or don't belong to the tenant are omitted)
+    public Map<Long, UUID> getIdsFromRecordIds(final Collection<Long> recordIds, final ObjectType objectType, final TenantContext context) {
+        final Long realTenantRecordId = getTenantRecordIdSafe(context);
+        if (realTenantRecordId == null || recordIds.isEmpty()) {
+            return ImmutableMap.<Long, UUID>of();
+        }
+
+        final Map<Long, UUID> ids = new LinkedHashMap<Long, UUID>();
+        for (final ObjectRecordIds objectRecordIds : nonEntityDao.retrieveObjectRecordIdsFromRecordIds(recordIds, objectType, cacheControllerDispatcher).values()) {
+            if (realTenantRecordId.equals(objectRecordIds.getTenantRecordId())) {
+                ids.put(objectRecordIds.getRecordId(), objectRecordIds.getId());
+            }
+        }
+        return ids;
+    }
+
     //
     // Safe NonEntityDao private wrappers
     //
@@ -16,9 +16,12 @@
 
 package org.killbill.billing.util.config;
 
+import java.util.List;
+
 import org.skife.config.Config;
 import org.skife.config.Default;
 import org.skife.config.Description;
+import org.skife.config.TimeSpan;
 
 public interface CacheConfig extends KillbillConfig {
 
@@ -27,4 +30,44 @@ public interface CacheConfig extends KillbillConfig {
     @Description("Path to Ehcache XML configuration")
     public String getCacheConfigLocation();
 
+    @Config("org.killbill.cache.guava.cacheNames")
+    @Default("")
+    @Description("Names of the caches served by the Guava backend instead of EhCache (sizes and expirations are still read from the EhCache configuration, sizes being weighted by the number of cached elements)")
+    public List<String> getGuavaCacheNames();
+
+    @Config("org.killbill.cache.negative.cacheNames")
+    @Default("record-id,object-id,tenant-record-id")
+    @Description("Names of the caches remembering (for a short while) the keys which weren't found")
+    public List<String> getNegativeCacheNames();
+
+    @Config("org.killbill.cache.negative.ttl")
+    @Default("10s")
+    @Description("How long a key which wasn't found is remembered")
+    public TimeSpan getNegativeCacheTtl();
+
+    @Config("org.killbill.cache.negative.maxEntries")
+    @Default("10000")
+    @Description("Maximum number of keys which weren't found remembered per cache")
+    public int getNegativeCacheMaxEntries();
+
+    @Config("org.killbill.cache.warmup.enabled")
+    @Default("false")
+    @Description("Whether to pre-load the tenant and record id caches when the node starts")
+    public boolean isCacheWarmUpEnabled();
+
+    @Config("org.killbill.cache.warmup.timeBudget")
+    @Default("60s")
+    @Description("Maximum time spent warming up the caches (remaining tasks are abandoned)")
+    public TimeSpan getCacheWarmUpTimeBudget();
+
+    @Config("org.killbill.cache.warmup.nbThreads")
+    @Default("4")
+    @Description("Number of threads warming up the caches (one tenant at a time per thread)")
+    public int getCacheWarmUpNbThreads();
+
+    @Config("org.killbill.cache.warmup.nbAccountsPerTenant")
+    @Default("1000")
+    @Description("Number of recently updated accounts per tenant whose record id mappings are pre-loaded")
+    public int getCacheWarmUpNbAccountsPerTenant();
+
 }
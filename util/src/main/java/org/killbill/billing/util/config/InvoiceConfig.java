@@ -49,4 +49,15 @@ public interface InvoiceConfig extends KillbillConfig {
     @Default("50")
     @Description("Maximum number of times the system will retry to grab global lock (with a 100ms wait each time)")
     int getMaxGlobalLockRetries();
+
+    @Config("org.killbill.invoice.accountBalanceLedger.enabled")
+    @Default("false")
+    @Description("Whether to maintain a per-account balance and CBA summary, instead of recomputing them from all the invoices of the account. " +
+                 "While this is off, writes delete the summary of their account instead (it is re-initialized on the next write once turned back on)")
+    boolean isAccountBalanceLedgerEnabled();
+
+    @Config("org.killbill.invoice.accountBalanceLedger.verify")
+    @Default("false")
+    @Description("Whether to check each read of the account balance summary against the invoices (audit mode, expensive)")
+    boolean isAccountBalanceLedgerVerificationEnabled();
 }
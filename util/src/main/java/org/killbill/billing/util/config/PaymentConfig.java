@@ -51,6 +51,26 @@ public interface PaymentConfig extends KillbillConfig {
     @Description("Specify the max number of attempts before retrying a payment that failed due to a plugin failure (gateway is down, transient error, ...)")
     int getPluginFailureRetryMaxAttempts();
 
+    @Config("org.killbill.payment.retry.spread.window")
+    @Default("0s")
+    @Description("Window over which scheduled (non priority) payment retries are spread, to avoid retrying large cohorts at the same time (0 to disable)")
+    TimeSpan getRetrySpreadWindow();
+
+    @Config("org.killbill.payment.retry.plugin.maxPerSecond")
+    @Default("0")
+    @Description("Maximum number of payment retries dispatched per second for each payment plugin (0 for no limit)")
+    int getRetryMaxPerSecondPerPlugin();
+
+    @Config("org.killbill.payment.retry.plugin.reservedPerSecond")
+    @Default("0")
+    @Description("Number of payment retries per second, out of the per plugin maximum, reserved for priority retries")
+    int getRetryReservedPerSecondPerPlugin();
+
+    @Config("org.killbill.payment.retry.throttle.delay")
+    @Default("5s")
+    @Description("Delay (with jitter) before dispatching again a payment retry which exceeded the per plugin maximum")
+    TimeSpan getRetryThrottleDelay();
+
     @Config("org.killbill.payment.plugin.timeout")
     @Default("30s")
     @Description("Timeout for each payment attempt")
@@ -61,6 +81,21 @@ public interface PaymentConfig extends KillbillConfig {
     @Description("Number of threads for plugin executor dispatcher")
     int getPaymentPluginThreadNb();
 
+    @Config("org.killbill.payment.plugin.info.maxConcurrentCalls")
+    @Default("10")
+    @Description("Maximum number of concurrent plugin calls retrieving the payment info of a single account payments request")
+    int getPaymentPluginInfoMaxConcurrentCalls();
+
+    @Config("org.killbill.payment.bulk.threads.nb")
+    @Default("20")
+    @Description("Number of threads processing the accounts of bulk payment requests")
+    int getBulkPaymentThreadNb();
+
+    @Config("org.killbill.payment.bulk.plugin.maxConcurrentPayments")
+    @Default("10")
+    @Description("Maximum number of concurrent payments per payment plugin for bulk payment requests")
+    int getBulkPaymentMaxConcurrentPaymentsPerPlugin();
+
     @Config("org.killbill.payment.janitor.attempts.delay")
     @Default("12h")
     @Description("Delay before which unresolved attempt should be retried")
@@ -76,11 +111,31 @@ public interface PaymentConfig extends KillbillConfig {
     @Description("Rate at which janitor tasks are scheduled")
     TimeSpan getJanitorRunningRate();
 
+    @Config("org.killbill.payment.invoice.autoPayOff.drain.pageSize")
+    @Default("100")
+    @Description("Number of parked AUTO_PAY_OFF payments loaded at a time when the AUTO_PAY_OFF tag is removed")
+    int getAutoPayOffDrainPageSize();
+
     @Config("org.killbill.payment.invoice.plugin")
     @Default("")
     @Description("Default payment control plugin names")
     List<String> getPaymentControlPluginNames();
 
+    @Config("org.killbill.payment.control.observers")
+    @Default("")
+    @Description("Payment control plugins which only observe payments (their results are ignored), and can therefore be invoked concurrently")
+    List<String> getPaymentControlObserverPluginNames();
+
+    @Config("org.killbill.payment.control.observers.timeout")
+    @Default("10s")
+    @Description("Maximum time to wait for the observer payment control plugins")
+    TimeSpan getPaymentControlObserverTimeout();
+
+    @Config("org.killbill.payment.control.observers.threads.nb")
+    @Default("10")
+    @Description("Number of threads invoking the observer payment control plugins")
+    int getPaymentControlObserverThreadNb();
+
     @Config("org.killbill.payment.globalLock.retries")
     @Default("50")
     @Description("Maximum number of times the system will retry to grab global lock (with a 100ms wait each time)")
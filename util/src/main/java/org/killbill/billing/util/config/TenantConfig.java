@@ -29,4 +29,14 @@ public interface TenantConfig extends KillbillConfig {
     @Description("Rate at which tenant broadcast task is scheduled")
     public TimeSpan getTenantBroadcastServiceRunningRate();
 
+    @Config("org.killbill.tenant.broadcast.adaptive")
+    @Default("false")
+    @Description("Whether the tenant broadcast task polls faster right after a change and backs off (up to the broadcast rate) when idle")
+    public boolean isTenantBroadcastAdaptive();
+
+    @Config("org.killbill.tenant.broadcast.minRate")
+    @Default("500ms")
+    @Description("Rate at which tenant broadcast task is scheduled right after a change, when adaptive")
+    public TimeSpan getTenantBroadcastServiceMinRunningRate();
+
 }
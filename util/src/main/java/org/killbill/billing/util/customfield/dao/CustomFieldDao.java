@@ -16,7 +16,9 @@
 
 package org.killbill.billing.util.customfield.dao;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import org.killbill.billing.ObjectType;
@@ -33,8 +35,14 @@ public interface CustomFieldDao extends EntityDao<CustomFieldModelDao, CustomFie
 
     public List<CustomFieldModelDao> getCustomFieldsForObject(final UUID objectId, final ObjectType objectType, final InternalTenantContext context);
 
+    // Custom fields for each object (objects without custom fields are not part of the map)
+    public Map<UUID, List<CustomFieldModelDao>> getCustomFieldsForObjects(final Collection<UUID> objectIds, final ObjectType objectType, final InternalTenantContext context);
+
     public List<CustomFieldModelDao> getCustomFieldsForAccountType(final ObjectType objectType, final InternalTenantContext context);
 
+    // Custom fields of the account objects of a given type, for each object (objects without custom fields are not part of the map)
+    public Map<UUID, List<CustomFieldModelDao>> getCustomFieldsByObjectIdForAccountType(final ObjectType objectType, final InternalTenantContext context);
+
     public List<CustomFieldModelDao> getCustomFieldsForAccount(final InternalTenantContext context);
 
     void deleteCustomField(UUID customFieldId, InternalCallContext context) throws CustomFieldApiException;
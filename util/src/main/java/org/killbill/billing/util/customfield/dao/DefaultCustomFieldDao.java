@@ -16,8 +16,12 @@
 
 package org.killbill.billing.util.customfield.dao;
 
+import java.util.Collection;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import javax.annotation.Nullable;
@@ -48,15 +52,22 @@ import org.killbill.billing.util.entity.dao.EntitySqlDaoTransactionWrapper;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoTransactionalJdbiWrapper;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoWrapperFactory;
 
+import com.google.common.base.Functions;
 import com.google.common.base.Predicate;
 import com.google.common.collect.Collections2;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
 import com.google.inject.Inject;
 
 public class DefaultCustomFieldDao extends EntityDaoBase<CustomFieldModelDao, CustomField, CustomFieldApiException> implements CustomFieldDao {
 
     private static final Logger log = LoggerFactory.getLogger(DefaultCustomFieldDao.class);
 
+    // Maximum number of object ids in a single IN-list query
+    private static final int BULK_QUERY_BATCH_SIZE = 1000;
+
     private final PersistentBus bus;
 
     @Inject
@@ -75,6 +86,32 @@ public class DefaultCustomFieldDao extends EntityDaoBase<CustomFieldModelDao, Cu
         });
     }
 
+    @Override
+    public Map<UUID, List<CustomFieldModelDao>> getCustomFieldsForObjects(final Collection<UUID> objectIds, final ObjectType objectType, final InternalTenantContext context) {
+        if (objectIds.isEmpty()) {
+            return ImmutableMap.<UUID, List<CustomFieldModelDao>>of();
+        }
+
+        return transactionalSqlDao.execute(new EntitySqlDaoTransactionWrapper<Map<UUID, List<CustomFieldModelDao>>>() {
+            @Override
+            public Map<UUID, List<CustomFieldModelDao>> inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
+                final CustomFieldSqlDao customFieldSqlDao = entitySqlDaoWrapperFactory.become(CustomFieldSqlDao.class);
+
+                final List<CustomFieldModelDao> customFields = new LinkedList<CustomFieldModelDao>();
+                for (final List<UUID> batch : Iterables.<UUID>partition(ImmutableSet.<UUID>copyOf(objectIds), BULK_QUERY_BATCH_SIZE)) {
+                    final Collection<String> ids = ImmutableList.<String>copyOf(Iterables.transform(batch, Functions.toStringFunction()));
+                    customFields.addAll(customFieldSqlDao.getCustomFieldsForObjects(ids, objectType, context));
+                }
+                return groupByObjectId(customFields);
+            }
+        });
+    }
+
+    @Override
+    public Map<UUID, List<CustomFieldModelDao>> getCustomFieldsByObjectIdForAccountType(final ObjectType objectType, final InternalTenantContext context) {
+        return groupByObjectId(getCustomFieldsForAccountType(objectType, context));
+    }
+
     @Override
     public List<CustomFieldModelDao> getCustomFieldsForAccountType(final ObjectType objectType, final InternalTenantContext context) {
         final List<CustomFieldModelDao> allFields = getCustomFieldsForAccount(context);
@@ -97,6 +134,17 @@ public class DefaultCustomFieldDao extends EntityDaoBase<CustomFieldModelDao, Cu
         });
     }
 
+    private Map<UUID, List<CustomFieldModelDao>> groupByObjectId(final Iterable<CustomFieldModelDao> customFields) {
+        final Map<UUID, List<CustomFieldModelDao>> customFieldsByObjectId = new LinkedHashMap<UUID, List<CustomFieldModelDao>>();
+        for (final CustomFieldModelDao customField : customFields) {
+            if (customFieldsByObjectId.get(customField.getObjectId()) == null) {
+                customFieldsByObjectId.put(customField.getObjectId(), new LinkedList<CustomFieldModelDao>());
+            }
+            customFieldsByObjectId.get(customField.getObjectId()).add(customField);
+        }
+        return customFieldsByObjectId;
+    }
+
     @Override
     public void deleteCustomField(final UUID customFieldId, final InternalCallContext context) throws CustomFieldApiException {
         transactionalSqlDao.execute(new EntitySqlDaoTransactionWrapper<Void>() {
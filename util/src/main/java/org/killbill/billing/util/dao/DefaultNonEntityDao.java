@@ -18,12 +18,17 @@
 
 package org.killbill.billing.util.dao;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import javax.annotation.Nullable;
 import javax.inject.Inject;
 
 import org.killbill.billing.ObjectType;
+import org.killbill.billing.util.cache.Cachable.CacheType;
 import org.killbill.billing.util.cache.CacheController;
 import org.killbill.billing.util.cache.CacheControllerDispatcher;
 import org.killbill.billing.util.cache.CacheLoaderArgument;
@@ -35,10 +40,18 @@ import org.skife.jdbi.v2.Handle;
 import org.skife.jdbi.v2.IDBI;
 import org.skife.jdbi.v2.sqlobject.SqlObjectBuilder;
 
+import com.google.common.base.Functions;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Predicates;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
 
 public class DefaultNonEntityDao implements NonEntityDao {
 
+    // Maximum number of ids in the IN clause of the bulk queries
+    private static final int BULK_QUERY_BATCH_SIZE = 1000;
+
     private final NonEntitySqlDao nonEntitySqlDao;
     private final WithCaching<UUID, Long> withCachingObjectId;
     private final WithCaching<Long, UUID> withCachingRecordId;
@@ -154,6 +167,41 @@ public class DefaultNonEntityDao implements NonEntityDao {
         }, recordId, objectType, tableName, cache);
     }
 
+    @Override
+    public Map<UUID, ObjectRecordIds> retrieveObjectRecordIdsFromObjects(final Collection<UUID> objectIds, final ObjectType objectType, @Nullable final CacheControllerDispatcher cacheControllerDispatcher) {
+        final TableName tableName = TableName.fromObjectType(objectType);
+        Preconditions.checkNotNull(tableName, "%s is not a valid ObjectType", objectType);
+
+        final Map<UUID, ObjectRecordIds> result = new LinkedHashMap<UUID, ObjectRecordIds>();
+        final Iterable<UUID> uniqueObjectIds = ImmutableSet.<UUID>copyOf(Iterables.<UUID>filter(objectIds, Predicates.<UUID>notNull()));
+        for (final List<UUID> batch : Iterables.<UUID>partition(uniqueObjectIds, BULK_QUERY_BATCH_SIZE)) {
+            final Collection<String> ids = ImmutableList.<String>copyOf(Iterables.transform(batch, Functions.toStringFunction()));
+            final List<ObjectRecordIds> objectRecordIdsList = nonEntitySqlDao.getObjectRecordIdsFromObjects(ids, tableName.getTableName(), getAccountRecordIdField(tableName), getTenantRecordIdField(tableName));
+            for (final ObjectRecordIds objectRecordIds : objectRecordIdsList) {
+                populateCaches(objectRecordIds, tableName, cacheControllerDispatcher);
+                result.put(objectRecordIds.getId(), objectRecordIds);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Map<Long, ObjectRecordIds> retrieveObjectRecordIdsFromRecordIds(final Collection<Long> recordIds, final ObjectType objectType, @Nullable final CacheControllerDispatcher cacheControllerDispatcher) {
+        final TableName tableName = TableName.fromObjectType(objectType);
+        Preconditions.checkNotNull(tableName, "%s is not a valid ObjectType", objectType);
+
+        final Map<Long, ObjectRecordIds> result = new LinkedHashMap<Long, ObjectRecordIds>();
+        final Iterable<Long> uniqueRecordIds = ImmutableSet.<Long>copyOf(Iterables.<Long>filter(recordIds, Predicates.<Long>notNull()));
+        for (final List<Long> batch : Iterables.<Long>partition(uniqueRecordIds, BULK_QUERY_BATCH_SIZE)) {
+            final List<ObjectRecordIds> objectRecordIdsList = nonEntitySqlDao.getObjectRecordIdsFromRecordIds(batch, tableName.getTableName(), getAccountRecordIdField(tableName), getTenantRecordIdField(tableName));
+            for (final ObjectRecordIds objectRecordIds : objectRecordIdsList) {
+                populateCaches(objectRecordIds, tableName, cacheControllerDispatcher);
+                result.put(objectRecordIds.getRecordId(), objectRecordIds);
+            }
+        }
+        return result;
+    }
+
     @Override
     public Long retrieveLastHistoryRecordIdFromTransaction(@Nullable final Long targetRecordId, final TableName tableName, final NonEntitySqlDao transactional) {
         // There is no caching here because the value returned changes as we add more history records, and so we would need some cache invalidation
@@ -165,6 +213,63 @@ public class DefaultNonEntityDao implements NonEntityDao {
         return nonEntitySqlDao.getHistoryTargetRecordId(recordId, tableName.getTableName());
     }
 
+    // Same conventions as the single object retrievals above (e.g. the account record id of an account is its record id)
+    private static String getAccountRecordIdField(final TableName tableName) {
+        switch (tableName) {
+            case TENANT:
+            case TAG_DEFINITIONS:
+            case TAG_DEFINITION_HISTORY:
+                return "null";
+
+            case ACCOUNT:
+                return "record_id";
+
+            default:
+                return "account_record_id";
+        }
+    }
+
+    private static String getTenantRecordIdField(final TableName tableName) {
+        switch (tableName) {
+            case TENANT:
+                return "record_id";
+
+            default:
+                return "tenant_record_id";
+        }
+    }
+
+    private void populateCaches(final ObjectRecordIds objectRecordIds, final TableName tableName, @Nullable final CacheControllerDispatcher cacheControllerDispatcher) {
+        if (cacheControllerDispatcher == null) {
+            return;
+        }
+
+        putIfAbsent(cacheControllerDispatcher, CacheType.RECORD_ID, tableName, objectRecordIds.getId(), objectRecordIds.getRecordId());
+        putIfAbsent(cacheControllerDispatcher, CacheType.ACCOUNT_RECORD_ID, tableName, objectRecordIds.getId(), objectRecordIds.getAccountRecordId());
+        putIfAbsent(cacheControllerDispatcher, CacheType.TENANT_RECORD_ID, tableName, objectRecordIds.getId(), objectRecordIds.getTenantRecordId());
+        putIfAbsent(cacheControllerDispatcher, CacheType.OBJECT_ID, tableName, objectRecordIds.getRecordId(), objectRecordIds.getId());
+        if (tableName == TableName.ACCOUNT) {
+            // The account id cache is keyed by the account record id itself
+            final CacheController<Object, Object> accountIdCache = cacheControllerDispatcher.getCacheController(CacheType.ACCOUNT_ID);
+            if (accountIdCache != null) {
+                accountIdCache.putIfAbsent(objectRecordIds.getRecordId(), objectRecordIds.getId());
+            }
+        }
+    }
+
+    private void putIfAbsent(final CacheControllerDispatcher cacheControllerDispatcher, final CacheType cacheType, final TableName tableName, final Object objectOrRecordId, @Nullable final Object value) {
+        final CacheController<Object, Object> cache = cacheControllerDispatcher.getCacheController(cacheType);
+        if (cache == null || value == null) {
+            return;
+        }
+
+        // Same keys as WithCaching below
+        final String key = (cacheType.isKeyPrefixedWithTableName()) ?
+                           tableName + CacheControllerDispatcher.CACHE_KEY_SEPARATOR + objectOrRecordId.toString() :
+                           objectOrRecordId.toString();
+        cache.putIfAbsent(key, value);
+    }
+
     private interface OperationRetrieval<TypeIn, TypeOut> {
 
         public TypeOut doRetrieve(final TypeIn objectOrRecordId, final ObjectType objectType);
@@ -18,12 +18,15 @@
 
 package org.killbill.billing.util.dao;
 
+import java.util.Collection;
+import java.util.Map;
 import java.util.UUID;
 
 import javax.annotation.Nullable;
 
 import org.killbill.billing.ObjectType;
 import org.killbill.billing.util.cache.CacheController;
+import org.killbill.billing.util.cache.CacheControllerDispatcher;
 import org.skife.jdbi.v2.Handle;
 
 // This should only be used for internal operations (trusted code, not API), because the context will not be validated!
@@ -45,6 +48,12 @@ public interface NonEntityDao {
 
     public UUID retrieveIdFromObjectInTransaction(final Long recordId, final ObjectType objectType, @Nullable final CacheController<Object, Object> cache, @Nullable final Handle handle);
 
+    // Bulk variants: the ids are resolved with one query per batch and all related caches (record id, account record id, tenant record id and object id) are populated
+    // at once. Objects which don't exist are omitted from the result.
+    public Map<UUID, ObjectRecordIds> retrieveObjectRecordIdsFromObjects(final Collection<UUID> objectIds, final ObjectType objectType, @Nullable final CacheControllerDispatcher cacheControllerDispatcher);
+
+    public Map<Long, ObjectRecordIds> retrieveObjectRecordIdsFromRecordIds(final Collection<Long> recordIds, final ObjectType objectType, @Nullable final CacheControllerDispatcher cacheControllerDispatcher);
+
     // This retrieves from the history table the latest record for which targetId matches the one we are passing
     public Long retrieveLastHistoryRecordIdFromTransaction(final Long targetRecordId, final TableName tableName, final NonEntitySqlDao transactional);
 
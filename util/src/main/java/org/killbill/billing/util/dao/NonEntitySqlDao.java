@@ -18,10 +18,13 @@
 
 package org.killbill.billing.util.dao;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
 
 import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoStringTemplate;
+import org.killbill.billing.util.tag.dao.UUIDCollectionBinder;
 import org.skife.jdbi.v2.sqlobject.Bind;
 import org.skife.jdbi.v2.sqlobject.BindBean;
 import org.skife.jdbi.v2.sqlobject.SqlQuery;
@@ -38,6 +41,18 @@ public interface NonEntitySqlDao extends Transactional<NonEntitySqlDao>, CloseMe
     @SqlQuery
     public UUID getIdFromObject(@Bind("recordId") Long recordId, @Define("tableName") final String tableName);
 
+    @SqlQuery
+    public List<ObjectRecordIds> getObjectRecordIdsFromObjects(@UUIDCollectionBinder final Collection<String> ids,
+                                                               @Define("tableName") final String tableName,
+                                                               @Define("accountRecordIdField") final String accountRecordIdField,
+                                                               @Define("tenantRecordIdField") final String tenantRecordIdField);
+
+    @SqlQuery
+    public List<ObjectRecordIds> getObjectRecordIdsFromRecordIds(@RecordIdCollectionBinder final Collection<Long> recordIds,
+                                                                 @Define("tableName") final String tableName,
+                                                                 @Define("accountRecordIdField") final String accountRecordIdField,
+                                                                 @Define("tenantRecordIdField") final String tenantRecordIdField);
+
     @SqlQuery
     public Long getAccountRecordIdFromAccount(@Bind("id") String id);
 
@@ -53,6 +68,16 @@ public interface NonEntitySqlDao extends Transactional<NonEntitySqlDao>, CloseMe
     @SqlQuery
     public Long getTenantRecordIdFromObjectOtherThanTenant(@Bind("id") String id, @Define("tableName") final String tableName);
 
+    @SqlQuery
+    public List<Long> getTenantRecordIds();
+
+    @SqlQuery
+    public List<String> getTenantApiKeys();
+
+    @SqlQuery
+    public List<String> getRecentlyUpdatedAccountIds(@Bind("tenantRecordId") final Long tenantRecordId,
+                                                     @Bind("rowCount") final Integer rowCount);
+
     @SqlQuery
     public Long getLastHistoryRecordId(@Bind("targetRecordId") Long targetRecordId, @Define("tableName") final String tableName);
 
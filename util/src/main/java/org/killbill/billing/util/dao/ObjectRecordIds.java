@@ -0,0 +1,67 @@
+/*
+ * Copyright 2014-2016 Groupon, Inc
+ * Copyright 2014-2016 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.dao;
+
+import java.util.UUID;
+
+import javax.annotation.Nullable;
+
+// All the ids of an object: id, record id, as well as its account and tenant record ids
+public class ObjectRecordIds {
+
+    private final UUID id;
+    private final Long recordId;
+    private final Long accountRecordId;
+    private final Long tenantRecordId;
+
+    public ObjectRecordIds(final UUID id, final Long recordId, @Nullable final Long accountRecordId, final Long tenantRecordId) {
+        this.id = id;
+        this.recordId = recordId;
+        this.accountRecordId = accountRecordId;
+        this.tenantRecordId = tenantRecordId;
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public Long getRecordId() {
+        return recordId;
+    }
+
+    // Null for objects which don't belong to an account (e.g. tenants or tag definitions)
+    @Nullable
+    public Long getAccountRecordId() {
+        return accountRecordId;
+    }
+
+    public Long getTenantRecordId() {
+        return tenantRecordId;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("ObjectRecordIds{");
+        sb.append("id=").append(id);
+        sb.append(", recordId=").append(recordId);
+        sb.append(", accountRecordId=").append(accountRecordId);
+        sb.append(", tenantRecordId=").append(tenantRecordId);
+        sb.append('}');
+        return sb.toString();
+    }
+}
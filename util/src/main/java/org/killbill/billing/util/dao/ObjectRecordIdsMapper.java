@@ -0,0 +1,40 @@
+/*
+ * Copyright 2014-2016 Groupon, Inc
+ * Copyright 2014-2016 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.dao;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.UUID;
+
+import org.skife.jdbi.v2.StatementContext;
+import org.skife.jdbi.v2.tweak.ResultSetMapper;
+
+public class ObjectRecordIdsMapper extends MapperBase implements ResultSetMapper<ObjectRecordIds> {
+
+    @Override
+    public ObjectRecordIds map(final int index, final ResultSet r, final StatementContext ctx) throws SQLException {
+        final UUID id = getUUID(r, "id");
+        final long recordId = r.getLong("record_id");
+
+        final long accountRecordIdLong = r.getLong("account_record_id");
+        final Long accountRecordId = r.wasNull() ? null : accountRecordIdLong;
+
+        final long tenantRecordId = r.getLong("tenant_record_id");
+        return new ObjectRecordIds(id, recordId, accountRecordId, tenantRecordId);
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2014-2016 Groupon, Inc
+ * Copyright 2014-2016 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.dao;
+
+import java.lang.annotation.Annotation;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.Collection;
+
+import org.killbill.billing.util.dao.RecordIdCollectionBinder.RecordIdCollectionBinderFactory;
+import org.skife.jdbi.v2.SQLStatement;
+import org.skife.jdbi.v2.sqlobject.Binder;
+import org.skife.jdbi.v2.sqlobject.BinderFactory;
+import org.skife.jdbi.v2.sqlobject.BindingAnnotation;
+
+@BindingAnnotation(RecordIdCollectionBinderFactory.class)
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.PARAMETER})
+public @interface RecordIdCollectionBinder {
+
+    // Name of the record ids in the template: the collection is defined as <value>s, and each record id bound as <value>_<index>
+    String value() default "recordId";
+
+    public static class RecordIdCollectionBinderFactory implements BinderFactory {
+
+        @Override
+        public Binder build(final Annotation annotation) {
+            return new Binder<RecordIdCollectionBinder, Collection<Long>>() {
+
+                @Override
+                public void bind(final SQLStatement<?> query, final RecordIdCollectionBinder bind, final Collection<Long> recordIds) {
+                    query.define(bind.value() + "s", recordIds);
+
+                    int idx = 0;
+                    for (final Long recordId : recordIds) {
+                        query.bind(bind.value() + "_" + idx, recordId);
+                        idx++;
+                    }
+                }
+            };
+        }
+    }
+}
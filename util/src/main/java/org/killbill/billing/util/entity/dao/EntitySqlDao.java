@@ -18,6 +18,7 @@
 
 package org.killbill.billing.util.entity.dao;
 
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 
@@ -30,6 +31,7 @@ import org.killbill.billing.util.cache.Cachable.CacheType;
 import org.killbill.billing.util.cache.CachableKey;
 import org.killbill.billing.util.dao.AuditSqlDao;
 import org.killbill.billing.util.dao.HistorySqlDao;
+import org.killbill.billing.util.dao.RecordIdCollectionBinder;
 import org.killbill.billing.util.entity.Entity;
 import org.killbill.commons.jdbi.statement.SmartFetchSize;
 import org.skife.jdbi.v2.sqlobject.Bind;
@@ -62,6 +64,10 @@ public interface EntitySqlDao<M extends EntityModelDao<E>, E extends Entity> ext
     @SqlQuery
     public List<M> getByAccountRecordIdIncludedDeleted(@BindBean final InternalTenantContext context);
 
+    @SqlQuery
+    public List<M> getByAccountRecordIds(@RecordIdCollectionBinder("accountRecordId") final Collection<Long> accountRecordIds,
+                                         @BindBean final InternalTenantContext context);
+
     @SqlQuery
     @Cachable(CacheType.RECORD_ID)
     public Long getRecordId(@CachableKey(1) @Bind("id") final String id,
@@ -53,6 +53,11 @@ public class CSVExportOutputStream extends OutputStream implements DatabaseExpor
         delegate.write(b);
     }
 
+    @Override
+    public void flush() throws IOException {
+        delegate.flush();
+    }
+
     @Override
     public String toString() {
         return delegate.toString();
@@ -74,6 +79,15 @@ public class CSVExportOutputStream extends OutputStream implements DatabaseExpor
 
     @Override
     public void write(final Map<String, Object> row) throws IOException {
+        writeRow(row);
+    }
+
+    // Values are expected in the same order as the columns of the current table
+    public void write(final Object[] row) throws IOException {
+        writeRow(row);
+    }
+
+    private void writeRow(final Object row) throws IOException {
         final byte[] bytes;
         if (shouldWriteHeader) {
             // Write the header once (mapper.writer will clone the writer). Add a small marker in front of the header
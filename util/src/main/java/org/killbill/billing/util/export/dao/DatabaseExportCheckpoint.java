@@ -0,0 +1,86 @@
+/*
+ * Copyright 2014-2016 Groupon, Inc
+ * Copyright 2014-2016 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.export.dao;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.Nullable;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Progress of an account export: which tables have been fully exported, and up to which record_id the others have been.
+ * <p/>
+ * The checkpoint is updated by the DatabaseExportDao as rows are written, and can be passed again to resume an interrupted export.
+ * It only moves forward once the stream has been flushed (single stream exports into streams which aren't Flushable aren't
+ * checkpointed at all): rows written after the last checkpoint are exported again on resume, i.e. delivery is at-least-once.
+ */
+public class DatabaseExportCheckpoint {
+
+    private final Set<String> exportedTables;
+    private final Map<String, Long> lastRecordIdByTable;
+
+    public DatabaseExportCheckpoint() {
+        this(ImmutableSet.<String>of(), ImmutableMap.<String, Long>of());
+    }
+
+    public DatabaseExportCheckpoint(final Set<String> exportedTables, final Map<String, Long> lastRecordIdByTable) {
+        this.exportedTables = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+        this.exportedTables.addAll(exportedTables);
+        this.lastRecordIdByTable = new ConcurrentHashMap<String, Long>(lastRecordIdByTable);
+    }
+
+    public boolean isTableExported(final String tableName) {
+        return exportedTables.contains(tableName);
+    }
+
+    @Nullable
+    public Long getLastRecordId(final String tableName) {
+        return lastRecordIdByTable.get(tableName);
+    }
+
+    public Set<String> getExportedTables() {
+        return ImmutableSet.<String>copyOf(exportedTables);
+    }
+
+    public Map<String, Long> getLastRecordIdByTable() {
+        return ImmutableMap.<String, Long>copyOf(lastRecordIdByTable);
+    }
+
+    void setLastRecordId(final String tableName, final Long recordId) {
+        lastRecordIdByTable.put(tableName, recordId);
+    }
+
+    void setTableExported(final String tableName) {
+        exportedTables.add(tableName);
+        lastRecordIdByTable.remove(tableName);
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("DatabaseExportCheckpoint{");
+        sb.append("exportedTables=").append(exportedTables);
+        sb.append(", lastRecordIdByTable=").append(lastRecordIdByTable);
+        sb.append('}');
+        return sb.toString();
+    }
+}
@@ -16,28 +16,47 @@
 
 package org.killbill.billing.util.export.dao;
 
+import java.io.Flushable;
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
-import org.skife.jdbi.v2.Handle;
-import org.skife.jdbi.v2.IDBI;
-import org.skife.jdbi.v2.ResultIterator;
-import org.skife.jdbi.v2.tweak.HandleCallback;
-
+import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.util.api.ColumnInfo;
 import org.killbill.billing.util.api.DatabaseExportOutputStream;
-import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.util.dao.TableName;
 import org.killbill.billing.util.validation.DefaultColumnInfo;
 import org.killbill.billing.util.validation.dao.DatabaseSchemaDao;
+import org.killbill.commons.concurrent.Executors;
+import org.skife.jdbi.v2.Handle;
+import org.skife.jdbi.v2.IDBI;
+import org.skife.jdbi.v2.Query;
+import org.skife.jdbi.v2.ResultIterator;
+import org.skife.jdbi.v2.StatementContext;
+import org.skife.jdbi.v2.TransactionCallback;
+import org.skife.jdbi.v2.TransactionStatus;
+import org.skife.jdbi.v2.tweak.ResultSetMapper;
 
 @Singleton
 public class DatabaseExportDao {
 
+    // Rows fetched per round-trip by drivers supporting server-side cursors
+    private static final int FETCH_SIZE = 1000;
+    // How often (in rows) the stream is flushed and the checkpoint updated
+    private static final int CHECKPOINT_INTERVAL = 1000;
+
     private final DatabaseSchemaDao databaseSchemaDao;
     private final IDBI dbi;
 
@@ -49,84 +68,241 @@ public class DatabaseExportDao {
     }
 
     public void exportDataForAccount(final DatabaseExportOutputStream out, final InternalTenantContext context) {
+        exportDataForAccount(out, new DatabaseExportCheckpoint(), context);
+    }
+
+    /**
+     * Export all account tables, one after another, into a single stream.
+     *
+     * @param out        output stream
+     * @param checkpoint tables (or rows) already exported are skipped. It is updated as the export progresses
+     * @param context    account context
+     */
+    public void exportDataForAccount(final DatabaseExportOutputStream out, final DatabaseExportCheckpoint checkpoint, final InternalTenantContext context) {
         if (context.getAccountRecordId() == null || context.getTenantRecordId() == null) {
             return;
         }
 
+        for (final List<ColumnInfo> columnsForTable : getColumnsForAccountTables()) {
+            final String tableName = columnsForTable.get(0).getTableName();
+            if (checkpoint.isTableExported(tableName)) {
+                continue;
+            }
+
+            // Rows of streams which can't be flushed may still be buffered: the table isn't checkpointed then
+            if (exportDataForAccountAndTable(out, columnsForTable, checkpoint, context)) {
+                checkpoint.setTableExported(tableName);
+            }
+        }
+    }
+
+    /**
+     * Export all account tables concurrently, each table into its own stream.
+     *
+     * @param outputStreamFactory provides the per-table streams
+     * @param checkpoint          tables (or rows) already exported are skipped. It is updated as the export progresses
+     * @param nbThreads           number of tables exported concurrently
+     * @param context             account context
+     */
+    public void exportDataForAccountByTable(final DatabaseExportOutputStreamFactory outputStreamFactory, final DatabaseExportCheckpoint checkpoint, final int nbThreads, final InternalTenantContext context) {
+        if (context.getAccountRecordId() == null || context.getTenantRecordId() == null) {
+            return;
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(nbThreads, "DatabaseExportDao");
+        try {
+            final List<Future<Void>> futures = new LinkedList<Future<Void>>();
+            for (final List<ColumnInfo> columnsForTable : getColumnsForAccountTables()) {
+                final String tableName = columnsForTable.get(0).getTableName();
+                if (checkpoint.isTableExported(tableName)) {
+                    continue;
+                }
+
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        final DatabaseExportOutputStream out = outputStreamFactory.createOutputStream(tableName);
+                        exportDataForAccountAndTable(out, columnsForTable, checkpoint, context);
+                        // The factory is responsible for making the chunk durable (e.g. flushing and closing it)
+                        outputStreamFactory.onTableExported(tableName, out);
+                        checkpoint.setTableExported(tableName);
+                        return null;
+                    }
+                }));
+            }
+
+            for (final Future<Void> future : futures) {
+                future.get();
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while exporting data", e);
+        } catch (final ExecutionException e) {
+            throw new IllegalStateException("Failed to export data", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // Account specific tables only, ordered by table name
+    private List<List<ColumnInfo>> getColumnsForAccountTables() {
+        final List<List<ColumnInfo>> result = new LinkedList<List<ColumnInfo>>();
+
         final List<DefaultColumnInfo> columns = databaseSchemaDao.getColumnInfoList();
         if (columns.size() == 0) {
-            return;
+            return result;
         }
 
-        final List<ColumnInfo> columnsForTable = new ArrayList<ColumnInfo>();
+        List<ColumnInfo> columnsForTable = new ArrayList<ColumnInfo>();
         // The list of columns is ordered by table name first
         String lastSeenTableName = columns.get(0).getTableName();
         for (final ColumnInfo column : columns) {
             if (!column.getTableName().equals(lastSeenTableName)) {
-                exportDataForAccountAndTable(out, columnsForTable, context);
+                if (isAccountTable(columnsForTable)) {
+                    result.add(columnsForTable);
+                }
                 lastSeenTableName = column.getTableName();
-                columnsForTable.clear();
+                columnsForTable = new ArrayList<ColumnInfo>();
             }
             columnsForTable.add(column);
         }
-        exportDataForAccountAndTable(out, columnsForTable, context);
+        if (isAccountTable(columnsForTable)) {
+            result.add(columnsForTable);
+        }
+
+        return result;
     }
 
-    private void exportDataForAccountAndTable(final DatabaseExportOutputStream out, final List<ColumnInfo> columnsForTable, final InternalTenantContext context) {
-        boolean hasAccountRecordIdColumn = false;
-        boolean firstColumn = true;
+    private boolean isAccountTable(final List<ColumnInfo> columnsForTable) {
+        // Don't export non-account specific tables
+        return TableName.ACCOUNT.getTableName().equals(columnsForTable.get(0).getTableName()) ||
+               getColumnIndex(columnsForTable, "account_record_id") != -1;
+    }
+
+    // Returns whether all rows of the table have been flushed to the stream
+    private boolean exportDataForAccountAndTable(final DatabaseExportOutputStream out, final List<ColumnInfo> columnsForTable, final DatabaseExportCheckpoint checkpoint, final InternalTenantContext context) {
+        final String tableName = columnsForTable.get(0).getTableName();
+
         final StringBuilder queryBuilder = new StringBuilder("select ");
+        boolean firstColumn = true;
         for (final ColumnInfo column : columnsForTable) {
             if (!firstColumn) {
                 queryBuilder.append(", ");
             } else {
                 firstColumn = false;
             }
-
             queryBuilder.append(column.getColumnName());
-            if (column.getColumnName().equals("account_record_id")) {
-                hasAccountRecordIdColumn = true;
-            }
-        }
-
-        final String tableName = columnsForTable.get(0).getTableName();
-        final boolean isAccountTable = TableName.ACCOUNT.getTableName().equals(tableName);
-
-        // Don't export non-account specific tables
-        if (!isAccountTable && !hasAccountRecordIdColumn) {
-            return;
         }
 
         // Build the query - make sure to filter by account and tenant!
         queryBuilder.append(" from ")
                     .append(tableName);
-        if (isAccountTable) {
+        if (TableName.ACCOUNT.getTableName().equals(tableName)) {
             queryBuilder.append(" where record_id = :accountRecordId and tenant_record_id = :tenantRecordId");
         } else {
             queryBuilder.append(" where account_record_id = :accountRecordId and tenant_record_id = :tenantRecordId");
         }
 
+        // Rows are exported in record_id order, so that an interrupted export can resume after the last exported row
+        final int recordIdColumnIndex = getColumnIndex(columnsForTable, "record_id");
+        final Long fromRecordId = checkpoint.getLastRecordId(tableName);
+        if (recordIdColumnIndex != -1) {
+            if (fromRecordId != null) {
+                queryBuilder.append(" and record_id > :fromRecordId");
+            }
+            queryBuilder.append(" order by record_id");
+        }
+
         // Notify the stream that we're about to write data for a different table
         out.newTable(tableName, columnsForTable);
 
-        dbi.withHandle(new HandleCallback<Void>() {
+        return dbi.inTransaction(new TransactionCallback<Boolean>() {
             @Override
-            public Void withHandle(final Handle handle) throws Exception {
-                final ResultIterator<Map<String, Object>> iterator = handle.createQuery(queryBuilder.toString())
-                                                                           .bind("accountRecordId", context.getAccountRecordId())
-                                                                           .bind("tenantRecordId", context.getTenantRecordId())
-                                                                           .iterator();
+            public Boolean inTransaction(final Handle handle, final TransactionStatus status) throws Exception {
+                final Query<Map<String, Object>> query = handle.createQuery(queryBuilder.toString())
+                                                               .setFetchSize(getFetchSize(handle))
+                                                               .bind("accountRecordId", context.getAccountRecordId())
+                                                               .bind("tenantRecordId", context.getTenantRecordId());
+                if (recordIdColumnIndex != -1 && fromRecordId != null) {
+                    query.bind("fromRecordId", fromRecordId);
+                }
+
+                // Read rows as arrays, to avoid allocating a map per row
+                final ResultIterator<Object[]> iterator = query.map(new RowMapper(columnsForTable.size())).iterator();
                 try {
+                    long nbRows = 0;
                     while (iterator.hasNext()) {
-                        final Map<String, Object> row = iterator.next();
-                        out.write(row);
+                        final Object[] row = iterator.next();
+                        write(out, columnsForTable, row);
+                        nbRows++;
+                        // Rows buffered by the stream would be lost if the export were interrupted: only checkpoint flushed rows
+                        if (recordIdColumnIndex != -1 && nbRows % CHECKPOINT_INTERVAL == 0 && flush(out)) {
+                            checkpoint.setLastRecordId(tableName, ((Number) row[recordIdColumnIndex]).longValue());
+                        }
                     }
                 } finally {
                     iterator.close();
                 }
-
-                return null;
+                return flush(out);
             }
         });
     }
+
+    private void write(final DatabaseExportOutputStream out, final List<ColumnInfo> columnsForTable, final Object[] row) throws IOException {
+        if (out instanceof CSVExportOutputStream) {
+            ((CSVExportOutputStream) out).write(row);
+        } else {
+            final Map<String, Object> rowAsMap = new LinkedHashMap<String, Object>();
+            for (int i = 0; i < row.length; i++) {
+                rowAsMap.put(columnsForTable.get(i).getColumnName(), row[i]);
+            }
+            out.write(rowAsMap);
+        }
+    }
+
+    // Streams which can't be flushed aren't checkpointed within a table
+    private boolean flush(final DatabaseExportOutputStream out) throws IOException {
+        if (out instanceof Flushable) {
+            ((Flushable) out).flush();
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    private int getFetchSize(final Handle handle) throws SQLException {
+        // MySQL Connector/J only streams result sets (instead of buffering them fully in memory) with that special value
+        if ("MySQL".equals(handle.getConnection().getMetaData().getDatabaseProductName())) {
+            return Integer.MIN_VALUE;
+        } else {
+            return FETCH_SIZE;
+        }
+    }
+
+    private static int getColumnIndex(final List<ColumnInfo> columnsForTable, final String columnName) {
+        for (int i = 0; i < columnsForTable.size(); i++) {
+            if (columnName.equals(columnsForTable.get(i).getColumnName())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static final class RowMapper implements ResultSetMapper<Object[]> {
+
+        private final int nbColumns;
+
+        private RowMapper(final int nbColumns) {
+            this.nbColumns = nbColumns;
+        }
+
+        @Override
+        public Object[] map(final int index, final ResultSet r, final StatementContext ctx) throws SQLException {
+            final Object[] row = new Object[nbColumns];
+            for (int i = 0; i < nbColumns; i++) {
+                row[i] = r.getObject(i + 1);
+            }
+            return row;
+        }
+    }
 }
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2014-2016 Groupon, Inc
+ * Copyright 2014-2016 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.export.dao;
+
+import java.io.IOException;
+
+import org.killbill.billing.util.api.DatabaseExportOutputStream;
+
+/**
+ * Provides one output stream (chunk) per exported table, for exports running tables concurrently.
+ */
+public interface DatabaseExportOutputStreamFactory {
+
+    public DatabaseExportOutputStream createOutputStream(String tableName) throws IOException;
+
+    // Invoked once all rows of the table have been written to the stream (e.g. to flush and close it)
+    public void onTableExported(String tableName, DatabaseExportOutputStream out) throws IOException;
+}
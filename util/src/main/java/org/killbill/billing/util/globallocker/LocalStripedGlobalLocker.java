@@ -0,0 +1,126 @@
+/*
+ * Copyright 2014-2016 Groupon, Inc
+ * Copyright 2014-2016 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.globallocker;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.killbill.commons.locker.GlobalLock;
+import org.killbill.commons.locker.GlobalLocker;
+import org.killbill.commons.locker.LockFailedException;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+
+/**
+ * GlobalLocker which first queues (fairly) the threads of this node contending for the same lock, so that only one
+ * of them at a time goes to the (database) delegate and its sleep-based retries.
+ * <p/>
+ * Locks are striped by (service, lockKey), to bound the memory used: two different keys may share a local lock, in which case
+ * a contender for one key waits for the holder of the other, even though their database locks are unrelated. This is harmless
+ * as long as the number of stripes is large compared to the number of locks held concurrently on this node (see GlobalLockerModule).
+ * <p/>
+ * The time spent waiting for the local lock is charged against the retry budget: the delegate only gets the tries left.
+ * <p/>
+ * Wait times (local and global lock acquisition) and hold times are recorded, in milliseconds, per service (LockerType).
+ * <p/>
+ * Note: the returned GlobalLock must be released by the thread which acquired it.
+ */
+public class LocalStripedGlobalLocker implements GlobalLocker {
+
+    // Callers size the number of retries of the delegate assuming a 100ms wait each time
+    private static final long WAIT_PER_TRY_MS = 100;
+
+    private final GlobalLocker delegate;
+    private final ReentrantLock[] stripes;
+    private final MetricRegistry metricRegistry;
+
+    public LocalStripedGlobalLocker(final GlobalLocker delegate, final int nbStripes, final MetricRegistry metricRegistry) {
+        this.delegate = delegate;
+        this.stripes = new ReentrantLock[nbStripes];
+        for (int i = 0; i < nbStripes; i++) {
+            // Fair, so that contenders get the lock in arrival order
+            stripes[i] = new ReentrantLock(true);
+        }
+        this.metricRegistry = metricRegistry;
+    }
+
+    @Override
+    public GlobalLock lockWithNumberOfTries(final String service, final String lockKey, final int retry) throws LockFailedException {
+        final long startNanos = System.nanoTime();
+
+        final long budgetMs = retry * WAIT_PER_TRY_MS;
+
+        final ReentrantLock localLock = getStripe(service, lockKey);
+        try {
+            if (!localLock.tryLock(budgetMs, TimeUnit.MILLISECONDS)) {
+                throw new LockFailedException();
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LockFailedException();
+        }
+
+        final GlobalLock globalLock;
+        try {
+            globalLock = delegate.lockWithNumberOfTries(service, lockKey, getRemainingTries(startNanos, budgetMs));
+        } catch (final LockFailedException e) {
+            localLock.unlock();
+            throw e;
+        } catch (final RuntimeException e) {
+            localLock.unlock();
+            throw e;
+        }
+
+        final long acquiredNanos = System.nanoTime();
+        getHistogram(service, "wait-time").update(TimeUnit.NANOSECONDS.toMillis(acquiredNanos - startNanos));
+
+        return new GlobalLock() {
+            @Override
+            public void release() {
+                try {
+                    globalLock.release();
+                } finally {
+                    localLock.unlock();
+                    getHistogram(service, "hold-time").update(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - acquiredNanos));
+                }
+            }
+        };
+    }
+
+    @Override
+    public boolean isFree(final String service, final String lockKey) {
+        return delegate.isFree(service, lockKey);
+    }
+
+    // At least one try is left to the delegate, as the database lock is likely free once the local one has been acquired
+    private int getRemainingTries(final long startNanos, final long budgetMs) {
+        final long remainingMs = budgetMs - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        return (int) Math.max(1, remainingMs / WAIT_PER_TRY_MS);
+    }
+
+    private ReentrantLock getStripe(final String service, final String lockKey) {
+        final int hash = 31 * service.hashCode() + lockKey.hashCode();
+        final int spread = hash ^ (hash >>> 16);
+        return stripes[(spread & 0x7fffffff) % stripes.length];
+    }
+
+    private Histogram getHistogram(final String service, final String name) {
+        return metricRegistry.histogram(MetricRegistry.name(LocalStripedGlobalLocker.class, service, name));
+    }
+}
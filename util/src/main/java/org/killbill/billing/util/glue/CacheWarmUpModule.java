@@ -0,0 +1,40 @@
+/*
+ * Copyright 2014-2016 Groupon, Inc
+ * Copyright 2014-2016 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.glue;
+
+import org.killbill.billing.platform.api.KillbillConfigSource;
+import org.killbill.billing.util.cache.CacheWarmUpService;
+import org.killbill.billing.util.cache.DefaultCacheWarmUpService;
+import org.killbill.billing.util.cache.TenantCacheWarmUpCallback;
+
+import com.google.inject.multibindings.Multibinder;
+
+public class CacheWarmUpModule extends KillBillModule {
+
+    public CacheWarmUpModule(final KillbillConfigSource configSource) {
+        super(configSource);
+    }
+
+    @Override
+    protected void configure() {
+        // Per tenant warm-up steps are contributed by the modules owning the caches (see TenantCacheWarmUpCallback)
+        Multibinder.newSetBinder(binder(), TenantCacheWarmUpCallback.class);
+
+        bind(CacheWarmUpService.class).to(DefaultCacheWarmUpService.class).asEagerSingleton();
+    }
+}
@@ -23,17 +23,26 @@ import java.io.IOException;
 import javax.sql.DataSource;
 
 import org.killbill.billing.platform.api.KillbillConfigSource;
+import org.killbill.billing.util.globallocker.LocalStripedGlobalLocker;
 import org.killbill.commons.embeddeddb.EmbeddedDB;
+import org.killbill.commons.jdbi.guice.DaoConfig;
 import org.killbill.commons.locker.GlobalLocker;
 import org.killbill.commons.locker.memory.MemoryGlobalLocker;
 import org.killbill.commons.locker.mysql.MySqlGlobalLocker;
 import org.killbill.commons.locker.postgresql.PostgreSQLGlobalLocker;
+import org.skife.config.ConfigurationObjectFactory;
 
+import com.codahale.metrics.MetricRegistry;
 import com.google.inject.Provides;
 import com.google.inject.Singleton;
 
 public class GlobalLockerModule extends KillBillModule {
 
+    // Each database lock holds on to a connection, so the number of locks held concurrently on this node is bounded by the size
+    // of the pool: with 16 stripes per connection, a key has at most a 1 in 16 chance of sharing its stripe with a held lock
+    private static final int NB_LOCAL_LOCK_STRIPES_PER_CONNECTION = 16;
+    private static final int MIN_NB_LOCAL_LOCK_STRIPES = 1024;
+
     public GlobalLockerModule(final KillbillConfigSource configSource) {
         super(configSource);
     }
@@ -41,16 +50,22 @@ public class GlobalLockerModule extends KillBillModule {
     @Provides
     @Singleton
     // Note: we need to inject the pooled DataSource here, not the (direct) one from EmbeddedDB
-    protected GlobalLocker provideGlobalLocker(final DataSource dataSource, final EmbeddedDB embeddedDB) throws IOException {
+    protected GlobalLocker provideGlobalLocker(final DataSource dataSource, final EmbeddedDB embeddedDB, final MetricRegistry metricRegistry) throws IOException {
+        // Database locks are fronted by local locks, to avoid having all the threads of this node polling the database for a hot lock
         if (EmbeddedDB.DBEngine.MYSQL.equals(embeddedDB.getDBEngine())) {
-            return new MySqlGlobalLocker(dataSource);
+            return new LocalStripedGlobalLocker(new MySqlGlobalLocker(dataSource), getNbLocalLockStripes(), metricRegistry);
         } else if (EmbeddedDB.DBEngine.POSTGRESQL.equals(embeddedDB.getDBEngine())) {
-            return new PostgreSQLGlobalLocker(dataSource);
+            return new LocalStripedGlobalLocker(new PostgreSQLGlobalLocker(dataSource), getNbLocalLockStripes(), metricRegistry);
         } else {
             return new MemoryGlobalLocker();
         }
     }
 
+    private int getNbLocalLockStripes() {
+        final DaoConfig daoConfig = new ConfigurationObjectFactory(skifeConfigSource).build(DaoConfig.class);
+        return Math.max(MIN_NB_LOCAL_LOCK_STRIPES, NB_LOCAL_LOCK_STRIPES_PER_CONNECTION * daoConfig.getMaxActive());
+    }
+
     @Override
     protected void configure() {
     }
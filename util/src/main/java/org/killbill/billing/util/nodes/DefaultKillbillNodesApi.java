@@ -126,7 +126,8 @@ public class DefaultKillbillNodesApi implements KillbillNodesApi {
                                                                                 public PluginInfoModelJson apply(final PluginInfo input) {
                                                                                     return new PluginInfoModelJson(input);
                                                                                 }
-                                                                            })));
+                                                                            })),
+                                                                            nodeInfoJson.getCacheWarmUp());
 
         final String nodeInfoValue = mapper.serializeNodeInfo(updatedNodeInfoJson);
         return nodeInfoValue;
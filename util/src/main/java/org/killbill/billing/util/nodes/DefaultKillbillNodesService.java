@@ -17,6 +17,7 @@
 
 package org.killbill.billing.util.nodes;
 
+import java.io.IOException;
 import java.util.List;
 
 import javax.inject.Inject;
@@ -29,6 +30,7 @@ import org.killbill.billing.platform.api.LifecycleHandlerType;
 import org.killbill.billing.platform.api.LifecycleHandlerType.LifecycleLevel;
 import org.killbill.billing.util.nodes.dao.NodeInfoDao;
 import org.killbill.billing.util.nodes.dao.NodeInfoModelDao;
+import org.killbill.billing.util.nodes.json.CacheWarmUpModelJson;
 import org.killbill.billing.util.nodes.json.NodeInfoModelJson;
 import org.killbill.billing.util.nodes.json.PluginInfoModelJson;
 import org.killbill.clock.Clock;
@@ -52,6 +54,9 @@ public class DefaultKillbillNodesService implements KillbillNodesService {
     private final NodeInfoMapper mapper;
     private final KillbillNodesApi nodesApi;
 
+    private CacheWarmUpModelJson cacheWarmUp;
+    private boolean isBootNodeInfoCreated;
+
     @Inject
     public DefaultKillbillNodesService(final NodeInfoDao nodeInfoDao, final PluginsInfoApi pluginInfoApi, final KillbillNodesApi nodesApi, final Clock clock, final NodeInfoMapper mapper) {
         this.nodeInfoDao = nodeInfoDao;
@@ -76,11 +81,39 @@ public class DefaultKillbillNodesService implements KillbillNodesService {
     }
 
     @LifecycleHandlerType(LifecycleLevel.STOP_SERVICE)
-    public void stop() {
+    public synchronized void stop() {
         nodeInfoDao.delete(CreatorName.get());
+        isBootNodeInfoCreated = false;
+    }
+
+    @Override
+    public synchronized void updateCacheWarmUp(final CacheWarmUpModelJson cacheWarmUp) {
+        this.cacheWarmUp = cacheWarmUp;
+        if (!isBootNodeInfoCreated) {
+            // Will be part of the boot node info
+            return;
+        }
+
+        try {
+            final NodeInfoModelDao nodeInfo = nodeInfoDao.getByNodeName(CreatorName.get());
+            final NodeInfoModelJson nodeInfoJson = mapper.deserializeNodeInfo(nodeInfo.getNodeInfo());
+            final NodeInfoModelJson updatedNodeInfoJson = new NodeInfoModelJson(nodeInfoJson.getNodeName(),
+                                                                                nodeInfoJson.getBootTime(),
+                                                                                clock.getUTCNow(),
+                                                                                nodeInfoJson.getKillbillVersion(),
+                                                                                nodeInfoJson.getApiVersion(),
+                                                                                nodeInfoJson.getPluginApiVersion(),
+                                                                                nodeInfoJson.getCommonVersion(),
+                                                                                nodeInfoJson.getPlatformVersion(),
+                                                                                ImmutableList.<PluginInfoModelJson>copyOf(nodeInfoJson.getPluginInfo()),
+                                                                                cacheWarmUp);
+            nodeInfoDao.updateNodeInfo(CreatorName.get(), mapper.serializeNodeInfo(updatedNodeInfoJson));
+        } catch (final IOException e) {
+            logger.warn("Failed to update nodeInfo with the cache warm-up progress", e);
+        }
     }
 
-    private void createBootNodeInfo() throws JsonProcessingException {
+    private synchronized void createBootNodeInfo() throws JsonProcessingException {
 
         final DateTime bootTime = clock.getUTCNow();
         final Iterable<PluginInfo> rawPluginInfo = pluginInfoApi.getPluginsInfo();
@@ -98,10 +131,12 @@ public class DefaultKillbillNodesService implements KillbillNodesService {
                  public PluginInfoModelJson apply(final PluginInfo input) {
                      return new PluginInfoModelJson(input);
                  }
-             })));
+             })),
+             cacheWarmUp);
 
         final String nodeInfoValue = mapper.serializeNodeInfo(nodeInfo);
         final NodeInfoModelDao bootNodeInfo = new NodeInfoModelDao(CreatorName.get(), clock.getUTCNow(), nodeInfoValue);
         nodeInfoDao.create(bootNodeInfo);
+        isBootNodeInfoCreated = true;
     }
 }
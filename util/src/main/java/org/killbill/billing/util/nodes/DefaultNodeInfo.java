@@ -27,6 +27,7 @@ import org.killbill.billing.osgi.api.DefaultPluginsInfoApi.DefaultPluginServiceI
 import org.killbill.billing.osgi.api.PluginInfo;
 import org.killbill.billing.osgi.api.PluginServiceInfo;
 import org.killbill.billing.osgi.api.PluginState;
+import org.killbill.billing.util.nodes.json.CacheWarmUpModelJson;
 import org.killbill.billing.util.nodes.json.NodeInfoModelJson;
 import org.killbill.billing.util.nodes.json.PluginInfoModelJson;
 import org.killbill.billing.util.nodes.json.PluginServiceInfoModelJson;
@@ -46,6 +47,7 @@ public class DefaultNodeInfo implements NodeInfo {
     private final String commonVersion;
     private final String pluginApiVersion;
     private final Iterable<PluginInfo> pluginInfo;
+    private final CacheWarmUpModelJson cacheWarmUp;
 
     public DefaultNodeInfo(final String nodeName,
                            final DateTime bootTime,
@@ -55,7 +57,8 @@ public class DefaultNodeInfo implements NodeInfo {
                            final String platformVersion,
                            final String commonVersion,
                            final String pluginApiVersion,
-                           final Iterable<PluginInfo> pluginInfo) {
+                           final Iterable<PluginInfo> pluginInfo,
+                           @Nullable final CacheWarmUpModelJson cacheWarmUp) {
         this.nodeName = nodeName;
         this.bootTime = bootTime;
         this.lastUpdatedDate = lastUpdatedDate;
@@ -65,6 +68,7 @@ public class DefaultNodeInfo implements NodeInfo {
         this.commonVersion = commonVersion;
         this.pluginApiVersion = pluginApiVersion;
         this.pluginInfo = pluginInfo;
+        this.cacheWarmUp = cacheWarmUp;
     }
 
     public DefaultNodeInfo(final NodeInfoModelJson in) {
@@ -76,7 +80,8 @@ public class DefaultNodeInfo implements NodeInfo {
              in.getPlatformVersion(),
              in.getCommonVersion(),
              in.getPluginApiVersion(),
-             toPluginInfo(in.getPluginInfo()));
+             toPluginInfo(in.getPluginInfo()),
+             in.getCacheWarmUp());
     }
 
     private static Set<PluginServiceInfo> toPluginServiceInfo(final Set<PluginServiceInfoModelJson> services) {
@@ -143,4 +148,10 @@ public class DefaultNodeInfo implements NodeInfo {
     public Iterable<PluginInfo> getPluginInfo() {
         return pluginInfo;
     }
+
+    // Not part of the NodeInfo API (yet)
+    @Nullable
+    public CacheWarmUpModelJson getCacheWarmUp() {
+        return cacheWarmUp;
+    }
 }
@@ -18,6 +18,10 @@
 package org.killbill.billing.util.nodes;
 
 import org.killbill.billing.platform.api.KillbillService;
+import org.killbill.billing.util.nodes.json.CacheWarmUpModelJson;
 
 public interface KillbillNodesService extends KillbillService {
+
+    // Record the progress of the cache warm-up in the info of this node
+    public void updateCacheWarmUp(CacheWarmUpModelJson cacheWarmUp);
 }
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2014-2016 Groupon, Inc
+ * Copyright 2014-2016 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.nodes.json;
+
+import org.joda.time.DateTime;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+// Progress of the cache warm-up of a node (see DefaultCacheWarmUpService)
+public class CacheWarmUpModelJson {
+
+    public enum CacheWarmUpState {
+        RUNNING,
+        COMPLETED,
+        TIMED_OUT,
+        FAILED
+    }
+
+    private final CacheWarmUpState state;
+    private final DateTime startDate;
+    private final DateTime endDate;
+    private final int nbTenants;
+    private final int nbTenantsWarmedUp;
+    private final int nbAccountsWarmedUp;
+
+    @JsonCreator
+    public CacheWarmUpModelJson(@JsonProperty("state") final CacheWarmUpState state,
+                                @JsonProperty("startDate") final DateTime startDate,
+                                @JsonProperty("endDate") final DateTime endDate,
+                                @JsonProperty("nbTenants") final int nbTenants,
+                                @JsonProperty("nbTenantsWarmedUp") final int nbTenantsWarmedUp,
+                                @JsonProperty("nbAccountsWarmedUp") final int nbAccountsWarmedUp) {
+        this.state = state;
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.nbTenants = nbTenants;
+        this.nbTenantsWarmedUp = nbTenantsWarmedUp;
+        this.nbAccountsWarmedUp = nbAccountsWarmedUp;
+    }
+
+    public CacheWarmUpState getState() {
+        return state;
+    }
+
+    public DateTime getStartDate() {
+        return startDate;
+    }
+
+    public DateTime getEndDate() {
+        return endDate;
+    }
+
+    public int getNbTenants() {
+        return nbTenants;
+    }
+
+    public int getNbTenantsWarmedUp() {
+        return nbTenantsWarmedUp;
+    }
+
+    public int getNbAccountsWarmedUp() {
+        return nbAccountsWarmedUp;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CacheWarmUpModelJson)) {
+            return false;
+        }
+
+        final CacheWarmUpModelJson that = (CacheWarmUpModelJson) o;
+
+        if (nbTenants != that.nbTenants) {
+            return false;
+        }
+        if (nbTenantsWarmedUp != that.nbTenantsWarmedUp) {
+            return false;
+        }
+        if (nbAccountsWarmedUp != that.nbAccountsWarmedUp) {
+            return false;
+        }
+        if (state != that.state) {
+            return false;
+        }
+        if (startDate != null ? startDate.compareTo(that.startDate) != 0 : that.startDate != null) {
+            return false;
+        }
+        return !(endDate != null ? endDate.compareTo(that.endDate) != 0 : that.endDate != null);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = state != null ? state.hashCode() : 0;
+        result = 31 * result + (startDate != null ? startDate.hashCode() : 0);
+        result = 31 * result + (endDate != null ? endDate.hashCode() : 0);
+        result = 31 * result + nbTenants;
+        result = 31 * result + nbTenantsWarmedUp;
+        result = 31 * result + nbAccountsWarmedUp;
+        return result;
+    }
+}
@@ -19,6 +19,8 @@ package org.killbill.billing.util.nodes.json;
 
 import java.util.List;
 
+import javax.annotation.Nullable;
+
 import org.joda.time.DateTime;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
@@ -35,6 +37,7 @@ public class NodeInfoModelJson {
     private String commonVersion;
     private String platformVersion;
     private List<PluginInfoModelJson> pluginInfo;
+    private CacheWarmUpModelJson cacheWarmUp;
 
     @JsonCreator
     public NodeInfoModelJson(@JsonProperty("nodeName") final String nodeName,
@@ -45,7 +48,8 @@ public class NodeInfoModelJson {
                              @JsonProperty("pluginApiVersion") final String pluginApiVersion,
                              @JsonProperty("commonVersion") final String commonVersion,
                              @JsonProperty("platformVersion") final String platformVersion,
-                             @JsonProperty("pluginInfo") final List<PluginInfoModelJson> pluginInfo) {
+                             @JsonProperty("pluginInfo") final List<PluginInfoModelJson> pluginInfo,
+                             @JsonProperty("cacheWarmUp") @Nullable final CacheWarmUpModelJson cacheWarmUp) {
         this.nodeName = nodeName;
         this.bootTime = bootTime;
         this.updatedDate = updatedDate;
@@ -55,6 +59,7 @@ public class NodeInfoModelJson {
         this.commonVersion = commonVersion;
         this.platformVersion = platformVersion;
         this.pluginInfo = pluginInfo;
+        this.cacheWarmUp = cacheWarmUp;
     }
 
     public String getNodeName() {
@@ -93,6 +98,12 @@ public class NodeInfoModelJson {
         return updatedDate;
     }
 
+    // Null if the warm-up is disabled (or hasn't started yet)
+    @Nullable
+    public CacheWarmUpModelJson getCacheWarmUp() {
+        return cacheWarmUp;
+    }
+
     @Override
     public boolean equals(final Object o) {
         if (this == o) {
@@ -128,7 +139,10 @@ public class NodeInfoModelJson {
         if (platformVersion != null ? !platformVersion.equals(that.platformVersion) : that.platformVersion != null) {
             return false;
         }
-        return !(pluginInfo != null ? !pluginInfo.equals(that.pluginInfo) : that.pluginInfo != null);
+        if (pluginInfo != null ? !pluginInfo.equals(that.pluginInfo) : that.pluginInfo != null) {
+            return false;
+        }
+        return !(cacheWarmUp != null ? !cacheWarmUp.equals(that.cacheWarmUp) : that.cacheWarmUp != null);
 
     }
 
@@ -143,6 +157,7 @@ public class NodeInfoModelJson {
         result = 31 * result + (commonVersion != null ? commonVersion.hashCode() : 0);
         result = 31 * result + (platformVersion != null ? platformVersion.hashCode() : 0);
         result = 31 * result + (pluginInfo != null ? pluginInfo.hashCode() : 0);
+        result = 31 * result + (cacheWarmUp != null ? cacheWarmUp.hashCode() : 0);
         return result;
     }
 }
@@ -16,7 +16,10 @@
 
 package org.killbill.billing.util.tag;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import javax.inject.Inject;
@@ -65,6 +68,16 @@ public class DefaultTagInternalApi implements TagInternalApi {
         return toTagList(tagDao.getTagsForObject(objectId, objectType, false, context));
     }
 
+    @Override
+    public Map<UUID, List<Tag>> getTagsForObjects(final Collection<UUID> objectIds, final ObjectType objectType, final InternalTenantContext context) {
+        return toTagsByObjectId(tagDao.getTagsForObjects(objectIds, objectType, false, context));
+    }
+
+    @Override
+    public Map<UUID, List<Tag>> getTagsByObjectIdForAccountType(final ObjectType objectType, final boolean includedDeleted, final InternalTenantContext context) {
+        return toTagsByObjectId(tagDao.getTagsByObjectIdForAccountType(objectType, includedDeleted, context));
+    }
+
     @Override
     public List<Tag> getTagsForAccountType(final ObjectType objectType, final boolean includedDeleted, final InternalTenantContext internalTenantContext) {
         return toTagList(tagDao.getTagsForAccountType(objectType, includedDeleted, internalTenantContext));
@@ -84,6 +97,14 @@ public class DefaultTagInternalApi implements TagInternalApi {
         tagDao.deleteTag(objectId, objectType, tagDefinitionId, context);
     }
 
+    private Map<UUID, List<Tag>> toTagsByObjectId(final Map<UUID, List<TagModelDao>> input) {
+        final Map<UUID, List<Tag>> result = new LinkedHashMap<UUID, List<Tag>>();
+        for (final Map.Entry<UUID, List<TagModelDao>> entry : input.entrySet()) {
+            result.put(entry.getKey(), toTagList(entry.getValue()));
+        }
+        return result;
+    }
+
     private List<Tag> toTagList(final List<TagModelDao> input) {
         return ImmutableList.<Tag>copyOf(Iterables.transform(input, new Function<TagModelDao, Tag>() {
             @Override
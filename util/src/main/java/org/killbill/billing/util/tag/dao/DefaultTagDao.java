@@ -16,8 +16,12 @@
 
 package org.killbill.billing.util.tag.dao;
 
+import java.util.Collection;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import org.skife.jdbi.v2.IDBI;
@@ -47,9 +51,12 @@ import org.killbill.billing.util.tag.ControlTagType;
 import org.killbill.billing.util.tag.Tag;
 import org.killbill.billing.util.tag.api.user.TagEventBuilder;
 
+import com.google.common.base.Functions;
 import com.google.common.base.Predicate;
 import com.google.common.collect.Collections2;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.inject.Inject;
 
@@ -57,6 +64,9 @@ public class DefaultTagDao extends EntityDaoBase<TagModelDao, Tag, TagApiExcepti
 
     private static final Logger log = LoggerFactory.getLogger(DefaultTagDao.class);
 
+    // Maximum number of object ids in a single IN-list query
+    private static final int BULK_QUERY_BATCH_SIZE = 1000;
+
     private final TagEventBuilder tagEventBuilder;
     private final PersistentBus bus;
 
@@ -83,6 +93,36 @@ public class DefaultTagDao extends EntityDaoBase<TagModelDao, Tag, TagApiExcepti
         });
     }
 
+    @Override
+    public Map<UUID, List<TagModelDao>> getTagsForObjects(final Collection<UUID> objectIds, final ObjectType objectType, final boolean includedDeleted, final InternalTenantContext internalTenantContext) {
+        if (objectIds.isEmpty()) {
+            return ImmutableMap.<UUID, List<TagModelDao>>of();
+        }
+
+        return transactionalSqlDao.execute(new EntitySqlDaoTransactionWrapper<Map<UUID, List<TagModelDao>>>() {
+            @Override
+            public Map<UUID, List<TagModelDao>> inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
+                final TagSqlDao tagSqlDao = entitySqlDaoWrapperFactory.become(TagSqlDao.class);
+
+                final List<TagModelDao> tags = new LinkedList<TagModelDao>();
+                for (final List<UUID> batch : Iterables.<UUID>partition(ImmutableSet.<UUID>copyOf(objectIds), BULK_QUERY_BATCH_SIZE)) {
+                    final Collection<String> ids = ImmutableList.<String>copyOf(Iterables.transform(batch, Functions.toStringFunction()));
+                    if (includedDeleted) {
+                        tags.addAll(tagSqlDao.getTagsForObjectsIncludedDeleted(ids, objectType, internalTenantContext));
+                    } else {
+                        tags.addAll(tagSqlDao.getTagsForObjects(ids, objectType, internalTenantContext));
+                    }
+                }
+                return groupByObjectId(tags);
+            }
+        });
+    }
+
+    @Override
+    public Map<UUID, List<TagModelDao>> getTagsByObjectIdForAccountType(final ObjectType objectType, final boolean includedDeleted, final InternalTenantContext internalTenantContext) {
+        return groupByObjectId(getTagsForAccountType(objectType, includedDeleted, internalTenantContext));
+    }
+
     @Override
     public List<TagModelDao> getTagsForAccountType(final ObjectType objectType, final boolean includedDeleted, final InternalTenantContext internalTenantContext) {
         final List<TagModelDao> allTags = getTagsForAccount(includedDeleted, internalTenantContext);
@@ -109,6 +149,17 @@ public class DefaultTagDao extends EntityDaoBase<TagModelDao, Tag, TagApiExcepti
         });
     }
 
+    private Map<UUID, List<TagModelDao>> groupByObjectId(final Iterable<TagModelDao> tags) {
+        final Map<UUID, List<TagModelDao>> tagsByObjectId = new LinkedHashMap<UUID, List<TagModelDao>>();
+        for (final TagModelDao tag : tags) {
+            if (tagsByObjectId.get(tag.getObjectId()) == null) {
+                tagsByObjectId.put(tag.getObjectId(), new LinkedList<TagModelDao>());
+            }
+            tagsByObjectId.get(tag.getObjectId()).add(tag);
+        }
+        return tagsByObjectId;
+    }
+
     @Override
     protected void postBusEventFromTransaction(final TagModelDao tag, final TagModelDao savedTag, final ChangeType changeType,
                                                final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory, final InternalCallContext context)
@@ -16,7 +16,9 @@
 
 package org.killbill.billing.util.tag.dao;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import org.killbill.billing.ObjectType;
@@ -35,6 +37,12 @@ public interface TagDao extends EntityDao<TagModelDao, Tag, TagApiException> {
 
     List<TagModelDao> getTagsForObject(UUID objectId, ObjectType objectType, boolean includedDeleted, InternalTenantContext internalTenantContext);
 
+    // Tags for each object (objects without tags are not part of the map)
+    Map<UUID, List<TagModelDao>> getTagsForObjects(Collection<UUID> objectIds, ObjectType objectType, boolean includedDeleted, InternalTenantContext internalTenantContext);
+
+    // Tags of the account objects of a given type, for each object (objects without tags are not part of the map)
+    Map<UUID, List<TagModelDao>> getTagsByObjectIdForAccountType(ObjectType objectType, boolean includedDeleted, InternalTenantContext internalTenantContext);
+
     List<TagModelDao> getTagsForAccountType(ObjectType objectType, boolean includedDeleted, InternalTenantContext internalTenantContext);
 
     List<TagModelDao> getTagsForAccount(boolean includedDeleted, InternalTenantContext internalTenantContext);
@@ -16,6 +16,7 @@
 
 package org.killbill.billing.util.tag.dao;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -50,4 +51,14 @@ public interface TagSqlDao extends EntitySqlDao<TagModelDao, Tag> {
     List<TagModelDao> getTagsForObjectIncludedDeleted(@Bind("objectId") UUID objectId,
                                                       @Bind("objectType") ObjectType objectType,
                                                       @BindBean InternalTenantContext internalTenantContext);
+
+    @SqlQuery
+    List<TagModelDao> getTagsForObjects(@UUIDCollectionBinder Collection<String> objectIds,
+                                        @Bind("objectType") ObjectType objectType,
+                                        @BindBean InternalTenantContext internalTenantContext);
+
+    @SqlQuery
+    List<TagModelDao> getTagsForObjectsIncludedDeleted(@UUIDCollectionBinder Collection<String> objectIds,
+                                                       @Bind("objectType") ObjectType objectType,
+                                                       @BindBean InternalTenantContext internalTenantContext);
 }
@@ -24,6 +24,7 @@ import java.util.Enumeration;
 
 import org.killbill.billing.platform.test.PlatformDBTestingHelper;
 import org.killbill.billing.util.dao.AuditLogModelDaoMapper;
+import org.killbill.billing.util.dao.ObjectRecordIdsMapper;
 import org.killbill.billing.util.dao.RecordIdIdMappingsMapper;
 import org.killbill.billing.util.io.IOUtils;
 import org.killbill.billing.util.security.shiro.dao.SessionModelDao;
@@ -53,6 +54,7 @@ public class DBTestingHelper extends PlatformDBTestingHelper {
         final DBI dbi = (DBI) super.getDBI();
         dbi.registerMapper(new AuditLogModelDaoMapper());
         dbi.registerMapper(new RecordIdIdMappingsMapper());
+        dbi.registerMapper(new ObjectRecordIdsMapper());
         dbi.registerMapper(new LowerToCamelBeanMapperFactory(SessionModelDao.class));
         return dbi;
     }
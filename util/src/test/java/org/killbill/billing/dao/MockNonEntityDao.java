@@ -18,6 +18,7 @@
 
 package org.killbill.billing.dao;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
@@ -27,8 +28,10 @@ import javax.annotation.Nullable;
 import org.killbill.billing.ObjectType;
 import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.util.cache.CacheController;
+import org.killbill.billing.util.cache.CacheControllerDispatcher;
 import org.killbill.billing.util.dao.NonEntityDao;
 import org.killbill.billing.util.dao.NonEntitySqlDao;
+import org.killbill.billing.util.dao.ObjectRecordIds;
 import org.killbill.billing.util.dao.TableName;
 import org.skife.jdbi.v2.Handle;
 
@@ -85,6 +88,16 @@ public class MockNonEntityDao implements NonEntityDao {
         return null;
     }
 
+    @Override
+    public Map<UUID, ObjectRecordIds> retrieveObjectRecordIdsFromObjects(final Collection<UUID> objectIds, final ObjectType objectType, @Nullable final CacheControllerDispatcher cacheControllerDispatcher) {
+        return new HashMap<UUID, ObjectRecordIds>();
+    }
+
+    @Override
+    public Map<Long, ObjectRecordIds> retrieveObjectRecordIdsFromRecordIds(final Collection<Long> recordIds, final ObjectType objectType, @Nullable final CacheControllerDispatcher cacheControllerDispatcher) {
+        return new HashMap<Long, ObjectRecordIds>();
+    }
+
     @Override
     public Long retrieveLastHistoryRecordIdFromTransaction(final Long targetRecordId, final TableName tableName, final NonEntitySqlDao transactional) {
         return null;
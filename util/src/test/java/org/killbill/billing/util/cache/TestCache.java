@@ -120,6 +120,22 @@ public class TestCache extends UtilTestSuiteWithEmbeddedDB {
 
     }
 
+    @Test(groups = "slow")
+    public void testNegativeCachingIsInvalidatedOnGetById() throws Exception {
+        this.transactionalSqlDao = new EntitySqlDaoTransactionalJdbiWrapper(dbi, clock, controlCacheDispatcher, nonEntityDao);
+        final TagModelDao tag = new TagModelDao(clock.getUTCNow(), UUID.randomUUID(), UUID.randomUUID(), ObjectType.TAG);
+        final CacheController<Object, Object> recordIdCache = controlCacheDispatcher.getCacheController(CacheType.RECORD_ID);
+
+        // The tag doesn't exist yet: the miss is remembered
+        Assert.assertNull(recordIdCache.get(tag.getId().toString(), new CacheLoaderArgument(ObjectType.TAG)));
+        insertTag(tag);
+        Assert.assertNull(recordIdCache.get(tag.getId().toString(), new CacheLoaderArgument(ObjectType.TAG)));
+
+        // getById (called by pattern right after creation) populates the cache
+        final TagModelDao result = getById(tag.getId());
+        Assert.assertEquals(recordIdCache.get(tag.getId().toString(), new CacheLoaderArgument(ObjectType.TAG)), result.getRecordId());
+    }
+
     private void insertTag(final TagModelDao modelDao) {
         transactionalSqlDao.execute(new EntitySqlDaoTransactionWrapper<Void>() {
             @Override
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2014-2016 Groupon, Inc
+ * Copyright 2014-2016 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.cache;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+
+import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.util.UtilTestSuiteWithEmbeddedDB;
+import org.killbill.billing.util.cache.Cachable.CacheType;
+import org.killbill.billing.util.callcontext.InternalCallContextFactory;
+import org.killbill.billing.util.config.CacheConfig;
+import org.killbill.billing.util.nodes.KillbillNodesService;
+import org.killbill.billing.util.nodes.json.CacheWarmUpModelJson;
+import org.killbill.billing.util.nodes.json.CacheWarmUpModelJson.CacheWarmUpState;
+import org.skife.config.TimeSpan;
+import org.skife.jdbi.v2.Handle;
+import org.skife.jdbi.v2.tweak.HandleCallback;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+import static com.jayway.awaitility.Awaitility.await;
+
+public class TestCacheWarmUpService extends UtilTestSuiteWithEmbeddedDB {
+
+    @Inject
+    private KillbillNodesService nodesService;
+
+    @Test(groups = "slow")
+    public void testWarmUp() throws Exception {
+        final UUID tenantId = UUID.randomUUID();
+        final Long tenantRecordId = 1L;
+        final UUID accountId = UUID.randomUUID();
+        dbi.withHandle(new HandleCallback<Void>() {
+            @Override
+            public Void withHandle(final Handle handle) throws Exception {
+                handle.execute("insert into tenants (record_id, id, created_date, created_by) values (?, ?, ?, ?)",
+                               tenantRecordId, tenantId.toString(), new Date(), "i");
+                handle.execute("insert into accounts (id, email, name, first_name_length, is_notified_for_invoices, created_date, created_by, updated_date, updated_by, tenant_record_id) values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                               accountId.toString(), "yo@t.com", "toto", 4, false, new Date(), "i", new Date(), "j", tenantRecordId);
+                return null;
+            }
+        });
+
+        final Set<Long> warmedUpTenantRecordIds = Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+        final TenantCacheWarmUpCallback callback = new TenantCacheWarmUpCallback() {
+            @Override
+            public void warmUp(final InternalTenantContext tenantContext) throws Exception {
+                warmedUpTenantRecordIds.add(tenantContext.getTenantRecordId());
+            }
+        };
+
+        final DefaultCacheWarmUpService cacheWarmUpService = new DefaultCacheWarmUpService(new EnabledCacheWarmUpConfig(),
+                                                                                           dbi,
+                                                                                           nonEntityDao,
+                                                                                           controlCacheDispatcher,
+                                                                                           internalCallContextFactory,
+                                                                                           ImmutableSet.<TenantCacheWarmUpCallback>of(callback),
+                                                                                           nodesService,
+                                                                                           clock);
+        cacheWarmUpService.start();
+        try {
+            await().atMost(10, TimeUnit.SECONDS).until(new Callable<Boolean>() {
+                @Override
+                public Boolean call() throws Exception {
+                    final CacheWarmUpModelJson cacheWarmUp = cacheWarmUpService.getCacheWarmUp();
+                    return cacheWarmUp != null && cacheWarmUp.getState() != CacheWarmUpState.RUNNING;
+                }
+            });
+        } finally {
+            cacheWarmUpService.stop();
+        }
+
+        final CacheWarmUpModelJson cacheWarmUp = cacheWarmUpService.getCacheWarmUp();
+        Assert.assertEquals(cacheWarmUp.getState(), CacheWarmUpState.COMPLETED);
+        Assert.assertEquals(cacheWarmUp.getNbTenants(), 2);
+        Assert.assertEquals(cacheWarmUp.getNbTenantsWarmedUp(), 2);
+        Assert.assertEquals(cacheWarmUp.getNbAccountsWarmedUp(), 1);
+        Assert.assertEquals(warmedUpTenantRecordIds, ImmutableSet.<Long>of(InternalCallContextFactory.INTERNAL_TENANT_RECORD_ID, tenantRecordId));
+
+        // Record id mappings of the tenants and the account were pre-loaded (the caches are cleared before each test)
+        Assert.assertTrue(controlCacheDispatcher.getCacheController(CacheType.TENANT_RECORD_ID).size() > 0);
+        Assert.assertTrue(controlCacheDispatcher.getCacheController(CacheType.RECORD_ID).size() > 0);
+        Assert.assertTrue(controlCacheDispatcher.getCacheController(CacheType.ACCOUNT_RECORD_ID).size() > 0);
+    }
+
+    private static final class EnabledCacheWarmUpConfig implements CacheConfig {
+
+        @Override
+        public String getCacheConfigLocation() {
+            return "org/killbill/billing/util/ehcache.xml";
+        }
+
+        @Override
+        public List<String> getGuavaCacheNames() {
+            return ImmutableList.<String>of();
+        }
+
+        @Override
+        public List<String> getNegativeCacheNames() {
+            return ImmutableList.<String>of();
+        }
+
+        @Override
+        public TimeSpan getNegativeCacheTtl() {
+            return new TimeSpan("10s");
+        }
+
+        @Override
+        public int getNegativeCacheMaxEntries() {
+            return 0;
+        }
+
+        @Override
+        public boolean isCacheWarmUpEnabled() {
+            return true;
+        }
+
+        @Override
+        public TimeSpan getCacheWarmUpTimeBudget() {
+            return new TimeSpan("10s");
+        }
+
+        @Override
+        public int getCacheWarmUpNbThreads() {
+            return 2;
+        }
+
+        @Override
+        public int getCacheWarmUpNbAccountsPerTenant() {
+            return 10;
+        }
+    }
+}
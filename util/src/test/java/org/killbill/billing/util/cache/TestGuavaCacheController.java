@@ -0,0 +1,100 @@
+/*
+ * Copyright 2014-2016 Groupon, Inc
+ * Copyright 2014-2016 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.cache;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.killbill.billing.ObjectType;
+import org.killbill.billing.util.UtilTestSuiteNoDB;
+import org.killbill.billing.util.cache.Cachable.CacheType;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import net.sf.ehcache.config.CacheConfiguration;
+
+public class TestGuavaCacheController extends UtilTestSuiteNoDB {
+
+    @Test(groups = "fast")
+    public void testLoadAndStats() throws Exception {
+        final AtomicInteger nbLoads = new AtomicInteger(0);
+        final GuavaCacheController<Object, Object> cacheController = GuavaCacheController.<Object, Object>create(new CacheConfiguration("audit-log", 100).eternal(true),
+                                                                                                                 CacheType.AUDIT_LOG,
+                                                                                                                 new TestCacheLoader(nbLoads));
+        final CacheLoaderArgument cacheLoaderArgument = new CacheLoaderArgument(ObjectType.ACCOUNT);
+
+        Assert.assertNull(cacheController.get("a"));
+        Assert.assertEquals(cacheController.get("a", cacheLoaderArgument), ImmutableList.<String>of("a"));
+        Assert.assertEquals(cacheController.get("a", cacheLoaderArgument), ImmutableList.<String>of("a"));
+        Assert.assertEquals(nbLoads.get(), 1);
+        Assert.assertEquals(cacheController.size(), 1);
+
+        // Null values are not cached, the empty value placeholder is (but never returned)
+        Assert.assertNull(cacheController.get("null", cacheLoaderArgument));
+        Assert.assertNull(cacheController.get("empty", cacheLoaderArgument));
+        Assert.assertEquals(cacheController.size(), 2);
+
+        Assert.assertEquals(cacheController.getStats().hitCount(), 2);
+        Assert.assertTrue(cacheController.getStats().missCount() >= 3);
+
+        Assert.assertTrue(cacheController.remove("a"));
+        Assert.assertFalse(cacheController.remove("a"));
+        cacheController.removeAll();
+        Assert.assertEquals(cacheController.size(), 0);
+    }
+
+    @Test(groups = "fast")
+    public void testEntriesAreWeightedBySize() throws Exception {
+        final GuavaCacheController<Object, Object> cacheController = GuavaCacheController.<Object, Object>create(new CacheConfiguration("audit-log", 10).eternal(true),
+                                                                                                                 CacheType.AUDIT_LOG,
+                                                                                                                 new TestCacheLoader(new AtomicInteger(0)));
+        for (int i = 0; i < 5; i++) {
+            cacheController.putIfAbsent("key-" + i, ImmutableList.<Integer>of(1, 2, 3, 4, 5));
+        }
+
+        // At most 10 elements (i.e. two lists of 5 elements) are kept
+        Assert.assertTrue(cacheController.size() <= 2);
+        Assert.assertTrue(cacheController.getStats().evictionCount() >= 3);
+    }
+
+    private static final class TestCacheLoader extends BaseCacheLoader {
+
+        private final AtomicInteger nbLoads;
+
+        private TestCacheLoader(final AtomicInteger nbLoads) {
+            this.nbLoads = nbLoads;
+        }
+
+        @Override
+        public CacheType getCacheType() {
+            return CacheType.AUDIT_LOG;
+        }
+
+        @Override
+        public Object load(final Object key, final Object argument) {
+            nbLoads.incrementAndGet();
+            if ("null".equals(key)) {
+                return null;
+            } else if ("empty".equals(key)) {
+                return EMPTY_VALUE_PLACEHOLDER;
+            } else {
+                return ImmutableList.<Object>of(key);
+            }
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2014-2016 Groupon, Inc
+ * Copyright 2014-2016 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.cache;
+
+import org.killbill.billing.ObjectType;
+import org.killbill.billing.util.UtilTestSuiteNoDB;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestNegativeCachingCacheController extends UtilTestSuiteNoDB {
+
+    @Test(groups = "fast")
+    public void testMissIsRemembered() throws Exception {
+        final CacheController<Object, Object> delegate = Mockito.mock(CacheController.class);
+        final NegativeCachingCacheController<Object, Object> cacheController = new NegativeCachingCacheController<Object, Object>(delegate, 100, 60000);
+        final CacheLoaderArgument cacheLoaderArgument = new CacheLoaderArgument(ObjectType.ACCOUNT);
+
+        Assert.assertNull(cacheController.get("a", cacheLoaderArgument));
+        Assert.assertNull(cacheController.get("a", cacheLoaderArgument));
+        Mockito.verify(delegate, Mockito.times(1)).get(Mockito.eq("a"), Mockito.<CacheLoaderArgument>any());
+        Assert.assertEquals(cacheController.getNegativeCacheSize(), 1);
+
+        // Populating the key drops the negative entry
+        cacheController.add("a", 1L);
+        Assert.assertEquals(cacheController.getNegativeCacheSize(), 0);
+    }
+
+    @Test(groups = "fast")
+    public void testKeyPopulatedConcurrentlyWithTheMiss() throws Exception {
+        final CacheController<Object, Object> delegate = Mockito.mock(CacheController.class);
+        final NegativeCachingCacheController<Object, Object> cacheController = new NegativeCachingCacheController<Object, Object>(delegate, 100, 60000);
+        final CacheLoaderArgument cacheLoaderArgument = new CacheLoaderArgument(ObjectType.ACCOUNT);
+
+        // The object is created (and the key populated) after the loader missed it, but before the miss is recorded
+        Mockito.when(delegate.get("a")).thenReturn(null, 1L);
+        Mockito.when(delegate.get(Mockito.eq("a"), Mockito.<CacheLoaderArgument>any())).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(final InvocationOnMock invocation) throws Throwable {
+                cacheController.add("a", 1L);
+                return null;
+            }
+        });
+
+        Assert.assertEquals(cacheController.get("a", cacheLoaderArgument), 1L);
+        Assert.assertEquals(cacheController.getNegativeCacheSize(), 0);
+        Assert.assertEquals(cacheController.get("a", cacheLoaderArgument), 1L);
+    }
+}
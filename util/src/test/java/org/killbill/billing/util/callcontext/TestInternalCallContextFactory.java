@@ -17,6 +17,7 @@
 package org.killbill.billing.util.callcontext;
 
 import java.util.Date;
+import java.util.Map;
 import java.util.UUID;
 
 import org.skife.jdbi.v2.Handle;
@@ -27,6 +28,11 @@ import org.testng.annotations.Test;
 import org.killbill.billing.ObjectType;
 import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.util.UtilTestSuiteWithEmbeddedDB;
+import org.killbill.billing.util.cache.Cachable.CacheType;
+import org.killbill.billing.util.cache.CacheController;
+import org.killbill.billing.util.cache.CacheControllerDispatcher;
+
+import com.google.common.collect.ImmutableList;
 
 public class TestInternalCallContextFactory extends UtilTestSuiteWithEmbeddedDB {
 
@@ -87,6 +93,65 @@ public class TestInternalCallContextFactory extends UtilTestSuiteWithEmbeddedDB
         verifyInternalCallContext(context);
     }
 
+    @Test(groups = "slow")
+    public void testGetAccountIdFromAccountRecordId() throws Exception {
+        final UUID accountId = UUID.randomUUID();
+        final Long accountRecordId = 19384013L;
+
+        dbi.withHandle(new HandleCallback<Void>() {
+            @Override
+            public Void withHandle(final Handle handle) throws Exception {
+                handle.execute("insert into accounts (record_id, id, email, name, first_name_length, is_notified_for_invoices, created_date, created_by, updated_date, updated_by) values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                               accountRecordId, accountId.toString(), "yo@t.com", "toto", 4, false, new Date(), "i", new Date(), "j");
+                return null;
+            }
+        });
+
+        final CacheController<Object, Object> accountIdCacheController = controlCacheDispatcher.getCacheController(CacheType.ACCOUNT_ID);
+        Assert.assertNull(accountIdCacheController.get(accountRecordId));
+
+        Assert.assertEquals(internalCallContextFactory.getAccountIdFromAccountRecordId(accountRecordId), accountId);
+        // The mapping should now be cached
+        Assert.assertEquals(accountIdCacheController.get(accountRecordId), accountId);
+    }
+
+    @Test(groups = "slow")
+    public void testGetRecordIdsFromObjects() throws Exception {
+        final UUID accountId1 = UUID.randomUUID();
+        final Long accountRecordId1 = 19384014L;
+        final UUID accountId2 = UUID.randomUUID();
+        final Long accountRecordId2 = 19384015L;
+
+        dbi.withHandle(new HandleCallback<Void>() {
+            @Override
+            public Void withHandle(final Handle handle) throws Exception {
+                handle.execute("insert into accounts (record_id, id, email, name, first_name_length, is_notified_for_invoices, created_date, created_by, updated_date, updated_by) values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                               accountRecordId1, accountId1.toString(), "yo@t.com", "toto", 4, false, new Date(), "i", new Date(), "j");
+                handle.execute("insert into accounts (record_id, id, email, name, first_name_length, is_notified_for_invoices, created_date, created_by, updated_date, updated_by) values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                               accountRecordId2, accountId2.toString(), "yo@t.com", "toto", 4, false, new Date(), "i", new Date(), "j");
+                return null;
+            }
+        });
+
+        // Unknown objects are omitted
+        final Map<UUID, Long> recordIds = internalCallContextFactory.getRecordIdsFromObjects(ImmutableList.<UUID>of(accountId1, accountId2, UUID.randomUUID()), ObjectType.ACCOUNT, callContext);
+        Assert.assertEquals(recordIds.size(), 2);
+        Assert.assertEquals(recordIds.get(accountId1), accountRecordId1);
+        Assert.assertEquals(recordIds.get(accountId2), accountRecordId2);
+
+        // All related caches should have been populated at once
+        Assert.assertEquals(controlCacheDispatcher.getCacheController(CacheType.RECORD_ID).get(accountId1.toString()), accountRecordId1);
+        Assert.assertEquals(controlCacheDispatcher.getCacheController(CacheType.ACCOUNT_RECORD_ID).get(accountId1.toString()), accountRecordId1);
+        Assert.assertEquals(controlCacheDispatcher.getCacheController(CacheType.TENANT_RECORD_ID).get(accountId1.toString()), (Long) InternalCallContextFactory.INTERNAL_TENANT_RECORD_ID);
+        Assert.assertEquals(controlCacheDispatcher.getCacheController(CacheType.OBJECT_ID).get("ACCOUNT" + CacheControllerDispatcher.CACHE_KEY_SEPARATOR + accountRecordId2), accountId2);
+        Assert.assertEquals(controlCacheDispatcher.getCacheController(CacheType.ACCOUNT_ID).get(accountRecordId2), accountId2);
+
+        final Map<Long, UUID> ids = internalCallContextFactory.getIdsFromRecordIds(ImmutableList.<Long>of(accountRecordId1, accountRecordId2), ObjectType.ACCOUNT, callContext);
+        Assert.assertEquals(ids.size(), 2);
+        Assert.assertEquals(ids.get(accountRecordId1), accountId1);
+        Assert.assertEquals(ids.get(accountRecordId2), accountId2);
+    }
+
     private void verifyInternalCallContext(final InternalCallContext context) {
         Assert.assertEquals(context.getCallOrigin(), callContext.getCallOrigin());
         Assert.assertEquals(context.getComments(), callContext.getComments());
@@ -18,6 +18,8 @@
 
 package org.killbill.billing.util.customfield;
 
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import org.killbill.billing.ObjectType;
@@ -25,8 +27,11 @@ import org.killbill.billing.api.TestApiListener.NextEvent;
 import org.killbill.billing.util.UtilTestSuiteWithEmbeddedDB;
 import org.killbill.billing.util.api.CustomFieldApiException;
 import org.killbill.billing.util.customfield.dao.CustomFieldModelDao;
+import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import com.google.common.collect.ImmutableList;
+
 public class TestFieldStore extends UtilTestSuiteWithEmbeddedDB {
 
     @Test(groups = "slow")
@@ -47,4 +52,35 @@ public class TestFieldStore extends UtilTestSuiteWithEmbeddedDB {
         customFieldDao.create(new CustomFieldModelDao(internalCallContext.getCreatedDate(), fieldName, fieldValue, id, objectType), internalCallContext);
         assertListenerStatus();
     }
+
+    @Test(groups = "slow")
+    public void testGetCustomFieldsForObjects() throws CustomFieldApiException {
+        final UUID id1 = UUID.randomUUID();
+        final UUID id2 = UUID.randomUUID();
+        final UUID idWithoutFields = UUID.randomUUID();
+        final ObjectType objectType = ObjectType.SUBSCRIPTION;
+
+        eventsListener.pushExpectedEvent(NextEvent.CUSTOM_FIELD);
+        customFieldDao.create(new CustomFieldModelDao(internalCallContext.getCreatedDate(), "TestField1", "Kitty Hawk", id1, objectType), internalCallContext);
+        assertListenerStatus();
+
+        eventsListener.pushExpectedEvent(NextEvent.CUSTOM_FIELD);
+        customFieldDao.create(new CustomFieldModelDao(internalCallContext.getCreatedDate(), "TestField2", "Cape Canaveral", id1, objectType), internalCallContext);
+        assertListenerStatus();
+
+        eventsListener.pushExpectedEvent(NextEvent.CUSTOM_FIELD);
+        customFieldDao.create(new CustomFieldModelDao(internalCallContext.getCreatedDate(), "TestField1", "Baikonur", id2, objectType), internalCallContext);
+        assertListenerStatus();
+
+        final Map<UUID, List<CustomFieldModelDao>> customFieldsByObjectId = customFieldDao.getCustomFieldsForObjects(ImmutableList.<UUID>of(id1, id2, idWithoutFields), objectType, internalCallContext);
+        Assert.assertEquals(customFieldsByObjectId.size(), 2);
+        Assert.assertEquals(customFieldsByObjectId.get(id1).size(), 2);
+        Assert.assertEquals(customFieldsByObjectId.get(id2).size(), 1);
+        Assert.assertEquals(customFieldsByObjectId.get(id2).get(0).getFieldValue(), "Baikonur");
+        Assert.assertNull(customFieldsByObjectId.get(idWithoutFields));
+
+        final Map<UUID, List<CustomFieldModelDao>> accountCustomFieldsByObjectId = customFieldDao.getCustomFieldsByObjectIdForAccountType(objectType, internalCallContext);
+        Assert.assertEquals(accountCustomFieldsByObjectId.get(id1).size(), 2);
+        Assert.assertEquals(accountCustomFieldsByObjectId.get(id2).size(), 1);
+    }
 }
@@ -17,7 +17,10 @@
 package org.killbill.billing.util.customfield.dao;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import org.killbill.billing.ObjectType;
@@ -42,6 +45,23 @@ public class MockCustomFieldDao extends MockEntityDaoBase<CustomFieldModelDao, C
         return result;
     }
 
+    @Override
+    public Map<UUID, List<CustomFieldModelDao>> getCustomFieldsForObjects(final Collection<UUID> objectIds, final ObjectType objectType, final InternalTenantContext context) {
+        final Map<UUID, List<CustomFieldModelDao>> result = new HashMap<UUID, List<CustomFieldModelDao>>();
+        for (final UUID objectId : objectIds) {
+            final List<CustomFieldModelDao> customFields = getCustomFieldsForObject(objectId, objectType, context);
+            if (!customFields.isEmpty()) {
+                result.put(objectId, customFields);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Map<UUID, List<CustomFieldModelDao>> getCustomFieldsByObjectIdForAccountType(final ObjectType objectType, final InternalTenantContext context) {
+        throw new UnsupportedOperationException();
+    }
+
     @Override
     public List<CustomFieldModelDao> getCustomFieldsForAccountType(final ObjectType objectType, final InternalTenantContext context) {
         throw new UnsupportedOperationException();
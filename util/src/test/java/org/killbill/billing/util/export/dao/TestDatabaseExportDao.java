@@ -17,8 +17,14 @@
 package org.killbill.billing.util.export.dao;
 
 import java.io.ByteArrayOutputStream;
+import java.util.Collections;
 import java.util.Date;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.skife.jdbi.v2.Handle;
 import org.skife.jdbi.v2.tweak.HandleCallback;
@@ -27,9 +33,13 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import org.killbill.billing.util.UtilTestSuiteWithEmbeddedDB;
+import org.killbill.billing.util.api.ColumnInfo;
 import org.killbill.billing.util.api.DatabaseExportOutputStream;
 import org.killbill.billing.util.validation.dao.DatabaseSchemaDao;
 
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
 public class TestDatabaseExportDao extends UtilTestSuiteWithEmbeddedDB {
 
     @Test(groups = "slow")
@@ -89,6 +99,122 @@ public class TestDatabaseExportDao extends UtilTestSuiteWithEmbeddedDB {
                                      "1,b," + internalCallContext.getAccountRecordId() + "," + internalCallContext.getTenantRecordId() + "\n");
     }
 
+    @Test(groups = "slow")
+    public void testExportIsResumable() throws Exception {
+        final String tableName = "test_database_export_dao_c";
+        createTableWithRows(tableName, 3);
+        try {
+            final DatabaseExportCheckpoint checkpoint = new DatabaseExportCheckpoint(ImmutableSet.<String>of("accounts", "test_database_export_dao_a", "test_database_export_dao_b"), ImmutableMap.<String, Long>of(tableName, 1L));
+
+            final DatabaseExportOutputStream out = new CSVExportOutputStream(new ByteArrayOutputStream());
+            dao.exportDataForAccount(out, checkpoint, internalCallContext);
+            Assert.assertEquals(out.toString(), "-- " + tableName + " record_id,c_column,account_record_id,tenant_record_id\n" +
+                                                "2,c," + internalCallContext.getAccountRecordId() + "," + internalCallContext.getTenantRecordId() + "\n" +
+                                                "3,c," + internalCallContext.getAccountRecordId() + "," + internalCallContext.getTenantRecordId() + "\n");
+            Assert.assertTrue(checkpoint.isTableExported(tableName));
+            Assert.assertNull(checkpoint.getLastRecordId(tableName));
+
+            // Everything has been exported already
+            final DatabaseExportOutputStream newOut = new CSVExportOutputStream(new ByteArrayOutputStream());
+            dao.exportDataForAccount(newOut, checkpoint, internalCallContext);
+            Assert.assertEquals(newOut.toString(), "");
+        } finally {
+            dropTable(tableName);
+        }
+    }
+
+    @Test(groups = "slow")
+    public void testExportByTable() throws Exception {
+        final String tableNameC = "test_database_export_dao_c";
+        final String tableNameD = "test_database_export_dao_d";
+        createTableWithRows(tableNameC, 2);
+        createTableWithRows(tableNameD, 1);
+        try {
+            final DatabaseExportCheckpoint checkpoint = new DatabaseExportCheckpoint();
+            final Map<String, DatabaseExportOutputStream> outputStreams = new ConcurrentHashMap<String, DatabaseExportOutputStream>();
+            final Set<String> exportedTables = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+            dao.exportDataForAccountByTable(new DatabaseExportOutputStreamFactory() {
+                @Override
+                public DatabaseExportOutputStream createOutputStream(final String tableName) {
+                    final DatabaseExportOutputStream out = new CSVExportOutputStream(new ByteArrayOutputStream());
+                    outputStreams.put(tableName, out);
+                    return out;
+                }
+
+                @Override
+                public void onTableExported(final String tableName, final DatabaseExportOutputStream out) {
+                    exportedTables.add(tableName);
+                }
+            }, checkpoint, 2, internalCallContext);
+
+            Assert.assertEquals(exportedTables, outputStreams.keySet());
+            Assert.assertTrue(checkpoint.getExportedTables().containsAll(exportedTables));
+            Assert.assertEquals(outputStreams.get(tableNameC).toString(), "-- " + tableNameC + " record_id,c_column,account_record_id,tenant_record_id\n" +
+                                                                          "1,c," + internalCallContext.getAccountRecordId() + "," + internalCallContext.getTenantRecordId() + "\n" +
+                                                                          "2,c," + internalCallContext.getAccountRecordId() + "," + internalCallContext.getTenantRecordId() + "\n");
+            Assert.assertEquals(outputStreams.get(tableNameD).toString(), "-- " + tableNameD + " record_id,c_column,account_record_id,tenant_record_id\n" +
+                                                                          "1,c," + internalCallContext.getAccountRecordId() + "," + internalCallContext.getTenantRecordId() + "\n");
+        } finally {
+            dropTable(tableNameC);
+            dropTable(tableNameD);
+        }
+    }
+
+    @Test(groups = "slow")
+    public void testExportIntoNonFlushableStreamIsNotCheckpointed() throws Exception {
+        final String tableName = "test_database_export_dao_c";
+        createTableWithRows(tableName, 1);
+        try {
+            final DatabaseExportCheckpoint checkpoint = new DatabaseExportCheckpoint();
+            final List<Map<String, Object>> rows = new LinkedList<Map<String, Object>>();
+            dao.exportDataForAccount(new DatabaseExportOutputStream() {
+                @Override
+                public void newTable(final String tableName, final List<ColumnInfo> columnsForTable) {
+                }
+
+                @Override
+                public void write(final Map<String, Object> row) {
+                    rows.add(row);
+                }
+            }, checkpoint, internalCallContext);
+
+            Assert.assertEquals(rows.size(), 1);
+            // The stream may still buffer the rows
+            Assert.assertFalse(checkpoint.isTableExported(tableName));
+        } finally {
+            dropTable(tableName);
+        }
+    }
+
+    private void createTableWithRows(final String tableName, final int nbRows) {
+        dbi.withHandle(new HandleCallback<Void>() {
+            @Override
+            public Void withHandle(final Handle handle) throws Exception {
+                handle.execute("drop table if exists " + tableName);
+                handle.execute("create table " + tableName + "(record_id serial unique," +
+                               "c_column char default 'c'," +
+                               "account_record_id bigint /*! unsigned */ not null," +
+                               "tenant_record_id bigint /*! unsigned */ not null default 0," +
+                               "primary key(record_id));");
+                for (int i = 0; i < nbRows; i++) {
+                    handle.execute("insert into " + tableName + " (account_record_id, tenant_record_id) values (?, ?)",
+                                   internalCallContext.getAccountRecordId(), internalCallContext.getTenantRecordId());
+                }
+                return null;
+            }
+        });
+    }
+
+    private void dropTable(final String tableName) {
+        dbi.withHandle(new HandleCallback<Void>() {
+            @Override
+            public Void withHandle(final Handle handle) throws Exception {
+                handle.execute("drop table if exists " + tableName);
+                return null;
+            }
+        });
+    }
+
     private String getDump() {
         final DatabaseExportOutputStream out = new CSVExportOutputStream(new ByteArrayOutputStream());
         dao.exportDataForAccount(out, internalCallContext);
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2014-2016 Groupon, Inc
+ * Copyright 2014-2016 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.globallocker;
+
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.killbill.billing.util.UtilTestSuiteNoDB;
+import org.killbill.commons.locker.GlobalLock;
+import org.killbill.commons.locker.GlobalLocker;
+import org.killbill.commons.locker.LockFailedException;
+import org.killbill.commons.locker.memory.MemoryGlobalLocker;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.codahale.metrics.MetricRegistry;
+
+public class TestLocalStripedGlobalLocker extends UtilTestSuiteNoDB {
+
+    @Test(groups = "fast")
+    public void testLockAndRelease() throws Exception {
+        final MetricRegistry metricRegistry = new MetricRegistry();
+        final LocalStripedGlobalLocker locker = new LocalStripedGlobalLocker(new MemoryGlobalLocker(), 16, metricRegistry);
+        final String lockKey = UUID.randomUUID().toString();
+
+        final GlobalLock lock = locker.lockWithNumberOfTries(LockerType.ACCNT_INV_PAY.toString(), lockKey, 3);
+        Assert.assertFalse(locker.isFree(LockerType.ACCNT_INV_PAY.toString(), lockKey));
+        lock.release();
+        Assert.assertTrue(locker.isFree(LockerType.ACCNT_INV_PAY.toString(), lockKey));
+
+        Assert.assertEquals(metricRegistry.histogram(MetricRegistry.name(LocalStripedGlobalLocker.class, LockerType.ACCNT_INV_PAY.toString(), "wait-time")).getCount(), 1);
+        Assert.assertEquals(metricRegistry.histogram(MetricRegistry.name(LocalStripedGlobalLocker.class, LockerType.ACCNT_INV_PAY.toString(), "hold-time")).getCount(), 1);
+    }
+
+    @Test(groups = "fast")
+    public void testContendersFromTheSameNodeWaitLocally() throws Exception {
+        final LocalStripedGlobalLocker locker = new LocalStripedGlobalLocker(new MemoryGlobalLocker(), 16, new MetricRegistry());
+        final String lockKey = UUID.randomUUID().toString();
+
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final GlobalLock lock = locker.lockWithNumberOfTries(LockerType.ACCNT_INV_PAY.toString(), lockKey, 3);
+
+            // Not released in time
+            final Future<Boolean> failedAttempt = executor.submit(new LockAttempt(locker, lockKey, 1));
+            Assert.assertFalse(failedAttempt.get());
+
+            // Released while waiting
+            final Future<Boolean> successfulAttempt = executor.submit(new LockAttempt(locker, lockKey, 50));
+            Thread.sleep(100);
+            lock.release();
+            Assert.assertTrue(successfulAttempt.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test(groups = "fast")
+    public void testLocalWaitIsChargedAgainstTheRetries() throws Exception {
+        final RecordingGlobalLocker delegate = new RecordingGlobalLocker();
+        final LocalStripedGlobalLocker locker = new LocalStripedGlobalLocker(delegate, 16, new MetricRegistry());
+        final String lockKey = UUID.randomUUID().toString();
+
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final GlobalLock lock = locker.lockWithNumberOfTries(LockerType.ACCNT_INV_PAY.toString(), lockKey, 10);
+            Assert.assertEquals(delegate.getLastRetry(), 10);
+
+            // Waits locally for about half of its budget (10 tries of 100ms)
+            final Future<Boolean> attempt = executor.submit(new LockAttempt(locker, lockKey, 10));
+            Thread.sleep(500);
+            lock.release();
+            Assert.assertTrue(attempt.get());
+            Assert.assertTrue(delegate.getLastRetry() >= 1 && delegate.getLastRetry() <= 5, "Unexpected number of tries " + delegate.getLastRetry());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static final class RecordingGlobalLocker implements GlobalLocker {
+
+        private final GlobalLocker delegate = new MemoryGlobalLocker();
+
+        private volatile int lastRetry;
+
+        @Override
+        public GlobalLock lockWithNumberOfTries(final String service, final String lockKey, final int retry) throws LockFailedException {
+            lastRetry = retry;
+            return delegate.lockWithNumberOfTries(service, lockKey, retry);
+        }
+
+        @Override
+        public boolean isFree(final String service, final String lockKey) {
+            return delegate.isFree(service, lockKey);
+        }
+
+        public int getLastRetry() {
+            return lastRetry;
+        }
+    }
+
+    private static final class LockAttempt implements Callable<Boolean> {
+
+        private final LocalStripedGlobalLocker locker;
+        private final String lockKey;
+        private final int retry;
+
+        private LockAttempt(final LocalStripedGlobalLocker locker, final String lockKey, final int retry) {
+            this.locker = locker;
+            this.lockKey = lockKey;
+            this.retry = retry;
+        }
+
+        @Override
+        public Boolean call() throws Exception {
+            try {
+                locker.lockWithNumberOfTries(LockerType.ACCNT_INV_PAY.toString(), lockKey, retry).release();
+                return true;
+            } catch (final LockFailedException e) {
+                return false;
+            }
+        }
+    }
+}
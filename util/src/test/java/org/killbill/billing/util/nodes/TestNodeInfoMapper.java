@@ -26,6 +26,8 @@ import javax.inject.Inject;
 
 import org.killbill.billing.osgi.api.PluginState;
 import org.killbill.billing.util.UtilTestSuiteNoDB;
+import org.killbill.billing.util.nodes.json.CacheWarmUpModelJson;
+import org.killbill.billing.util.nodes.json.CacheWarmUpModelJson.CacheWarmUpState;
 import org.killbill.billing.util.nodes.json.NodeInfoModelJson;
 import org.killbill.billing.util.nodes.json.PluginInfoModelJson;
 import org.killbill.billing.util.nodes.json.PluginServiceInfoModelJson;
@@ -50,7 +52,8 @@ public class TestNodeInfoMapper extends UtilTestSuiteNoDB {
         final List<PluginInfoModelJson> pluginInfos = new ArrayList<PluginInfoModelJson>();
         final PluginInfoModelJson info1 = new PluginInfoModelJson("sym1", "key1", "name1", "vers1", PluginState.STOPPED, true, services1);
         pluginInfos.add(info1);
-        final NodeInfoModelJson input = new NodeInfoModelJson("nodeName", clock.getUTCNow(), clock.getUTCNow(), "1.0", "1.0", "1.0", "1.0", "1.0", pluginInfos);
+        final CacheWarmUpModelJson cacheWarmUp = new CacheWarmUpModelJson(CacheWarmUpState.COMPLETED, clock.getUTCNow(), clock.getUTCNow(), 2, 2, 10);
+        final NodeInfoModelJson input = new NodeInfoModelJson("nodeName", clock.getUTCNow(), clock.getUTCNow(), "1.0", "1.0", "1.0", "1.0", "1.0", pluginInfos, cacheWarmUp);
 
         final String nodeInfoStr = nodeInfoMapper.serializeNodeInfo(input);
 
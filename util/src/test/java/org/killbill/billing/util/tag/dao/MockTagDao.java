@@ -17,6 +17,7 @@
 package org.killbill.billing.util.tag.dao;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -86,6 +87,23 @@ public class MockTagDao extends MockEntityDaoBase<TagModelDao, Tag, TagApiExcept
         }));
     }
 
+    @Override
+    public Map<UUID, List<TagModelDao>> getTagsForObjects(final Collection<UUID> objectIds, final ObjectType objectType, final boolean includedDeleted, final InternalTenantContext internalTenantContext) {
+        final Map<UUID, List<TagModelDao>> result = new HashMap<UUID, List<TagModelDao>>();
+        for (final UUID objectId : objectIds) {
+            final List<TagModelDao> tags = getTagsForObject(objectId, objectType, includedDeleted, internalTenantContext);
+            if (!tags.isEmpty()) {
+                result.put(objectId, tags);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Map<UUID, List<TagModelDao>> getTagsByObjectIdForAccountType(final ObjectType objectType, final boolean includedDeleted, final InternalTenantContext internalTenantContext) {
+        throw new UnsupportedOperationException();
+    }
+
     @Override
     public List<TagModelDao> getTagsForAccountType(final ObjectType objectType, final boolean includedDeleted, final InternalTenantContext internalTenantContext) {
         throw new UnsupportedOperationException();
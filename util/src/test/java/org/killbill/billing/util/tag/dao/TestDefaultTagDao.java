@@ -18,6 +18,7 @@ package org.killbill.billing.util.tag.dao;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import org.testng.Assert;
@@ -33,6 +34,8 @@ import org.killbill.billing.util.tag.ControlTagType;
 import org.killbill.billing.util.tag.DescriptiveTag;
 import org.killbill.billing.util.tag.Tag;
 
+import com.google.common.collect.ImmutableList;
+
 import static org.testng.Assert.assertEquals;
 
 public class TestDefaultTagDao extends UtilTestSuiteWithEmbeddedDB {
@@ -176,4 +179,44 @@ public class TestDefaultTagDao extends UtilTestSuiteWithEmbeddedDB {
         }
     }
 
+    @Test(groups = "slow")
+    public void testGetTagsForObjects() throws TagApiException {
+        final UUID objectId1 = UUID.randomUUID();
+        final UUID objectId2 = UUID.randomUUID();
+        final UUID objectIdWithoutTags = UUID.randomUUID();
+        final ObjectType objectType = ObjectType.BUNDLE;
+
+        eventsListener.pushExpectedEvent(NextEvent.TAG);
+        tagDao.create(new TagModelDao(internalCallContext.getCreatedDate(), ControlTagType.AUTO_INVOICING_OFF.getId(), objectId1, objectType), internalCallContext);
+        assertListenerStatus();
+
+        eventsListener.pushExpectedEvent(NextEvent.TAG);
+        tagDao.create(new TagModelDao(internalCallContext.getCreatedDate(), ControlTagType.AUTO_PAY_OFF.getId(), objectId1, objectType), internalCallContext);
+        assertListenerStatus();
+
+        eventsListener.pushExpectedEvent(NextEvent.TAG);
+        tagDao.create(new TagModelDao(internalCallContext.getCreatedDate(), ControlTagType.AUTO_INVOICING_OFF.getId(), objectId2, objectType), internalCallContext);
+        assertListenerStatus();
+
+        final Map<UUID, List<TagModelDao>> tagsByObjectId = tagDao.getTagsForObjects(ImmutableList.<UUID>of(objectId1, objectId2, objectIdWithoutTags), objectType, false, internalCallContext);
+        Assert.assertEquals(tagsByObjectId.size(), 2);
+        Assert.assertEquals(tagsByObjectId.get(objectId1).size(), 2);
+        Assert.assertEquals(tagsByObjectId.get(objectId2).size(), 1);
+        Assert.assertNull(tagsByObjectId.get(objectIdWithoutTags));
+
+        // Wrong object type
+        Assert.assertTrue(tagDao.getTagsForObjects(ImmutableList.<UUID>of(objectId1, objectId2), ObjectType.ACCOUNT, false, internalCallContext).isEmpty());
+
+        eventsListener.pushExpectedEvent(NextEvent.TAG);
+        tagDao.deleteTag(objectId2, objectType, ControlTagType.AUTO_INVOICING_OFF.getId(), internalCallContext);
+        assertListenerStatus();
+
+        Assert.assertEquals(tagDao.getTagsForObjects(ImmutableList.<UUID>of(objectId1, objectId2), objectType, false, internalCallContext).size(), 1);
+        Assert.assertEquals(tagDao.getTagsForObjects(ImmutableList.<UUID>of(objectId1, objectId2), objectType, true, internalCallContext).size(), 2);
+
+        final Map<UUID, List<TagModelDao>> accountTagsByObjectId = tagDao.getTagsByObjectIdForAccountType(objectType, false, internalCallContext);
+        Assert.assertEquals(accountTagsByObjectId.get(objectId1).size(), 2);
+        Assert.assertNull(accountTagsByObjectId.get(objectId2));
+    }
+
 }